@@ -31,6 +31,8 @@ import org.nzbhydra.mapping.newznab.caps.CapsSearching;
 import org.nzbhydra.mapping.newznab.caps.CapsServer;
 import org.nzbhydra.mediainfo.InfoProvider.IdType;
 import org.nzbhydra.searching.CategoryProvider;
+import org.nzbhydra.searching.LatestReleases;
+import org.nzbhydra.searching.LatestReleases.LatestReleasesResult;
 import org.nzbhydra.searching.SearchResult;
 import org.nzbhydra.searching.SearchResultItem;
 import org.nzbhydra.searching.SearchResultItem.DownloadType;
@@ -89,6 +91,8 @@ public class ExternalApi {
     protected ConfigProvider configProvider;
     @Autowired
     private CategoryProvider categoryProvider;
+    @Autowired
+    private LatestReleases latestReleases;
     protected Clock clock = Clock.systemUTC();
     private Random random = new Random();
 
@@ -108,6 +112,10 @@ public class ExternalApi {
             if (params.getCachetime() != null) {
                 return handleCachingSearch(params);
             }
+            Optional<ResponseEntity<RssRoot>> latestReleasesResponse = getLatestReleases(params);
+            if (latestReleasesResponse.isPresent()) {
+                return latestReleasesResponse.get();
+            }
             RssRoot searchResult = search(params);
             return new ResponseEntity<>(searchResult, HttpStatus.OK);
         }
@@ -199,18 +207,54 @@ public class ExternalApi {
     protected RssRoot search(NewznabParameters params) {
         Stopwatch stopwatch = Stopwatch.createStarted();
         SearchRequest searchRequest = buildBaseSearchRequest(params);
+        logger.info("Executing new search");
         if (isTorznabCall()) {
             searchRequest.setDownloadType(org.nzbhydra.searching.DownloadType.TORRENT);
         } else {
             searchRequest.setDownloadType(org.nzbhydra.searching.DownloadType.NZB);
         }
+        searchRequest.getInternalData().setProgressive(configProvider.getBaseConfig().getSearching().isProgressiveApiSearch());
         SearchResult searchResult = searcher.search(searchRequest);
+        if (searchResult.isPartial()) {
+            logger.info("Search deadline was exceeded. Results from indexers which did not answer in time are missing");
+        }
 
         RssRoot transformedResults = transformResults(searchResult, params, searchRequest);
         logger.info("Search took {}ms. Returning {} results", stopwatch.elapsed(TimeUnit.MILLISECONDS), transformedResults.getRssChannel().getItems().size());
         return transformedResults;
     }
 
+    /**
+     * Answers searches without any search terms (usually RSS syncs) from the releases polled in the background if that's enabled and they were
+     * updated recently
+     */
+    protected Optional<ResponseEntity<RssRoot>> getLatestReleases(NewznabParameters params) {
+        if (!configProvider.getBaseConfig().getSearching().isPrefetchLatestReleases() || !hasNoSearchTermsOrFilters(params)) {
+            return Optional.empty();
+        }
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        org.nzbhydra.searching.DownloadType downloadType = isTorznabCall() ? org.nzbhydra.searching.DownloadType.TORRENT : org.nzbhydra.searching.DownloadType.NZB;
+        int offset = params.getOffset() == null ? 0 : params.getOffset();
+        int limit = params.getLimit() == null ? 100 : params.getLimit();
+        Optional<LatestReleasesResult> result = latestReleases.getReleases(params.getCat(), downloadType, offset, limit);
+        if (!result.isPresent()) {
+            logger.info("No recently polled latest releases available. Searching indexers");
+            return Optional.empty();
+        }
+        SearchRequest searchRequest = new SearchRequest(SearchSource.API, SearchType.valueOf(params.getT().name()), offset, limit);
+        searchRequest.setDownloadType(downloadType);
+        RssRoot rssRoot = getRssRoot(result.get().getSearchResultItems(), offset, result.get().getTotal(), searchRequest);
+        rssRoot.getRssChannel().setDescription("Latest releases polled between " + result.get().getOldestPoll() + " and " + result.get().getLastPoll());
+        logger.info("Returning {} of {} latest releases polled until {} in {}ms", rssRoot.getRssChannel().getItems().size(), result.get().getTotal(), result.get().getLastPoll(), stopwatch.elapsed(TimeUnit.MILLISECONDS));
+        return Optional.of(ResponseEntity.ok().lastModified(result.get().getLastPoll().toEpochMilli()).body(rssRoot));
+    }
+
+    private boolean hasNoSearchTermsOrFilters(NewznabParameters params) {
+        SearchRequest searchRequest = buildBaseSearchRequest(params);
+        boolean noFilters = !searchRequest.getMinage().isPresent() && !searchRequest.getMaxage().isPresent() && !searchRequest.getMinsize().isPresent() && !searchRequest.getMaxsize().isPresent();
+        return searchRequest.hasNoSearchTerms() && noFilters;
+    }
+
     private boolean isTorznabCall() {
         return SessionStorage.requestUrl.get() != null && SessionStorage.requestUrl.get().toLowerCase().contains("torznab");
     }
@@ -292,7 +336,6 @@ public class ExternalApi {
     private SearchRequest buildBaseSearchRequest(NewznabParameters params) {
         SearchType searchType = SearchType.valueOf(params.getT().name());
         SearchRequest searchRequest = searchRequestFactory.getSearchRequest(searchType, SearchSource.API, categoryProvider.fromNewznabCategories(params.getCat(), CategoriesConfig.allCategory), random.nextInt(1000000), params.getOffset(), params.getLimit());
-        logger.info("Executing new search");
         searchRequest.setQuery(params.getQ());
         searchRequest.setLimit(params.getLimit());
         searchRequest.setOffset(params.getOffset());
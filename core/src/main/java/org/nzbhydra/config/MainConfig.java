@@ -30,6 +30,8 @@ public class MainConfig extends ValidatingConfig {
     private String externalUrl = null;
     @RestartRequired
     private String host = "0.0.0.0";
+    private int idleConnectionsPerHost = 5;
+    private int idleConnectionKeepAliveMinutes = 5;
     private LoggingConfig logging = new LoggingConfig();
     @RestartRequired
     private int port = 5076;
@@ -65,6 +67,7 @@ public class MainConfig extends ValidatingConfig {
     private boolean useLocalUrlForApiAccess = true;
     @RestartRequired
     private boolean verifySsl = true;
+    private boolean warmUpIndexerConnections = false;
     private boolean welcomeShown = false;
     @RestartRequired
     private int xmx;
@@ -102,6 +105,13 @@ public class MainConfig extends ValidatingConfig {
             result.getWarningMessages().add("Changed URL base to " + urlBase);
         }
 
+        if (idleConnectionsPerHost < 1) {
+            result.getErrorMessages().add("The number of idle connections per host in \"Main\" must be at least 1");
+        }
+        if (idleConnectionKeepAliveMinutes < 1) {
+            result.getErrorMessages().add("The idle connection keep-alive in \"Main\" must be at least one minute");
+        }
+
         ConfigValidationResult loggingResult = getLogging().validateConfig(oldConfig);
         result.getWarningMessages().addAll(loggingResult.getWarningMessages());
         result.getErrorMessages().addAll(loggingResult.getErrorMessages());
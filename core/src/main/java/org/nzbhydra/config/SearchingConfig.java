@@ -18,8 +18,10 @@ public class SearchingConfig extends ValidatingConfig {
 
     @JsonFormat(shape = Shape.STRING)
     private SearchSourceRestriction applyRestrictions = SearchSourceRestriction.BOTH;
+    private boolean asyncIndexerSearches = false;
 
     private float duplicateAgeThreshold = 2.0F;
+    private int duplicateDetectionParallelThreshold = 10000;
     private float duplicateSizeThresholdInPercent = 1.0F;
     private List<String> forbiddenGroups = new ArrayList<>();
     private List<String> forbiddenPosters = new ArrayList<>();
@@ -30,15 +32,32 @@ public class SearchingConfig extends ValidatingConfig {
     private SearchSourceRestriction idFallbackToQueryGeneration = SearchSourceRestriction.NONE;
     private boolean ignorePassworded = false;
     private boolean ignoreTemporarilyDisabled = false;
+    private boolean indexSearchResults = false;
+    @RestartRequired
+    private int indexerQueueSize = 100;
+    private int indexerThreads = 30;
+    private int keepApiAccessesForDays = 0;
+    private int keepIndexerSearchesForDays = 0;
+    private int keepSearchHistoryForDays = 0;
     private int keepSearchResultsForDays = 14;
     private String language = "en";
+    private int latestReleasesPollMinutes = 15;
     private boolean loadAllCachedOnInternal;
     private Integer maxAge;
+    private int maxConcurrentCallsPerIndexer = 5;
+    private int maxIndexerResponseSizeMb = 20;
+    private int maxNzbSizeMb = 100;
+    private boolean prefetchLatestReleases = false;
+    private int progressiveSearchDeadline = 30;
+    private boolean progressiveApiSearch = false;
     @JsonFormat(shape = Shape.STRING)
     private NzbAccessType nzbAccessType = NzbAccessType.REDIRECT;
     private List<String> removeTrailing = new ArrayList<>();
     private String requiredRegex;
     private List<String> requiredWords = new ArrayList<>();
+    private boolean rssDeltaPolling = false;
+    private int searchCacheMaxSizeMb = 100;
+    private int searchCacheTimeMinutes = 5;
     private boolean showQuickFilterButtons = true;
     private Integer timeout = 30;
     private String userAgent = "NZBHydra2";
@@ -77,6 +96,33 @@ public class SearchingConfig extends ValidatingConfig {
         List<String> errors = new ArrayList<>();
         checkRegex(errors, requiredRegex, "The required regex in \"Searching\" is invalid");
         checkRegex(errors, forbiddenRegex, "The forbidden in \"Searching\" is invalid");
-        return new ConfigValidationResult(errors.isEmpty(), false, errors, Collections.emptyList());
+        if (duplicateDetectionParallelThreshold < 0) {
+            errors.add("The threshold for parallel duplicate detection in \"Searching\" must not be negative");
+        }
+        if (indexerThreads < 1) {
+            errors.add("The number of indexer threads in \"Searching\" must be at least 1");
+        }
+        if (maxConcurrentCallsPerIndexer < 1) {
+            errors.add("The number of concurrent calls per indexer in \"Searching\" must be at least 1");
+        }
+        if (maxIndexerResponseSizeMb < 1) {
+            errors.add("The maximum indexer response size in \"Searching\" must be at least 1MB");
+        }
+        if (maxNzbSizeMb < 1) {
+            errors.add("The maximum NZB size in \"Searching\" must be at least 1MB");
+        }
+        if (searchCacheMaxSizeMb < 1) {
+            errors.add("The search cache size in \"Searching\" must be at least 1MB");
+        }
+        if (searchCacheTimeMinutes < 1) {
+            errors.add("The search cache time in \"Searching\" must be at least one minute");
+        }
+        if (latestReleasesPollMinutes < 5) {
+            errors.add("The poll interval for latest releases in \"Searching\" must be at least five minutes");
+        }
+        if (progressiveSearchDeadline < 1) {
+            errors.add("The search deadline in \"Searching\" must be at least one second");
+        }
+        return new ConfigValidationResult(errors.isEmpty(), isRestartNeeded(oldConfig.getSearching()), errors, Collections.emptyList());
     }
 };
@@ -2,8 +2,20 @@ package org.nzbhydra.debuginfos;
 
 import org.nzbhydra.GenericResponse;
 import org.nzbhydra.NzbHydra;
+import org.nzbhydra.indexers.IndexerExecutor;
+import org.nzbhydra.indexers.IndexerExecutor.IndexerExecutorMetrics;
 import org.nzbhydra.logging.LogContentProvider;
 import org.nzbhydra.logging.LogContentProvider.JsonLogResponse;
+import org.nzbhydra.okhttp.ConnectionStatistics.ConnectionStats;
+import org.nzbhydra.okhttp.HydraOkHttp3ClientHttpRequestFactory;
+import org.nzbhydra.searching.AcceptanceCheckStatistics.AcceptanceCheckStats;
+import org.nzbhydra.searching.LatestReleases;
+import org.nzbhydra.searching.LatestReleases.LatestReleasesStats;
+import org.nzbhydra.searching.ResultAcceptor;
+import org.nzbhydra.searching.SearchCache;
+import org.nzbhydra.searching.SearchCache.SearchCacheStats;
+import org.nzbhydra.searching.Searcher;
+import org.nzbhydra.searching.Searcher.SearchCoalescingStats;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -28,6 +40,18 @@ public class DebugInfosWeb {
     private LogContentProvider logContentProvider;
     @Autowired
     private org.nzbhydra.debuginfos.DebugInfosProvider debugInfos;
+    @Autowired
+    private IndexerExecutor indexerExecutor;
+    @Autowired
+    private Searcher searcher;
+    @Autowired
+    private SearchCache searchCache;
+    @Autowired
+    private ResultAcceptor resultAcceptor;
+    @Autowired
+    private HydraOkHttp3ClientHttpRequestFactory requestFactory;
+    @Autowired
+    private LatestReleases latestReleases;
 
     private static final Logger logger = LoggerFactory.getLogger(DebugInfosWeb.class);
 
@@ -96,5 +120,40 @@ public class DebugInfosWeb {
         }
     }
 
+    @Secured({"ROLE_ADMIN"})
+    @RequestMapping(value = "/internalapi/debuginfos/indexerexecutor", method = RequestMethod.GET)
+    public IndexerExecutorMetrics getIndexerExecutorMetrics() {
+        return indexerExecutor.getMetrics();
+    }
+
+    @Secured({"ROLE_ADMIN"})
+    @RequestMapping(value = "/internalapi/debuginfos/searchcoalescing", method = RequestMethod.GET)
+    public SearchCoalescingStats getSearchCoalescingStats() {
+        return searcher.getSearchCoalescingStats();
+    }
+
+    @Secured({"ROLE_ADMIN"})
+    @RequestMapping(value = "/internalapi/debuginfos/searchcache", method = RequestMethod.GET)
+    public SearchCacheStats getSearchCacheStats() {
+        return searchCache.getStats();
+    }
+
+    @Secured({"ROLE_ADMIN"})
+    @RequestMapping(value = "/internalapi/debuginfos/resultacceptor", method = RequestMethod.GET)
+    public List<AcceptanceCheckStats> getResultAcceptorStats() {
+        return resultAcceptor.getCheckStatistics();
+    }
+
+    @Secured({"ROLE_ADMIN"})
+    @RequestMapping(value = "/internalapi/debuginfos/httpclients", method = RequestMethod.GET)
+    public ConnectionStats getHttpClientStats() {
+        return requestFactory.getConnectionStats();
+    }
+
+    @Secured({"ROLE_ADMIN"})
+    @RequestMapping(value = "/internalapi/debuginfos/latestreleases", method = RequestMethod.GET)
+    public LatestReleasesStats getLatestReleasesStats() {
+        return latestReleases.getStats();
+    }
 
 }
@@ -4,14 +4,12 @@ import com.google.common.base.Stopwatch;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.Getter;
-import okhttp3.Request;
-import okhttp3.Response;
 import org.nzbhydra.config.ConfigProvider;
 import org.nzbhydra.config.MainConfig;
 import org.nzbhydra.config.NzbAccessType;
 import org.nzbhydra.indexers.Indexer;
 import org.nzbhydra.indexers.NfoResult;
-import org.nzbhydra.okhttp.HydraOkHttp3ClientHttpRequestFactory;
+import org.nzbhydra.okhttp.WebAccess;
 import org.nzbhydra.searching.SearchModuleProvider;
 import org.nzbhydra.searching.SearchResultEntity;
 import org.nzbhydra.searching.SearchResultItem.DownloadType;
@@ -35,6 +33,7 @@ import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.zip.ZipEntry;
@@ -54,7 +53,7 @@ public class NzbHandler {
     @Autowired
     private SearchModuleProvider searchModuleProvider;
     @Autowired
-    private HydraOkHttp3ClientHttpRequestFactory clientHttpRequestFactory;
+    private WebAccess webAccess;
     @Autowired
     private ApplicationEventPublisher eventPublisher;
 
@@ -269,12 +268,10 @@ public class NzbHandler {
 
 
     private String downloadNzb(SearchResultEntity result) throws IOException {
-        Request request = new Request.Builder().url(result.getLink()).build();
         Indexer indexerByName = searchModuleProvider.getIndexerByName(result.getIndexer().getName());
         Integer timeout = indexerByName.getConfig().getTimeout().orElse(configProvider.getBaseConfig().getSearching().getTimeout());
-        try (Response response = clientHttpRequestFactory.getOkHttpClientBuilder(request.url().uri()).readTimeout(timeout, TimeUnit.SECONDS).connectTimeout(timeout, TimeUnit.SECONDS).build().newCall(request).execute()) {
-            return response.body().string();
-        }
+        long maxBodyBytes = configProvider.getBaseConfig().getSearching().getMaxNzbSizeMb() * 1024L * 1024L;
+        return webAccess.callUrl(result.getLink(), new HashMap<>(), timeout, maxBodyBytes, (source, charset) -> source.readString(charset));
     }
 
     @Getter
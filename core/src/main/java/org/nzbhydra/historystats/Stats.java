@@ -35,6 +35,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -81,22 +82,21 @@ public class Stats {
             futures.add(executor.submit(() -> statsResponse.setIndexerApiAccessStats(indexerApiAccesses(statsRequest))));
         }
         if (statsRequest.isAvgIndexerSearchResultsShares()) {
-            statsResponse.setAvgIndexerSearchResultsShares(Collections.emptyList());
-            //futures.add(executor.submit(() -> statsResponse.setAvgIndexerSearchResultsShares(indexerSearchShares(statsRequest))));
+            futures.add(executor.submit(() -> statsResponse.setAvgIndexerSearchResultsShares(indexerSearchShares(statsRequest))));
         }
 
         if (statsRequest.isSearchesPerDayOfWeek()) {
-            futures.add(executor.submit(() -> statsResponse.setSearchesPerDayOfWeek(countPerDayOfWeek("SEARCH", statsRequest))));
+            futures.add(executor.submit(() -> statsResponse.setSearchesPerDayOfWeek(countPerDayOfWeek("STATS_SEARCHES", statsRequest))));
         }
         if (statsRequest.isDownloadsPerDayOfWeek()) {
-            futures.add(executor.submit(() -> statsResponse.setDownloadsPerDayOfWeek(countPerDayOfWeek("INDEXERNZBDOWNLOAD", statsRequest))));
+            futures.add(executor.submit(() -> statsResponse.setDownloadsPerDayOfWeek(countPerDayOfWeek("STATS_DOWNLOADS", statsRequest))));
         }
 
         if (statsRequest.isSearchesPerHourOfDay()) {
-            futures.add(executor.submit(() -> statsResponse.setSearchesPerHourOfDay(countPerHourOfDay("SEARCH", statsRequest))));
+            futures.add(executor.submit(() -> statsResponse.setSearchesPerHourOfDay(countPerHourOfDay("STATS_SEARCHES", statsRequest))));
         }
         if (statsRequest.isDownloadsPerHourOfDay()) {
-            futures.add(executor.submit(() -> statsResponse.setDownloadsPerHourOfDay(countPerHourOfDay("INDEXERNZBDOWNLOAD", statsRequest))));
+            futures.add(executor.submit(() -> statsResponse.setDownloadsPerHourOfDay(countPerHourOfDay("STATS_DOWNLOADS", statsRequest))));
         }
 
         if (statsRequest.isIndexerDownloadShares()) {
@@ -121,29 +121,17 @@ public class Stats {
         }
 
 
-        if (statsRequest.isSearchSharesPerUser()) {
-            BigInteger countSearchesWithData = (BigInteger) entityManager.createNativeQuery("SELECT count(*) FROM SEARCH t WHERE t.USERNAME IS NOT NULL").getSingleResult();
-            if (countSearchesWithData.intValue() > 0) {
-                futures.add(executor.submit(() -> statsResponse.setSearchSharesPerUser(downloadsOrSearchesPerUserOrIp(statsRequest, "SEARCH", "USERNAME"))));
-            }
+        if (statsRequest.isSearchSharesPerUser() && hasRollupData("STATS_SEARCHES", "USERNAME")) {
+            futures.add(executor.submit(() -> statsResponse.setSearchSharesPerUser(downloadsOrSearchesPerUserOrIp(statsRequest, "STATS_SEARCHES", "USERNAME"))));
         }
-        if (statsRequest.isDownloadSharesPerUser()) {
-            BigInteger countDownloadsWithData = (BigInteger) entityManager.createNativeQuery("SELECT count(*) FROM INDEXERNZBDOWNLOAD t WHERE t.USERNAME IS NOT NULL").getSingleResult();
-            if (countDownloadsWithData.intValue() > 0) {
-                futures.add(executor.submit(() -> statsResponse.setDownloadSharesPerUser(downloadsOrSearchesPerUserOrIp(statsRequest, "INDEXERNZBDOWNLOAD", "USERNAME"))));
-            }
+        if (statsRequest.isDownloadSharesPerUser() && hasRollupData("STATS_DOWNLOADS", "USERNAME")) {
+            futures.add(executor.submit(() -> statsResponse.setDownloadSharesPerUser(downloadsOrSearchesPerUserOrIp(statsRequest, "STATS_DOWNLOADS", "USERNAME"))));
         }
-        if (statsRequest.isSearchSharesPerIp()) {
-            BigInteger countSearchesWithData = (BigInteger) entityManager.createNativeQuery("SELECT count(*) FROM SEARCH t WHERE t.IP IS NOT NULL").getSingleResult();
-            if (countSearchesWithData.intValue() > 0) {
-                futures.add(executor.submit(() -> statsResponse.setSearchSharesPerIp(downloadsOrSearchesPerUserOrIp(statsRequest, "SEARCH", "IP"))));
-            }
+        if (statsRequest.isSearchSharesPerIp() && hasRollupData("STATS_SEARCHES", "IP")) {
+            futures.add(executor.submit(() -> statsResponse.setSearchSharesPerIp(downloadsOrSearchesPerUserOrIp(statsRequest, "STATS_SEARCHES", "IP"))));
         }
-        if (statsRequest.isDownloadSharesPerIp()) {
-            BigInteger countDownloadsWithData = (BigInteger) entityManager.createNativeQuery("SELECT count(*) FROM INDEXERNZBDOWNLOAD t WHERE t.IP IS NOT NULL").getSingleResult();
-            if (countDownloadsWithData.intValue() > 0) {
-                futures.add(executor.submit(() -> statsResponse.setDownloadSharesPerIp(downloadsOrSearchesPerUserOrIp(statsRequest, "INDEXERNZBDOWNLOAD", "IP"))));
-            }
+        if (statsRequest.isDownloadSharesPerIp() && hasRollupData("STATS_DOWNLOADS", "IP")) {
+            futures.add(executor.submit(() -> statsResponse.setDownloadSharesPerIp(downloadsOrSearchesPerUserOrIp(statsRequest, "STATS_DOWNLOADS", "IP"))));
         }
 
 
@@ -184,15 +172,14 @@ public class Stats {
         String sqlQueryByIndexer =
                 "SELECT\n" +
                         "  indexer.name,\n" +
-                        "  count(*) AS total,\n" +
+                        "  sum(TOTAL) AS total,\n" +
                         "  countall.countall\n" +
                         "FROM\n" +
-                        "  indexernzbdownload dl LEFT JOIN SEARCHRESULT ON dl.SEARCH_RESULT_ID = SEARCHRESULT.ID\n" +
-                        "  LEFT JOIN indexer ON SEARCHRESULT.INDEXER_ID = INDEXER.ID\n" +
+                        "  STATS_DOWNLOADS dl LEFT JOIN indexer ON dl.INDEXER_ID = INDEXER.ID\n" +
                         "  ,\n" +
-                        "  (SELECT count(*) AS countall\n" +
+                        "  (SELECT sum(TOTAL) AS countall\n" +
                         "   FROM\n" +
-                        "     indexernzbdownload dl LEFT JOIN SEARCHRESULT ON dl.SEARCH_RESULT_ID = SEARCHRESULT.ID\n" +
+                        "     STATS_DOWNLOADS\n" +
                         buildWhereFromStatsRequest(false, statsRequest) +
                         ")\n" +
                         "  countall\n" +
@@ -209,8 +196,8 @@ public class Stats {
             if (!indexerNamesToInclude.contains(indexerName)) {
                 continue;
             }
-            long total = ((BigInteger) resultSet[1]).longValue();
-            long countAll = ((BigInteger) resultSet[2]).longValue();
+            long total = ((Number) resultSet[1]).longValue();
+            long countAll = ((Number) resultSet[2]).longValue();
             float share = total > 0 ? (100F / ((float) countAll / total)) : 0F;
             indexerDownloadShares.add(new IndexerDownloadShare(indexerName, total, share));
         }
@@ -224,28 +211,33 @@ public class Stats {
         List<AverageResponseTime> averageResponseTimes = new ArrayList<>();
         String sql = "SELECT\n" +
                 "  NAME,\n" +
-                "  avg(RESPONSE_TIME) AS avg\n" +
-                "FROM INDEXERAPIACCESS\n" +
-                "  LEFT JOIN indexer i ON INDEXERAPIACCESS.INDEXER_ID = i.ID\n" +
+                "  sum(RESPONSE_TIME_SUM) AS responsetimes,\n" +
+                "  sum(RESPONSE_TIME_COUNT) AS count\n" +
+                "FROM STATS_API_ACCESSES\n" +
+                "  LEFT JOIN indexer i ON STATS_API_ACCESSES.INDEXER_ID = i.ID\n" +
                 buildWhereFromStatsRequest(false, statsRequest) +
-                "GROUP BY INDEXER_ID\n" +
-                "ORDER BY avg ASC";
+                "GROUP BY INDEXER_ID";
 
         Query query = entityManager.createNativeQuery(sql);
         List resultList = query.getResultList();
         Set<String> indexerNamesToInclude = searchModuleProvider.getIndexers().stream().filter(x -> x.getConfig().isEnabled() || statsRequest.isIncludeDisabled()).map(Indexer::getName).collect(Collectors.toSet());
-        OptionalDouble overallAverage = resultList.stream().filter(x -> ((Object[]) x)[1] != null).mapToLong(x -> ((BigInteger) ((Object[]) x)[1]).longValue()).average();
-
+        Map<String, Long> averageResponseTimesByIndexer = new HashMap<>();
         for (Object result : resultList) {
             Object[] resultSet = (Object[]) result;
-            String indexerName = (String) resultSet[0];
+            long count = ((Number) resultSet[2]).longValue();
+            if (resultSet[0] != null && count > 0) {
+                averageResponseTimesByIndexer.put((String) resultSet[0], ((Number) resultSet[1]).longValue() / count);
+            }
+        }
+        OptionalDouble overallAverage = averageResponseTimesByIndexer.values().stream().mapToLong(x -> x).average();
 
-            if (resultSet[0] == null || resultSet[1] == null || !indexerNamesToInclude.contains(indexerName)) {
+        for (Entry<String, Long> entry : averageResponseTimesByIndexer.entrySet()) {
+            if (!indexerNamesToInclude.contains(entry.getKey())) {
                 continue;
             }
-            Long averageResponseTime = ((BigInteger) resultSet[1]).longValue();
-            averageResponseTimes.add(new AverageResponseTime(indexerName, averageResponseTime, averageResponseTime - overallAverage.orElse(0D)));
+            averageResponseTimes.add(new AverageResponseTime(entry.getKey(), entry.getValue(), entry.getValue() - overallAverage.orElse(0D)));
         }
+        averageResponseTimes.sort(Comparator.comparingDouble(AverageResponseTime::getAvgResponseTime));
         logger.debug(LoggingMarkers.PERFORMANCE, "Calculated average response times for indexers. Took {}ms", stopwatch.elapsed(TimeUnit.MILLISECONDS));
         return averageResponseTimes;
     }
@@ -272,80 +264,41 @@ public class Stats {
             indexerIdToName.put(indexer.getIndexerEntity().getId(), indexer.getName());
         }
 
-        Set<Integer> indexerIdsToInclude = indexerIdToName.keySet();
         String countResultsSql = "SELECT\n" +
-                "  INDEXER_ENTITY_ID,\n" +
-                "  INDEXERRESULTSSUM,\n" +
-                "  ALLRESULTSSUM,\n" +
-                "  INDEXERUNIQUERESULTSSUM,\n" +
-                "  ALLUNIQUERESULTSSUM\n" +
-                "FROM\n" +
-                "  (SELECT\n" +
-                "     SUM(INDEXERSEARCH.RESULTS_COUNT)  AS INDEXERRESULTSSUM,\n" +
-                "     SUM(INDEXERSEARCH.UNIQUE_RESULTS) AS INDEXERUNIQUERESULTSSUM,\n" +
-                "     INDEXERSEARCH.INDEXER_ENTITY_ID\n" +
-                "   FROM indexersearch\n" +
-                "   WHERE indexersearch.ID IN (SELECT INDEXERSEARCH.ID\n" +
-                "                FROM indexersearch\n" +
-                "                  LEFT JOIN SEARCH ON INDEXERSEARCH.SEARCH_ENTITY_ID = SEARCH.ID\n" +
-                "                WHERE indexersearch.INDEXER_ENTITY_ID IN (:indexerIds) \n" +
-                "                      AND INDEXERSEARCH.successful AND\n" +
-                "                      INDEXERSEARCH.SEARCH_ENTITY_ID IN (SELECT SEARCH.ID\n" +
-                "                                                         FROM SEARCH\n" +
-                "                                                           LEFT JOIN SEARCH_IDENTIFIERS ON SEARCH.ID = SEARCH_IDENTIFIERS.SEARCH_ENTITY_ID\n" +
-                "                                                         WHERE\n" +
-                "                                                           (SEARCH.episode IS NOT NULL OR SEARCH.season IS NOT NULL OR SEARCH.query IS NOT NULL OR SEARCH_IDENTIFIERS.SEARCH_ENTITY_ID IS NOT NULL OR SEARCH.AUTHOR IS NOT NULL OR SEARCH.TITLE IS NOT NULL) \n" +
-                buildWhereFromStatsRequest(true, statsRequest) +
-                "                      )\n" +
-                "   )" +
-                "   GROUP BY INDEXER_ENTITY_ID" +
-                ") FORINDEXER,\n" +
-                "  (SELECT\n" +
-                "      sum(INDEXERSEARCH.RESULTS_COUNT)  AS ALLRESULTSSUM,\n" +
-                "      SUM(INDEXERSEARCH.UNIQUE_RESULTS) AS ALLUNIQUERESULTSSUM\n" +
-                "    FROM INDEXERSEARCH\n" +
-                "    WHERE INDEXERSEARCH.SEARCH_ENTITY_ID IN (SELECT SEARCH.ID\n" +
-                "                                             FROM indexersearch\n" +
-                "                                               LEFT JOIN SEARCH ON INDEXERSEARCH.SEARCH_ENTITY_ID = SEARCH.ID\n" +
-                "                                               LEFT JOIN SEARCH_IDENTIFIERS ON SEARCH.ID = SEARCH_IDENTIFIERS.SEARCH_ENTITY_ID\n" +
-                "                                             WHERE indexersearch.INDEXER_ENTITY_ID IN (:indexerIds) \n" +
-                "                                                   AND INDEXERSEARCH.successful AND\n" +
-                "                                                   INDEXERSEARCH.SEARCH_ENTITY_ID IN (SELECT SEARCH.ID\n" +
-                "                                                                                      FROM SEARCH\n" +
-                "                                                                                        LEFT JOIN SEARCH_IDENTIFIERS ON SEARCH.ID = SEARCH_IDENTIFIERS.SEARCH_ENTITY_ID\n" +
-                "                                                                                      WHERE\n" +
-                "                                                                                        (SEARCH.episode IS NOT NULL OR SEARCH.season IS NOT NULL OR SEARCH.query IS NOT NULL OR\n" +
-                "                                                                                         SEARCH_IDENTIFIERS.SEARCH_ENTITY_ID IS NOT NULL OR SEARCH.AUTHOR IS NOT NULL OR SEARCH.TITLE IS NOT NULL)\n" +
-                buildWhereFromStatsRequest(true, statsRequest) +
-                "                                                   )\n" +
-                "                                                   AND INDEXERSEARCH.successful)" +
-                "         AND INDEXERSEARCH.successful\n" +
-                "  ) FORALL";
-
+                "  INDEXER_ID,\n" +
+                "  sum(RESULTS_SUM),\n" +
+                "  sum(UNIQUE_RESULTS_SUM)\n" +
+                "FROM STATS_INDEXER_SEARCHES\n" +
+                buildWhereFromStatsRequest(false, statsRequest) +
+                "GROUP BY INDEXER_ID\n" +
+                "ORDER BY INDEXER_ID";
 
-        Query countQuery = entityManager.createNativeQuery(countResultsSql).setParameter("indexerIds", indexerIdsToInclude);
-        List results = countQuery.getResultList();
+        //The shares are relative to the results of all indexers, also those not included
+        Map<Integer, long[]> resultsSumsByIndexer = new LinkedHashMap<>();
+        long allResultsSum = 0;
+        long allUniqueResultsSum = 0;
+        List results = entityManager.createNativeQuery(countResultsSql).getResultList();
         for (Object resultObject : results) {
             Object[] resultSet = (Object[]) resultObject;
+            long indexerResultsSum = ((Number) resultSet[1]).longValue();
+            long indexerUniqueResultsSum = ((Number) resultSet[2]).longValue();
+            resultsSumsByIndexer.put((Integer) resultSet[0], new long[]{indexerResultsSum, indexerUniqueResultsSum});
+            allResultsSum += indexerResultsSum;
+            allUniqueResultsSum += indexerUniqueResultsSum;
+        }
+        for (Entry<Integer, long[]> entry : resultsSumsByIndexer.entrySet()) {
+            if (!indexerIdToName.containsKey(entry.getKey())) {
+                continue;
+            }
             Float allShare = null;
-            if (resultSet[1] != null && resultSet[2] != null) {
-                BigInteger indexerResultsSum = (BigInteger) resultSet[1];
-                BigInteger allResultsSum = (BigInteger) resultSet[2];
-                if (indexerResultsSum.intValue() > 0) {
-                    allShare = 100 / (allResultsSum.floatValue() / indexerResultsSum.floatValue());
-                }
+            if (entry.getValue()[0] > 0) {
+                allShare = 100 / ((float) allResultsSum / entry.getValue()[0]);
             }
-
             Float uniqueShare = null;
-            if (resultSet[3] != null && resultSet[4] != null) {
-                BigInteger indexerUniqueResultsSum = (BigInteger) resultSet[3];
-                BigInteger allUniqueResultsSum = (BigInteger) resultSet[4];
-                if (allUniqueResultsSum.intValue() > 0) {
-                    uniqueShare = 100 / (allUniqueResultsSum.floatValue() / indexerUniqueResultsSum.floatValue());
-                }
+            if (allUniqueResultsSum > 0) {
+                uniqueShare = 100 / ((float) allUniqueResultsSum / entry.getValue()[1]);
             }
-            Integer indexerId = (Integer) resultSet[0];
-            indexerSearchResultsShares.add(new IndexerSearchResultsShare(indexerIdToName.get(indexerId), allShare, uniqueShare));
+            indexerSearchResultsShares.add(new IndexerSearchResultsShare(indexerIdToName.get(entry.getKey()), allShare, uniqueShare));
         }
 
         logger.debug(LoggingMarkers.PERFORMANCE, "Calculated indexer search shares. Took {}ms", stopwatch.elapsed(TimeUnit.MILLISECONDS));
@@ -364,11 +317,11 @@ public class Stats {
                 "FROM (\n" +
                 "  (SELECT\n" +
                 "     INDEXER_ID,\n" +
-                "     cast(count(INDEXER_ID) AS FLOAT) AS count" +
-                "   FROM INDEXERAPIACCESS\n" +
+                "     cast(sum(TOTAL) AS FLOAT) AS count" +
+                "   FROM STATS_API_ACCESSES\n" +
                 buildWhereFromStatsRequest(false, statsRequest) +
                 "   GROUP BY INDEXER_ID,\n" +
-                "     truncate(time)))\n" +
+                "     truncate(HOUR_START)))\n" +
                 "GROUP BY INDEXER_ID";
 
         Map<Integer, Double> accessesPerDayCountMap = new HashMap<>();
@@ -391,9 +344,10 @@ public class Stats {
         String countByResultSql = "SELECT\n" +
                 "     INDEXER_ID,\n" +
                 "     RESULT,\n" +
-                "     count(result) AS count\n" +
-                "   FROM INDEXERAPIACCESS\n" +
-                buildWhereFromStatsRequest(false, statsRequest) +
+                "     sum(TOTAL) AS count\n" +
+                "   FROM STATS_API_ACCESSES\n" +
+                "   WHERE RESULT != ''\n" +
+                buildWhereFromStatsRequest(true, statsRequest) +
                 "   GROUP BY INDEXER_ID, RESULT\n" +
                 "   ORDER BY INDEXER_ID, RESULT";
 
@@ -410,7 +364,7 @@ public class Stats {
                 continue;
             }
             String result = (String) array[1];
-            int count = ((BigInteger) array[2]).intValue();
+            int count = ((Number) array[2]).intValue();
             if (result.equals(IndexerAccessResult.SUCCESSFUL.name())) {
                 successCountMap.put(indexerId, count);
             } else if (result.equals(IndexerAccessResult.CONNECTION_ERROR.name())) {
@@ -455,11 +409,11 @@ public class Stats {
         Stopwatch stopwatch = Stopwatch.createStarted();
         logger.debug("Calculating count for day of week for table {}", table);
         String sql = "SELECT \n" +
-                "  DAYOFWEEK(time) AS dayofweek, \n" +
-                "  count(*)        AS counter \n" +
+                "  DAYOFWEEK(HOUR_START) AS dayofweek, \n" +
+                "  sum(TOTAL)            AS counter \n" +
                 "FROM " + table + " \n" +
                 buildWhereFromStatsRequest(false, statsRequest) +
-                "GROUP BY DAYOFWEEK(time)";
+                "GROUP BY DAYOFWEEK(HOUR_START)";
 
         List<CountPerDayOfWeek> dayOfWeekCounts = new ArrayList<>();
         for (int i = 0; i < 7; i++) {
@@ -477,7 +431,7 @@ public class Stats {
 
             //want      6   0   1   2   3   4   5
             //          S   M   T   W   T   F   S
-            BigInteger counter = (BigInteger) resultSet[1];
+            Number counter = (Number) resultSet[1];
             int indexInList = (index + 5) % 7;
             dayOfWeekCounts.get(indexInList).setCount(counter.intValue());
         }
@@ -490,11 +444,11 @@ public class Stats {
         Stopwatch stopwatch = Stopwatch.createStarted();
         logger.debug("Calculating count for hour of day for table {}", table);
         String sql = "SELECT \n" +
-                "  HOUR(time) AS hourofday, \n" +
-                "  count(*)        AS counter \n" +
+                "  HOUR(HOUR_START) AS hourofday, \n" +
+                "  sum(TOTAL)       AS counter \n" +
                 "FROM " + table + " \n" +
                 buildWhereFromStatsRequest(false, statsRequest) +
-                "GROUP BY HOUR(time)";
+                "GROUP BY HOUR(HOUR_START)";
 
         List<CountPerHourOfDay> hourOfDayCounts = new ArrayList<>();
         for (int i = 0; i < 24; i++) {
@@ -505,7 +459,7 @@ public class Stats {
         for (Object o : resultList) {
             Object[] o2 = (Object[]) o;
             Integer index = (Integer) o2[0];
-            BigInteger counter = (BigInteger) o2[1];
+            Number counter = (Number) o2[1];
             hourOfDayCounts.get(index).setCount(counter.intValue());
         }
 
@@ -529,7 +483,7 @@ public class Stats {
                 "     LEFT JOIN indexer ON SEARCHRESULT.INDEXER_ID = INDEXER.ID\n" +
                 "   WHERE\n" +
                 "     status = 'CONTENT_DOWNLOAD_SUCCESSFUL'\n" +
-                buildWhereFromStatsRequest(true, statsRequest) +
+                buildWhereFromStatsRequestForHistory(true, statsRequest) +
                 "   GROUP BY name1)\n" +
                 "  LEFT JOIN\n" +
                 "  (SELECT\n" +
@@ -540,7 +494,7 @@ public class Stats {
                 "     LEFT JOIN indexer ON SEARCHRESULT.INDEXER_ID = INDEXER.ID\n" +
                 "   WHERE\n" +
                 "     status IN ('CONTENT_DOWNLOAD_ERROR', 'CONTENT_DOWNLOAD_WARNING')\n" +
-                buildWhereFromStatsRequest(true, statsRequest) +
+                buildWhereFromStatsRequestForHistory(true, statsRequest) +
                 "   GROUP BY name2) ON name1 = name2\n" +
                 "  LEFT JOIN\n" +
                 "  (SELECT\n" +
@@ -549,7 +503,7 @@ public class Stats {
                 "   FROM INDEXERNZBDOWNLOAD\n" +
                 "     LEFT JOIN SEARCHRESULT ON INDEXERNZBDOWNLOAD.SEARCH_RESULT_ID = SEARCHRESULT.ID\n" +
                 "     LEFT JOIN indexer ON SEARCHRESULT.INDEXER_ID = INDEXER.ID\n" +
-                buildWhereFromStatsRequest(false, statsRequest) +
+                buildWhereFromStatsRequestForHistory(false, statsRequest) +
                 "   GROUP BY name3) ON name1 = name3;";
         Query query = entityManager.createNativeQuery(sql);
         Set<String> indexerNamesToInclude = searchModuleProvider.getIndexers().stream().filter(x -> x.getConfig().isEnabled() || statsRequest.isIncludeDisabled()).map(Indexer::getName).collect(Collectors.toSet());
@@ -595,14 +549,14 @@ public class Stats {
         String sql = "" +
                 "SELECT\n" +
                 "  " + column + ",\n" +
-                "  count(*) AS peruser,\n" +
-                "  (SELECT count(*)\n" +
+                "  sum(TOTAL) AS peruser,\n" +
+                "  (SELECT sum(TOTAL)\n" +
                 "   FROM " + tablename + "\n" +
-                "   WHERE " + column + " IS NOT NULL AND " + column + " != ''" +
+                "   WHERE " + column + " != ''" +
                 buildWhereFromStatsRequest(true, statsRequest) +
                 ") AS countall\n" +
                 "FROM " + tablename + "\n" +
-                " WHERE " + column + " IS NOT NULL AND " + column + " != ''\n" +
+                " WHERE " + column + " != ''\n" +
                 buildWhereFromStatsRequest(true, statsRequest) +
                 "GROUP BY " + column;
         Query query = entityManager.createNativeQuery(sql);
@@ -611,8 +565,8 @@ public class Stats {
         for (Object o : resultList) {
             Object[] o2 = (Object[]) o;
             String usernameOrIp = (String) o2[0];
-            int countForUser = ((BigInteger) o2[1]).intValue();
-            float percentSuccessful = 100F / (((BigInteger) o2[2]).floatValue() / ((BigInteger) o2[1]).floatValue());
+            int countForUser = ((Number) o2[1]).intValue();
+            float percentSuccessful = 100F / (((Number) o2[2]).floatValue() / ((Number) o2[1]).floatValue());
             result.add(new DownloadOrSearchSharePerUserOrIp(usernameOrIp, countForUser, percentSuccessful));
         }
         result.sort(Comparator.comparingDouble(DownloadOrSearchSharePerUserOrIp::getPercentage).reversed());
@@ -625,9 +579,9 @@ public class Stats {
         logger.debug("Calculating user agent search shares");
         String sql = "SELECT\n" +
                 "  user_agent,\n" +
-                "  count(*)\n" +
-                "FROM SEARCH\n" +
-                "WHERE user_agent IS NOT NULL\n" +
+                "  sum(TOTAL)\n" +
+                "FROM STATS_SEARCHES\n" +
+                "WHERE user_agent != ''\n" +
                 "AND SOURCE = 'API'" +
                 buildWhereFromStatsRequest(true, statsRequest) +
                 "GROUP BY user_agent";
@@ -638,7 +592,7 @@ public class Stats {
         for (Object o : resultList) {
             Object[] o2 = (Object[]) o;
             String userAgent = (String) o2[0];
-            int countForUserAgent = ((BigInteger) o2[1]).intValue();
+            int countForUserAgent = ((Number) o2[1]).intValue();
             countAll += countForUserAgent;
             result.add(new UserAgentShare(userAgent, countForUserAgent));
         }
@@ -656,9 +610,9 @@ public class Stats {
         logger.debug("Calculating user agent download shares");
         String sql = "SELECT\n" +
                 "  user_agent,\n" +
-                "  count(*)\n" +
-                "FROM INDEXERNZBDOWNLOAD\n" +
-                "WHERE user_agent IS NOT NULL\n" +
+                "  sum(TOTAL)\n" +
+                "FROM STATS_DOWNLOADS\n" +
+                "WHERE user_agent != ''\n" +
                 "and ACCESS_SOURCE = 'API' \n" +
                 buildWhereFromStatsRequest(true, statsRequest) +
                 "GROUP BY user_agent";
@@ -669,7 +623,7 @@ public class Stats {
         for (Object o : resultList) {
             Object[] o2 = (Object[]) o;
             String userAgent = (String) o2[0];
-            int countForUserAgent = ((BigInteger) o2[1]).intValue();
+            int countForUserAgent = ((Number) o2[1]).intValue();
             countAll += countForUserAgent;
             result.add(new UserAgentShare(userAgent, countForUserAgent));
         }
@@ -743,7 +697,24 @@ public class Stats {
     }
 
 
+    private boolean hasRollupData(String table, String column) {
+        return ((Number) entityManager.createNativeQuery("SELECT count(*) FROM (SELECT 1 FROM " + table + " WHERE " + column + " != '' LIMIT 1)").getSingleResult()).intValue() > 0;
+    }
+
+    /**
+     * Builds the condition for the hours of the stats tables. The hours in which the time range starts and ends are included completely.
+     */
     private String buildWhereFromStatsRequest(boolean useAnd, StatsRequest statsRequest) {
+        if (statsRequest.getAfter() == null && statsRequest.getBefore() == null) {
+            return " ";
+        }
+        return (useAnd ? " AND " : " WHERE ") +
+                (statsRequest.getAfter() != null ? " HOUR_START >= TIMESTAMP '" + StatsRollups.getHourStart(statsRequest.getAfter()) + "' " : "") +
+                ((statsRequest.getBefore() != null && statsRequest.getAfter() != null) ? " AND " : " ") +
+                (statsRequest.getBefore() != null ? " HOUR_START <= TIMESTAMP '" + StatsRollups.getHourStart(statsRequest.getBefore()) + "' " : "");
+    }
+
+    private String buildWhereFromStatsRequestForHistory(boolean useAnd, StatsRequest statsRequest) {
         if (statsRequest.getAfter() == null && statsRequest.getBefore() == null) {
             return " ";
         }
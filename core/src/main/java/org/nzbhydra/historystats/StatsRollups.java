@@ -0,0 +1,352 @@
+package org.nzbhydra.historystats;
+
+import com.google.common.base.Stopwatch;
+import lombok.Value;
+import org.nzbhydra.downloading.NzbDownloadEntity;
+import org.nzbhydra.downloading.NzbHandler.NzbDownloadEvent;
+import org.nzbhydra.indexers.IndexerApiAccessEntity;
+import org.nzbhydra.indexers.IndexerSearchEntity;
+import org.nzbhydra.searching.SearchEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * Maintains tables with the number of searches, downloads, indexer API accesses and indexer search results per hour so that the stats don't
+ * have to go through the whole history. Events are counted in memory and added to the tables every few seconds and when the stats are
+ * calculated. The tables are filled from the existing history by the migration which creates them and again when the history was imported
+ * from an old database.
+ * <p>
+ * Hours are stored in local time like all other times in the database. Key columns without value contain an empty string.
+ */
+@Component
+public class StatsRollups {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatsRollups.class);
+
+    private static final long FLUSH_INTERVAL_MILLIS = 10_000;
+    private static final int BATCH_SIZE = 500;
+
+    private static final String HOUR_START = "DATEADD('HOUR', HOUR(x.TIME), TRUNCATE(x.TIME))";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final Map<RollupKey, long[]> pending = new ConcurrentHashMap<>();
+    /**
+     * Held while events are counted so that the cutoff can't change in between
+     */
+    private final ReadWriteLock cutoffLock = new ReentrantReadWriteLock();
+    /**
+     * Events which happened before were included when the tables were calculated from the history. Guarded by cutoffLock
+     */
+    private Instant historyCalculatedBefore;
+    private ScheduledThreadPoolExecutor flushScheduler;
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        flushScheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "StatsRollups");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flushScheduler.scheduleWithFixedDelay(this::flush, FLUSH_INTERVAL_MILLIS, FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushScheduler.shutdown();
+        try {
+            flushScheduler.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    @EventListener
+    public void handleNzbDownload(NzbDownloadEvent event) {
+        NzbDownloadEntity download = event.getDownloadEntity();
+        Integer indexerId = download.getSearchResult() == null || download.getSearchResult().getIndexer() == null ? 0 : download.getSearchResult().getIndexer().getId();
+        String accessSource = download.getAccessSource() == null ? null : download.getAccessSource().name();
+        add(RollupTable.DOWNLOADS, download.getTime(), new long[]{1}, indexerId, accessSource, download.getUsername(), download.getIp(), download.getUserAgent());
+    }
+
+    public void recordSearch(SearchEntity search) {
+        String source = search.getSource() == null ? null : search.getSource().name();
+        add(RollupTable.SEARCHES, search.getTime(), new long[]{1}, source, search.getUsername(), search.getIp(), search.getUserAgent());
+    }
+
+    /**
+     * Records API accesses after they were written to the database.
+     */
+    public void recordApiAccesses(List<IndexerApiAccessEntity> apiAccesses) {
+        for (IndexerApiAccessEntity apiAccess : apiAccesses) {
+            String result = apiAccess.getResult() == null ? null : apiAccess.getResult().name();
+            Long responseTime = apiAccess.getResponseTime();
+            long[] values = responseTime == null ? new long[]{1, 0, 0} : new long[]{1, responseTime, 1};
+            add(RollupTable.API_ACCESSES, apiAccess.getTime(), values, apiAccess.getIndexer().getId(), result);
+        }
+    }
+
+    /**
+     * Records an indexer search after it was created or updated. Only successful indexer searches for searches with a query or IDs are counted
+     * ("update queries" return arbitrary totals). The total results are only counted when the indexer search is created, the unique results
+     * change when more results are loaded.
+     *
+     * @param created             If the indexer search was created or loaded from the cache
+     * @param uniqueResultsBefore The number of unique results before the update
+     */
+    public void recordIndexerSearch(IndexerSearchEntity indexerSearch, boolean created, int uniqueResultsBefore) {
+        SearchEntity search = indexerSearch.getSearchEntity();
+        if (!Boolean.TRUE.equals(indexerSearch.getSuccessful()) || search == null || !hasSearchCriteria(search)) {
+            return;
+        }
+        long total = created ? 1 : 0;
+        long results = created && indexerSearch.getResultsCount() != null ? indexerSearch.getResultsCount() : 0;
+        long uniqueResults = (indexerSearch.getUniqueResults() == null ? 0 : indexerSearch.getUniqueResults()) - uniqueResultsBefore;
+        if (total == 0 && results == 0 && uniqueResults == 0) {
+            return;
+        }
+        add(RollupTable.INDEXER_SEARCHES, search.getTime(), new long[]{total, results, uniqueResults}, indexerSearch.getIndexerEntity().getId());
+    }
+
+    /**
+     * Adds all counted events to the tables. If they can't be written together they're written one by one and those which fail are dropped.
+     *
+     * @return The number of rows which were updated or inserted
+     */
+    public synchronized int flush() {
+        if (pending.isEmpty()) {
+            return 0;
+        }
+        List<Entry<RollupKey, long[]>> entries = new ArrayList<>();
+        for (RollupKey key : pending.keySet()) {
+            //Events counted in the meantime create a new entry which is written with the next flush
+            long[] values = pending.remove(key);
+            if (values != null) {
+                entries.add(new SimpleEntry<>(key, values));
+            }
+        }
+        try {
+            transactionTemplate.execute(status -> {
+                Map<RollupTable, List<Entry<RollupKey, long[]>>> entriesByTable = entries.stream().collect(Collectors.groupingBy(x -> x.getKey().table));
+                entriesByTable.forEach(this::write);
+                return null;
+            });
+            return entries.size();
+        } catch (RuntimeException e) {
+            logger.warn("Unable to write stats to database in one batch. Will write them one by one: {}", e.getMessage());
+            return writeOneByOne(entries);
+        }
+    }
+
+    /**
+     * Writes every entry in its own transaction. Entries which can't be written are dropped, otherwise a single one which can never be written
+     * (e.g. because a value is too long) would keep all others from being written.
+     */
+    private int writeOneByOne(List<Entry<RollupKey, long[]>> entries) {
+        int written = 0;
+        for (Entry<RollupKey, long[]> entry : entries) {
+            try {
+                transactionTemplate.execute(status -> {
+                    write(entry.getKey().table, Collections.singletonList(entry));
+                    return null;
+                });
+                written++;
+            } catch (RuntimeException e) {
+                logger.error("Unable to write stats for {} with values {} to database. They will be missing", entry.getKey(), Arrays.toString(entry.getValue()), e);
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Fills the tables from the history up to now. Events which happened before are dropped, no matter if they were counted before or are
+     * counted afterwards, because they're part of the history already. Events still to be written to the history at that moment (e.g. queued
+     * API accesses) are missed.
+     */
+    public synchronized void rebuild() {
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        Instant cutoff;
+        cutoffLock.writeLock().lock();
+        try {
+            cutoff = Instant.now();
+            historyCalculatedBefore = cutoff;
+            //Counted events which weren't written yet all happened before the cutoff. Written ones are deleted with the tables' content below
+            pending.clear();
+        } finally {
+            cutoffLock.writeLock().unlock();
+        }
+        Timestamp before = Timestamp.from(cutoff);
+        transactionTemplate.execute(status -> {
+            for (RollupTable table : RollupTable.values()) {
+                jdbcTemplate.update("delete from " + table.tableName);
+            }
+            jdbcTemplate.update("insert into STATS_SEARCHES (HOUR_START, SOURCE, USERNAME, IP, USER_AGENT, TOTAL) " +
+                    "select HOUR_START, SOURCE, USERNAME, IP, USER_AGENT, count(*) from (" +
+                    "select " + HOUR_START + " as HOUR_START, coalesce(x.SOURCE, '') as SOURCE, coalesce(x.USERNAME, '') as USERNAME, coalesce(x.IP, '') as IP, coalesce(x.USER_AGENT, '') as USER_AGENT " +
+                    "from SEARCH x where x.TIME < ?) " +
+                    "group by HOUR_START, SOURCE, USERNAME, IP, USER_AGENT", before);
+            jdbcTemplate.update("insert into STATS_DOWNLOADS (HOUR_START, INDEXER_ID, ACCESS_SOURCE, USERNAME, IP, USER_AGENT, TOTAL) " +
+                    "select HOUR_START, INDEXER_ID, ACCESS_SOURCE, USERNAME, IP, USER_AGENT, count(*) from (" +
+                    "select " + HOUR_START + " as HOUR_START, coalesce(r.INDEXER_ID, 0) as INDEXER_ID, coalesce(x.ACCESS_SOURCE, '') as ACCESS_SOURCE, coalesce(x.USERNAME, '') as USERNAME, coalesce(x.IP, '') as IP, coalesce(x.USER_AGENT, '') as USER_AGENT " +
+                    "from INDEXERNZBDOWNLOAD x left join SEARCHRESULT r on x.SEARCH_RESULT_ID = r.ID where x.TIME < ?) " +
+                    "group by HOUR_START, INDEXER_ID, ACCESS_SOURCE, USERNAME, IP, USER_AGENT", before);
+            jdbcTemplate.update("insert into STATS_API_ACCESSES (HOUR_START, INDEXER_ID, RESULT, TOTAL, RESPONSE_TIME_SUM, RESPONSE_TIME_COUNT) " +
+                    "select HOUR_START, INDEXER_ID, RESULT, count(*), coalesce(sum(RESPONSE_TIME), 0), count(RESPONSE_TIME) from (" +
+                    "select " + HOUR_START + " as HOUR_START, coalesce(x.INDEXER_ID, 0) as INDEXER_ID, coalesce(x.RESULT, '') as RESULT, x.RESPONSE_TIME " +
+                    "from INDEXERAPIACCESS x where x.TIME < ?) " +
+                    "group by HOUR_START, INDEXER_ID, RESULT", before);
+            jdbcTemplate.update("insert into STATS_INDEXER_SEARCHES (HOUR_START, INDEXER_ID, TOTAL, RESULTS_SUM, UNIQUE_RESULTS_SUM) " +
+                    "select HOUR_START, INDEXER_ID, count(*), coalesce(sum(RESULTS_COUNT), 0), coalesce(sum(UNIQUE_RESULTS), 0) from (" +
+                    "select " + HOUR_START + " as HOUR_START, coalesce(i.INDEXER_ENTITY_ID, 0) as INDEXER_ID, i.RESULTS_COUNT, i.UNIQUE_RESULTS " +
+                    "from INDEXERSEARCH i join SEARCH x on i.SEARCH_ENTITY_ID = x.ID " +
+                    "where i.SUCCESSFUL and x.TIME < ? and (x.EPISODE is not null or x.SEASON is not null or x.QUERY is not null or x.AUTHOR is not null or x.TITLE is not null " +
+                    "or exists (select 1 from SEARCH_IDENTIFIERS si where si.SEARCH_ENTITY_ID = x.ID))) " +
+                    "group by HOUR_START, INDEXER_ID", before);
+            return null;
+        });
+        logger.info("Calculated stats from history. Took {}ms", stopwatch.elapsed(TimeUnit.MILLISECONDS));
+    }
+
+    private void write(RollupTable table, List<Entry<RollupKey, long[]>> entries) {
+        String update = "update " + table.tableName + " set " + table.valueColumns.stream().map(x -> x + " = " + x + " + ?").collect(Collectors.joining(", ")) +
+                " where HOUR_START = ? and " + table.keyColumns.stream().map(x -> x + " = ?").collect(Collectors.joining(" and "));
+        int[][] updateCounts = jdbcTemplate.batchUpdate(update, entries, BATCH_SIZE, (statement, entry) -> {
+            int index = 1;
+            for (long value : entry.getValue()) {
+                statement.setLong(index++, value);
+            }
+            statement.setTimestamp(index++, entry.getKey().hourStart);
+            for (Object keyValue : entry.getKey().keyValues) {
+                statement.setObject(index++, keyValue);
+            }
+        });
+        //Only called by one thread at a time so the rows can't have been inserted in the meantime
+        List<Entry<RollupKey, long[]>> toInsert = new ArrayList<>();
+        int index = 0;
+        for (int[] batchCounts : updateCounts) {
+            for (int count : batchCounts) {
+                if (count == 0) {
+                    toInsert.add(entries.get(index));
+                }
+                index++;
+            }
+        }
+        if (toInsert.isEmpty()) {
+            return;
+        }
+        List<String> columns = new ArrayList<>();
+        columns.add("HOUR_START");
+        columns.addAll(table.keyColumns);
+        columns.addAll(table.valueColumns);
+        String insert = "insert into " + table.tableName + " (" + String.join(", ", columns) + ") values (" + columns.stream().map(x -> "?").collect(Collectors.joining(", ")) + ")";
+        jdbcTemplate.batchUpdate(insert, toInsert, BATCH_SIZE, (statement, entry) -> {
+            int parameterIndex = 1;
+            statement.setTimestamp(parameterIndex++, entry.getKey().hourStart);
+            for (Object keyValue : entry.getKey().keyValues) {
+                statement.setObject(parameterIndex++, keyValue);
+            }
+            for (long value : entry.getValue()) {
+                statement.setLong(parameterIndex++, value);
+            }
+        });
+    }
+
+    private void add(RollupTable table, Instant time, long[] values, Object... keyValues) {
+        for (int i = 0; i < keyValues.length; i++) {
+            if (keyValues[i] == null) {
+                keyValues[i] = "";
+            }
+        }
+        Instant eventTime = time == null ? Instant.now() : time;
+        RollupKey key = new RollupKey(table, getHourStart(eventTime), Arrays.asList(keyValues));
+        cutoffLock.readLock().lock();
+        try {
+            if (historyCalculatedBefore != null && eventTime.isBefore(historyCalculatedBefore)) {
+                return;
+            }
+            pending.merge(key, values, StatsRollups::sum);
+        } finally {
+            cutoffLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the start of the hour in local time. The hours must match the ones calculated by the database from the times in the history
+     * (see {@link #HOUR_START}), which are stored in local time. When the clock is set back at the end of daylight saving time the events of
+     * both passes of that hour end up in the same hour.
+     */
+    static Timestamp getHourStart(Instant time) {
+        return Timestamp.valueOf(LocalDateTime.ofInstant(time, ZoneId.systemDefault()).truncatedTo(ChronoUnit.HOURS));
+    }
+
+    private static boolean hasSearchCriteria(SearchEntity search) {
+        return search.getEpisode() != null || search.getSeason() != null || search.getQuery() != null || search.getAuthor() != null || search.getTitle() != null
+                || (search.getIdentifiers() != null && !search.getIdentifiers().isEmpty());
+    }
+
+    private static long[] sum(long[] a, long[] b) {
+        long[] sum = new long[a.length];
+        for (int i = 0; i < a.length; i++) {
+            sum[i] = a[i] + b[i];
+        }
+        return sum;
+    }
+
+    enum RollupTable {
+        SEARCHES("STATS_SEARCHES", Arrays.asList("SOURCE", "USERNAME", "IP", "USER_AGENT"), Arrays.asList("TOTAL")),
+        DOWNLOADS("STATS_DOWNLOADS", Arrays.asList("INDEXER_ID", "ACCESS_SOURCE", "USERNAME", "IP", "USER_AGENT"), Arrays.asList("TOTAL")),
+        API_ACCESSES("STATS_API_ACCESSES", Arrays.asList("INDEXER_ID", "RESULT"), Arrays.asList("TOTAL", "RESPONSE_TIME_SUM", "RESPONSE_TIME_COUNT")),
+        INDEXER_SEARCHES("STATS_INDEXER_SEARCHES", Arrays.asList("INDEXER_ID"), Arrays.asList("TOTAL", "RESULTS_SUM", "UNIQUE_RESULTS_SUM"));
+
+        private final String tableName;
+        private final List<String> keyColumns;
+        private final List<String> valueColumns;
+
+        RollupTable(String tableName, List<String> keyColumns, List<String> valueColumns) {
+            this.tableName = tableName;
+            this.keyColumns = keyColumns;
+            this.valueColumns = valueColumns;
+        }
+    }
+
+    @Value
+    private static class RollupKey {
+        RollupTable table;
+        Timestamp hourStart;
+        List<Object> keyValues;
+    }
+
+}
@@ -12,12 +12,16 @@ public class StatsWeb {
 
     @Autowired
     private org.nzbhydra.historystats.Stats stats;
+    @Autowired
+    private StatsRollups statsRollups;
 
     @RequestMapping(value = "/internalapi/stats")
     @Secured({"ROLE_STATS"})
     public StatsResponse getAllStats(@RequestBody StatsRequest statsRequest) {
 
         try {
+            //Include the latest events. Not done in the read only transaction of the stats calculation
+            statsRollups.flush();
             return stats.getAllStats(statsRequest);
         } catch (InterruptedException e) {
             throw new RuntimeException("The stats calculation took longer than 30 seconds and was aborted");
@@ -24,6 +24,7 @@ import org.springframework.web.util.UriComponentsBuilder;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @Component
 public class Anizb extends Indexer<RssRoot> {
@@ -99,6 +100,11 @@ public class Anizb extends Indexer<RssRoot> {
         return getAndStoreResultToDatabase(uri, RssRoot.class, apiAccessType);
     }
 
+    @Override
+    protected CompletableFuture<RssRoot> getAndStoreResultToDatabaseAsync(URI uri, IndexerApiAccessType apiAccessType) {
+        return getAndStoreResultToDatabaseAsync(uri, RssRoot.class, apiAccessType);
+    }
+
     @Override
     protected Logger getLogger() {
         return logger;
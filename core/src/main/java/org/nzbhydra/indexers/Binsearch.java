@@ -2,10 +2,12 @@ package org.nzbhydra.indexers;
 
 import com.google.common.base.Joiner;
 import joptsimple.internal.Strings;
-import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
+import org.jsoup.select.Collector;
 import org.jsoup.select.Elements;
+import org.jsoup.select.Evaluator;
+import org.jsoup.select.QueryParser;
 import org.nzbhydra.config.IndexerConfig;
 import org.nzbhydra.config.SearchModuleType;
 import org.nzbhydra.indexers.exceptions.IndexerAccessException;
@@ -32,34 +34,44 @@ import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeFormatterBuilder;
 import java.time.temporal.ChronoField;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 @Component
-public class Binsearch extends Indexer<String> {
+public class Binsearch extends Indexer<Document> {
 
     private static final Logger logger = LoggerFactory.getLogger(Binsearch.class);
 
-    private static final Pattern TITLE_PATTERN = Pattern.compile("\"(.*)\\.(rar|nfo|mkv|par2|001|nzb|url|zip|r[0-9]{2})\"", Pattern.CASE_INSENSITIVE); //Note the " (quotation marks)
-    private static final Pattern GROUP_PATTERN = Pattern.compile("&g=([\\w\\.]*)&", Pattern.CASE_INSENSITIVE);
-    private static final Pattern POSTER_PATTERN = Pattern.compile("&p=(.*)&", Pattern.CASE_INSENSITIVE);
     private static final Pattern NFO_INFO_PATTERN = Pattern.compile("\\d nfo file", Pattern.CASE_INSENSITIVE);
     private static final Pattern SIZE_PATTERN = Pattern.compile("size: (?<size>[0-9]+(\\.[0-9]+)?).(?<unit>(GB|MB|KB|B))", Pattern.CASE_INSENSITIVE);
     private static final Pattern PUBDATE_PATTERN = Pattern.compile("(\\d{1,2}\\-\\w{3}\\-\\d{4})", Pattern.CASE_INSENSITIVE);
     private static final DateTimeFormatter DATE_TIME_FORMATTER = new DateTimeFormatterBuilder().appendPattern("dd-MMM-yyyy").parseDefaulting(ChronoField.NANO_OF_DAY, 0).toFormatter().withZone(ZoneId.of("UTC"));
     private static final Pattern NFO_PATTERN = Pattern.compile("<pre>(?<nfo>.*)<\\/pre>", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    private static final List<String> TITLE_EXTENSIONS = Arrays.asList("rar", "nfo", "mkv", "par2", "001", "nzb", "url", "zip");
 
+    //Selectors are parsed once instead of for every row
+    private static final Evaluator MAIN_TABLE = QueryParser.parse("table#r2");
+    private static final Evaluator NAVIGATION_TABLE = QueryParser.parse("table.xMenuT");
+    private static final Evaluator ROW = QueryParser.parse("tr");
+    private static final Evaluator LINK = QueryParser.parse("a");
+    private static final Evaluator TITLE = QueryParser.parse("span[class=s]");
+    private static final Evaluator CHECKBOX = QueryParser.parse("input[type=checkbox]");
+    private static final Evaluator INFO = QueryParser.parse("span.d");
 
-    //LATER It's not ideal that currently the web response needs to be parsed twice, once for the search results and once for the completion of the indexer search result. Will need to check how much that impacts performance
 
     @Override
-    protected void completeIndexerSearchResult(String response, IndexerSearchResult indexerSearchResult, AcceptorResult acceptorResult, SearchRequest searchRequest) {
-        Document doc = Jsoup.parse(response);
-        Element navigationTable = doc.select("table.xMenuT").get(1);
-        Elements pageLinks = navigationTable.select("a");
-        boolean hasMore = !pageLinks.isEmpty() && pageLinks.last().text().equals(">");
+    protected void completeIndexerSearchResult(Document doc, IndexerSearchResult indexerSearchResult, AcceptorResult acceptorResult, SearchRequest searchRequest) {
+        Elements navigationTables = Collector.collect(NAVIGATION_TABLE, doc);
+        //Pages without results have no navigation
+        boolean hasMore = false;
+        if (navigationTables.size() > 1) {
+            Elements pageLinks = Collector.collect(LINK, navigationTables.get(1));
+            hasMore = !pageLinks.isEmpty() && pageLinks.last().text().equals(">");
+        }
         boolean totalKnown = false;
         indexerSearchResult.setOffset(searchRequest.getOffset().orElse(0));
         int total = searchRequest.getOffset().orElse(0) + 100; //Must be at least as many as already loaded
@@ -76,20 +88,19 @@ public class Binsearch extends Indexer<String> {
 
     @SuppressWarnings("ConstantConditions")
     @Override
-    protected List<SearchResultItem> getSearchResultItems(String searchRequestResponse) throws IndexerParsingException {
+    protected List<SearchResultItem> getSearchResultItems(Document doc) throws IndexerParsingException {
         List<SearchResultItem> items = new ArrayList<>();
 
-        Document doc = Jsoup.parse(searchRequestResponse);
-        if (doc.text().contains("No results in most popular groups")) {
-            return Collections.emptyList();
-        }
-
-        Elements mainTables = doc.select("table#r2");
+        Elements mainTables = Collector.collect(MAIN_TABLE, doc);
         if (mainTables.size() == 0) {
+            //Only build the whole page's text if we need to
+            if (doc.text().contains("No results in most popular groups")) {
+                return Collections.emptyList();
+            }
             throw new IndexerParsingException("Unable to find main table in binsearch page. This happens sometimes ;-)");
         }
         Element mainTable = mainTables.get(0);
-        Elements rows = mainTable.select("tr");
+        Elements rows = Collector.collect(ROW, mainTable);
         for (int i = 1; i < rows.size(); i++) { //First row is header
             Element row = rows.get(i);
             SearchResultItem item = parseRow(row);
@@ -106,7 +117,7 @@ public class Binsearch extends Indexer<String> {
     private SearchResultItem parseRow(Element row) {
         SearchResultItem item = new SearchResultItem();
 
-        Element titleElement = getElementOrNone(row, "span[class=s]");
+        Element titleElement = getElementOrNone(row, TITLE);
         if (titleElement == null) {
             debug("Table row does not have a title");
             return null;
@@ -115,31 +126,28 @@ public class Binsearch extends Indexer<String> {
         if (title.contains("password protect") || title.contains("passworded")) {
             item.setPassworded(true);
         }
-        Matcher matcher = TITLE_PATTERN.matcher(title);
-        if (matcher.find()) {
-            title = matcher.group(1);
-        }
+        title = extractFileName(title);
         title = cleanUpTitle(title);
         item.setTitle(title);
 
-        item.setIndexerGuid(getElementOrNone(row, "input[type=checkbox]").attr("name"));
+        item.setIndexerGuid(getElementOrNone(row, CHECKBOX).attr("name"));
         item.setLink("https://www.binsearch.info/?action=nzb&" + item.getIndexerGuid() + "=1");
-        Element infoElement = getElementOrNone(row, "span.d");
+        Element infoElement = getElementOrNone(row, INFO);
         if (infoElement == null) {
             debug("Ignored entry because it has no info");
             return null;
         }
-        String collectionLink = getElementOrNone(row, "a").attr("href"); //e.g. /?b=Supers.Troopers.of.Mega.3D.TOPBOT.TrueFrench.1080p.X264.A&g=alt.binaries.movies.mkv&p=Ramer%40marmer.com+%28Clown_nez%29&max=250
+        String collectionLink = getElementOrNone(row, LINK).attr("href"); //e.g. /?b=Supers.Troopers.of.Mega.3D.TOPBOT.TrueFrench.1080p.X264.A&g=alt.binaries.movies.mkv&p=Ramer%40marmer.com+%28Clown_nez%29&max=250
         item.setDetails("https://www.binsearch.info" + collectionLink);
 
-        Matcher groupMatcher = GROUP_PATTERN.matcher(collectionLink);
-        if (groupMatcher.find()) {
-            item.setGroup(groupMatcher.group(1).trim());
+        String group = getGroup(collectionLink);
+        if (group != null) {
+            item.setGroup(group.trim());
         }
 
-        Matcher posterMatcher = POSTER_PATTERN.matcher(collectionLink); //e.g. Ramer%40marmer.com+%28Clown_nez%29
-        if (posterMatcher.find()) {
-            String poster = posterMatcher.group(1).trim();
+        String poster = getPoster(collectionLink); //e.g. Ramer%40marmer.com+%28Clown_nez%29
+        if (poster != null) {
+            poster = poster.trim();
             try {
                 poster = URLDecoder.decode(poster, "UTF-8").replace("+", " ");
                 item.setPoster(poster);
@@ -148,7 +156,8 @@ public class Binsearch extends Indexer<String> {
             }
         }
 
-        Matcher sizeMatcher = SIZE_PATTERN.matcher(infoElement.ownText());
+        String info = infoElement.ownText();
+        Matcher sizeMatcher = SIZE_PATTERN.matcher(info);
         if (sizeMatcher.find()) {
             Float size = Float.valueOf(sizeMatcher.group("size"));
             String unit = sizeMatcher.group("unit");
@@ -165,15 +174,22 @@ public class Binsearch extends Indexer<String> {
             }
             item.setSize(size.longValue());
         } else {
-            debug("Unable to find size in text {}", infoElement.ownText());
+            debug("Unable to find size in text {}", info);
             return null;
         }
 
-        Matcher nfoMatcher = NFO_INFO_PATTERN.matcher(infoElement.ownText());
+        Matcher nfoMatcher = NFO_INFO_PATTERN.matcher(info);
         item.setHasNfo(nfoMatcher.find() ? HasNfo.YES : HasNfo.NO);
 
-        Matcher pubdateMatcher = PUBDATE_PATTERN.matcher(row.text());
-        if (pubdateMatcher.find()) {
+        //The date is in the last column, only look at the whole row if the layout changed
+        Element lastCell = row.children().last();
+        Matcher pubdateMatcher = PUBDATE_PATTERN.matcher(lastCell != null ? lastCell.text() : "");
+        boolean pubdateFound = pubdateMatcher.find();
+        if (!pubdateFound) {
+            pubdateMatcher = PUBDATE_PATTERN.matcher(row.text());
+            pubdateFound = pubdateMatcher.find();
+        }
+        if (pubdateFound) {
             String pubdateString = pubdateMatcher.group(1);
             Instant pubdate = DATE_TIME_FORMATTER.parse(pubdateString, Instant::from);
             item.setPubDate(pubdate);
@@ -189,8 +205,79 @@ public class Binsearch extends Indexer<String> {
         return item;
     }
 
-    private Element getElementOrNone(Element parent, String selector) {
-        Elements selectionResult = parent.select(selector);
+    /**
+     * Subjects usually contain the quoted name of a file, e.g. <tt>[01/20] - "Some.Title.part01.rar" yEnc</tt>. Returns the file name without
+     * extension if the subject contains one, otherwise the whole subject. Same as matching <tt>"(.*)\.(rar|nfo|mkv|par2|001|nzb|url|zip|r[0-9]{2})"</tt>
+     * but without backtracking over the whole subject.
+     */
+    static String extractFileName(String subject) {
+        int start = subject.indexOf('"');
+        if (start < 0) {
+            return subject;
+        }
+        //The last matching quotation mark wins
+        for (int end = subject.lastIndexOf('"'); end > start; end = subject.lastIndexOf('"', end - 1)) {
+            int dot = subject.lastIndexOf('.', end - 1);
+            if (dot > start && isTitleExtension(subject.substring(dot + 1, end))) {
+                return subject.substring(start + 1, dot);
+            }
+        }
+        return subject;
+    }
+
+    private static boolean isTitleExtension(String extension) {
+        if (extension.length() == 3 && Character.toLowerCase(extension.charAt(0)) == 'r' && isDigit(extension.charAt(1)) && isDigit(extension.charAt(2))) {
+            return true;
+        }
+        for (String titleExtension : TITLE_EXTENSIONS) {
+            if (titleExtension.equalsIgnoreCase(extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return The group from a collection link like <tt>/?b=title&amp;g=alt.binaries.movies&amp;p=poster&amp;max=250</tt>
+     */
+    private static String getGroup(String collectionLink) {
+        int start = collectionLink.indexOf("&g=");
+        while (start >= 0) {
+            int end = start + 3;
+            while (end < collectionLink.length() && isGroupCharacter(collectionLink.charAt(end))) {
+                end++;
+            }
+            if (end < collectionLink.length() && collectionLink.charAt(end) == '&') {
+                return collectionLink.substring(start + 3, end);
+            }
+            start = collectionLink.indexOf("&g=", start + 1);
+        }
+        return null;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isGroupCharacter(char c) {
+        //Same as [\w\.]
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || isDigit(c) || c == '_' || c == '.';
+    }
+
+    /**
+     * @return Everything from the first <tt>&amp;p=</tt> to the last <tt>&amp;</tt> of a collection link
+     */
+    private static String getPoster(String collectionLink) {
+        int start = collectionLink.indexOf("&p=");
+        if (start < 0) {
+            return null;
+        }
+        int end = collectionLink.lastIndexOf('&');
+        return end >= start + 3 ? collectionLink.substring(start + 3, end) : null;
+    }
+
+    private Element getElementOrNone(Element parent, Evaluator evaluator) {
+        Elements selectionResult = Collector.collect(evaluator, parent);
         return selectionResult.size() == 0 ? null : selectionResult.get(0);
     }
 
@@ -234,8 +321,13 @@ public class Binsearch extends Indexer<String> {
     }
 
     @Override
-    protected String getAndStoreResultToDatabase(URI uri, IndexerApiAccessType apiAccessType) throws IndexerAccessException {
-        return getAndStoreResultToDatabase(uri, String.class, apiAccessType);
+    protected Document getAndStoreResultToDatabase(URI uri, IndexerApiAccessType apiAccessType) throws IndexerAccessException {
+        return getAndStoreResultToDatabase(uri, Document.class, apiAccessType);
+    }
+
+    @Override
+    protected CompletableFuture<Document> getAndStoreResultToDatabaseAsync(URI uri, IndexerApiAccessType apiAccessType) {
+        return getAndStoreResultToDatabaseAsync(uri, Document.class, apiAccessType);
     }
 
     @Override
@@ -17,12 +17,19 @@ import org.springframework.stereotype.Component;
 import java.net.URI;
 import java.time.Instant;
 import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
 
 @Getter
 @Setter
 @Component
 public class DevIndexer extends Newznab {
 
+    @Override
+    protected CompletableFuture<Xml> getAndStoreResultToDatabaseAsync(URI uri, IndexerApiAccessType apiAccessType) {
+        //Responses are generated by the blocking method below
+        return getAndStoreResultToDatabaseInSearchPool(uri, apiAccessType);
+    }
+
     protected Xml getAndStoreResultToDatabase(URI uri, IndexerApiAccessType apiAccessType) throws IndexerAccessException {
         RssRoot rssRoot = new RssRoot();
         if (uri.toString().contains("oneduplicate")) {
@@ -7,8 +7,10 @@ import org.nzbhydra.config.ConfigProvider;
 import org.nzbhydra.config.IndexerConfig;
 import org.nzbhydra.indexers.exceptions.IndexerAccessException;
 import org.nzbhydra.indexers.exceptions.IndexerAuthException;
+import org.nzbhydra.indexers.exceptions.IndexerCallRejectedException;
 import org.nzbhydra.indexers.exceptions.IndexerErrorCodeException;
 import org.nzbhydra.indexers.exceptions.IndexerParsingException;
+import org.nzbhydra.indexers.exceptions.IndexerResponseTooLargeException;
 import org.nzbhydra.indexers.exceptions.IndexerSearchAbortedException;
 import org.nzbhydra.indexers.exceptions.IndexerUnreachableException;
 import org.nzbhydra.logging.LoggingMarkers;
@@ -17,6 +19,7 @@ import org.nzbhydra.mediainfo.InfoProvider;
 import org.nzbhydra.mediainfo.InfoProvider.IdType;
 import org.nzbhydra.mediainfo.InfoProviderException;
 import org.nzbhydra.mediainfo.MediaInfo;
+import org.nzbhydra.okhttp.ConditionalResponse;
 import org.nzbhydra.searching.CategoryProvider;
 import org.nzbhydra.searching.FallbackSearchInitiatedEvent;
 import org.nzbhydra.searching.IndexerSearchFinishedEvent;
@@ -26,8 +29,9 @@ import org.nzbhydra.searching.ResultAcceptor.AcceptorResult;
 import org.nzbhydra.searching.SearchMessageEvent;
 import org.nzbhydra.searching.SearchResultEntity;
 import org.nzbhydra.searching.SearchResultIdCalculator;
+import org.nzbhydra.searching.SearchResultIndex;
 import org.nzbhydra.searching.SearchResultItem;
-import org.nzbhydra.searching.SearchResultRepository;
+import org.nzbhydra.searching.SearchResultWriter;
 import org.nzbhydra.searching.SearchType;
 import org.nzbhydra.searching.searchrequests.InternalData.FallbackState;
 import org.nzbhydra.searching.searchrequests.SearchRequest;
@@ -37,13 +41,13 @@ import org.slf4j.Marker;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.util.UriComponentsBuilder;
 
 import java.net.URI;
+import java.text.ParsePosition;
+import java.time.DateTimeException;
 import java.time.Instant;
 import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -51,7 +55,9 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map.Entry;
 import java.util.Optional;
-import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -68,6 +74,7 @@ public abstract class Indexer<T> {
     private static final Logger logger = LoggerFactory.getLogger(Indexer.class);
 
     List<DateTimeFormatter> DATE_FORMATs = Arrays.asList(DateTimeFormatter.RFC_1123_DATE_TIME, DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.ENGLISH));
+    private volatile int lastDateFormat = 0;
 
 
     protected IndexerEntity indexer;
@@ -78,14 +85,16 @@ public abstract class Indexer<T> {
     @Autowired
     protected IndexerRepository indexerRepository;
     @Autowired
-    protected SearchResultRepository searchResultRepository;
+    protected SearchResultWriter searchResultWriter;
     @Autowired
-    protected IndexerApiAccessRepository indexerApiAccessRepository;
+    protected SearchResultIndex searchResultIndex;
     @Autowired
-    protected IndexerApiAccessEntityShortRepository indexerApiAccessShortRepository;
+    protected IndexerLimitCounter indexerLimitCounter;
     @Autowired
     protected IndexerWebAccess indexerWebAccess;
     @Autowired
+    protected IndexerExecutor indexerExecutor;
+    @Autowired
     protected ResultAcceptor resultAcceptor;
     @Autowired
     protected CategoryProvider categoryProvider;
@@ -106,26 +115,81 @@ public abstract class Indexer<T> {
         try {
             indexerSearchResult = searchInternal(searchRequest, offset, limit);
 
-            boolean fallbackNeeded = indexerSearchResult.getTotalResults() == 0 && !searchRequest.getIdentifiers().isEmpty() && searchRequest.getInternalData().getFallbackState() != FallbackState.USED && configProvider.getBaseConfig().getSearching().getIdFallbackToQueryGeneration().meets(searchRequest.getSource());
-            if (fallbackNeeded) {
-                info("No results found for ID based search. Will do a fallback search using a generated query");
-
-                //Search should be shown as successful (albeit empty) and should result in the number of expected finished searches to be increased
-                eventPublisher.publishEvent(new IndexerSearchFinishedEvent(searchRequest));
-                eventPublisher.publishEvent(new SearchMessageEvent(searchRequest, "Indexer " + getName() + " did not return any results. Will do a fallback search"));
-                eventPublisher.publishEvent(new FallbackSearchInitiatedEvent(searchRequest));
-
-                searchRequest.getInternalData().setFallbackState(FallbackState.REQUESTED);
+            if (isFallbackNeeded(indexerSearchResult, searchRequest)) {
+                initiateFallbackSearch(searchRequest);
                 indexerSearchResult = searchInternal(searchRequest, offset, limit);
                 eventPublisher.publishEvent(new SearchMessageEvent(searchRequest, "Indexer " + getName() + " completed fallback search successfully with " + indexerSearchResult.getTotalResults() + " total results"));
             } else {
                 eventPublisher.publishEvent(new SearchMessageEvent(searchRequest, "Indexer " + getName() + " completed search successfully with " + indexerSearchResult.getTotalResults() + " total results"));
             }
 
+        } catch (Exception e) {
+            indexerSearchResult = handleSearchException(e, searchRequest);
+        }
+        eventPublisher.publishEvent(new IndexerSearchFinishedEvent(searchRequest));
+
+        return indexerSearchResult;
+    }
+
+    /**
+     * Like {@link #search(SearchRequest, int, Integer)} but doesn't block a thread while waiting for the indexer. The returned future is never
+     * completed exceptionally, errors are contained in the search result.
+     */
+    public CompletableFuture<IndexerSearchResult> searchAsync(SearchRequest searchRequest, int offset, Integer limit) {
+        return searchInternalAsync(searchRequest, offset, limit)
+                .thenCompose(indexerSearchResult -> {
+                    if (isFallbackNeeded(indexerSearchResult, searchRequest)) {
+                        initiateFallbackSearch(searchRequest);
+                        return searchInternalAsync(searchRequest, offset, limit).thenApply(fallbackResult -> {
+                            eventPublisher.publishEvent(new SearchMessageEvent(searchRequest, "Indexer " + getName() + " completed fallback search successfully with " + fallbackResult.getTotalResults() + " total results"));
+                            return fallbackResult;
+                        });
+                    }
+                    eventPublisher.publishEvent(new SearchMessageEvent(searchRequest, "Indexer " + getName() + " completed search successfully with " + indexerSearchResult.getTotalResults() + " total results"));
+                    return CompletableFuture.completedFuture(indexerSearchResult);
+                })
+                //Errors may be reported by the timeout scheduler's thread, don't save them to the database there
+                .handleAsync((indexerSearchResult, throwable) -> {
+                    if (throwable != null) {
+                        Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+                        indexerSearchResult = handleSearchException(cause instanceof Exception ? (Exception) cause : new RuntimeException(cause), searchRequest);
+                    }
+                    eventPublisher.publishEvent(new IndexerSearchFinishedEvent(searchRequest));
+                    return indexerSearchResult;
+                }, indexerExecutor.getProcessingExecutor());
+    }
+
+    private boolean isFallbackNeeded(IndexerSearchResult indexerSearchResult, SearchRequest searchRequest) {
+        return indexerSearchResult.getTotalResults() == 0 && !searchRequest.getIdentifiers().isEmpty() && searchRequest.getInternalData().getFallbackState() != FallbackState.USED && configProvider.getBaseConfig().getSearching().getIdFallbackToQueryGeneration().meets(searchRequest.getSource());
+    }
+
+    private void initiateFallbackSearch(SearchRequest searchRequest) {
+        info("No results found for ID based search. Will do a fallback search using a generated query");
+
+        //Search should be shown as successful (albeit empty) and should result in the number of expected finished searches to be increased
+        eventPublisher.publishEvent(new IndexerSearchFinishedEvent(searchRequest));
+        eventPublisher.publishEvent(new SearchMessageEvent(searchRequest, "Indexer " + getName() + " did not return any results. Will do a fallback search"));
+        eventPublisher.publishEvent(new FallbackSearchInitiatedEvent(searchRequest));
+
+        searchRequest.getInternalData().setFallbackState(FallbackState.REQUESTED);
+    }
+
+    private IndexerSearchResult handleSearchException(Exception exception, SearchRequest searchRequest) {
+        IndexerSearchResult indexerSearchResult;
+        try {
+            throw exception;
         } catch (IndexerSearchAbortedException e) {
             logger.warn("Unexpected error while preparing search");
             indexerSearchResult = new IndexerSearchResult(this, e.getMessage());
             eventPublisher.publishEvent(new SearchMessageEvent(searchRequest, "Unexpected error while preparing search for indexer " + getName()));
+        } catch (IndexerCallRejectedException e) {
+            warn(e.getMessage());
+            indexerSearchResult = new IndexerSearchResult(this, e.getMessage());
+            eventPublisher.publishEvent(new SearchMessageEvent(searchRequest, "Indexer " + getName() + " was not searched because too many searches are running"));
+        } catch (IndexerResponseTooLargeException e) {
+            handleIndexerAccessException(e, IndexerApiAccessType.SEARCH);
+            indexerSearchResult = new IndexerSearchResult(this, e.getMessage());
+            eventPublisher.publishEvent(new SearchMessageEvent(searchRequest, "Response of indexer " + getName() + " was too large and was ignored"));
         } catch (IndexerAccessException e) {
             handleIndexerAccessException(e, IndexerApiAccessType.SEARCH);
             indexerSearchResult = new IndexerSearchResult(this, e.getMessage());
@@ -140,8 +204,6 @@ public abstract class Indexer<T> {
             }
             indexerSearchResult = new IndexerSearchResult(this, e.getMessage());
         }
-        eventPublisher.publishEvent(new IndexerSearchFinishedEvent(searchRequest));
-
         return indexerSearchResult;
     }
 
@@ -158,6 +220,46 @@ public abstract class Indexer<T> {
 
         stopwatch.reset();
         stopwatch.start();
+        return processResponse(response, responseTime, searchRequest);
+    }
+
+    /**
+     * Like {@link #searchInternal(SearchRequest, int, Integer)} but returns without waiting for the indexer. The search URL is built in the
+     * search thread pool (query generation may need to call other services), the response is processed in the processing pool.
+     *
+     * @return A future which is completed with the result or exceptionally with the same exceptions as the synchronous search
+     */
+    protected CompletableFuture<IndexerSearchResult> searchInternalAsync(SearchRequest searchRequest, int offset, Integer limit) {
+        CompletableFuture<URI> urlFuture;
+        try {
+            urlFuture = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return buildSearchUrl(searchRequest, offset, limit).build().toUri();
+                } catch (IndexerSearchAbortedException e) {
+                    throw new CompletionException(e);
+                }
+            }, indexerExecutor.getSearchExecutor());
+        } catch (RejectedExecutionException e) {
+            urlFuture = new CompletableFuture<>();
+            urlFuture.completeExceptionally(new IndexerCallRejectedException("Too many indexer searches queued. Rejected search of " + getName()));
+        }
+        Stopwatch stopwatch = Stopwatch.createUnstarted();
+        return urlFuture
+                .thenCompose(url -> {
+                    info("Calling {}", url);
+                    stopwatch.start();
+                    return getAndStoreResultToDatabaseAsync(url, IndexerApiAccessType.SEARCH);
+                })
+                .thenApply(response -> {
+                    try {
+                        return processResponse(response, stopwatch.elapsed(TimeUnit.MILLISECONDS), searchRequest);
+                    } catch (IndexerParsingException e) {
+                        throw new CompletionException(e);
+                    }
+                });
+    }
+
+    protected IndexerSearchResult processResponse(T response, long responseTime, SearchRequest searchRequest) throws IndexerParsingException {
         IndexerSearchResult indexerSearchResult = new IndexerSearchResult(this, true);
         List<SearchResultItem> searchResultItems = getSearchResultItems(response);
         info("Successfully executed search call in {}ms with {} results", responseTime, searchResultItems.size());
@@ -206,34 +308,32 @@ public abstract class Indexer<T> {
         return query;
     }
 
-    @Transactional
     protected List<SearchResultItem> persistSearchResults(List<SearchResultItem> searchResultItems) {
         Stopwatch stopwatch = Stopwatch.createStarted();
-        synchronized (indexer) { //Locking per indexer prevents multiple threads trying to save the same "new" results to the database
-            ArrayList<SearchResultEntity> searchResultEntities = new ArrayList<>();
-            Set<Long> alreadySavedIds = searchResultRepository.findAllIdsByIdIn(searchResultItems.stream().map(SearchResultIdCalculator::calculateSearchResultId).collect(Collectors.toList()));
-            for (SearchResultItem item : searchResultItems) {
-                long guid = SearchResultIdCalculator.calculateSearchResultId(item);
-                if (!alreadySavedIds.contains(guid)) {
-                    SearchResultEntity searchResultEntity = new SearchResultEntity();
-
-                    //Set all entity relevant data
-                    searchResultEntity.setIndexer(indexer);
-                    searchResultEntity.setTitle(item.getTitle());
-                    searchResultEntity.setLink(item.getLink());
-                    searchResultEntity.setDetails(item.getDetails());
-                    searchResultEntity.setIndexerGuid(item.getIndexerGuid());
-                    searchResultEntity.setFirstFound(Instant.now());
-                    searchResultEntity.setDownloadType(item.getDownloadType());
-                    searchResultEntity.setPubDate(item.getPubDate());
-                    searchResultEntities.add(searchResultEntity);
-                }
-                //LATER Unify guid and searchResultId which are the same
-                item.setGuid(guid);
-                item.setSearchResultId(guid);
-            }
-            searchResultRepository.save(searchResultEntities);
+        ArrayList<SearchResultEntity> searchResultEntities = new ArrayList<>();
+        Instant firstFound = Instant.now();
+        for (SearchResultItem item : searchResultItems) {
+            SearchResultEntity searchResultEntity = new SearchResultEntity();
+
+            //Set all entity relevant data
+            searchResultEntity.setIndexer(indexer);
+            searchResultEntity.setTitle(item.getTitle());
+            searchResultEntity.setLink(item.getLink());
+            searchResultEntity.setDetails(item.getDetails());
+            searchResultEntity.setIndexerGuid(item.getIndexerGuid());
+            searchResultEntity.setFirstFound(firstFound);
+            searchResultEntity.setDownloadType(item.getDownloadType());
+            searchResultEntity.setPubDate(item.getPubDate());
+            searchResultEntities.add(searchResultEntity);
+
+            long guid = SearchResultIdCalculator.calculateSearchResultId(item);
+            //LATER Unify guid and searchResultId which are the same
+            item.setGuid(guid);
+            item.setSearchResultId(guid);
         }
+        //Results already in the database are skipped by the writer, no need to look for them first or to lock the indexer
+        List<SearchResultEntity> newEntities = searchResultWriter.writeNew(searchResultEntities);
+        searchResultIndex.add(newEntities);
 
         getLogger().debug(LoggingMarkers.PERFORMANCE, "Handling of {} search results took {}ms", searchResultItems.size(), stopwatch.elapsed(TimeUnit.MILLISECONDS));
         return searchResultItems;
@@ -241,19 +341,15 @@ public abstract class Indexer<T> {
 
     protected void handleSuccess(IndexerApiAccessType accessType, Long responseTime) {
         IndexerStatusEntity status = indexer.getStatus();
-        status.setLevel(0);
-        status.setDisabledPermanently(false);
-        status.setDisabledUntil(null);
-        indexerRepository.save(indexer);
-
-        IndexerApiAccessEntity apiAccess = new IndexerApiAccessEntity(indexer);
-        apiAccess.setAccessType(accessType);
-        apiAccess.setResponseTime(responseTime);
-        apiAccess.setResult(IndexerAccessResult.SUCCESSFUL);
-        apiAccess.setTime(Instant.now());
-        indexerApiAccessRepository.save(apiAccess);
+        //Usually the indexer was enabled before, only write the status if the success changes it
+        if (!Objects.equal(status.getLevel(), 0) || !Boolean.FALSE.equals(status.getDisabledPermanently()) || status.getDisabledUntil() != null) {
+            status.setLevel(0);
+            status.setDisabledPermanently(false);
+            status.setDisabledUntil(null);
+            indexerRepository.save(indexer);
+        }
 
-        indexerApiAccessShortRepository.save(new IndexerApiAccessEntityShort(indexer, true));
+        writeApiAccess(accessType, responseTime, IndexerAccessResult.SUCCESSFUL);
     }
 
     protected void handleFailure(String reason, Boolean disablePermanently, IndexerApiAccessType accessType, Long responseTime, IndexerAccessResult accessResult) {
@@ -274,20 +370,28 @@ public abstract class Indexer<T> {
             getLogger().warn("Will disable {} until {}", indexer.getName(), status.getDisabledUntil());
         }
 
+        writeApiAccess(accessType, responseTime, accessResult);
+    }
+
+    private void writeApiAccess(IndexerApiAccessType accessType, Long responseTime, IndexerAccessResult accessResult) {
         IndexerApiAccessEntity apiAccess = new IndexerApiAccessEntity(indexer);
         apiAccess.setAccessType(accessType);
         apiAccess.setResponseTime(responseTime);
         apiAccess.setResult(accessResult);
         apiAccess.setTime(Instant.now());
-        indexerApiAccessRepository.save(apiAccess);
-
-        indexerApiAccessShortRepository.save(new IndexerApiAccessEntityShort(indexer, false));
+        indexerLimitCounter.writeApiHit(apiAccess);
     }
 
     protected void handleIndexerAccessException(IndexerAccessException e, IndexerApiAccessType accessType) {
         boolean disablePermanently = false;
         IndexerAccessResult apiAccessResult;
         String message = e.getMessage();
+        if (e instanceof IndexerResponseTooLargeException) {
+            //The indexer answered, so it's not disabled
+            warn(message);
+            writeApiAccess(accessType, null, IndexerAccessResult.HYDRA_ERROR);
+            return;
+        }
         if (e instanceof IndexerAuthException) {
             error("Indexer refused authentication");
             disablePermanently = true;
@@ -339,10 +443,59 @@ public abstract class Indexer<T> {
         return result;
     }
 
+    /**
+     * Like {@link #getAndStoreResultToDatabase(URI, Class, IndexerApiAccessType)} but sends the validators of a previous response. A response
+     * reported as not modified is saved as a successful access.
+     */
+    protected <T> ConditionalResponse<T> getAndStoreResultToDatabaseConditionally(URI uri, Class<T> responseType, String eTag, String lastModified, IndexerApiAccessType apiAccessType) throws IndexerAccessException {
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        ConditionalResponse<T> response = indexerWebAccess.getConditionally(uri, config, responseType, eTag, lastModified);
+        handleSuccess(apiAccessType, stopwatch.elapsed(TimeUnit.MILLISECONDS));
+        return response;
+    }
+
     <T> T callInderWebAccess(URI uri, Class<T> responseType) throws IndexerAccessException {
         return indexerWebAccess.get(uri, config, responseType);
     }
 
+    /**
+     * Asynchronous version of {@link #getAndStoreResultToDatabase(URI, IndexerApiAccessType)}. Implementations which don't override this
+     * make the blocking call in the search thread pool.
+     *
+     * @return A future which is completed with the response or exceptionally with an {@link IndexerAccessException}
+     */
+    protected CompletableFuture<T> getAndStoreResultToDatabaseAsync(URI uri, IndexerApiAccessType apiAccessType) {
+        return getAndStoreResultToDatabaseInSearchPool(uri, apiAccessType);
+    }
+
+    protected CompletableFuture<T> getAndStoreResultToDatabaseInSearchPool(URI uri, IndexerApiAccessType apiAccessType) {
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return getAndStoreResultToDatabase(uri, apiAccessType);
+                } catch (IndexerAccessException e) {
+                    throw new CompletionException(e);
+                }
+            }, indexerExecutor.getSearchExecutor());
+        } catch (RejectedExecutionException e) {
+            CompletableFuture<T> future = new CompletableFuture<>();
+            future.completeExceptionally(new IndexerCallRejectedException("Too many indexer calls queued. Rejected call to " + getName()));
+            return future;
+        }
+    }
+
+    /**
+     * Asynchronous version of {@link #getAndStoreResultToDatabase(URI, Class, IndexerApiAccessType)}. The success is saved in the processing
+     * pool where the response was parsed.
+     */
+    protected <T> CompletableFuture<T> getAndStoreResultToDatabaseAsync(URI uri, Class<T> responseType, IndexerApiAccessType apiAccessType) {
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        return indexerWebAccess.<T>getAsync(uri, config, responseType).thenApply(result -> {
+            handleSuccess(apiAccessType, stopwatch.elapsed(TimeUnit.MILLISECONDS));
+            return result;
+        });
+    }
+
     protected String generateQueryIfApplicable(SearchRequest searchRequest, String query) throws IndexerSearchAbortedException {
         if (searchRequest.getQuery().isPresent()) {
             return searchRequest.getQuery().get();
@@ -427,7 +580,8 @@ public abstract class Indexer<T> {
         }
         title = title.trim();
         for (String word : configProvider.getBaseConfig().getSearching().getRemoveTrailing()) {
-            if (title.toLowerCase().endsWith(word.trim().toLowerCase())) {
+            String trimmedWord = word.trim();
+            if (title.regionMatches(true, title.length() - trimmedWord.length(), trimmedWord, 0, trimmedWord.length())) {
                 debug(LoggingMarkers.TRAILING, "Removing trailing {} from title {}", word, title);
                 title = title.substring(0, title.length() - word.length()).trim();
                 return title;
@@ -448,17 +602,41 @@ public abstract class Indexer<T> {
     }
 
     public Optional<Instant> tryParseDate(String dateString) {
-        for (DateTimeFormatter formatter : DATE_FORMATs) {
-            try {
-                Instant instant = Instant.from(formatter.parse(dateString));
-                return Optional.of(instant);
-            } catch (DateTimeParseException e) {
-                logger.debug("Unable to parse date string " + dateString);
+        //Indexers use the same format for all their dates so the one that worked last time is tried first and is expected to match
+        int lastFormat = lastDateFormat;
+        Optional<Instant> instant = parseDate(DATE_FORMATs.get(lastFormat), dateString, false);
+        if (instant.isPresent()) {
+            return instant;
+        }
+        for (int i = 0; i < DATE_FORMATs.size(); i++) {
+            if (i == lastFormat) {
+                continue;
+            }
+            instant = parseDate(DATE_FORMATs.get(i), dateString, true);
+            if (instant.isPresent()) {
+                lastDateFormat = i;
+                return instant;
             }
         }
+        logger.debug("Unable to parse date string " + dateString);
         return Optional.empty();
     }
 
+    private Optional<Instant> parseDate(DateTimeFormatter formatter, String dateString, boolean checkFormat) {
+        if (checkFormat) {
+            //Parsing without resolving doesn't throw an exception if the string doesn't match the format
+            ParsePosition position = new ParsePosition(0);
+            if (formatter.parseUnresolved(dateString, position) == null || position.getIndex() != dateString.length()) {
+                return Optional.empty();
+            }
+        }
+        try {
+            return Optional.of(Instant.from(formatter.parse(dateString)));
+        } catch (DateTimeException e) {
+            return Optional.empty();
+        }
+    }
+
 
     @Override
     public boolean equals(Object o) {
@@ -485,6 +663,10 @@ public abstract class Indexer<T> {
         getLogger().error(getName() + ": " + msg, t);
     }
 
+    protected void warn(String msg, Object... arguments) {
+        getLogger().warn(getName() + ": " + msg, arguments);
+    }
+
     protected void info(String msg, Object... arguments) {
         getLogger().info(getName() + ": " + msg, arguments);
     }
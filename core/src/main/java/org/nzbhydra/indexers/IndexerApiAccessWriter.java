@@ -0,0 +1,171 @@
+package org.nzbhydra.indexers;
+
+import org.nzbhydra.historystats.StatsRollups;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Writes indexer API accesses to the database in the background so that indexer calls don't have to wait for the database. Accesses are
+ * queued and written in batches (together with their short term entries) once a batch is full or at least every second. The queue is bounded;
+ * if it's full the caller writes the queue itself. Everything still queued is written when the application shuts down.
+ */
+@Component
+public class IndexerApiAccessWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(IndexerApiAccessWriter.class);
+
+    static final int BATCH_SIZE = 100;
+    static final int QUEUE_CAPACITY = 10_000;
+    private static final long FLUSH_INTERVAL_MILLIS = 1000;
+
+    //IDs are taken from the sequence hibernate uses for the entities. That's safe because none of the entities declares a @SequenceGenerator,
+    //so hibernate uses an increment size of 1 and fetches every ID from the sequence instead of handing out IDs from a pooled range.
+    //Declaring an allocationSize > 1 for any entity would require a dedicated sequence here
+    private static final String INSERT_API_ACCESS = "insert into INDEXERAPIACCESS (ID, ACCESS_TYPE, ERROR, RESPONSE_TIME, RESULT, TIME, INDEXER_ID) values (NEXT VALUE FOR hibernate_sequence, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_API_ACCESS_SHORT = "insert into INDEXERAPIACCESS_SHORT (ID, INDEXER_ID, TIME, SUCCESSFUL) values (NEXT VALUE FOR hibernate_sequence, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private StatsRollups statsRollups;
+
+    private final BlockingQueue<IndexerApiAccessEntity> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    private ScheduledThreadPoolExecutor flushScheduler;
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        flushScheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "IndexerApiAccessWriter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flushScheduler.scheduleWithFixedDelay(this::flushScheduled, FLUSH_INTERVAL_MILLIS, FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushScheduler.shutdown();
+        try {
+            flushScheduler.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        int written = flush();
+        logger.debug("Wrote {} queued indexer API accesses on shutdown", written);
+    }
+
+    /**
+     * Queues the API access to be written to the database. Its short term entry is written as well.
+     */
+    public void write(IndexerApiAccessEntity apiAccess) {
+        if (!queue.offer(apiAccess)) {
+            logger.warn("Writing of indexer API accesses is falling behind. Writing {} queued accesses now", queue.size());
+            flush();
+            if (!queue.offer(apiAccess)) {
+                synchronized (this) {
+                    writeBatch(Collections.singletonList(apiAccess));
+                }
+            }
+            return;
+        }
+        if (queue.size() >= BATCH_SIZE && flushScheduled.compareAndSet(false, true)) {
+            flushScheduler.execute(this::flushScheduled);
+        }
+    }
+
+    /**
+     * Writes all queued API accesses to the database.
+     *
+     * @return The number of written accesses
+     */
+    public synchronized int flush() {
+        List<IndexerApiAccessEntity> batch = new ArrayList<>(BATCH_SIZE);
+        int written = 0;
+        while (queue.drainTo(batch, BATCH_SIZE) > 0) {
+            if (writeBatch(batch)) {
+                written += batch.size();
+            }
+            batch.clear();
+        }
+        return written;
+    }
+
+    /**
+     * Loads access times of the indexer from the database while no queued accesses are being written and adds the times of its queued
+     * accesses. Every access is either loaded or still queued, so none is missed or counted twice.
+     *
+     * @return The loaded and queued times, latest first
+     */
+    public synchronized List<Instant> getAccessTimesIncludingQueued(IndexerEntity indexer, Supplier<List<Instant>> databaseLoader) {
+        List<Instant> times = new ArrayList<>(databaseLoader.get());
+        for (IndexerApiAccessEntity apiAccess : queue) {
+            if (apiAccess.getIndexer().getId() == indexer.getId()) {
+                times.add(apiAccess.getTime());
+            }
+        }
+        times.sort(Comparator.reverseOrder());
+        return times;
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    private void flushScheduled() {
+        flushScheduled.set(false);
+        flush();
+    }
+
+    private boolean writeBatch(List<IndexerApiAccessEntity> batch) {
+        try {
+            transactionTemplate.execute(status -> {
+                jdbcTemplate.batchUpdate(INSERT_API_ACCESS, batch, batch.size(), (statement, apiAccess) -> {
+                    statement.setString(1, apiAccess.getAccessType() == null ? null : apiAccess.getAccessType().name());
+                    statement.setString(2, apiAccess.getError());
+                    statement.setObject(3, apiAccess.getResponseTime());
+                    statement.setString(4, apiAccess.getResult() == null ? null : apiAccess.getResult().name());
+                    statement.setTimestamp(5, Timestamp.from(apiAccess.getTime()));
+                    statement.setInt(6, apiAccess.getIndexer().getId());
+                });
+                jdbcTemplate.batchUpdate(INSERT_API_ACCESS_SHORT, batch, batch.size(), (statement, apiAccess) -> {
+                    statement.setInt(1, apiAccess.getIndexer().getId());
+                    statement.setTimestamp(2, Timestamp.from(apiAccess.getTime()));
+                    statement.setBoolean(3, apiAccess.getResult() == IndexerAccessResult.SUCCESSFUL);
+                });
+                return null;
+            });
+            statsRollups.recordApiAccesses(batch);
+            return true;
+        } catch (RuntimeException e) {
+            //Don't retry, the batch would probably fail again and block all following ones
+            logger.error("Unable to write {} indexer API accesses to database", batch.size(), e);
+            return false;
+        }
+    }
+
+}
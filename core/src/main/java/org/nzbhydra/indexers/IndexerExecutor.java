@@ -0,0 +1,251 @@
+package org.nzbhydra.indexers;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.nzbhydra.config.ConfigChangedEvent;
+import org.nzbhydra.config.ConfigProvider;
+import org.nzbhydra.config.SearchingConfig;
+import org.nzbhydra.indexers.exceptions.IndexerCallRejectedException;
+import org.nzbhydra.logging.MdcThreadPoolExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Provides the thread pools used for all indexer traffic. Indexer searches and the web calls they make run in two separate bounded
+ * pools (a search waits for its web calls, so sharing one pool could dead lock). The number of concurrent web calls per indexer is
+ * limited as well. When a pool's queue is full or an indexer doesn't get a free slot in time the call is rejected.
+ * <p>
+ * Asynchronous indexer searches don't block a thread while waiting for the indexer. Their responses are parsed, checked and persisted in a
+ * small processing pool with one thread per CPU.
+ */
+@Component
+public class IndexerExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(IndexerExecutor.class);
+
+    @Autowired
+    private ConfigProvider configProvider;
+
+    private MdcThreadPoolExecutor searchThreadPool;
+    private MdcThreadPoolExecutor webCallThreadPool;
+    private MdcThreadPoolExecutor processingThreadPool;
+    private ScheduledThreadPoolExecutor timeoutScheduler;
+    private final Map<String, Semaphore> indexerSemaphores = new ConcurrentHashMap<>();
+
+    private final AtomicLong rejectedTasks = new AtomicLong();
+    private final AtomicLong startedTasks = new AtomicLong();
+    private final AtomicLong waitTimeNanos = new AtomicLong();
+    private final AtomicLong maxWaitTimeNanos = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        SearchingConfig searchingConfig = configProvider.getBaseConfig().getSearching();
+        int threads = searchingConfig.getIndexerThreads();
+        int queueSize = searchingConfig.getIndexerQueueSize();
+        logger.debug("Creating indexer thread pools with {} threads and a queue size of {}", threads, queueSize);
+        searchThreadPool = MdcThreadPoolExecutor.newWithInheritedMdc(threads, threads, 1, TimeUnit.MINUTES, new ArrayBlockingQueue<>(queueSize));
+        searchThreadPool.allowCoreThreadTimeOut(true);
+        webCallThreadPool = MdcThreadPoolExecutor.newWithInheritedMdc(threads, threads, 1, TimeUnit.MINUTES, new ArrayBlockingQueue<>(queueSize));
+        webCallThreadPool.allowCoreThreadTimeOut(true);
+        int processors = Runtime.getRuntime().availableProcessors();
+        processingThreadPool = MdcThreadPoolExecutor.newWithInheritedMdc(processors, processors, 1, TimeUnit.MINUTES, new LinkedBlockingQueue<>());
+        processingThreadPool.allowCoreThreadTimeOut(true);
+        timeoutScheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "IndexerTimeouts");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timeoutScheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    @EventListener
+    public void handleNewConfig(ConfigChangedEvent configChangedEvent) {
+        int threads = configChangedEvent.getNewConfig().getSearching().getIndexerThreads();
+        if (threads != searchThreadPool.getMaximumPoolSize()) {
+            logger.info("Changing number of indexer threads from {} to {}", searchThreadPool.getMaximumPoolSize(), threads);
+            setPoolSize(searchThreadPool, threads);
+            setPoolSize(webCallThreadPool, threads);
+        }
+        //Calls in progress will release their permits to the old semaphores, new calls will use new ones with the new limit
+        indexerSemaphores.clear();
+    }
+
+    private void setPoolSize(MdcThreadPoolExecutor threadPool, int threads) {
+        //The core pool size may never be larger than the maximum pool size, so the order depends on the direction
+        if (threads > threadPool.getMaximumPoolSize()) {
+            threadPool.setMaximumPoolSize(threads);
+            threadPool.setCorePoolSize(threads);
+        } else {
+            threadPool.setCorePoolSize(threads);
+            threadPool.setMaximumPoolSize(threads);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        searchThreadPool.shutdownNow();
+        webCallThreadPool.shutdownNow();
+        processingThreadPool.shutdownNow();
+        timeoutScheduler.shutdownNow();
+    }
+
+    /**
+     * @return An executor for indexer searches. Throws a {@link RejectedExecutionException} if too many searches are queued.
+     */
+    public Executor getSearchExecutor() {
+        return command -> {
+            try {
+                searchThreadPool.execute(measureWaitTime(command));
+            } catch (RejectedExecutionException e) {
+                rejectedTasks.incrementAndGet();
+                logger.warn("Rejected indexer search because {} searches are already queued", searchThreadPool.getQueue().size());
+                throw e;
+            }
+        };
+    }
+
+    /**
+     * @return An executor for the CPU bound work of asynchronous indexer searches (parsing, result acceptance and persistence). Never rejects tasks.
+     */
+    public Executor getProcessingExecutor() {
+        return processingThreadPool;
+    }
+
+    /**
+     * Completes the given future with a {@link TimeoutException} if it isn't completed within the given time.
+     *
+     * @return The same future
+     */
+    public <T> CompletableFuture<T> failAfter(CompletableFuture<T> future, int timeoutSeconds) {
+        ScheduledFuture<?> timeout = timeoutScheduler.schedule(() -> future.completeExceptionally(new TimeoutException()), timeoutSeconds, TimeUnit.SECONDS);
+        future.whenComplete((result, throwable) -> timeout.cancel(false));
+        return future;
+    }
+
+    /**
+     * Executes the given web call for the given indexer in the web call thread pool.
+     *
+     * @param indexerName    Name of the indexer to be called
+     * @param maxWaitSeconds Maximum time to wait for a free slot for that indexer
+     * @param callable       The actual web call
+     * @return The future of the web call. The slot is freed when the call is finished or the future is cancelled
+     * @throws IndexerCallRejectedException If no free slot was found for the indexer in time or too many web calls are queued
+     */
+    public <T> Future<T> submitWebCall(String indexerName, int maxWaitSeconds, Callable<T> callable) throws IndexerCallRejectedException {
+        Semaphore semaphore = indexerSemaphores.computeIfAbsent(indexerName, x -> new Semaphore(configProvider.getBaseConfig().getSearching().getMaxConcurrentCallsPerIndexer()));
+        boolean acquired;
+        try {
+            acquired = semaphore.tryAcquire(maxWaitSeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            throw new IndexerCallRejectedException("Interrupted while waiting for a free connection to " + indexerName);
+        }
+        if (!acquired) {
+            rejectedTasks.incrementAndGet();
+            throw new IndexerCallRejectedException("Too many concurrent calls to " + indexerName + ". No free connection within " + maxWaitSeconds + " seconds");
+        }
+        long submitted = System.nanoTime();
+        PermitReleasingFutureTask<T> task = new PermitReleasingFutureTask<>(() -> {
+            recordWaitTime(submitted);
+            return callable.call();
+        }, semaphore);
+        try {
+            webCallThreadPool.execute(task);
+            return task;
+        } catch (RejectedExecutionException e) {
+            task.cancel(false);
+            rejectedTasks.incrementAndGet();
+            throw new IndexerCallRejectedException("Too many indexer calls queued. Rejected call to " + indexerName);
+        }
+    }
+
+    public IndexerExecutorMetrics getMetrics() {
+        long started = startedTasks.get();
+        return new IndexerExecutorMetrics(
+                searchThreadPool.getActiveCount(),
+                searchThreadPool.getQueue().size(),
+                webCallThreadPool.getActiveCount(),
+                webCallThreadPool.getQueue().size(),
+                processingThreadPool.getActiveCount(),
+                processingThreadPool.getQueue().size(),
+                rejectedTasks.get(),
+                started,
+                started == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(waitTimeNanos.get() / started),
+                TimeUnit.NANOSECONDS.toMillis(maxWaitTimeNanos.get())
+        );
+    }
+
+    private Runnable measureWaitTime(Runnable runnable) {
+        long submitted = System.nanoTime();
+        return () -> {
+            recordWaitTime(submitted);
+            runnable.run();
+        };
+    }
+
+    private void recordWaitTime(long submitted) {
+        long waited = System.nanoTime() - submitted;
+        startedTasks.incrementAndGet();
+        waitTimeNanos.addAndGet(waited);
+        maxWaitTimeNanos.accumulateAndGet(waited, Math::max);
+    }
+
+    /**
+     * Releases the indexer's permit when the web call is finished. A call which is cancelled while still queued never runs, so the permit can't be
+     * released by the call itself.
+     */
+    private static class PermitReleasingFutureTask<T> extends FutureTask<T> {
+        private final Semaphore semaphore;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        PermitReleasingFutureTask(Callable<T> callable, Semaphore semaphore) {
+            super(callable);
+            this.semaphore = semaphore;
+        }
+
+        @Override
+        protected void done() {
+            if (released.compareAndSet(false, true)) {
+                semaphore.release();
+            }
+        }
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class IndexerExecutorMetrics {
+        private int activeSearches;
+        private int queuedSearches;
+        private int activeWebCalls;
+        private int queuedWebCalls;
+        private int activeProcessingTasks;
+        private int queuedProcessingTasks;
+        private long rejectedTasks;
+        private long startedTasks;
+        private long averageWaitTimeMs;
+        private long maxWaitTimeMs;
+    }
+
+}
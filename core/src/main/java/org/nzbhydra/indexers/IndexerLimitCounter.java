@@ -0,0 +1,283 @@
+package org.nzbhydra.indexers;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.nzbhydra.config.IndexerConfig;
+import org.nzbhydra.downloading.NzbDownloadEntity;
+import org.nzbhydra.downloading.NzbDownloadRepository;
+import org.nzbhydra.downloading.NzbHandler.NzbDownloadEvent;
+import org.nzbhydra.searching.SearchModuleProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoField;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the times of the latest API hits and downloads of every indexer with a hit or download limit in memory so that checking the limits
+ * doesn't need the database. For every indexer as many times are kept as its limit allows, so the oldest kept time tells if the limit is
+ * reached. The times are loaded from the database after startup or when a limit is raised. API hits which are still queued by the
+ * {@link IndexerApiAccessWriter} are added to the loaded ones.
+ * <p>
+ * Every access must be counted exactly once, also when it happens while the times are loaded. API hits are queued for writing and recorded
+ * while holding the read lock for API hits, loading holds the write lock, so a hit is either part of the loaded ones or recorded afterwards.
+ * Downloads are saved before their event is published, so loading remembers the IDs of the loaded downloads and their events are ignored.
+ */
+@Component
+public class IndexerLimitCounter {
+
+    private static final Logger logger = LoggerFactory.getLogger(IndexerLimitCounter.class);
+
+    @Autowired
+    private NzbDownloadRepository nzbDownloadRepository;
+    @Autowired
+    private SearchModuleProvider searchModuleProvider;
+    @Autowired
+    private IndexerApiAccessWriter apiAccessWriter;
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final Map<Integer, AccessTimes> apiHitsByIndexerId = new ConcurrentHashMap<>();
+    private final Map<Integer, AccessTimes> downloadsByIndexerId = new ConcurrentHashMap<>();
+    private final Map<Integer, Set<Integer>> loadedDownloadIdsByIndexerId = new ConcurrentHashMap<>();
+    private final ReadWriteLock apiHitsLock = new ReentrantReadWriteLock();
+    private final ReadWriteLock downloadsLock = new ReentrantReadWriteLock();
+
+    @EventListener
+    public void handleStartup(ApplicationReadyEvent event) {
+        for (Indexer indexer : searchModuleProvider.getIndexers()) {
+            indexer.getConfig().getHitLimit().ifPresent(x -> getApiHits(indexer.getIndexerEntity(), x));
+            indexer.getConfig().getDownloadLimit().ifPresent(x -> getDownloads(indexer.getIndexerEntity(), x));
+        }
+    }
+
+    @EventListener
+    public void handleNzbDownload(NzbDownloadEvent event) {
+        NzbDownloadEntity download = event.getDownloadEntity();
+        int indexerId = download.getSearchResult().getIndexer().getId();
+        downloadsLock.readLock().lock();
+        try {
+            AccessTimes downloads = downloadsByIndexerId.get(indexerId);
+            if (downloads != null && !loadedDownloadIdsByIndexerId.getOrDefault(indexerId, Collections.emptySet()).contains(download.getId())) {
+                downloads.add(download.getTime());
+            }
+        } finally {
+            downloadsLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Queues the API access for writing and records it as API hit. Hits of indexers without hit limit are only written.
+     */
+    public void writeApiHit(IndexerApiAccessEntity apiAccess) {
+        apiHitsLock.readLock().lock();
+        try {
+            apiAccessWriter.write(apiAccess);
+            recordApiHit(apiAccess.getIndexer(), apiAccess.getTime());
+        } finally {
+            apiHitsLock.readLock().unlock();
+        }
+    }
+
+    void recordApiHit(IndexerEntity indexer, Instant time) {
+        AccessTimes apiHits = apiHitsByIndexerId.get(indexer.getId());
+        if (apiHits != null) {
+            apiHits.add(time);
+        }
+    }
+
+    /**
+     * @return The time of the n-th latest API hit (1 being the latest) or empty if there were fewer hits
+     */
+    public Optional<Instant> getNthLatestApiHit(IndexerEntity indexer, int n) {
+        return getApiHits(indexer, n).getNthLatest(n);
+    }
+
+    /**
+     * @return The time of the n-th latest download (1 being the latest) or empty if there were fewer downloads
+     */
+    public Optional<Instant> getNthLatestDownload(IndexerEntity indexer, int n) {
+        return getDownloads(indexer, n).getNthLatest(n);
+    }
+
+    /**
+     * Returns the start of the time window in which the hit and download limits of an indexer apply. If a reset time is set that's the last time
+     * that hour of day was reached, otherwise 24 hours ago.
+     */
+    public Instant getLimitWindowStart(IndexerConfig indexerConfig) {
+        LocalDateTime comparisonTime;
+        if (indexerConfig.getHitLimitResetTime().isPresent()) {
+            comparisonTime = LocalDateTime.now().with(ChronoField.HOUR_OF_DAY, indexerConfig.getHitLimitResetTime().get());
+            if (comparisonTime.isAfter(LocalDateTime.now())) {
+                comparisonTime = comparisonTime.minus(1, ChronoUnit.DAYS);
+            }
+        } else {
+            comparisonTime = LocalDateTime.now().minus(1, ChronoUnit.DAYS);
+        }
+        return comparisonTime.toInstant(ZoneOffset.UTC);
+    }
+
+    /**
+     * @return The used and remaining API hits and downloads of all indexers with a hit or download limit
+     */
+    public List<IndexerLimitState> getLimitStates() {
+        List<IndexerLimitState> states = new ArrayList<>();
+        for (Indexer indexer : searchModuleProvider.getIndexers()) {
+            IndexerConfig config = indexer.getConfig();
+            if (!config.getHitLimit().isPresent() && !config.getDownloadLimit().isPresent()) {
+                continue;
+            }
+            Instant windowStart = getLimitWindowStart(config);
+            IndexerLimitState state = new IndexerLimitState();
+            state.setIndexerName(indexer.getName());
+            if (config.getHitLimit().isPresent()) {
+                int hits = getApiHits(indexer.getIndexerEntity(), config.getHitLimit().get()).countAfter(windowStart);
+                state.setHitLimit(config.getHitLimit().get());
+                state.setHits(hits);
+                state.setRemainingHits(Math.max(0, config.getHitLimit().get() - hits));
+            }
+            if (config.getDownloadLimit().isPresent()) {
+                int downloads = getDownloads(indexer.getIndexerEntity(), config.getDownloadLimit().get()).countAfter(windowStart);
+                state.setDownloadLimit(config.getDownloadLimit().get());
+                state.setDownloads(downloads);
+                state.setRemainingDownloads(Math.max(0, config.getDownloadLimit().get() - downloads));
+            }
+            states.add(state);
+        }
+        states.sort(Comparator.comparing(x -> x.getIndexerName().toLowerCase()));
+        return states;
+    }
+
+    private AccessTimes getApiHits(IndexerEntity indexer, int limit) {
+        return getAccessTimes(apiHitsByIndexerId, apiHitsLock, indexer, limit, this::loadApiHits);
+    }
+
+    private AccessTimes getDownloads(IndexerEntity indexer, int limit) {
+        return getAccessTimes(downloadsByIndexerId, downloadsLock, indexer, limit, this::loadDownloads);
+    }
+
+    private AccessTimes getAccessTimes(Map<Integer, AccessTimes> timesByIndexerId, ReadWriteLock lock, IndexerEntity indexer, int limit, BiFunction<IndexerEntity, Integer, List<Instant>> loader) {
+        AccessTimes accessTimes = timesByIndexerId.get(indexer.getId());
+        if (accessTimes != null && accessTimes.getCapacity() >= limit) {
+            return accessTimes;
+        }
+        lock.writeLock().lock();
+        try {
+            accessTimes = timesByIndexerId.get(indexer.getId());
+            if (accessTimes == null || accessTimes.getCapacity() < limit) {
+                //Not loaded yet or the limit was raised, so more accesses than were kept are needed
+                accessTimes = new AccessTimes(limit);
+                List<Instant> latestFirst = loader.apply(indexer, limit);
+                for (int i = latestFirst.size() - 1; i >= 0; i--) {
+                    accessTimes.add(latestFirst.get(i));
+                }
+                logger.debug("Loaded {} access times for indexer {} with limit {}", latestFirst.size(), indexer.getName(), limit);
+                timesByIndexerId.put(indexer.getId(), accessTimes);
+            }
+            return accessTimes;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private List<Instant> loadApiHits(IndexerEntity indexer, int limit) {
+        List<Instant> latestFirst = apiAccessWriter.getAccessTimesIncludingQueued(indexer, () -> loadApiHitsFromDatabase(indexer, limit));
+        return latestFirst.subList(0, Math.min(limit, latestFirst.size()));
+    }
+
+    private List<Instant> loadApiHitsFromDatabase(IndexerEntity indexer, int limit) {
+        Query query = entityManager.createNativeQuery("SELECT x.TIME FROM INDEXERAPIACCESS_SHORT x WHERE x.INDEXER_ID = (:indexerId) ORDER BY TIME DESC LIMIT (:hitLimit)");
+        query.setParameter("indexerId", indexer.getId());
+        query.setParameter("hitLimit", limit);
+        @SuppressWarnings("unchecked")
+        List<Timestamp> resultList = query.getResultList();
+        return resultList.stream().map(Timestamp::toInstant).collect(Collectors.toList());
+    }
+
+    private List<Instant> loadDownloads(IndexerEntity indexer, int limit) {
+        List<NzbDownloadEntity> latestFirst = nzbDownloadRepository.findBySearchResultIndexerOrderByTimeDesc(indexer, new PageRequest(0, limit)).getContent();
+        //Their events may still be published after the times were loaded
+        loadedDownloadIdsByIndexerId.put(indexer.getId(), latestFirst.stream().map(NzbDownloadEntity::getId).collect(Collectors.toSet()));
+        return latestFirst.stream().map(NzbDownloadEntity::getTime).collect(Collectors.toList());
+    }
+
+    /**
+     * Ring buffer of the latest access times, oldest get overwritten.
+     */
+    static class AccessTimes {
+        private final long[] times;
+        private int size = 0;
+        private int next = 0;
+
+        AccessTimes(int capacity) {
+            times = new long[Math.max(1, capacity)];
+        }
+
+        synchronized void add(Instant time) {
+            times[next] = time.toEpochMilli();
+            next = (next + 1) % times.length;
+            size = Math.min(size + 1, times.length);
+        }
+
+        synchronized Optional<Instant> getNthLatest(int n) {
+            if (n < 1 || n > size) {
+                return Optional.empty();
+            }
+            return Optional.of(Instant.ofEpochMilli(times[(next - n + times.length) % times.length]));
+        }
+
+        synchronized int countAfter(Instant instant) {
+            long epochMilli = instant.toEpochMilli();
+            int count = 0;
+            for (int i = 1; i <= size; i++) {
+                if (times[(next - i + times.length) % times.length] > epochMilli) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        int getCapacity() {
+            return times.length;
+        }
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class IndexerLimitState {
+        private String indexerName;
+        private Integer hitLimit;
+        private Integer hits;
+        private Integer remainingHits;
+        private Integer downloadLimit;
+        private Integer downloads;
+        private Integer remainingDownloads;
+    }
+
+}
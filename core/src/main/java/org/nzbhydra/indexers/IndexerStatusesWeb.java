@@ -1,5 +1,6 @@
 package org.nzbhydra.indexers;
 
+import org.nzbhydra.indexers.IndexerLimitCounter.IndexerLimitState;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -21,6 +22,8 @@ public class IndexerStatusesWeb {
 
     @Autowired
     private IndexerStatusRepository indexerStatusRepository;
+    @Autowired
+    private IndexerLimitCounter indexerLimitCounter;
 
     @Secured({"ROLE_USER"})
     @RequestMapping(value = "/internalapi/indexerstatuses")
@@ -28,6 +31,12 @@ public class IndexerStatusesWeb {
         return getSortedStatuses();
     }
 
+    @Secured({"ROLE_USER"})
+    @RequestMapping(value = "/internalapi/indexerstatuses/limits")
+    public List<IndexerLimitState> indexerLimits() {
+        return indexerLimitCounter.getLimitStates();
+    }
+
     @RequestMapping(value = "/internalapi/indexerstatuses/enable/{indexerName}", method = RequestMethod.POST)
     @Secured({"ROLE_ADMIN"})
     public ResponseEntity<List<IndexerStatusEntity>> reenableIndexer(@PathVariable String indexerName) {
@@ -1,10 +1,20 @@
 package org.nzbhydra.indexers;
 
 import com.google.common.io.BaseEncoding;
+import okio.Buffer;
+import okio.BufferedSource;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
 import org.nzbhydra.config.ConfigProvider;
 import org.nzbhydra.config.IndexerConfig;
 import org.nzbhydra.indexers.exceptions.IndexerAccessException;
+import org.nzbhydra.indexers.exceptions.IndexerResponseTooLargeException;
 import org.nzbhydra.indexers.exceptions.IndexerUnreachableException;
+import org.nzbhydra.mapping.newznab.RssRoot;
+import org.nzbhydra.mapping.newznab.RssStaxParser;
+import org.nzbhydra.mapping.newznab.Xml;
+import org.nzbhydra.okhttp.ConditionalResponse;
+import org.nzbhydra.okhttp.ResponseTooLargeException;
 import org.nzbhydra.okhttp.WebAccess;
 import org.nzbhydra.web.WebConfiguration;
 import org.slf4j.Logger;
@@ -13,16 +23,20 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.oxm.Unmarshaller;
 import org.springframework.stereotype.Component;
 
+import javax.xml.stream.XMLStreamException;
 import javax.xml.transform.stream.StreamSource;
-import java.io.StringReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
 import java.net.SocketTimeoutException;
 import java.net.URI;
+import java.nio.charset.Charset;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -35,6 +49,8 @@ public class IndexerWebAccess {
     protected ConfigProvider configProvider;
     @Autowired
     protected WebAccess webAccess;
+    @Autowired
+    protected IndexerExecutor indexerExecutor;
     protected Unmarshaller unmarshaller = new WebConfiguration().marshaller();
 
 
@@ -44,7 +60,82 @@ public class IndexerWebAccess {
     }
 
     protected <T> T get(URI uri, IndexerConfig indexerConfig, Class responseType) throws IndexerAccessException {
-        int timeout = indexerConfig.getTimeout().orElse(configProvider.getBaseConfig().getSearching().getTimeout());
+        int timeout = getTimeout(indexerConfig);
+        Map<String, String> headers = getHeaders(indexerConfig);
+        long maxBodyBytes = getMaxBodyBytes();
+        return callAndWait(indexerConfig, timeout, () -> webAccess.callUrl(uri.toString(), headers, timeout, maxBodyBytes, (source, charset) -> parseResponse(source, charset, responseType, indexerConfig)));
+    }
+
+    /**
+     * Like {@link #get(URI, IndexerConfig, Class)} but sends the validators of a previous response so that indexers supporting conditional
+     * requests may report the response as unchanged.
+     */
+    protected <T> ConditionalResponse<T> getConditionally(URI uri, IndexerConfig indexerConfig, Class responseType, String eTag, String lastModified) throws IndexerAccessException {
+        int timeout = getTimeout(indexerConfig);
+        Map<String, String> headers = getHeaders(indexerConfig);
+        long maxBodyBytes = getMaxBodyBytes();
+        return callAndWait(indexerConfig, timeout, () -> webAccess.callUrlConditionally(uri.toString(), headers, timeout, maxBodyBytes, eTag, lastModified, (source, charset) -> parseResponse(source, charset, responseType, indexerConfig)));
+    }
+
+    private <T> T callAndWait(IndexerConfig indexerConfig, int timeout, Callable<T> webCall) throws IndexerAccessException {
+        long started = System.nanoTime();
+        Future<T> future = indexerExecutor.submitWebCall(indexerConfig.getName(), timeout, webCall);
+        try {
+            //The time spent waiting for a free slot counts towards the timeout
+            long remainingNanos = TimeUnit.SECONDS.toNanos(timeout) - (System.nanoTime() - started);
+            return future.get(Math.max(remainingNanos, 0), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            throw mapWebCallException(e, e.getCause(), timeout, indexerConfig);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw mapWebCallException(e, e, timeout, indexerConfig);
+        } catch (Exception e) {
+            throw new RuntimeException("Unexpected error while accessing indexer", e);
+        }
+    }
+
+    /**
+     * Calls the URI without blocking a thread while waiting for the indexer. The response is parsed in the indexer executor's processing pool.
+     * Calls to the same indexer host are limited by the HTTP client's dispatcher instead of the indexer executor.
+     *
+     * @return A future which is completed with the parsed response or with an {@link IndexerAccessException} (wrapped in a {@link CompletionException})
+     */
+    protected <T> CompletableFuture<T> getAsync(URI uri, IndexerConfig indexerConfig, Class responseType) {
+        int timeout = getTimeout(indexerConfig);
+        CompletableFuture<T> future = webAccess.callUrlAsync(uri.toString(), getHeaders(indexerConfig), timeout, getMaxBodyBytes(), (source, charset) -> parseResponse(source, charset, responseType, indexerConfig), indexerExecutor.getProcessingExecutor());
+        //The timeouts of the HTTP client only apply to single reads and writes and don't include the time spent waiting in the dispatcher's queue
+        indexerExecutor.failAfter(future, timeout);
+        return future.handle((result, throwable) -> {
+            if (throwable == null) {
+                return result;
+            }
+            Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+            throw new CompletionException(mapWebCallException(throwable, cause, timeout, indexerConfig));
+        });
+    }
+
+    private IndexerAccessException mapWebCallException(Throwable e, Throwable cause, int timeout, IndexerConfig indexerConfig) {
+        if (cause instanceof TimeoutException) {
+            return new IndexerAccessException("Indexer did not complete request within " + timeout + " seconds");
+        }
+        if (cause instanceof ResponseTooLargeException) {
+            return new IndexerResponseTooLargeException(cause.getMessage());
+        }
+        if (cause instanceof SocketTimeoutException) {
+            return new IndexerUnreachableException("Connection with indexer timed out with a time out of " + timeout + " seconds: " + cause.getMessage());
+        }
+        return new IndexerUnreachableException("Error while communicating with indexer " + indexerConfig.getName() + ". Server returned: " + e.getMessage(), cause);
+    }
+
+    private int getTimeout(IndexerConfig indexerConfig) {
+        return indexerConfig.getTimeout().orElse(configProvider.getBaseConfig().getSearching().getTimeout());
+    }
+
+    private long getMaxBodyBytes() {
+        return configProvider.getBaseConfig().getSearching().getMaxIndexerResponseSizeMb() * 1024L * 1024L;
+    }
+
+    private Map<String, String> getHeaders(IndexerConfig indexerConfig) {
         String userAgent = indexerConfig.getUserAgent().orElse(configProvider.getBaseConfig().getSearching().getUserAgent().orElse("NZBHydra2"));
 
         Map<String, String> headers = new HashMap<>();
@@ -53,33 +144,29 @@ public class IndexerWebAccess {
         if (indexerConfig.getUsername().isPresent() && indexerConfig.getPassword().isPresent()) {
             headers.put("Authorization", "Basic " + BaseEncoding.base64().encode((indexerConfig.getUsername().get() + ":" + indexerConfig.getPassword().get()).getBytes()));
         }
+        return headers;
+    }
 
-        Future<T> future;
-        try {
-            future = Executors.newSingleThreadExecutor().submit(() -> {
-                String response = webAccess.callUrl(uri.toString(), headers, timeout);
-                if (responseType == String.class) {
-                    return (T) response;
-                }
-                return (T) unmarshaller.unmarshal(new StreamSource(new StringReader(response)));
-            });
-        } catch (RejectedExecutionException e) {
-            logger.error("Unexpected execution exception while executing call for indexer {}. This will hopefully be fixed soon", indexerConfig.getName());
-            throw new RuntimeException("Unexpected error in hydra code. Sorry...");
+    @SuppressWarnings("unchecked")
+    private <T> T parseResponse(BufferedSource source, Charset charset, Class responseType, IndexerConfig indexerConfig) throws IOException {
+        if (responseType == String.class) {
+            return (T) source.readString(charset);
         }
-        try {
-            return future.get(timeout, TimeUnit.SECONDS);
-        } catch (ExecutionException e) {
-            if (e.getCause() instanceof SocketTimeoutException) {
-                throw new IndexerUnreachableException("Connection with indexer timed out with a time out of " + timeout + " seconds: " + e.getCause().getMessage());
+        if (responseType == Document.class) {
+            //Build the DOM directly from the response bytes instead of creating a string first
+            return (T) Jsoup.parse(source.inputStream(), charset.name(), "");
+        }
+        //Keep the raw bytes instead of a decoded string. Buffers share their data when cloned so the response can be read again by JAXB if needed
+        Buffer buffer = new Buffer();
+        source.readAll(buffer);
+        if (responseType == Xml.class || responseType == RssRoot.class) {
+            try {
+                return (T) RssStaxParser.parse(new InputStreamReader(buffer.clone().inputStream(), charset));
+            } catch (XMLStreamException e) {
+                logger.debug("Unable to parse response from {} using StAX, falling back to JAXB: {}", indexerConfig.getName(), e.getMessage());
             }
-            throw new IndexerUnreachableException("Error while communicating with indexer " + indexerConfig.getName() + ". Server returned: " + e.getMessage(), e.getCause());
-        } catch (TimeoutException e) {
-            throw new IndexerAccessException("Indexer did not complete request within " + timeout + " seconds");
-        } catch (Exception e) {
-            throw new RuntimeException("Unexpected error while accessing indexer", e);
         }
+        return (T) unmarshaller.unmarshal(new StreamSource(new InputStreamReader(buffer.inputStream(), charset)));
     }
 
-
 }
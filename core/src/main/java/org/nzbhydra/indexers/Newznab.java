@@ -1,7 +1,12 @@
 package org.nzbhydra.indexers;
 
 import com.google.common.base.Joiner;
+import com.google.common.base.Stopwatch;
 import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import lombok.AllArgsConstructor;
+import lombok.Data;
 import lombok.Getter;
 import lombok.Setter;
 import org.nzbhydra.config.Category;
@@ -11,12 +16,14 @@ import org.nzbhydra.config.IndexerConfig;
 import org.nzbhydra.config.SearchModuleType;
 import org.nzbhydra.indexers.exceptions.IndexerAccessException;
 import org.nzbhydra.indexers.exceptions.IndexerAuthException;
+import org.nzbhydra.indexers.exceptions.IndexerCallRejectedException;
 import org.nzbhydra.indexers.exceptions.IndexerErrorCodeException;
 import org.nzbhydra.indexers.exceptions.IndexerProgramErrorException;
 import org.nzbhydra.indexers.exceptions.IndexerSearchAbortedException;
 import org.nzbhydra.mapping.newznab.ActionAttribute;
 import org.nzbhydra.mapping.newznab.NewznabAttribute;
 import org.nzbhydra.mapping.newznab.NewznabResponse;
+import org.nzbhydra.mapping.newznab.RssChannel;
 import org.nzbhydra.mapping.newznab.RssError;
 import org.nzbhydra.mapping.newznab.RssItem;
 import org.nzbhydra.mapping.newznab.RssRoot;
@@ -24,6 +31,7 @@ import org.nzbhydra.mapping.newznab.Xml;
 import org.nzbhydra.mediainfo.InfoProvider.IdType;
 import org.nzbhydra.mediainfo.InfoProviderException;
 import org.nzbhydra.mediainfo.MediaInfo;
+import org.nzbhydra.okhttp.ConditionalResponse;
 import org.nzbhydra.searching.IndexerSearchResult;
 import org.nzbhydra.searching.ResultAcceptor.AcceptorResult;
 import org.nzbhydra.searching.SearchResultIdCalculator;
@@ -45,6 +53,7 @@ import javax.xml.transform.stream.StreamSource;
 import java.io.IOException;
 import java.io.StringReader;
 import java.net.URI;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -54,7 +63,12 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -72,7 +86,6 @@ public class Newznab extends Indexer<Xml> {
 
     private static final List<String> LANGUAGES = Arrays.asList(" English", " Korean", " Spanish", " French", " German", " Italian", " Danish", " Dutch", " Japanese", " Cantonese", " Mandarin", " Russian", " Polish", " Vietnamese", " Swedish", " Norwegian", " Finnish", " Turkish", " Portuguese", " Flemish", " Greek", " Hungarian");
     private static Pattern GROUP_PATTERN = Pattern.compile(".*Group:<\\/b> ?([\\w\\.]+)<br ?\\/>.*");
-    private static Pattern GUID_PATTERN = Pattern.compile("(.*\\/)?([a-zA-Z0-9@\\.]+)(#\\w+)?");
 
 
     static {
@@ -91,9 +104,19 @@ public class Newznab extends Indexer<Xml> {
         paramValueToIdMap.put("traktid", IdType.TRAKT);
     }
 
+    /**
+     * Number of results loaded to determine which results were added since the last RSS poll
+     */
+    static final int RSS_DELTA_PAGE_SIZE = 25;
+    /**
+     * Results merged from several polls are replaced by a complete response after this time so that results removed by the indexer disappear
+     */
+    private static final Duration RSS_FULL_REFRESH_INTERVAL = Duration.ofHours(1);
+
     @Autowired
     private Unmarshaller unmarshaller;
     private ConcurrentHashMap<Integer, Category> idToCategory = new ConcurrentHashMap<>();
+    private final Cache<String, RssPollState> rssPollStates = CacheBuilder.newBuilder().maximumSize(20).expireAfterAccess(1, TimeUnit.DAYS).build();
 
 
     protected UriComponentsBuilder getBaseUri() {
@@ -281,6 +304,141 @@ public class Newznab extends Indexer<Xml> {
 
     protected Xml getAndStoreResultToDatabase(URI uri, IndexerApiAccessType apiAccessType) throws IndexerAccessException {
         Xml response = getAndStoreResultToDatabase(uri, Xml.class, apiAccessType);
+        return checkResponse(response, uri);
+    }
+
+    @Override
+    protected CompletableFuture<Xml> getAndStoreResultToDatabaseAsync(URI uri, IndexerApiAccessType apiAccessType) {
+        return getAndStoreResultToDatabaseAsync(uri, Xml.class, apiAccessType).thenApply(response -> {
+            try {
+                return checkResponse(response, uri);
+            } catch (IndexerAccessException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    @Override
+    protected IndexerSearchResult searchInternal(SearchRequest searchRequest, int offset, Integer limit) throws IndexerSearchAbortedException, IndexerAccessException {
+        if (!isRssDeltaPollingApplicable(searchRequest, offset, limit)) {
+            return super.searchInternal(searchRequest, offset, limit);
+        }
+        URI url = buildSearchUrl(searchRequest, offset, limit).build().toUri();
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        info("Calling {}", url);
+        RssRoot response = pollRss(url, limit);
+        return processResponse(response, stopwatch.elapsed(TimeUnit.MILLISECONDS), searchRequest);
+    }
+
+    @Override
+    protected CompletableFuture<IndexerSearchResult> searchInternalAsync(SearchRequest searchRequest, int offset, Integer limit) {
+        if (!isRssDeltaPollingApplicable(searchRequest, offset, limit)) {
+            return super.searchInternalAsync(searchRequest, offset, limit);
+        }
+        //Polls may need more than one call, just make them in the search pool
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return searchInternal(searchRequest, offset, limit);
+                } catch (IndexerSearchAbortedException | IndexerAccessException e) {
+                    throw new CompletionException(e);
+                }
+            }, indexerExecutor.getSearchExecutor());
+        } catch (RejectedExecutionException e) {
+            CompletableFuture<IndexerSearchResult> future = new CompletableFuture<>();
+            future.completeExceptionally(new IndexerCallRejectedException("Too many indexer searches queued. Rejected search of " + getName()));
+            return future;
+        }
+    }
+
+    private boolean isRssDeltaPollingApplicable(SearchRequest searchRequest, int offset, Integer limit) {
+        return configProvider.getBaseConfig().getSearching().isRssDeltaPolling() && searchRequest.hasNoSearchTerms() && offset == 0 && limit != null;
+    }
+
+    /**
+     * Loads the newest results for an RSS poll. If the indexer supports conditional requests the previous response is reused when nothing
+     * changed. Otherwise only the newest results are loaded and merged with the previous response as long as they overlap.
+     */
+    RssRoot pollRss(URI url, int limit) throws IndexerAccessException {
+        String key = url.toString();
+        RssPollState previous = rssPollStates.getIfPresent(key);
+        if (previous != null && (previous.getETag() != null || previous.getLastModified() != null)) {
+            ConditionalResponse<Xml> response = getAndStoreResultToDatabaseConditionally(url, Xml.class, previous.getETag(), previous.getLastModified(), IndexerApiAccessType.SEARCH);
+            if (response.isNotModified()) {
+                debug("Indexer reported RSS feed as not modified since last poll");
+                return previous.getResponse();
+            }
+            RssRoot rssRoot = (RssRoot) checkResponse(response.getBody(), url);
+            rssPollStates.put(key, new RssPollState(rssRoot, response.getETag(), response.getLastModified(), Instant.now()));
+            return rssRoot;
+        }
+
+        if (previous != null && limit > RSS_DELTA_PAGE_SIZE && previous.getLoaded().plus(RSS_FULL_REFRESH_INTERVAL).isAfter(Instant.now())) {
+            URI newestPageUrl = UriComponentsBuilder.fromUri(url).replaceQueryParam("limit", RSS_DELTA_PAGE_SIZE).build(true).toUri();
+            RssRoot newestPage = (RssRoot) getAndStoreResultToDatabase(newestPageUrl, IndexerApiAccessType.SEARCH);
+            Optional<RssRoot> merged = mergeWithPreviousPoll(newestPage, previous.getResponse(), limit);
+            if (merged.isPresent()) {
+                rssPollStates.put(key, new RssPollState(merged.get(), null, null, previous.getLoaded()));
+                return merged.get();
+            }
+            debug("Newest {} results don't overlap with results from last poll. Loading all results", RSS_DELTA_PAGE_SIZE);
+        }
+
+        ConditionalResponse<Xml> response = getAndStoreResultToDatabaseConditionally(url, Xml.class, null, null, IndexerApiAccessType.SEARCH);
+        RssRoot rssRoot = (RssRoot) checkResponse(response.getBody(), url);
+        rssPollStates.put(key, new RssPollState(rssRoot, response.getETag(), response.getLastModified(), Instant.now()));
+        return rssRoot;
+    }
+
+    /**
+     * @return The results from the newest page which are unknown followed by the previous results, limited to the given number. Empty if none
+     * of the newest results is known, i.e. if there may be more new results than the newest page contains
+     */
+    static Optional<RssRoot> mergeWithPreviousPoll(RssRoot newestPage, RssRoot previous, int limit) {
+        Set<String> previousKeys = previous.getRssChannel().getItems().stream().map(Newznab::getRssItemKey).collect(Collectors.toSet());
+        List<RssItem> items = new ArrayList<>();
+        boolean overlaps = false;
+        for (RssItem item : newestPage.getRssChannel().getItems()) {
+            if (previousKeys.contains(getRssItemKey(item))) {
+                overlaps = true;
+            } else {
+                items.add(item);
+            }
+        }
+        if (!overlaps) {
+            return Optional.empty();
+        }
+        Set<String> newKeys = items.stream().map(Newznab::getRssItemKey).collect(Collectors.toSet());
+        for (RssItem item : previous.getRssChannel().getItems()) {
+            if (items.size() >= limit) {
+                break;
+            }
+            if (!newKeys.contains(getRssItemKey(item))) {
+                items.add(item);
+            }
+        }
+
+        RssRoot merged = new RssRoot();
+        merged.setVersion(newestPage.getVersion());
+        RssChannel channel = newestPage.getRssChannel();
+        RssChannel mergedChannel = merged.getRssChannel();
+        mergedChannel.setTitle(channel.getTitle());
+        mergedChannel.setDescription(channel.getDescription());
+        mergedChannel.setLink(channel.getLink());
+        mergedChannel.setLanguage(channel.getLanguage());
+        mergedChannel.setWebMaster(channel.getWebMaster());
+        mergedChannel.setGenerator(channel.getGenerator());
+        //The newest page was loaded with offset 0 and contains the current total
+        mergedChannel.setNewznabResponse(channel.getNewznabResponse());
+        mergedChannel.setItems(items);
+        return Optional.of(merged);
+    }
+
+    private static String getRssItemKey(RssItem item) {
+        return item.getRssGuid() != null ? item.getRssGuid().getGuid() : item.getLink();
+    }
+
+    private Xml checkResponse(Xml response, URI uri) throws IndexerAccessException {
         if (response instanceof RssError) {
             //Base class doesn't know any RssErrors so we must handle this case specially
             handleRssError((RssError) response, uri.toString());
@@ -368,12 +526,7 @@ public class Newznab extends Indexer<Xml> {
 
         if (item.getRssGuid().isPermaLink()) {
             searchResultItem.setDetails(item.getRssGuid().getGuid());
-            Matcher matcher = GUID_PATTERN.matcher(item.getRssGuid().getGuid());
-            if (matcher.matches()) {
-                searchResultItem.setIndexerGuid(matcher.group(2));
-            } else {
-                searchResultItem.setIndexerGuid(item.getRssGuid().getGuid());
-            }
+            searchResultItem.setIndexerGuid(extractGuidFromLink(item.getRssGuid().getGuid()));
         } else {
             searchResultItem.setIndexerGuid(item.getRssGuid().getGuid());
         }
@@ -402,50 +555,104 @@ public class Newznab extends Indexer<Xml> {
     }
 
     protected void parseAttributes(RssItem item, SearchResultItem searchResultItem) {
-        Map<String, String> attributes = item.getNewznabAttributes().stream().collect(Collectors.toMap(NewznabAttribute::getName, NewznabAttribute::getValue, (a, b) -> b));
-        List<Integer> newznabCategories = item.getNewznabAttributes().stream().filter(x -> x.getName().equals("category")).map(newznabAttribute -> Integer.parseInt(newznabAttribute.getValue())).collect(Collectors.toList());
+        List<NewznabAttribute> newznabAttributes = item.getNewznabAttributes();
+        Map<String, String> attributes = new HashMap<>(newznabAttributes.size() * 2);
+        List<Integer> newznabCategories = new ArrayList<>(2);
+        //If an attribute is contained multiple times the last one wins
+        String usenetdate = null;
+        String password = null;
+        String nfo = null;
+        boolean hasInfo = false;
+        String poster = null;
+        String group = null;
+        String files = null;
+        String comments = null;
+        String grabs = null;
+        String guid = null;
+        String size = null;
+        for (NewznabAttribute attribute : newznabAttributes) {
+            String value = attribute.getValue();
+            attributes.put(attribute.getName(), value);
+            switch (attribute.getName()) {
+                case "category":
+                    newznabCategories.add(Integer.parseInt(value));
+                    break;
+                case "usenetdate":
+                    usenetdate = value;
+                    break;
+                case "password":
+                    password = value;
+                    break;
+                case "nfo":
+                    nfo = value;
+                    break;
+                case "info":
+                    hasInfo = true;
+                    break;
+                case "poster":
+                    poster = value;
+                    break;
+                case "group":
+                    group = value;
+                    break;
+                case "files":
+                    files = value;
+                    break;
+                case "comments":
+                    comments = value;
+                    break;
+                case "grabs":
+                    grabs = value;
+                    break;
+                case "guid":
+                    guid = value;
+                    break;
+                case "size":
+                    size = value;
+                    break;
+            }
+        }
         searchResultItem.setAttributes(attributes);
 
-        if (attributes.containsKey("usenetdate")) {
-            tryParseDate(attributes.get("usenetdate")).ifPresent(searchResultItem::setUsenetDate);
+        if (usenetdate != null) {
+            tryParseDate(usenetdate).ifPresent(searchResultItem::setUsenetDate);
         }
-        if (attributes.containsKey("password")) {
-            String passwordValue = attributes.get("password");
+        if (password != null) {
             try {
-                if (Integer.parseInt(passwordValue) > 0) {
+                if (Integer.parseInt(password) > 0) {
                     searchResultItem.setPassworded(true);
                 }
             } catch (NumberFormatException e) {
-                error("Unable to parse password value "+ passwordValue);
+                error("Unable to parse password value "+ password);
             }
         }
-        if (attributes.containsKey("nfo")) {
-            searchResultItem.setHasNfo(attributes.get("nfo").equals("1") ? HasNfo.YES : HasNfo.NO);
+        if (nfo != null) {
+            searchResultItem.setHasNfo(nfo.equals("1") ? HasNfo.YES : HasNfo.NO);
         }
-        if (attributes.containsKey("info") && (config.getBackend() == BackendType.NNTMUX || config.getBackend() == BackendType.NZEDB)) {
+        if (hasInfo && (config.getBackend() == BackendType.NNTMUX || config.getBackend() == BackendType.NZEDB)) {
             //Info attribute is always a link to an NFO
             searchResultItem.setHasNfo(HasNfo.YES);
         }
-        if (attributes.containsKey("poster") && !attributes.get("poster").equals("not available")) {
-            searchResultItem.setPoster(attributes.get("poster"));
+        if (poster != null && !poster.equals("not available")) {
+            searchResultItem.setPoster(poster);
         }
-        if (attributes.containsKey("group") && !attributes.get("group").equals("not available")) {
-            searchResultItem.setGroup(attributes.get("group"));
+        if (group != null && !group.equals("not available")) {
+            searchResultItem.setGroup(group);
         }
-        if (attributes.containsKey("files")) {
-            searchResultItem.setFiles(Integer.valueOf(attributes.get("files")));
+        if (files != null) {
+            searchResultItem.setFiles(Integer.valueOf(files));
         }
-        if (attributes.containsKey("comments")) {
-            searchResultItem.setCommentsCount(Integer.valueOf(attributes.get("comments")));
+        if (comments != null) {
+            searchResultItem.setCommentsCount(Integer.valueOf(comments));
         }
-        if (attributes.containsKey("grabs")) {
-            searchResultItem.setGrabs(Integer.valueOf(attributes.get("grabs")));
+        if (grabs != null) {
+            searchResultItem.setGrabs(Integer.valueOf(grabs));
         }
-        if (attributes.containsKey("guid")) {
-            searchResultItem.setIndexerGuid(attributes.get("guid"));
+        if (guid != null) {
+            searchResultItem.setIndexerGuid(guid);
         }
-        if (attributes.containsKey("size")) {
-            searchResultItem.setSize(Long.valueOf(attributes.get("size")));
+        if (size != null) {
+            searchResultItem.setSize(Long.valueOf(size));
         }
 
         computeCategory(searchResultItem, newznabCategories);
@@ -463,25 +670,49 @@ public class Newznab extends Indexer<Xml> {
         }
     }
 
+    /**
+     * Returns the last path segment of a perma link GUID like "https://indexer.com/details/abc123#comments" or the whole GUID if it doesn't look
+     * like that. Same as matching "(.*\/)?([a-zA-Z0-9@\.]+)(#\w+)?" but without the backtracking.
+     */
+    static String extractGuidFromLink(String guid) {
+        int start = guid.lastIndexOf('/') + 1;
+        int end = guid.indexOf('#', start);
+        if (end == -1) {
+            end = guid.length();
+        } else if (end == guid.length() - 1) {
+            return guid;
+        }
+        if (start == end) {
+            return guid;
+        }
+        for (int i = start; i < end; i++) {
+            char c = guid.charAt(i);
+            if (!((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '@' || c == '.')) {
+                return guid;
+            }
+        }
+        for (int i = end + 1; i < guid.length(); i++) {
+            char c = guid.charAt(i);
+            if (!((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_')) {
+                return guid;
+            }
+        }
+        return guid.substring(start, end);
+    }
+
     protected void computeCategory(SearchResultItem searchResultItem, List<Integer> newznabCategories) {
         if (!newznabCategories.isEmpty()) {
-            Integer mostSpecific = newznabCategories.stream().max(Integer::compareTo).get();
-            IndexerCategoryConfig mapping = config.getCategoryMapping();
-            Category category = idToCategory.computeIfAbsent(mostSpecific, x -> {
-                Optional<Category> categoryOptional = Optional.empty();
-                if (mapping.getAnime().isPresent() && Objects.equals(mapping.getAnime().get(), mostSpecific)) {
-                    categoryOptional = categoryProvider.fromSubtype(Subtype.ANIME);
-                } else if (mapping.getAudiobook().isPresent() && Objects.equals(mapping.getAudiobook().get(), mostSpecific)) {
-                    categoryOptional = categoryProvider.fromSubtype(Subtype.AUDIOBOOK);
-                } else if (mapping.getEbook().isPresent() && Objects.equals(mapping.getEbook().get(), mostSpecific)) {
-                    categoryOptional = categoryProvider.fromSubtype(Subtype.EBOOK);
-                } else if (mapping.getComic().isPresent() && Objects.equals(mapping.getComic().get(), mostSpecific)) {
-                    categoryOptional = categoryProvider.fromSubtype(Subtype.COMIC);
-                } else if (mapping.getMagazine().isPresent() && Objects.equals(mapping.getMagazine().get(), mostSpecific)) {
-                    categoryOptional = categoryProvider.fromSubtype(Subtype.MAGAZINE);
+            Integer mostSpecific = newznabCategories.get(0);
+            for (Integer newznabCategory : newznabCategories) {
+                if (newznabCategory > mostSpecific) {
+                    mostSpecific = newznabCategory;
                 }
-                return categoryOptional.orElse(categoryProvider.fromNewznabCategories(newznabCategories, categoryProvider.getNotAvailable()));
-            });
+            }
+            IndexerCategoryConfig mapping = config.getCategoryMapping();
+            Category category = idToCategory.get(mostSpecific);
+            if (category == null) {
+                category = mapCategory(mostSpecific, newznabCategories, mapping);
+            }
             searchResultItem.setCategory(category);
             //Use the indexer's own category mapping to build the category name
             searchResultItem.setOriginalCategory(mapping.getNameFromId(mostSpecific));
@@ -490,10 +721,43 @@ public class Newznab extends Indexer<Xml> {
         }
     }
 
+    private Category mapCategory(Integer mostSpecific, List<Integer> newznabCategories, IndexerCategoryConfig mapping) {
+        return idToCategory.computeIfAbsent(mostSpecific, x -> {
+            Optional<Category> categoryOptional = Optional.empty();
+            if (mapping.getAnime().isPresent() && Objects.equals(mapping.getAnime().get(), mostSpecific)) {
+                categoryOptional = categoryProvider.fromSubtype(Subtype.ANIME);
+            } else if (mapping.getAudiobook().isPresent() && Objects.equals(mapping.getAudiobook().get(), mostSpecific)) {
+                categoryOptional = categoryProvider.fromSubtype(Subtype.AUDIOBOOK);
+            } else if (mapping.getEbook().isPresent() && Objects.equals(mapping.getEbook().get(), mostSpecific)) {
+                categoryOptional = categoryProvider.fromSubtype(Subtype.EBOOK);
+            } else if (mapping.getComic().isPresent() && Objects.equals(mapping.getComic().get(), mostSpecific)) {
+                categoryOptional = categoryProvider.fromSubtype(Subtype.COMIC);
+            } else if (mapping.getMagazine().isPresent() && Objects.equals(mapping.getMagazine().get(), mostSpecific)) {
+                categoryOptional = categoryProvider.fromSubtype(Subtype.MAGAZINE);
+            }
+            return categoryOptional.orElse(categoryProvider.fromNewznabCategories(newznabCategories, categoryProvider.getNotAvailable()));
+        });
+    }
+
     protected Logger getLogger() {
         return logger;
     }
 
+    /**
+     * The response of the last RSS poll for one URL with the validators returned by the indexer
+     */
+    @Data
+    @AllArgsConstructor
+    private static class RssPollState {
+        private RssRoot response;
+        private String eTag;
+        private String lastModified;
+        /**
+         * When the response was last loaded completely
+         */
+        private Instant loaded;
+    }
+
     @Component
     @Order(500)
     public static class NewznabHandlingStrategy implements IndexerHandlingStrategy {
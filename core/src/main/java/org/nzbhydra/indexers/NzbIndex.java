@@ -25,6 +25,7 @@ import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -158,6 +159,11 @@ public class NzbIndex extends Indexer<RssRoot> {
         return getAndStoreResultToDatabase(uri, RssRoot.class, apiAccessType);
     }
 
+    @Override
+    protected CompletableFuture<RssRoot> getAndStoreResultToDatabaseAsync(URI uri, IndexerApiAccessType apiAccessType) {
+        return getAndStoreResultToDatabaseAsync(uri, RssRoot.class, apiAccessType);
+    }
+
     @Override
     protected Logger getLogger() {
         return logger;
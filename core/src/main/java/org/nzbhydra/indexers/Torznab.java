@@ -43,14 +43,19 @@ public class Torznab extends Newznab {
         searchResultItem.setIndexerGuid(item.getRssGuid().getGuid());
         for (NewznabAttribute attribute : item.getTorznabAttributes()) {
             searchResultItem.getAttributes().put(attribute.getName(), attribute.getValue());
-            if (attribute.getName().equals("grabs")) {
-                searchResultItem.setGrabs(Integer.valueOf(attribute.getValue()));
-            } else if (attribute.getName().equals("guid")) {
-                searchResultItem.setIndexerGuid(attribute.getValue());
-            } else if (attribute.getName().equals("seeders")) {
-                searchResultItem.setSeeders(Integer.valueOf(attribute.getValue()));
-            } else if (attribute.getName().equals("peers")) {
-                searchResultItem.setPeers(Integer.valueOf(attribute.getValue()));
+            switch (attribute.getName()) {
+                case "grabs":
+                    searchResultItem.setGrabs(Integer.valueOf(attribute.getValue()));
+                    break;
+                case "guid":
+                    searchResultItem.setIndexerGuid(attribute.getValue());
+                    break;
+                case "seeders":
+                    searchResultItem.setSeeders(Integer.valueOf(attribute.getValue()));
+                    break;
+                case "peers":
+                    searchResultItem.setPeers(Integer.valueOf(attribute.getValue()));
+                    break;
             }
         }
         searchResultItem.setHasNfo(HasNfo.NO);
@@ -0,0 +1,13 @@
+package org.nzbhydra.indexers.exceptions;
+
+/**
+ * Thrown when a call to an indexer could not be executed because too many calls are already running or queued. This is a problem
+ * on our side, not on the indexer's, so the indexer must not be disabled because of it.
+ */
+public class IndexerCallRejectedException extends IndexerAccessException {
+
+    public IndexerCallRejectedException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,13 @@
+package org.nzbhydra.indexers.exceptions;
+
+/**
+ * Thrown when the response of an indexer was larger than the configured limit. The indexer answered, only the response could not be used,
+ * so the indexer must not be disabled because of it.
+ */
+public class IndexerResponseTooLargeException extends IndexerAccessException {
+
+    public IndexerResponseTooLargeException(String message) {
+        super(message);
+    }
+
+}
@@ -126,7 +126,7 @@ public class FromPythonMigration {
             String url = urlBuilder.toUriString();
             logger.info("Connecting to URL {}", url);
             Request request = new Builder().url(url).build();
-            OkHttpClient.Builder clientBuilder = requestFactory.getOkHttpClientBuilder(request.url().uri());
+            OkHttpClient.Builder clientBuilder = requestFactory.getOkHttpClient(request.url().uri()).newBuilder();
             String userInfo = urlBuilder.build().toUri().getUserInfo();
             if (!Strings.isNullOrEmpty(userInfo)) {
                 clientBuilder = clientBuilder.authenticator(new Authenticator() {
@@ -9,6 +9,7 @@ import org.nzbhydra.config.NzbAccessType;
 import org.nzbhydra.downloading.NzbDownloadEntity;
 import org.nzbhydra.downloading.NzbDownloadRepository;
 import org.nzbhydra.downloading.NzbDownloadStatus;
+import org.nzbhydra.historystats.StatsRollups;
 import org.nzbhydra.indexers.IndexerAccessResult;
 import org.nzbhydra.indexers.IndexerApiAccessEntity;
 import org.nzbhydra.indexers.IndexerApiAccessType;
@@ -81,6 +82,8 @@ public class SqliteMigration {
     private EntityManager entityManager;
     @Autowired
     private ApplicationEventPublisher eventPublisher;
+    @Autowired
+    private StatsRollups statsRollups;
     private Random random = new Random();
 
     protected ObjectMapper objectMapper = new ObjectMapper();
@@ -106,7 +109,9 @@ public class SqliteMigration {
                 entityManager.createNativeQuery("SET REFERENTIAL_INTEGRITY TRUE").executeUpdate();
             }
             migrate();
-
+            //The stats are calculated from the imported history
+            entityManager.flush();
+            statsRollups.rebuild();
         }
         return migrationMessages;
     }
@@ -0,0 +1,21 @@
+package org.nzbhydra.okhttp;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Result of a conditional GET. Contains the validators returned by the server (if any) so they can be sent with the next request.
+ */
+@Data
+@AllArgsConstructor
+public class ConditionalResponse<T> {
+
+    /**
+     * True if the server returned 304, the body is null then
+     */
+    private boolean notModified;
+    private String eTag;
+    private String lastModified;
+    private T body;
+
+}
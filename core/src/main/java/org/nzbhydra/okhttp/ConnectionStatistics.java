@@ -0,0 +1,124 @@
+package org.nzbhydra.okhttp;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import okhttp3.Connection;
+import okhttp3.ConnectionPool;
+import okhttp3.Interceptor;
+import okhttp3.Protocol;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Network interceptor which counts how many requests were sent over newly opened connections and how many reused a pooled connection. A
+ * connection is new when no request was sent over it before, TLS connections which are new required a handshake.
+ */
+public class ConnectionStatistics implements Interceptor {
+
+    private final Set<Connection> knownConnections = Collections.newSetFromMap(new WeakHashMap<>());
+    private final HostCounters totalCounters = new HostCounters();
+    private final Map<String, HostCounters> hostCounters = new ConcurrentHashMap<>();
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        record(chain.request().url().host(), chain.connection());
+        return chain.proceed(chain.request());
+    }
+
+    void record(String host, Connection connection) {
+        HostCounters counters = hostCounters.computeIfAbsent(host.toLowerCase(), x -> new HostCounters());
+        totalCounters.requests.incrementAndGet();
+        counters.requests.incrementAndGet();
+        if (connection == null) {
+            return;
+        }
+        boolean isNew;
+        synchronized (knownConnections) {
+            isNew = knownConnections.add(connection);
+        }
+        if (isNew) {
+            totalCounters.newConnections.incrementAndGet();
+            counters.newConnections.incrementAndGet();
+            if (connection.handshake() != null) {
+                totalCounters.tlsHandshakes.incrementAndGet();
+                counters.tlsHandshakes.incrementAndGet();
+            }
+        } else {
+            totalCounters.reusedConnections.incrementAndGet();
+            counters.reusedConnections.incrementAndGet();
+        }
+        if (connection.protocol() == Protocol.HTTP_2) {
+            totalCounters.http2Requests.incrementAndGet();
+            counters.http2Requests.incrementAndGet();
+        }
+    }
+
+    /**
+     * @param indexersByHost The names of the indexers using a host, used to label the host's statistics
+     */
+    public ConnectionStats getStats(ConnectionPool connectionPool, int clients, Map<String, List<String>> indexersByHost) {
+        List<HostConnectionStats> hostStats = new ArrayList<>();
+        for (Entry<String, HostCounters> entry : hostCounters.entrySet()) {
+            hostStats.add(entry.getValue().toStats(entry.getKey(), indexersByHost.getOrDefault(entry.getKey(), Collections.emptyList())));
+        }
+        hostStats.sort(Comparator.comparing(HostConnectionStats::getRequests).reversed());
+        HostConnectionStats total = totalCounters.toStats(null, Collections.emptyList());
+        return new ConnectionStats(clients, total.getRequests(), total.getNewConnections(), total.getReusedConnections(), total.getTlsHandshakes(), total.getHttp2Requests(), total.getReuseRate(),
+                connectionPool.connectionCount(), connectionPool.idleConnectionCount(), hostStats);
+    }
+
+    private static class HostCounters {
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong newConnections = new AtomicLong();
+        private final AtomicLong reusedConnections = new AtomicLong();
+        private final AtomicLong tlsHandshakes = new AtomicLong();
+        private final AtomicLong http2Requests = new AtomicLong();
+
+        private HostConnectionStats toStats(String host, List<String> indexers) {
+            long reused = reusedConnections.get();
+            long connected = newConnections.get() + reused;
+            double reuseRate = connected == 0 ? 0 : (double) reused / connected;
+            return new HostConnectionStats(host, indexers, requests.get(), newConnections.get(), reused, tlsHandshakes.get(), http2Requests.get(), reuseRate);
+        }
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class ConnectionStats {
+        private int clients;
+        private long requests;
+        private long newConnections;
+        private long reusedConnections;
+        private long tlsHandshakes;
+        private long http2Requests;
+        private double reuseRate;
+        private int pooledConnections;
+        private int idlePooledConnections;
+        private List<HostConnectionStats> hosts;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class HostConnectionStats {
+        private String host;
+        private List<String> indexers;
+        private long requests;
+        private long newConnections;
+        private long reusedConnections;
+        private long tlsHandshakes;
+        private long http2Requests;
+        private double reuseRate;
+    }
+
+}
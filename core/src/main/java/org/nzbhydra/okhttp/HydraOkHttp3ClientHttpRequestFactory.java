@@ -18,24 +18,38 @@ package org.nzbhydra.okhttp;
 
 import com.google.common.net.InetAddresses;
 import joptsimple.internal.Strings;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import okhttp3.Call;
+import okhttp3.Callback;
 import okhttp3.ConnectionPool;
 import okhttp3.Credentials;
+import okhttp3.Dispatcher;
+import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
 import okhttp3.OkHttpClient.Builder;
+import okhttp3.Protocol;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
 import okhttp3.Route;
+import org.nzbhydra.config.BaseConfig;
+import org.nzbhydra.config.ConfigChangedEvent;
 import org.nzbhydra.config.ConfigProvider;
+import org.nzbhydra.config.IndexerConfig;
 import org.nzbhydra.config.MainConfig;
 import org.nzbhydra.config.ProxyType;
+import org.nzbhydra.config.SearchingConfig;
 import org.nzbhydra.misc.DelegatingSSLSocketFactory;
+import org.nzbhydra.okhttp.ConnectionStatistics.ConnectionStats;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.annotation.Primary;
+import org.springframework.context.event.EventListener;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.client.AsyncClientHttpRequest;
@@ -72,10 +86,16 @@ import java.security.KeyStore;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -93,7 +113,24 @@ public class HydraOkHttp3ClientHttpRequestFactory
     private OkHttpClient client;
     @Autowired
     private ConfigProvider configProvider;
-    private final ConnectionPool connectionPool = new ConnectionPool(10, 5, TimeUnit.MINUTES);
+    /**
+     * Hosts other than indexers which are called regularly (TMDB, TVMaze, GitHub, downloaders)
+     */
+    private static final int OTHER_HOSTS = 4;
+    private static final int WARM_UP_TIMEOUT_SECONDS = 10;
+
+    private volatile ConnectionPool connectionPool;
+    private final ConnectionStatistics connectionStatistics = new ConnectionStatistics();
+    /**
+     * Clients with the default timeouts, one per proxy type actually used for a request
+     */
+    private final Map<ProxyType, OkHttpClient> baseClients = new ConcurrentHashMap<>();
+    private final Map<ClientProfile, OkHttpClient> clients = new ConcurrentHashMap<>();
+    /**
+     * Clients are looked up and built while holding the read lock and discarded while holding the write lock. Otherwise a client derived from a
+     * discarded base client could be cached and would keep using its shut down dispatcher
+     */
+    private final ReadWriteLock clientsLock = new ReentrantReadWriteLock();
 
 
     /**
@@ -138,12 +175,12 @@ public class HydraOkHttp3ClientHttpRequestFactory
 
     @Override
     public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) {
-        return new OkHttp3ClientHttpRequest(getOkHttpClientBuilder(uri).build(), uri, httpMethod);
+        return new OkHttp3ClientHttpRequest(getOkHttpClient(uri), uri, httpMethod);
     }
 
     @Override
     public AsyncClientHttpRequest createAsyncRequest(URI uri, HttpMethod httpMethod) {
-        return new OkHttp3AsyncClientHttpRequest(getOkHttpClientBuilder(uri).build(), uri, httpMethod);
+        return new OkHttp3AsyncClientHttpRequest(getOkHttpClient(uri), uri, httpMethod);
     }
 
 
@@ -158,6 +195,164 @@ public class HydraOkHttp3ClientHttpRequestFactory
         } catch (NullPointerException e) {
             //Ignore
         }
+        for (OkHttpClient baseClient : baseClients.values()) {
+            baseClient.dispatcher().executorService().shutdown();
+        }
+    }
+
+    @EventListener
+    public void handleNewConfig(ConfigChangedEvent configChangedEvent) {
+        //Proxy, SSL and SNI settings are read when a client is built
+        logger.debug("Discarding {} HTTP clients because the config was changed", clients.size() + baseClients.size());
+        List<OkHttpClient> oldBaseClients;
+        clientsLock.writeLock().lock();
+        try {
+            oldBaseClients = new ArrayList<>(baseClients.values());
+            baseClients.clear();
+            clients.clear();
+        } finally {
+            clientsLock.writeLock().unlock();
+        }
+        //The derived clients share the dispatchers of their base clients. Calls already running or queued are still completed
+        for (OkHttpClient oldBaseClient : oldBaseClients) {
+            oldBaseClient.dispatcher().executorService().shutdown();
+        }
+        //Connections opened with the old settings wouldn't be reused anyway. The pool is resized for the new indexers
+        ConnectionPool oldConnectionPool = connectionPool;
+        connectionPool = null;
+        if (oldConnectionPool != null) {
+            oldConnectionPool.evictAll();
+        }
+        warmUpIndexerConnections();
+    }
+
+    @EventListener
+    public void handleStartup(ApplicationReadyEvent event) {
+        warmUpIndexerConnections();
+    }
+
+    /**
+     * Opens connections to the hosts of all enabled indexers (if enabled in the config) so that the first search doesn't need to wait for the
+     * TCP and TLS handshakes. The requests are executed asynchronously, their responses are discarded.
+     */
+    protected void warmUpIndexerConnections() {
+        BaseConfig baseConfig = configProvider.getBaseConfig();
+        if (!baseConfig.getMain().isWarmUpIndexerConnections()) {
+            return;
+        }
+        Map<String, HttpUrl> hostUrls = new LinkedHashMap<>();
+        for (IndexerConfig indexerConfig : baseConfig.getIndexers()) {
+            HttpUrl url = indexerConfig.isEnabled() && indexerConfig.getHost() != null ? HttpUrl.parse(indexerConfig.getHost()) : null;
+            if (url != null) {
+                hostUrls.putIfAbsent(url.scheme() + "://" + url.host() + ":" + url.port(), new HttpUrl.Builder().scheme(url.scheme()).host(url.host()).port(url.port()).build());
+            }
+        }
+        logger.debug("Warming up connections to {} indexer hosts", hostUrls.size());
+        for (HttpUrl hostUrl : hostUrls.values()) {
+            Request request = new Request.Builder().url(hostUrl).head().build();
+            getOkHttpClient(hostUrl.uri(), WARM_UP_TIMEOUT_SECONDS).newCall(request).enqueue(new Callback() {
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    logger.debug("Unable to warm up connection to {}: {}", hostUrl.host(), e.getMessage());
+                }
+
+                @Override
+                public void onResponse(Call call, Response response) throws IOException {
+                    response.close();
+                }
+            });
+        }
+    }
+
+    /**
+     * Returns a client for the given URI with the default timeouts. Clients are shared between all requests which use the same proxy settings
+     * and are only rebuilt when the config changes. Use {@link OkHttpClient#newBuilder()} to customize it, the returned builder will share
+     * the dispatcher, connection pool and SSL setup.
+     */
+    public OkHttpClient getOkHttpClient(URI requestUri) {
+        ProxyType proxyType = getEffectiveProxyType(requestUri);
+        clientsLock.readLock().lock();
+        try {
+            return getBaseClient(requestUri, proxyType);
+        } finally {
+            clientsLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns a shared client for the given URI which uses the given read, write and connect timeout.
+     */
+    public OkHttpClient getOkHttpClient(URI requestUri, int timeoutSeconds) {
+        ProxyType proxyType = getEffectiveProxyType(requestUri);
+        ClientProfile profile = new ClientProfile(proxyType, timeoutSeconds);
+        clientsLock.readLock().lock();
+        try {
+            OkHttpClient client = clients.get(profile);
+            if (client != null) {
+                return client;
+            }
+            return clients.computeIfAbsent(profile, x -> getBaseClient(requestUri, proxyType).newBuilder()
+                    .readTimeout(timeoutSeconds, TimeUnit.SECONDS)
+                    .connectTimeout(timeoutSeconds, TimeUnit.SECONDS)
+                    .writeTimeout(timeoutSeconds, TimeUnit.SECONDS)
+                    .build());
+        } finally {
+            clientsLock.readLock().unlock();
+        }
+    }
+
+    private OkHttpClient getBaseClient(URI requestUri, ProxyType proxyType) {
+        return baseClients.computeIfAbsent(proxyType, x -> buildBaseClient(requestUri, x));
+    }
+
+    public ConnectionStats getConnectionStats() {
+        Map<String, List<String>> indexersByHost = new HashMap<>();
+        for (IndexerConfig indexerConfig : configProvider.getBaseConfig().getIndexers()) {
+            HttpUrl url = indexerConfig.getHost() != null ? HttpUrl.parse(indexerConfig.getHost()) : null;
+            if (url != null) {
+                indexersByHost.computeIfAbsent(url.host(), x -> new ArrayList<>()).add(indexerConfig.getName());
+            }
+        }
+        return connectionStatistics.getStats(getConnectionPool(), baseClients.size() + clients.size(), indexersByHost);
+    }
+
+    /**
+     * OkHttp only limits the number of idle connections of the whole pool, so it's sized to keep the configured number of idle connections
+     * for every enabled indexer and a couple of other hosts.
+     */
+    protected ConnectionPool getConnectionPool() {
+        ConnectionPool pool = connectionPool;
+        if (pool == null) {
+            synchronized (this) {
+                if (connectionPool == null) {
+                    MainConfig main = configProvider.getBaseConfig().getMain();
+                    long indexerHosts = configProvider.getBaseConfig().getIndexers().stream().filter(IndexerConfig::isEnabled).map(IndexerConfig::getHost).distinct().count();
+                    int maxIdleConnections = main.getIdleConnectionsPerHost() * ((int) indexerHosts + OTHER_HOSTS);
+                    logger.debug("Creating connection pool with {} idle connections kept for {} minutes", maxIdleConnections, main.getIdleConnectionKeepAliveMinutes());
+                    connectionPool = new ConnectionPool(maxIdleConnections, main.getIdleConnectionKeepAliveMinutes(), TimeUnit.MINUTES);
+                }
+                pool = connectionPool;
+            }
+        }
+        return pool;
+    }
+
+    private OkHttpClient buildBaseClient(URI requestUri, ProxyType proxyType) {
+        logger.debug("Building HTTP client for proxy type {}", proxyType);
+        //Only limits asynchronous calls, those wait in the dispatcher's queue without blocking a thread
+        SearchingConfig searchingConfig = configProvider.getBaseConfig().getSearching();
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(searchingConfig.getIndexerThreads());
+        dispatcher.setMaxRequestsPerHost(searchingConfig.getMaxConcurrentCallsPerIndexer());
+        return getOkHttpClientBuilder(requestUri).dispatcher(dispatcher).addNetworkInterceptor(connectionStatistics).build();
+    }
+
+    private ProxyType getEffectiveProxyType(URI requestUri) {
+        ProxyType proxyType = configProvider.getBaseConfig().getMain().getProxyType();
+        if (proxyType == null || (proxyType != ProxyType.NONE && isUriToBeIgnoredByProxy(requestUri.getHost()))) {
+            return ProxyType.NONE;
+        }
+        return proxyType;
     }
 
 
@@ -229,7 +424,11 @@ public class HydraOkHttp3ClientHttpRequestFactory
     }
 
     protected Builder getBaseBuilder() {
-        return new OkHttpClient().newBuilder().connectionPool(connectionPool).readTimeout(timeout, TimeUnit.SECONDS);
+        return new OkHttpClient().newBuilder()
+                .connectionPool(getConnectionPool())
+                //HTTP/2 is negotiated using ALPN which is only available with newer JREs, OkHttp falls back to HTTP/1.1 otherwise
+                .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .readTimeout(timeout, TimeUnit.SECONDS);
     }
 
     protected boolean isUriToBeIgnoredByProxy(String host) {
@@ -340,6 +539,13 @@ public class HydraOkHttp3ClientHttpRequestFactory
     }
 
 
+    @Data
+    @AllArgsConstructor
+    private static class ClientProfile {
+        private ProxyType proxyType;
+        private int timeoutSeconds;
+    }
+
     protected class SniWhitelistingSocketFactory extends DelegatingSSLSocketFactory {
 
         public SniWhitelistingSocketFactory(SSLSocketFactory delegate) {
@@ -0,0 +1,11 @@
+package org.nzbhydra.okhttp;
+
+import java.io.IOException;
+
+public class ResponseTooLargeException extends IOException {
+
+    public ResponseTooLargeException(String url, long maxBytes) {
+        super(String.format("Response from %s is larger than the allowed %dKB", url, maxBytes / 1024));
+    }
+
+}
@@ -3,10 +3,20 @@ package org.nzbhydra.okhttp;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.base.Strings;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Request.Builder;
 import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ByteString;
+import okio.ForwardingSource;
+import okio.Okio;
+import okio.Source;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,11 +26,15 @@ import org.springframework.stereotype.Component;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 @SuppressWarnings("ConstantConditions")
 @Component
@@ -28,6 +42,12 @@ public class WebAccess {
 
     private static final Logger logger = LoggerFactory.getLogger(WebAccess.class);
 
+    private static final ByteString UTF_8_BOM = ByteString.decodeHex("efbbbf");
+    private static final ByteString UTF_16_BE_BOM = ByteString.decodeHex("feff");
+    private static final ByteString UTF_16_LE_BOM = ByteString.decodeHex("fffe");
+    private static final ByteString UTF_32_BE_BOM = ByteString.decodeHex("0000feff");
+    private static final ByteString UTF_32_LE_BOM = ByteString.decodeHex("fffe0000");
+
     @Autowired
     private HydraOkHttp3ClientHttpRequestFactory requestFactory;
     @Value("${nzbhydra.connectionTimeout:10}")
@@ -45,6 +65,161 @@ public class WebAccess {
     }
 
     public String callUrl(String url, Map<String, String> headers, int timeout) throws IOException {
+        Request request = buildRequest(url, headers);
+        try (Response response = buildClient(request, timeout).newCall(request).execute()) {
+            checkSuccessful(url, response);
+            String body = response.body().string();
+            response.body().close();
+            return body;
+        }
+    }
+
+    /**
+     * Calls the URL and passes the response body to the consumer as it is received, without reading it into memory first.
+     *
+     * @param maxBodyBytes Responses larger than this are aborted with a {@link ResponseTooLargeException}
+     * @param consumer     Reads the body. Must not keep the source after returning
+     */
+    public <T> T callUrl(String url, Map<String, String> headers, int timeout, long maxBodyBytes, BodyConsumer<T> consumer) throws IOException {
+        Request request = buildRequest(url, headers);
+        try (Response response = buildClient(request, timeout).newCall(request).execute()) {
+            return consumeBody(url, response, maxBodyBytes, consumer);
+        }
+    }
+
+    /**
+     * Like {@link #callUrl(String, Map, int, long, BodyConsumer)} but sends the validators of a previous response. If the server reports the
+     * resource as unchanged the body is neither transferred nor consumed.
+     *
+     * @param eTag         The ETag of the previous response or null
+     * @param lastModified The Last-Modified header of the previous response or null
+     */
+    public <T> ConditionalResponse<T> callUrlConditionally(String url, Map<String, String> headers, int timeout, long maxBodyBytes, String eTag, String lastModified, BodyConsumer<T> consumer) throws IOException {
+        Map<String, String> conditionalHeaders = new HashMap<>(headers);
+        if (eTag != null) {
+            conditionalHeaders.put("If-None-Match", eTag);
+        }
+        if (lastModified != null) {
+            conditionalHeaders.put("If-Modified-Since", lastModified);
+        }
+        Request request = buildRequest(url, conditionalHeaders);
+        try (Response response = buildClient(request, timeout).newCall(request).execute()) {
+            if (response.code() == 304) {
+                //Servers may send updated validators with the 304
+                return new ConditionalResponse<>(true, response.header("ETag", eTag), response.header("Last-Modified", lastModified), null);
+            }
+            T body = consumeBody(url, response, maxBodyBytes, consumer);
+            return new ConditionalResponse<>(false, response.header("ETag"), response.header("Last-Modified"), body);
+        }
+    }
+
+    /**
+     * Calls the URL without blocking the calling thread. The response body is read into memory by OkHttp's dispatcher thread and then passed
+     * to the consumer using the given executor. Completing the returned future exceptionally (e.g. because of a timeout) cancels the call.
+     *
+     * @param maxBodyBytes     Responses larger than this fail with a {@link ResponseTooLargeException}
+     * @param consumer         Reads the body
+     * @param consumerExecutor Executes the consumer
+     */
+    public <T> CompletableFuture<T> callUrlAsync(String url, Map<String, String> headers, int timeout, long maxBodyBytes, BodyConsumer<T> consumer, Executor consumerExecutor) {
+        Request request = buildRequest(url, headers);
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Callback callback = new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                future.completeExceptionally(e);
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                Buffer buffer = new Buffer();
+                Charset charset;
+                try (Response closedResponse = response) {
+                    charset = consumeBody(url, closedResponse, maxBodyBytes, (source, bodyCharset) -> {
+                        source.readAll(buffer);
+                        return bodyCharset;
+                    });
+                } catch (IOException e) {
+                    future.completeExceptionally(e);
+                    return;
+                }
+                try {
+                    consumerExecutor.execute(() -> {
+                        try {
+                            future.complete(consumer.consume(buffer, charset));
+                        } catch (Throwable e) {
+                            future.completeExceptionally(e);
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    future.completeExceptionally(e);
+                }
+            }
+        };
+        Call call;
+        try {
+            call = enqueue(request, timeout, callback);
+        } catch (RejectedExecutionException e) {
+            //The client was discarded and its dispatcher shut down because the config was changed in the meantime. The new client is used instead
+            call = enqueue(request, timeout, callback);
+        }
+        Call enqueuedCall = call;
+        future.whenComplete((result, throwable) -> {
+            if (throwable != null) {
+                enqueuedCall.cancel();
+            }
+        });
+        return future;
+    }
+
+    private Call enqueue(Request request, int timeout, Callback callback) {
+        Call call = buildClient(request, timeout).newCall(request);
+        call.enqueue(callback);
+        return call;
+    }
+
+    private <T> T consumeBody(String url, Response response, long maxBodyBytes, BodyConsumer<T> consumer) throws IOException {
+        checkSuccessful(url, response);
+        ResponseBody body = response.body();
+        if (body.contentLength() > maxBodyBytes) {
+            //Don't even start reading
+            throw new ResponseTooLargeException(url, maxBodyBytes);
+        }
+        BufferedSource source = Okio.buffer(new LimitedSource(body.source(), url, maxBodyBytes));
+        MediaType contentType = body.contentType();
+        Charset charset = getBomAwareCharset(source, contentType != null ? contentType.charset(StandardCharsets.UTF_8) : StandardCharsets.UTF_8);
+        return consumer.consume(source, charset);
+    }
+
+    /**
+     * Skips a byte order mark at the start of the source and returns the charset it stands for. Returns the given charset if there's none.
+     */
+    static Charset getBomAwareCharset(BufferedSource source, Charset charset) throws IOException {
+        if (source.rangeEquals(0, UTF_8_BOM)) {
+            source.skip(UTF_8_BOM.size());
+            return StandardCharsets.UTF_8;
+        }
+        //Must be checked before UTF-16LE which starts with the same bytes
+        if (source.rangeEquals(0, UTF_32_LE_BOM)) {
+            source.skip(UTF_32_LE_BOM.size());
+            return Charset.forName("UTF-32LE");
+        }
+        if (source.rangeEquals(0, UTF_32_BE_BOM)) {
+            source.skip(UTF_32_BE_BOM.size());
+            return Charset.forName("UTF-32BE");
+        }
+        if (source.rangeEquals(0, UTF_16_BE_BOM)) {
+            source.skip(UTF_16_BE_BOM.size());
+            return StandardCharsets.UTF_16BE;
+        }
+        if (source.rangeEquals(0, UTF_16_LE_BOM)) {
+            source.skip(UTF_16_LE_BOM.size());
+            return StandardCharsets.UTF_16LE;
+        }
+        return charset;
+    }
+
+    private Request buildRequest(String url, Map<String, String> headers) {
         Builder builder = new Builder().url(url);
         for (Entry<String, String> entry : headers.entrySet()) {
             builder.addHeader(entry.getKey(), entry.getValue());
@@ -55,19 +230,18 @@ public class WebAccess {
                 builder.addHeader("Authorization", "token " + token);
             }
         }
+        return builder.build();
+    }
 
-        Request request = builder.build();
+    private OkHttpClient buildClient(Request request, int timeout) {
+        return requestFactory.getOkHttpClient(request.url().uri(), timeout);
+    }
 
-        OkHttpClient client = requestFactory.getOkHttpClientBuilder(request.url().uri()).readTimeout(timeout, TimeUnit.SECONDS).connectTimeout(timeout, TimeUnit.SECONDS).writeTimeout(timeout, TimeUnit.SECONDS).build();
-        try (Response response = client.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                String error = String.format("URL call to %s returned %d:%s", url, response.code(), response.message());
-                logger.error(error);
-                throw new IOException(error);
-            }
-            String body = response.body().string();
-            response.body().close();
-            return body;
+    private void checkSuccessful(String url, Response response) throws IOException {
+        if (!response.isSuccessful()) {
+            String error = String.format("URL call to %s returned %d:%s", url, response.code(), response.message());
+            logger.error(error);
+            throw new IOException(error);
         }
     }
 
@@ -83,7 +257,7 @@ public class WebAccess {
 
     public void downloadToFile(String url, File file) throws IOException {
         Request request = new Request.Builder().url(url).build();
-        try (Response response = requestFactory.getOkHttpClientBuilder(request.url().uri()).build().newCall(request).execute()) {
+        try (Response response = requestFactory.getOkHttpClient(request.url().uri()).newCall(request).execute()) {
             if (!response.isSuccessful()) {
                 String error = String.format("URL call to %s returned %d:%s", url, response.code(), response.message());
                 logger.error(error);
@@ -99,4 +273,40 @@ public class WebAccess {
 
     }
 
+    @FunctionalInterface
+    public interface BodyConsumer<T> {
+        /**
+         * @param source  The response body
+         * @param charset The charset from the response's content type or UTF-8
+         */
+        T consume(BufferedSource source, Charset charset) throws IOException;
+    }
+
+    /**
+     * Aborts reading as soon as more than the allowed number of bytes were received
+     */
+    private static class LimitedSource extends ForwardingSource {
+        private final String url;
+        private final long maxBytes;
+        private long bytesRead;
+
+        LimitedSource(Source delegate, String url, long maxBytes) {
+            super(delegate);
+            this.url = url;
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public long read(Buffer sink, long byteCount) throws IOException {
+            long read = super.read(sink, byteCount);
+            if (read > 0) {
+                bytesRead += read;
+                if (bytesRead > maxBytes) {
+                    throw new ResponseTooLargeException(url, maxBytes);
+                }
+            }
+            return read;
+        }
+    }
+
 }
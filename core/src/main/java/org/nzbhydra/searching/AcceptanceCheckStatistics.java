@@ -0,0 +1,153 @@
+package org.nzbhydra.searching;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.nzbhydra.searching.ResultAcceptor.AcceptanceCheck;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Counts how often the checks of the {@link ResultAcceptor} were run for the results of one indexer and category, how often they rejected a
+ * result and how long they took. From that an order is computed which runs the checks that are cheap and reject many results first.
+ */
+public class AcceptanceCheckStatistics {
+
+    /**
+     * Checks which were run fewer times are run first so that enough data is collected
+     */
+    static final int MIN_INVOCATIONS = 100;
+
+    private static final AcceptanceCheck[] CHECKS = AcceptanceCheck.values();
+
+    private final String indexerName;
+    private final String categoryName;
+    private final long[] invocations = new long[CHECKS.length];
+    private final long[] rejections = new long[CHECKS.length];
+    private final long[] timedInvocations = new long[CHECKS.length];
+    private final long[] nanos = new long[CHECKS.length];
+    private volatile AcceptanceCheck[] order = CHECKS;
+
+    AcceptanceCheckStatistics(String indexerName, String categoryName) {
+        this.indexerName = indexerName;
+        this.categoryName = categoryName;
+    }
+
+    AcceptanceCheck[] getOrder() {
+        return order;
+    }
+
+    synchronized void add(Recorder recorder) {
+        for (int i = 0; i < CHECKS.length; i++) {
+            invocations[i] += recorder.invocations[i];
+            rejections[i] += recorder.rejections[i];
+            timedInvocations[i] += recorder.timedInvocations[i];
+            nanos[i] += recorder.nanos[i];
+        }
+        order = computeOrder();
+    }
+
+    private AcceptanceCheck[] computeOrder() {
+        double[] expectedCostPerRejection = new double[CHECKS.length];
+        for (int i = 0; i < CHECKS.length; i++) {
+            if (invocations[i] < MIN_INVOCATIONS || timedInvocations[i] == 0) {
+                expectedCostPerRejection[i] = 0;
+            } else if (rejections[i] == 0) {
+                expectedCostPerRejection[i] = Double.POSITIVE_INFINITY;
+            } else {
+                //Running checks ordered by cost divided by rejection probability minimizes the time needed until a result is rejected
+                double averageNanos = (double) nanos[i] / timedInvocations[i];
+                double rejectionRate = (double) rejections[i] / invocations[i];
+                expectedCostPerRejection[i] = averageNanos / rejectionRate;
+            }
+        }
+        AcceptanceCheck[] newOrder = CHECKS.clone();
+        Arrays.sort(newOrder, Comparator.<AcceptanceCheck>comparingDouble(x -> expectedCostPerRejection[x.ordinal()]).thenComparing(AcceptanceCheck::ordinal));
+        return newOrder;
+    }
+
+    synchronized AcceptanceCheckStats getStats() {
+        List<CheckStats> checkStats = new ArrayList<>();
+        for (int i = 0; i < CHECKS.length; i++) {
+            double rejectionRate = invocations[i] == 0 ? 0 : (double) rejections[i] / invocations[i];
+            long averageNanos = timedInvocations[i] == 0 ? 0 : nanos[i] / timedInvocations[i];
+            checkStats.add(new CheckStats(CHECKS[i].name(), invocations[i], rejections[i], rejectionRate, averageNanos));
+        }
+        List<String> checkOrder = new ArrayList<>();
+        for (AcceptanceCheck check : order) {
+            checkOrder.add(check.name());
+        }
+        return new AcceptanceCheckStats(indexerName, categoryName, checkOrder, checkStats);
+    }
+
+    /**
+     * Records the checks run during one call of the result acceptor without synchronization. Uses the order of the statistics at the time it was
+     * created.
+     */
+    static class Recorder {
+        private final AcceptanceCheckStatistics statistics;
+        private final AcceptanceCheck[] order;
+        private final int[] positions = new int[CHECKS.length];
+        private final long[] invocations = new long[CHECKS.length];
+        private final long[] rejections = new long[CHECKS.length];
+        private final long[] timedInvocations = new long[CHECKS.length];
+        private final long[] nanos = new long[CHECKS.length];
+
+        Recorder(AcceptanceCheckStatistics statistics) {
+            this.statistics = statistics;
+            order = statistics.getOrder();
+            for (int i = 0; i < order.length; i++) {
+                positions[order[i].ordinal()] = i;
+            }
+        }
+
+        AcceptanceCheckStatistics getStatistics() {
+            return statistics;
+        }
+
+        AcceptanceCheck[] getOrder() {
+            return order;
+        }
+
+        int getPosition(AcceptanceCheck check) {
+            return positions[check.ordinal()];
+        }
+
+        /**
+         * @param nanos The time the check took or a negative value if it wasn't measured
+         */
+        void record(AcceptanceCheck check, boolean accepted, long nanos) {
+            int index = check.ordinal();
+            invocations[index]++;
+            if (!accepted) {
+                rejections[index]++;
+            }
+            if (nanos >= 0) {
+                timedInvocations[index]++;
+                this.nanos[index] += nanos;
+            }
+        }
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class AcceptanceCheckStats {
+        private String indexer;
+        private String category;
+        private List<String> checkOrder;
+        private List<CheckStats> checks;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class CheckStats {
+        private String check;
+        private long invocations;
+        private long rejections;
+        private double rejectionRate;
+        private long averageNanos;
+    }
+
+}
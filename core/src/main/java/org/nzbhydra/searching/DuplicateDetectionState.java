@@ -0,0 +1,28 @@
+package org.nzbhydra.searching;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Keeps the duplicate groups found for the results of one search so that when more results are loaded only the titles which received new results
+ * need to be checked again. Must only be used for a growing list of results of the same search. Not thread safe, {@link DuplicateDetector}
+ * synchronizes on it.
+ */
+public class DuplicateDetectionState {
+
+    final Set<SearchResultItem> knownItems = Collections.newSetFromMap(new IdentityHashMap<>());
+    /**
+     * Sorted by title so that the order of the duplicate groups doesn't depend on the order in which the results were loaded
+     */
+    final Map<String, List<SearchResultItem>> itemsByTitle = new TreeMap<>();
+    final Map<String, List<LinkedHashSet<SearchResultItem>>> bucketsByTitle = new HashMap<>();
+    float duplicateAgeThreshold = Float.NaN;
+    float duplicateSizeThreshold = Float.NaN;
+
+}
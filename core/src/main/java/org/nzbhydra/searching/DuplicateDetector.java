@@ -14,13 +14,18 @@ import org.springframework.stereotype.Component;
 
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static com.google.common.collect.Lists.newArrayList;
 
@@ -33,49 +38,63 @@ public class DuplicateDetector {
     protected ConfigProvider configProvider;
 
     public DuplicateDetectionResult detectDuplicates(List<SearchResultItem> results) {
+        return detectDuplicates(new DuplicateDetectionState(), results);
+    }
+
+    /**
+     * Detects duplicates in the given results and all results of previous calls with the same state. Only the titles of results which were not yet seen in
+     * the given state are checked again, the groups of all other titles are taken from the state. The result is the same as when detecting the duplicates
+     * of all results from scratch.
+     *
+     * @param state   The state of previous calls for the same search. Will be updated
+     * @param results New results of the search. Results already seen in previous calls may be included again and are skipped
+     */
+    public DuplicateDetectionResult detectDuplicates(DuplicateDetectionState state, List<SearchResultItem> results) {
+        //The state is shared by all searches using the same cache entry, e.g. when different pages of a search are loaded at the same time
+        synchronized (state) {
+            return detectDuplicatesWithState(state, results);
+        }
+    }
+
+    private DuplicateDetectionResult detectDuplicatesWithState(DuplicateDetectionState state, List<SearchResultItem> results) {
         Stopwatch stopwatch = Stopwatch.createStarted();
-        Map<String, List<SearchResultItem>> groupedByTitle = results.stream().collect(Collectors.groupingBy(x -> x.getTitle().replaceFirst("[ .\\-_]", "")));
-        Multiset<Indexer> countUniqueResultsPerIndexer = HashMultiset.create();
-        List<LinkedHashSet<SearchResultItem>> duplicateGroups = new ArrayList<>();
+        float duplicateAgeThreshold = configProvider.getBaseConfig().getSearching().getDuplicateAgeThreshold();
+        float duplicateSizeThreshold = configProvider.getBaseConfig().getSearching().getDuplicateSizeThresholdInPercent();
+        if (duplicateAgeThreshold != state.duplicateAgeThreshold || duplicateSizeThreshold != state.duplicateSizeThreshold) {
+            //The existing groups were built with other thresholds
+            state.bucketsByTitle.clear();
+            state.duplicateAgeThreshold = duplicateAgeThreshold;
+            state.duplicateSizeThreshold = duplicateSizeThreshold;
+        }
 
-        //In each list of searchResults with the same title we want to find the duplicates
-        int countDetectedDuplicates = 0;
-        for (List<SearchResultItem> titleGroup : groupedByTitle.values()) {
-            titleGroup = titleGroup.stream().sorted(Comparator.comparing(SearchResultItem::getPubDate).reversed()).collect(Collectors.toList());
-            //So we start with a bucket with the first (later we have a list of buckets where all searchResults in a bucket are duplicates)
-            List<LinkedHashSet<SearchResultItem>> listOfBuckets = new ArrayList<>();
-            listOfBuckets.add(new LinkedHashSet<>(newArrayList(titleGroup.get(0))));
-            //And iterate over every other item in the list
-            for (int i = 1; i < titleGroup.size(); i++) {
-                SearchResultItem searchResultItem = titleGroup.get(i);
-                boolean foundBucket = false;
-                //Iterate over already existing buckets
-                for (LinkedHashSet<SearchResultItem> bucket : listOfBuckets) {
-                    if (bucket.stream().map(SearchResultItem::getIndexer).collect(Collectors.toList()).contains(searchResultItem.getIndexer())) {
-                        continue;
-                    }
-                    //And all searchResults in those buckets
-                    for (SearchResultItem other : bucket) {
-                        //Now we can check if the two searchResults are duplicates
-                        boolean same = testForSameness(searchResultItem, other);
-                        if (same) {
-                            //If they are the same we found a bucket for the result. We add it and continue
-                            foundBucket = true;
-                            bucket.add(searchResultItem);
-                            countDetectedDuplicates++;
-                            break;
-                        }
-                    }
-                    //If we already found a bucket for the result we can go on with the next
-                    if (foundBucket) {
-                        break;
-                    }
-                }
-                //If we didn't find a bucket for the result we start a new one
-                if (!foundBucket) {
-                    listOfBuckets.add(new LinkedHashSet<>(newArrayList(searchResultItem)));
-                }
+        Set<String> changedTitles = new HashSet<>();
+        for (SearchResultItem result : results) {
+            if (state.knownItems.add(result)) {
+                String title = result.getTitle().replaceFirst("[ .\\-_]", "");
+                state.itemsByTitle.computeIfAbsent(title, x -> new ArrayList<>()).add(result);
+                changedTitles.add(title);
             }
+        }
+        for (String title : state.itemsByTitle.keySet()) {
+            if (!state.bucketsByTitle.containsKey(title)) {
+                changedTitles.add(title);
+            }
+        }
+
+        //In each list of searchResults with the same title we want to find the duplicates. The titles are independent of each other so with many results they're checked in parallel
+        int numberOfResultsToCheck = changedTitles.stream().mapToInt(x -> state.itemsByTitle.get(x).size()).sum();
+        int parallelThreshold = configProvider.getBaseConfig().getSearching().getDuplicateDetectionParallelThreshold();
+        boolean parallel = parallelThreshold > 0 && numberOfResultsToCheck >= parallelThreshold && changedTitles.size() > 1;
+        Stream<String> changedTitlesStream = parallel ? changedTitles.parallelStream() : changedTitles.stream();
+        Map<String, List<LinkedHashSet<SearchResultItem>>> bucketsByChangedTitle = changedTitlesStream.collect(Collectors.toMap(Function.identity(), x -> findDuplicatesInTitleGroup(state.itemsByTitle.get(x), duplicateAgeThreshold, duplicateSizeThreshold)));
+        //The buckets are merged in the order of the titles, not in the order they were computed, so the duplicate identifiers don't change
+        state.bucketsByTitle.putAll(bucketsByChangedTitle);
+        int countDetectedDuplicates = bucketsByChangedTitle.values().stream().flatMap(Collection::stream).mapToInt(x -> x.size() - 1).sum();
+
+        Multiset<Indexer> countUniqueResultsPerIndexer = HashMultiset.create();
+        List<LinkedHashSet<SearchResultItem>> duplicateGroups = new ArrayList<>();
+        for (String title : state.itemsByTitle.keySet()) {
+            List<LinkedHashSet<SearchResultItem>> listOfBuckets = state.bucketsByTitle.get(title);
             LinkedHashSet<SearchResultItem> lastBucket = Iterables.getLast(listOfBuckets);
             if (lastBucket.size() == 1) {
                 countUniqueResultsPerIndexer.add(lastBucket.iterator().next().getIndexer());
@@ -90,12 +109,63 @@ public class DuplicateDetector {
             duplicateIdentifier++;
         }
 
-        logger.debug(LoggingMarkers.PERFORMANCE, "Duplicate detection for {} search results took {}ms. Found {} duplicates", results.size(), stopwatch.elapsed(TimeUnit.MILLISECONDS), countDetectedDuplicates);
+        logger.debug(LoggingMarkers.PERFORMANCE, "Duplicate detection for {} search results took {}ms. Checked {} of {} titles again{} and found {} duplicates in them", state.knownItems.size(), stopwatch.elapsed(TimeUnit.MILLISECONDS), changedTitles.size(), state.itemsByTitle.size(), parallel ? " in parallel" : "", countDetectedDuplicates);
 
         return new DuplicateDetectionResult(duplicateGroups, countUniqueResultsPerIndexer);
     }
 
-    private boolean testForSameness(SearchResultItem result1, SearchResultItem result2) {
+    private List<LinkedHashSet<SearchResultItem>> findDuplicatesInTitleGroup(List<SearchResultItem> titleGroup, float duplicateAgeThreshold, float duplicateSizeThreshold) {
+        //Ties are broken by indexer and GUID so that the buckets don't depend on the order in which the results were loaded
+        titleGroup = titleGroup.stream().sorted(Comparator.comparing(SearchResultItem::getPubDate).reversed()
+                .thenComparing(x -> x.getIndexer().getName(), Comparator.nullsFirst(Comparator.naturalOrder()))
+                .thenComparing(SearchResultItem::getIndexerGuid, Comparator.nullsFirst(Comparator.naturalOrder())))
+                .collect(Collectors.toList());
+        //The thresholds are doubled at most when only group or only poster are known. Buckets outside of that range can be skipped without comparing their results
+        float maxAgeThreshold = duplicateAgeThreshold * 2;
+        float maxSizeThreshold = duplicateSizeThreshold * 2;
+
+        //We start with a bucket with the first (later we have a list of buckets where all searchResults in a bucket are duplicates)
+        List<Bucket> buckets = new ArrayList<>();
+        buckets.add(new Bucket(titleGroup.get(0)));
+        //And iterate over every other item in the list
+        for (int i = 1; i < titleGroup.size(); i++) {
+            SearchResultItem searchResultItem = titleGroup.get(i);
+            Bucket foundBucket = null;
+            //Results without date or size are never duplicates, so we only need to look for a bucket for the others
+            Instant date = searchResultItem.getUsenetDate().orElse(searchResultItem.getPubDate());
+            Long size = searchResultItem.getSize();
+            if (date != null && size != null) {
+                //Iterate over already existing buckets
+                for (Bucket bucket : buckets) {
+                    if (bucket.indexers.contains(searchResultItem.getIndexer()) || !bucket.mayContainDuplicateOf(date.getEpochSecond(), size, maxAgeThreshold, maxSizeThreshold)) {
+                        continue;
+                    }
+                    //And all searchResults in those buckets
+                    for (SearchResultItem other : bucket.items) {
+                        //Now we can check if the two searchResults are duplicates
+                        if (testForSameness(searchResultItem, other, duplicateAgeThreshold, duplicateSizeThreshold)) {
+                            //If they are the same we found a bucket for the result
+                            foundBucket = bucket;
+                            break;
+                        }
+                    }
+                    //If we already found a bucket for the result we can go on with the next
+                    if (foundBucket != null) {
+                        break;
+                    }
+                }
+            }
+            if (foundBucket != null) {
+                foundBucket.add(searchResultItem);
+            } else {
+                //If we didn't find a bucket for the result we start a new one
+                buckets.add(new Bucket(searchResultItem));
+            }
+        }
+        return buckets.stream().map(x -> x.items).collect(Collectors.toList());
+    }
+
+    private boolean testForSameness(SearchResultItem result1, SearchResultItem result2, float duplicateAgeThreshold, float duplicateSizeThreshold) {
         logger.debug(LoggingMarkers.DUPLICATES, "Comparing {} and {}", result1, result2);
         if (result1.getIndexer().equals(result2.getIndexer())) {
             logger.debug(LoggingMarkers.DUPLICATES, "Same indexer");
@@ -107,9 +177,6 @@ public class DuplicateDetector {
         boolean posterKnown = result1.getPoster().isPresent() && result2.getPoster().isPresent();
         boolean samePoster = posterKnown && Objects.equals(result1.getPoster().get(), result2.getPoster().get());
 
-        float duplicateAgeThreshold = configProvider.getBaseConfig().getSearching().getDuplicateAgeThreshold();
-        float duplicateSizeThreshold = configProvider.getBaseConfig().getSearching().getDuplicateSizeThresholdInPercent();
-
         if (groupKnown && !sameGroup) {
             logger.debug(LoggingMarkers.DUPLICATES, "Not the same group: {} and {}", result1.getGroup().orElse(null), result2.getGroup().orElse(null));
             return false;
@@ -151,5 +218,53 @@ public class DuplicateDetector {
         return sameSize;
     }
 
+    /**
+     * A group of duplicates with the indexers of its results and the range of their dates and sizes
+     */
+    private static class Bucket {
+        private final LinkedHashSet<SearchResultItem> items = new LinkedHashSet<>();
+        private final Set<Indexer> indexers = new HashSet<>();
+        //Only results with date and size can be duplicates of other results, so the others are not included in the ranges
+        private boolean hasComparableItems = false;
+        private long minEpochSecond = Long.MAX_VALUE;
+        private long maxEpochSecond = Long.MIN_VALUE;
+        private long minSize = Long.MAX_VALUE;
+        private long maxSize = Long.MIN_VALUE;
+
+        Bucket(SearchResultItem item) {
+            add(item);
+        }
+
+        void add(SearchResultItem item) {
+            items.add(item);
+            indexers.add(item.getIndexer());
+            Instant date = item.getUsenetDate().orElse(item.getPubDate());
+            if (date != null && item.getSize() != null) {
+                hasComparableItems = true;
+                minEpochSecond = Math.min(minEpochSecond, date.getEpochSecond());
+                maxEpochSecond = Math.max(maxEpochSecond, date.getEpochSecond());
+                minSize = Math.min(minSize, item.getSize());
+                maxSize = Math.max(maxSize, item.getSize());
+            }
+        }
+
+        /**
+         * @return false if no result in this bucket is close enough in age and size to be a duplicate of a result with the given date and size
+         */
+        boolean mayContainDuplicateOf(long epochSecond, long size, float maxAgeThreshold, float maxSizeThreshold) {
+            if (!hasComparableItems) {
+                return false;
+            }
+            //Same calculation as in testForDuplicateAge, for the closest date in the bucket
+            long closestEpochSecond = Math.max(minEpochSecond, Math.min(maxEpochSecond, epochSecond));
+            if (Math.abs(epochSecond - closestEpochSecond) / (60 * 60) > maxAgeThreshold) {
+                return false;
+            }
+            //The relative size difference grows with the distance, so the closest size is the best candidate. Use a small margin to be safe against rounding
+            long closestSize = Math.max(minSize, Math.min(maxSize, size));
+            double sizeDiffPercent = Math.abs(size - closestSize) / ((size + closestSize) / 2D) * 100;
+            return sizeDiffPercent <= maxSizeThreshold + 0.01;
+        }
+    }
 
 }
@@ -2,7 +2,6 @@ package org.nzbhydra.searching;
 
 import com.google.common.base.Joiner;
 import com.google.common.base.Stopwatch;
-import com.google.common.collect.Iterables;
 import com.google.common.collect.Sets;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -12,9 +11,8 @@ import org.nzbhydra.config.ConfigProvider;
 import org.nzbhydra.config.IndexerConfig;
 import org.nzbhydra.config.SearchModuleType;
 import org.nzbhydra.config.SearchSourceRestriction;
-import org.nzbhydra.downloading.NzbDownloadEntity;
-import org.nzbhydra.downloading.NzbDownloadRepository;
 import org.nzbhydra.indexers.Indexer;
+import org.nzbhydra.indexers.IndexerLimitCounter;
 import org.nzbhydra.indexers.IndexerStatusEntity;
 import org.nzbhydra.logging.LoggingMarkers;
 import org.nzbhydra.mediainfo.InfoProvider;
@@ -24,14 +22,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationEventPublisher;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Component;
 
-import javax.persistence.EntityManager;
-import javax.persistence.PersistenceContext;
-import javax.persistence.Query;
-import java.sql.Timestamp;
 import java.time.Clock;
 import java.time.DayOfWeek;
 import java.time.Instant;
@@ -44,6 +36,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Random;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
@@ -62,13 +55,11 @@ public class IndexerForSearchSelector {
     @Autowired
     private SearchModuleProvider searchModuleProvider;
     @Autowired
-    private NzbDownloadRepository nzbDownloadRepository;
+    private IndexerLimitCounter indexerLimitCounter;
     @Autowired
     private ConfigProvider configProvider;
     @Autowired
     private ApplicationEventPublisher eventPublisher;
-    @PersistenceContext
-    private EntityManager entityManager;
 
     private Random random = new Random();
 
@@ -229,36 +220,22 @@ public class IndexerForSearchSelector {
             if (!indexerConfig.getHitLimit().isPresent() && !indexerConfig.getDownloadLimit().isPresent()) {
                 return true;
             }
-            LocalDateTime comparisonTime;
-            if (indexerConfig.getHitLimitResetTime().isPresent()) {
-                comparisonTime = LocalDateTime.now().with(ChronoField.HOUR_OF_DAY, indexerConfig.getHitLimitResetTime().get());
-                if (comparisonTime.isAfter(LocalDateTime.now())) {
-                    comparisonTime = comparisonTime.minus(1, ChronoUnit.DAYS);
-                }
-            } else {
-                comparisonTime = LocalDateTime.now().minus(1, ChronoUnit.DAYS);
-            }
+            Instant comparisonTime = indexerLimitCounter.getLimitWindowStart(indexerConfig);
             if (indexerConfig.getHitLimit().isPresent()) {
-                Query query = entityManager.createNativeQuery("SELECT x.TIME FROM INDEXERAPIACCESS_SHORT x WHERE x.INDEXER_ID = (:indexerId) ORDER BY TIME DESC LIMIT (:hitLimit)");
-                query.setParameter("indexerId", indexer.getIndexerEntity().getId());
-                query.setParameter("hitLimit", indexerConfig.getHitLimit().get());
-                List resultList = query.getResultList();
-
-                if (resultList.size() == indexerConfig.getHitLimit().get()) { //Found as many as we want, so now we must check if they're all in the time window
-                    Instant earliestAccess = ((Timestamp) Iterables.getLast(resultList)).toInstant();
-                    if (earliestAccess.isAfter(comparisonTime.toInstant(ZoneOffset.UTC))) {
-                        LocalDateTime nextPossibleHit = calculateNextPossibleHit(indexerConfig, earliestAccess);
-
-                        String message = String.format("Not using %s because all %d allowed API hits were already made. The next API hit should be possible at %s", indexerConfig.getName(), indexerConfig.getHitLimit().get(), nextPossibleHit);
-                        logger.debug(LoggingMarkers.PERFORMANCE, "Detection of API limit reached took {}ms", stopwatch.elapsed(TimeUnit.MILLISECONDS));
-                        return handleIndexerNotSelected(indexer, message, "API hit limit reached");
-                    }
+                //If the oldest of the allowed number of hits was made in the time window no more hits are allowed
+                Optional<Instant> earliestAccess = indexerLimitCounter.getNthLatestApiHit(indexer.getIndexerEntity(), indexerConfig.getHitLimit().get());
+                if (earliestAccess.isPresent() && earliestAccess.get().isAfter(comparisonTime)) {
+                    LocalDateTime nextPossibleHit = calculateNextPossibleHit(indexerConfig, earliestAccess.get());
+
+                    String message = String.format("Not using %s because all %d allowed API hits were already made. The next API hit should be possible at %s", indexerConfig.getName(), indexerConfig.getHitLimit().get(), nextPossibleHit);
+                    logger.debug(LoggingMarkers.PERFORMANCE, "Detection of API limit reached took {}ms", stopwatch.elapsed(TimeUnit.MILLISECONDS));
+                    return handleIndexerNotSelected(indexer, message, "API hit limit reached");
                 }
             }
             if (indexerConfig.getDownloadLimit().isPresent()) {
-                Page<NzbDownloadEntity> page = nzbDownloadRepository.findBySearchResultIndexerOrderByTimeDesc(indexer.getIndexerEntity(), new PageRequest(0, indexerConfig.getDownloadLimit().get()));
-                if (page.getContent().size() == indexerConfig.getDownloadLimit().get() && Iterables.getLast(page.getContent()).getTime().isAfter(comparisonTime.toInstant(ZoneOffset.UTC))) {
-                    LocalDateTime nextPossibleHit = calculateNextPossibleHit(indexerConfig, page.getContent().get(page.getContent().size() - 1).getTime());
+                Optional<Instant> earliestDownload = indexerLimitCounter.getNthLatestDownload(indexer.getIndexerEntity(), indexerConfig.getDownloadLimit().get());
+                if (earliestDownload.isPresent() && earliestDownload.get().isAfter(comparisonTime)) {
+                    LocalDateTime nextPossibleHit = calculateNextPossibleHit(indexerConfig, earliestDownload.get());
 
                     String message = String.format("Not using %s because all %d allowed download were already made. The next download should be possible at %s", indexerConfig.getName(), indexerConfig.getDownloadLimit().get(), nextPossibleHit);
                     logger.debug(LoggingMarkers.PERFORMANCE, "Detection of download limit reached took {}ms", stopwatch.elapsed(TimeUnit.MILLISECONDS));
@@ -25,6 +25,7 @@ public class IndexerSearchResult {
     private boolean hasMoreResults;
     private long responseTime;
     private Instant time;
+    private boolean deadlineExceeded;
 
 
     private Multiset<String> reasonsForRejection = HashMultiset.create();
@@ -49,6 +49,7 @@ public class InternalSearchResultProcessor {
         searchResponse.setSearchResults(transformedSearchResults);
         searchResponse.setOffset(searchResult.getOffset());
         searchResponse.setLimit(searchResult.getLimit());
+        searchResponse.setPartial(searchResult.isPartial());
 
         logger.debug(LoggingMarkers.PERFORMANCE, "Creating web response for search results took {}ms", stopwatch.elapsed(TimeUnit.MILLISECONDS));
         return searchResponse;
@@ -106,6 +107,31 @@ public class InternalSearchResultProcessor {
         return transformedSearchResults;
     }
 
+    /**
+     * Transforms results found in the {@link SearchResultIndex}. Only the data stored in the database is available, so size, category etc.
+     * are missing.
+     */
+    public List<SearchResultWebTO> transformIndexedResults(List<SearchResultEntity> searchResultEntities) {
+        List<SearchResultWebTO> transformedSearchResults = new ArrayList<>();
+        for (SearchResultEntity entity : searchResultEntities) {
+            SearchResultWebTOBuilder builder = SearchResultWebTO.builder()
+                    .details_link(entity.getDetails())
+                    .downloadType(entity.getDownloadType().name())
+                    .indexer(entity.getIndexer().getName())
+                    .indexerguid(entity.getIndexerGuid())
+                    .link(nzbHandler.getNzbDownloadLink(entity.getId(), true, entity.getDownloadType()))
+                    .searchResultId(String.valueOf(entity.getId()))
+                    .title(entity.getTitle());
+            SearchResultItem item = new SearchResultItem();
+            item.setPubDate(entity.getPubDate() != null ? entity.getPubDate() : entity.getFirstFound());
+            item.setAgePrecise(entity.getPubDate() != null);
+            builder = setSearchResultDateRelatedValues(builder, item);
+            transformedSearchResults.add(builder.build());
+        }
+        transformedSearchResults.sort(Comparator.comparingLong(SearchResultWebTO::getEpoch).reversed());
+        return transformedSearchResults;
+    }
+
     private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm");
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd-MM-yyyy");
 
@@ -0,0 +1,525 @@
+package org.nzbhydra.searching;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.google.common.base.Strings;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.nzbhydra.NzbHydra;
+import org.nzbhydra.config.CategoriesConfig;
+import org.nzbhydra.config.Category;
+import org.nzbhydra.config.ConfigChangedEvent;
+import org.nzbhydra.config.ConfigProvider;
+import org.nzbhydra.config.IndexerConfig;
+import org.nzbhydra.config.SearchModuleType;
+import org.nzbhydra.indexers.Indexer;
+import org.nzbhydra.indexers.IndexerExecutor;
+import org.nzbhydra.indexers.IndexerStatusEntity;
+import org.nzbhydra.searching.SearchResultItem.HasNfo;
+import org.nzbhydra.searching.searchrequests.SearchRequest;
+import org.nzbhydra.searching.searchrequests.SearchRequest.SearchSource;
+import org.nzbhydra.searching.searchrequests.SearchRequestFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Polls the newest releases of newznab and torznab indexers in the background and keeps them in a rolling store per category which is saved
+ * to the data folder. API searches without any search terms (usually RSS syncs) can be answered from the store instead of searching all indexers.
+ * <p>
+ * Indexers with an API hit limit are polled so that the polls use at most half of their hits.
+ */
+@Component
+public class LatestReleases {
+
+    private static final Logger logger = LoggerFactory.getLogger(LatestReleases.class);
+
+    private static final long MINUTE = 1000 * 60;
+    /**
+     * Maximum number of releases kept per category
+     */
+    static final int MAX_RELEASES_PER_CATEGORY = 500;
+    /**
+     * Share of an indexer's daily API hit limit which may be used for polling
+     */
+    private static final double HIT_LIMIT_SHARE = 0.5;
+    private static final int POLL_LIMIT = 100;
+    /**
+     * The store is only used while at least one indexer was polled successfully within this number of poll intervals
+     */
+    private static final int MAX_STALE_POLL_INTERVALS = 3;
+    private static final String STORE_FILE_NAME = "latestReleases.json";
+
+    @Autowired
+    private ConfigProvider configProvider;
+    @Autowired
+    private SearchModuleProvider searchModuleProvider;
+    @Autowired
+    private SearchRequestFactory searchRequestFactory;
+    @Autowired
+    private CategoryProvider categoryProvider;
+    @Autowired
+    private DuplicateDetector duplicateDetector;
+    @Autowired
+    private IndexerExecutor indexerExecutor;
+    protected Clock clock = Clock.systemUTC();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Random random = new Random();
+    /**
+     * Releases per category name and search result ID. Guarded by this
+     */
+    private final Map<String, Map<Long, StoredRelease>> releasesByCategory = new HashMap<>();
+    private final Map<String, PollState> pollStates = new ConcurrentHashMap<>();
+    private volatile Snapshot snapshot;
+    private volatile boolean loaded;
+
+    private ScheduledThreadPoolExecutor pollScheduler;
+
+    public LatestReleases() {
+        objectMapper.registerModule(new JavaTimeModule());
+    }
+
+    @PostConstruct
+    public void init() {
+        //Not run by the shared scheduler because waiting for the polls would hold up all other scheduled tasks
+        pollScheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "LatestReleases");
+            thread.setDaemon(true);
+            return thread;
+        });
+        pollScheduler.scheduleWithFixedDelay(this::pollIndexers, MINUTE, MINUTE, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pollScheduler.shutdownNow();
+    }
+
+    public void pollIndexers() {
+        if (!configProvider.getBaseConfig().getSearching().isPrefetchLatestReleases()) {
+            return;
+        }
+        if (!loaded) {
+            load();
+            loaded = true;
+        }
+        List<Indexer> dueIndexers = getIndexersToPoll().stream().filter(this::isPollDue).collect(Collectors.toList());
+        List<CompletableFuture<Void>> polls = new ArrayList<>();
+        for (Indexer indexer : dueIndexers) {
+            try {
+                polls.add(CompletableFuture.runAsync(() -> poll(indexer), indexerExecutor.getSearchExecutor()));
+            } catch (RejectedExecutionException e) {
+                logger.debug("Unable to poll latest releases of {} because too many searches are queued", indexer.getName());
+            }
+        }
+        polls.forEach(CompletableFuture::join);
+        if (!polls.isEmpty() || snapshot == null) {
+            rebuildSnapshot();
+        }
+        if (!polls.isEmpty()) {
+            save();
+        }
+    }
+
+    @EventListener
+    public void handleNewConfig(ConfigChangedEvent configChangedEvent) {
+        //Indexer instances are replaced, the snapshot is rebuilt with the new ones by the next poll run
+        snapshot = null;
+    }
+
+    /**
+     * @param newznabCategories The categories requested or null for all. Parent categories (e.g. 5000) include their subcategories
+     * @return The releases or empty if the store is disabled or was not updated recently enough
+     */
+    public Optional<LatestReleasesResult> getReleases(List<Integer> newznabCategories, DownloadType downloadType, int offset, int limit) {
+        Snapshot currentSnapshot = snapshot;
+        if (!configProvider.getBaseConfig().getSearching().isPrefetchLatestReleases() || currentSnapshot == null) {
+            return Optional.empty();
+        }
+        Optional<Instant> lastPoll = pollStates.values().stream().map(PollState::getLastSuccess).filter(x -> x != null).max(Comparator.naturalOrder());
+        Duration maxAge = Duration.ofMinutes((long) configProvider.getBaseConfig().getSearching().getLatestReleasesPollMinutes() * MAX_STALE_POLL_INTERVALS);
+        if (!lastPoll.isPresent() || lastPoll.get().plus(maxAge).isBefore(clock.instant())) {
+            return Optional.empty();
+        }
+
+        List<SearchResultItem> matchingItems = new ArrayList<>();
+        for (Entry<Category, List<SearchResultItem>> entry : currentSnapshot.getItemsByCategory().entrySet()) {
+            if (matchesCategories(entry.getKey(), newznabCategories)) {
+                entry.getValue().stream().filter(x -> x.getDownloadType().name().equals(downloadType.name())).forEach(matchingItems::add);
+            }
+        }
+        matchingItems.sort(Comparator.comparing(SearchResultItem::getPubDate, Comparator.nullsLast(Comparator.reverseOrder())));
+        List<SearchResultItem> page = offset >= matchingItems.size() ? Collections.emptyList() : matchingItems.subList(offset, Math.min(matchingItems.size(), offset + limit));
+        return Optional.of(new LatestReleasesResult(new ArrayList<>(page), matchingItems.size(), lastPoll.get(), currentSnapshot.getOldestPoll()));
+    }
+
+    private boolean matchesCategories(Category category, List<Integer> newznabCategories) {
+        if (newznabCategories == null || newznabCategories.isEmpty()) {
+            return true;
+        }
+        for (Integer requested : newznabCategories) {
+            for (Integer newznabCategory : category.getNewznabCategories()) {
+                boolean isSubcategory = requested % 1000 == 0 && newznabCategory / 1000 == requested / 1000;
+                if (newznabCategory.equals(requested) || isSubcategory) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public LatestReleasesStats getStats() {
+        Map<String, Integer> releasesPerCategory = new TreeMap<>();
+        synchronized (this) {
+            releasesByCategory.forEach((category, releases) -> releasesPerCategory.put(category, releases.size()));
+        }
+        List<IndexerPollStats> indexerStats = new ArrayList<>();
+        for (Indexer indexer : getIndexersToPoll()) {
+            PollState pollState = pollStates.getOrDefault(indexer.getName(), new PollState());
+            indexerStats.add(new IndexerPollStats(indexer.getName(), getPollInterval(indexer.getConfig()).toMinutes(), pollState.getLastAttempt(), pollState.getLastSuccess(), pollState.getLastError()));
+        }
+        Snapshot currentSnapshot = snapshot;
+        return new LatestReleasesStats(configProvider.getBaseConfig().getSearching().isPrefetchLatestReleases(), currentSnapshot == null ? null : currentSnapshot.getCreated(), releasesPerCategory, indexerStats);
+    }
+
+    private List<Indexer> getIndexersToPoll() {
+        return searchModuleProvider.getEnabledIndexers().stream()
+                .filter(x -> x.getConfig().getSearchModuleType() == SearchModuleType.NEWZNAB || x.getConfig().getSearchModuleType() == SearchModuleType.TORZNAB)
+                .filter(x -> x.getConfig().isConfigComplete() && x.getConfig().getEnabledForSearchSource().meets(SearchSource.API))
+                .collect(Collectors.toList());
+    }
+
+    private boolean isPollDue(Indexer indexer) {
+        IndexerStatusEntity status = indexer.getIndexerEntity().getStatus();
+        if (status.getDisabledPermanently() || (status.getDisabledUntil() != null && status.getDisabledUntil().isAfter(clock.instant()))) {
+            return false;
+        }
+        PollState pollState = pollStates.get(indexer.getName());
+        return pollState == null || pollState.getLastAttempt() == null || !pollState.getLastAttempt().plus(getPollInterval(indexer.getConfig())).isAfter(clock.instant());
+    }
+
+    Duration getPollInterval(IndexerConfig indexerConfig) {
+        long minutes = configProvider.getBaseConfig().getSearching().getLatestReleasesPollMinutes();
+        if (indexerConfig.getHitLimit().isPresent()) {
+            //Hit limits apply to one day
+            minutes = Math.max(minutes, (long) Math.ceil(24 * 60 / (indexerConfig.getHitLimit().get() * HIT_LIMIT_SHARE)));
+        }
+        return Duration.ofMinutes(minutes);
+    }
+
+    private void poll(Indexer indexer) {
+        PollState pollState = pollStates.computeIfAbsent(indexer.getName(), x -> new PollState());
+        pollState.setLastAttempt(clock.instant());
+        try {
+            SearchRequest searchRequest = searchRequestFactory.getSearchRequest(SearchType.SEARCH, SearchSource.API, CategoriesConfig.allCategory, random.nextInt(1000000), 0, POLL_LIMIT);
+            List<Integer> newznabCategories = getEnabledNewznabCategories(indexer.getConfig());
+            if (!newznabCategories.isEmpty()) {
+                searchRequest.getInternalData().setNewznabCategories(newznabCategories);
+            }
+            searchRequest.setDownloadType(indexer.getConfig().getSearchModuleType() == SearchModuleType.TORZNAB ? DownloadType.TORRENT : DownloadType.NZB);
+            IndexerSearchResult indexerSearchResult = indexer.search(searchRequest, 0, POLL_LIMIT);
+            if (!indexerSearchResult.isWasSuccessful()) {
+                pollState.setLastError(indexerSearchResult.getErrorMessage());
+                return;
+            }
+            addReleases(indexerSearchResult.getSearchResultItems());
+            pollState.setLastSuccess(clock.instant());
+            pollState.setLastError(null);
+            logger.debug("Polled {} latest releases from {}", indexerSearchResult.getSearchResultItems().size(), indexer.getName());
+        } catch (Exception e) {
+            logger.error("Error while polling latest releases from " + indexer.getName(), e);
+            pollState.setLastError(e.getMessage());
+        } finally {
+            MDC.remove("SEARCH");
+        }
+    }
+
+    /**
+     * @return The newznab categories of the categories the indexer is enabled for or an empty list if it's enabled for all of them
+     */
+    List<Integer> getEnabledNewznabCategories(IndexerConfig indexerConfig) {
+        List<Integer> newznabCategories = new ArrayList<>();
+        for (String categoryName : indexerConfig.getEnabledCategories()) {
+            List<Integer> categoryNewznabCategories = categoryProvider.getByInternalName(categoryName).getNewznabCategories();
+            if (categoryNewznabCategories.isEmpty()) {
+                //Can't be restricted by newznab categories, e.g. "All"
+                return Collections.emptyList();
+            }
+            categoryNewznabCategories.stream().filter(x -> !newznabCategories.contains(x)).forEach(newznabCategories::add);
+        }
+        return newznabCategories;
+    }
+
+    synchronized void addReleases(List<SearchResultItem> searchResultItems) {
+        for (SearchResultItem item : searchResultItems) {
+            StoredRelease release = StoredRelease.fromSearchResultItem(item);
+            releasesByCategory.computeIfAbsent(release.getCategory(), x -> new HashMap<>()).put(release.getSearchResultId(), release);
+        }
+        for (Map<Long, StoredRelease> releases : releasesByCategory.values()) {
+            if (releases.size() > MAX_RELEASES_PER_CATEGORY) {
+                List<StoredRelease> oldestFirst = releases.values().stream().sorted(Comparator.comparing(StoredRelease::getPubDate, Comparator.nullsFirst(Comparator.naturalOrder()))).collect(Collectors.toList());
+                for (StoredRelease release : oldestFirst.subList(0, releases.size() - MAX_RELEASES_PER_CATEGORY)) {
+                    releases.remove(release.getSearchResultId());
+                }
+            }
+        }
+    }
+
+    /**
+     * Converts the stored releases to search result items for the current indexer instances and removes duplicates between indexers the same
+     * way external searches do
+     */
+    void rebuildSnapshot() {
+        Map<String, Indexer> indexersByName = searchModuleProvider.getIndexers().stream().collect(Collectors.toMap(Indexer::getName, x -> x, (a, b) -> a));
+        List<SearchResultItem> items = new ArrayList<>();
+        synchronized (this) {
+            for (Map<Long, StoredRelease> releases : releasesByCategory.values()) {
+                for (StoredRelease release : releases.values()) {
+                    Indexer indexer = indexersByName.get(release.getIndexerName());
+                    if (indexer != null) {
+                        items.add(release.toSearchResultItem(indexer, categoryProvider.getByInternalName(release.getCategory())));
+                    }
+                }
+            }
+        }
+        Map<Category, List<SearchResultItem>> itemsByCategory = new HashMap<>();
+        for (LinkedHashSet<SearchResultItem> duplicateGroup : duplicateDetector.detectDuplicates(items).getDuplicateGroups()) {
+            SearchResultItem best = duplicateGroup.stream().min(Comparator.comparing(SearchResultItem::getIndexerScore, Comparator.nullsLast(Comparator.reverseOrder()))
+                    .thenComparing(SearchResultItem::getPubDate, Comparator.nullsLast(Comparator.reverseOrder()))).get();
+            itemsByCategory.computeIfAbsent(best.getCategory(), x -> new ArrayList<>()).add(best);
+        }
+        Instant oldestPoll = getIndexersToPoll().stream().map(x -> pollStates.get(x.getName())).filter(x -> x != null && x.getLastSuccess() != null).map(PollState::getLastSuccess).min(Comparator.naturalOrder()).orElse(null);
+        snapshot = new Snapshot(itemsByCategory, clock.instant(), oldestPoll);
+    }
+
+    private synchronized void save() {
+        File storeFile = getStoreFile();
+        if (storeFile == null) {
+            return;
+        }
+        StoredReleases storedReleases = new StoredReleases();
+        releasesByCategory.values().forEach(x -> storedReleases.getReleases().addAll(x.values()));
+        pollStates.forEach((indexerName, pollState) -> storedReleases.getLastPolls().put(indexerName, pollState.getLastSuccess()));
+        try {
+            File tempFile = new File(storeFile.getParentFile(), STORE_FILE_NAME + ".tmp");
+            objectMapper.writeValue(tempFile, storedReleases);
+            Files.move(tempFile.toPath(), storeFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.error("Unable to save latest releases to " + storeFile, e);
+        }
+    }
+
+    private synchronized void load() {
+        File storeFile = getStoreFile();
+        if (storeFile == null || !storeFile.exists()) {
+            return;
+        }
+        try {
+            StoredReleases storedReleases = objectMapper.readValue(storeFile, StoredReleases.class);
+            for (StoredRelease release : storedReleases.getReleases()) {
+                releasesByCategory.computeIfAbsent(release.getCategory(), x -> new HashMap<>()).put(release.getSearchResultId(), release);
+            }
+            storedReleases.getLastPolls().forEach((indexerName, lastPoll) -> {
+                //Don't poll all indexers right after a restart
+                PollState pollState = pollStates.computeIfAbsent(indexerName, x -> new PollState());
+                pollState.setLastAttempt(lastPoll);
+                pollState.setLastSuccess(lastPoll);
+            });
+            logger.info("Loaded {} latest releases from {}", storedReleases.getReleases().size(), storeFile);
+        } catch (IOException e) {
+            logger.warn("Unable to load latest releases from {}: {}", storeFile, e.getMessage());
+        }
+    }
+
+    private File getStoreFile() {
+        String dataFolder = NzbHydra.getDataFolder();
+        return Strings.isNullOrEmpty(dataFolder) ? null : new File(dataFolder, STORE_FILE_NAME);
+    }
+
+    @Data
+    private static class PollState {
+        private volatile Instant lastAttempt;
+        private volatile Instant lastSuccess;
+        private volatile String lastError;
+    }
+
+    @Data
+    @AllArgsConstructor
+    private static class Snapshot {
+        /**
+         * Items without duplicates, ordered by pub date
+         */
+        private final Map<Category, List<SearchResultItem>> itemsByCategory;
+        private final Instant created;
+        private final Instant oldestPoll;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class LatestReleasesResult {
+        private List<SearchResultItem> searchResultItems;
+        private int total;
+        /**
+         * Time of the most recent successful poll of any indexer
+         */
+        private Instant lastPoll;
+        /**
+         * Time of the least recent successful poll of the indexers which were polled
+         */
+        private Instant oldestPoll;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class LatestReleasesStats {
+        private boolean enabled;
+        private Instant snapshotCreated;
+        private Map<String, Integer> releasesPerCategory;
+        private List<IndexerPollStats> indexers;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class IndexerPollStats {
+        private String indexer;
+        private long pollIntervalMinutes;
+        private Instant lastAttempt;
+        private Instant lastSuccess;
+        private String lastError;
+    }
+
+    @Data
+    @NoArgsConstructor
+    static class StoredReleases {
+        private List<StoredRelease> releases = new ArrayList<>();
+        private Map<String, Instant> lastPolls = new HashMap<>();
+    }
+
+    /**
+     * The data of a search result needed to return it in API responses
+     */
+    @Data
+    @NoArgsConstructor
+    static class StoredRelease {
+        private long searchResultId;
+        private String indexerName;
+        private String indexerGuid;
+        private String title;
+        private String link;
+        private String details;
+        private String commentsLink;
+        private String description;
+        private String category;
+        private String originalCategory;
+        private SearchResultItem.DownloadType downloadType;
+        private Long size;
+        private Instant pubDate;
+        private Instant usenetDate;
+        private Instant firstFound;
+        private boolean agePrecise;
+        private String group;
+        private String poster;
+        private Integer grabs;
+        private Integer files;
+        private Integer commentsCount;
+        private HasNfo hasNfo;
+        private boolean passworded;
+        private Map<String, String> attributes = new HashMap<>();
+
+        static StoredRelease fromSearchResultItem(SearchResultItem item) {
+            StoredRelease release = new StoredRelease();
+            release.setSearchResultId(item.getSearchResultId());
+            release.setIndexerName(item.getIndexer().getName());
+            release.setIndexerGuid(item.getIndexerGuid());
+            release.setTitle(item.getTitle());
+            release.setLink(item.getLink());
+            release.setDetails(item.getDetails());
+            release.setCommentsLink(item.getCommentsLink());
+            release.setDescription(item.getDescription());
+            release.setCategory(item.getCategory().getName());
+            release.setOriginalCategory(item.getOriginalCategory());
+            release.setDownloadType(item.getDownloadType());
+            release.setSize(item.getSize());
+            release.setPubDate(item.getPubDate());
+            release.setUsenetDate(item.getUsenetDate().orElse(null));
+            release.setFirstFound(item.getFirstFound());
+            release.setAgePrecise(item.isAgePrecise());
+            release.setGroup(item.getGroup().orElse(null));
+            release.setPoster(item.getPoster().orElse(null));
+            release.setGrabs(item.getGrabs());
+            release.setFiles(item.getFiles());
+            release.setCommentsCount(item.getCommentsCount());
+            release.setHasNfo(item.getHasNfo());
+            release.setPassworded(item.isPassworded());
+            release.setAttributes(new HashMap<>(item.getAttributes()));
+            return release;
+        }
+
+        SearchResultItem toSearchResultItem(Indexer indexer, Category category) {
+            SearchResultItem item = new SearchResultItem();
+            item.setSearchResultId(searchResultId);
+            item.setGuid(searchResultId);
+            item.setIndexer(indexer);
+            item.setIndexerScore(indexer.getConfig().getScore().orElse(null));
+            item.setIndexerGuid(indexerGuid);
+            item.setTitle(title);
+            item.setLink(link);
+            item.setDetails(details);
+            item.setCommentsLink(commentsLink);
+            item.setDescription(description);
+            item.setCategory(category);
+            item.setOriginalCategory(originalCategory);
+            item.setDownloadType(downloadType);
+            item.setSize(size);
+            item.setPubDate(pubDate);
+            item.setUsenetDate(usenetDate);
+            item.setFirstFound(firstFound);
+            item.setAgePrecise(agePrecise);
+            item.setGroup(group);
+            item.setPoster(poster);
+            item.setGrabs(grabs);
+            item.setFiles(files);
+            item.setCommentsCount(commentsCount);
+            item.setHasNfo(hasNfo);
+            item.setPassworded(passworded);
+            Map<String, String> itemAttributes = new HashMap<>(attributes);
+            //Set here because building an API response sets it, items are shared between responses
+            itemAttributes.put("guid", String.valueOf(searchResultId));
+            item.setAttributes(itemAttributes);
+            return item;
+        }
+    }
+
+}
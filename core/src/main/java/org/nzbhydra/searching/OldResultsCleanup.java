@@ -1,42 +1,187 @@
 package org.nzbhydra.searching;
 
 import org.nzbhydra.config.ConfigProvider;
+import org.nzbhydra.config.SearchingConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import javax.persistence.EntityManager;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Deletes search results, search history and indexer API accesses which are older than configured. Rows are deleted in small chunks of
+ * ascending IDs, each in its own transaction and with a pause after it, so that searches running at the same time are not blocked for long.
+ */
 @Component
 public class OldResultsCleanup {
 
+    private static final Logger logger = LoggerFactory.getLogger(OldResultsCleanup.class);
+
+    private static final long HOUR = 1000 * 60 * 60;
+    static final int CHUNK_SIZE = 1000;
+
+    private static final String SEARCHRESULT_CONDITION = "x.FIRST_FOUND < ? and not exists (select 1 from INDEXERNZBDOWNLOAD d where d.SEARCH_RESULT_ID = x.ID)";
+    private static final String SEARCH_CONDITION = "x.TIME < ?";
+    private static final String INDEXERSEARCH_CONDITION = "exists (select 1 from SEARCH s where s.ID = x.SEARCH_ENTITY_ID and s.TIME < ?)";
+    private static final String INDEXERAPIACCESS_CONDITION = "x.TIME < ?";
+
     @Autowired
     private ConfigProvider configProvider;
     @Autowired
-    private EntityManager entityManager;
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private SearchResultIndex searchResultIndex;
 
-    private static final Logger logger = LoggerFactory.getLogger(OldResultsCleanup.class);
+    private ScheduledThreadPoolExecutor cleanupScheduler;
+    private TransactionTemplate transactionTemplate;
+    private volatile boolean stopRequested = false;
+    long pauseBetweenChunksMillis = 200;
 
-    private static final long HOUR = 1000 * 60 * 60;
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        //Not run by the shared scheduler because the pauses would hold up all other scheduled tasks
+        cleanupScheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "OldResultsCleanup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        cleanupScheduler.scheduleWithFixedDelay(this::deleteOldResults, HOUR, HOUR, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        stopRequested = true;
+        cleanupScheduler.shutdownNow();
+        try {
+            cleanupScheduler.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 
-    @Scheduled(initialDelay = HOUR, fixedRate = HOUR)
-    @Transactional
-    public void deleteOldResults() {
-        int keepSearchResultsForDays = configProvider.getBaseConfig().getSearching().getKeepSearchResultsForDays();
-        int deletedResults = entityManager.createNativeQuery(
-                "delete from SEARCHRESULT where FIRST_FOUND "
-                        + " < DATEADD('SECOND', :epochSecond, DATE '1970-01-01') " +
-                        "AND ID not in (select SEARCH_RESULT_ID from INDEXERNZBDOWNLOAD  where SEARCH_RESULT_ID is not null)")
-                .setParameter("epochSecond", Instant.now().minus(keepSearchResultsForDays, ChronoUnit.DAYS).getEpochSecond())
-                .executeUpdate();
-        if (deletedResults > 0) {
-            logger.debug("Deleted {} unused search results from database that were older than {} days", deletedResults, keepSearchResultsForDays);
+    /**
+     * Deletes all data older than configured for the respective table. Stops after the current chunk when shutting down.
+     *
+     * @return The number of deleted rows by table
+     */
+    public Map<String, Integer> deleteOldResults() {
+        SearchingConfig searchingConfig = configProvider.getBaseConfig().getSearching();
+        Map<String, Integer> deletedRows = new LinkedHashMap<>();
+        try {
+            int keepSearchResultsForDays = searchingConfig.getKeepSearchResultsForDays();
+            Instant deleteResultsBefore = Instant.now().minus(keepSearchResultsForDays, ChronoUnit.DAYS);
+            deletedRows.put("SEARCHRESULT", deleteInChunks("SEARCHRESULT", SEARCHRESULT_CONDITION, deleteResultsBefore, this::deleteSearchResultChunk));
+            //Results which were downloaded are kept in the database but don't need to be found by the index anymore
+            int removedFromIndex = searchResultIndex.removeFoundBefore(deleteResultsBefore);
+            if (removedFromIndex > 0) {
+                logger.debug("Removed {} search results from index", removedFromIndex);
+            }
+
+            if (searchingConfig.getKeepIndexerSearchesForDays() > 0 && !stopRequested) {
+                Instant deleteBefore = Instant.now().minus(searchingConfig.getKeepIndexerSearchesForDays(), ChronoUnit.DAYS);
+                deletedRows.put("INDEXERSEARCH", deleteInChunks("INDEXERSEARCH", INDEXERSEARCH_CONDITION, deleteBefore, this::deleteIndexerSearchChunk));
+            }
+            if (searchingConfig.getKeepSearchHistoryForDays() > 0 && !stopRequested) {
+                Instant deleteBefore = Instant.now().minus(searchingConfig.getKeepSearchHistoryForDays(), ChronoUnit.DAYS);
+                deletedRows.put("SEARCH", deleteInChunks("SEARCH", SEARCH_CONDITION, deleteBefore, this::deleteSearchChunk));
+            }
+            if (searchingConfig.getKeepApiAccessesForDays() > 0 && !stopRequested) {
+                Instant deleteBefore = Instant.now().minus(searchingConfig.getKeepApiAccessesForDays(), ChronoUnit.DAYS);
+                deletedRows.put("INDEXERAPIACCESS", deleteInChunks("INDEXERAPIACCESS", INDEXERAPIACCESS_CONDITION, deleteBefore, this::deleteApiAccessChunk));
+            }
+        } catch (Exception e) {
+            logger.error("Error while deleting old data from database", e);
+        }
+        if (deletedRows.values().stream().anyMatch(x -> x > 0)) {
+            logger.info("Deleted old data from database{}: {}", stopRequested ? " (stopped early because of shutdown)" : "", deletedRows);
         }
+        return deletedRows;
+    }
+
+    /**
+     * Walks through the IDs of the table in ascending order and deletes the matching rows of each chunk in its own transaction.
+     * Only the ID range of the current chunk is locked while deleting.
+     */
+    private int deleteInChunks(String table, String condition, Instant deleteBefore, ChunkDeleter chunkDeleter) {
+        Timestamp before = Timestamp.from(deleteBefore);
+        String selectChunk = "select x.ID from " + table + " x where x.ID > ? and " + condition + " order by x.ID limit " + CHUNK_SIZE;
+        long lastId = Long.MIN_VALUE;
+        int deleted = 0;
+        int chunks = 0;
+        while (!stopRequested) {
+            List<Long> ids = jdbcTemplate.queryForList(selectChunk, Long.class, lastId, before);
+            if (ids.isEmpty()) {
+                break;
+            }
+            long fromId = lastId;
+            long toId = ids.get(ids.size() - 1);
+            Integer deletedInChunk = transactionTemplate.execute(status -> chunkDeleter.delete(fromId, toId, before));
+            deleted += deletedInChunk == null ? 0 : deletedInChunk;
+            chunks++;
+            logger.debug("Deleted {} rows from {} in {} chunks so far", deleted, table, chunks);
+            if (ids.size() < CHUNK_SIZE) {
+                break;
+            }
+            lastId = toId;
+            pause();
+        }
+        return deleted;
+    }
+
+    private int deleteSearchResultChunk(long fromId, long toId, Timestamp before) {
+        return jdbcTemplate.update("delete from SEARCHRESULT x where x.ID > ? and x.ID <= ? and " + SEARCHRESULT_CONDITION, fromId, toId, before);
+    }
+
+    private int deleteIndexerSearchChunk(long fromId, long toId, Timestamp before) {
+        return jdbcTemplate.update("delete from INDEXERSEARCH x where x.ID > ? and x.ID <= ? and " + INDEXERSEARCH_CONDITION, fromId, toId, before);
+    }
+
+    private int deleteSearchChunk(long fromId, long toId, Timestamp before) {
+        String searchesInChunk = "select s.ID from SEARCH s where s.ID > ? and s.ID <= ? and s.TIME < ?";
+        //Identifiers belong to exactly one search and are deleted with it
+        List<Long> identifierIds = jdbcTemplate.queryForList("select IDENTIFIERS_ID from SEARCH_IDENTIFIERS where SEARCH_ENTITY_ID in (" + searchesInChunk + ")", Long.class, fromId, toId, before);
+        jdbcTemplate.update("delete from SEARCH_IDENTIFIERS where SEARCH_ENTITY_ID in (" + searchesInChunk + ")", fromId, toId, before);
+        if (!identifierIds.isEmpty()) {
+            jdbcTemplate.batchUpdate("delete from IDENTIFIER_KEY_VALUE_PAIR where ID = ?", identifierIds, CHUNK_SIZE, (statement, id) -> statement.setLong(1, id));
+        }
+        jdbcTemplate.update("delete from INDEXERSEARCH where SEARCH_ENTITY_ID in (" + searchesInChunk + ")", fromId, toId, before);
+        return jdbcTemplate.update("delete from SEARCH x where x.ID > ? and x.ID <= ? and " + SEARCH_CONDITION, fromId, toId, before);
+    }
+
+    private int deleteApiAccessChunk(long fromId, long toId, Timestamp before) {
+        return jdbcTemplate.update("delete from INDEXERAPIACCESS x where x.ID > ? and x.ID <= ? and " + INDEXERAPIACCESS_CONDITION, fromId, toId, before);
+    }
+
+    private void pause() {
+        if (pauseBetweenChunksMillis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(pauseBetweenChunksMillis);
+        } catch (InterruptedException e) {
+            stopRequested = true;
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private interface ChunkDeleter {
+        int delete(long fromId, long toId, Timestamp before);
     }
 
 }
@@ -1,123 +1,151 @@
 package org.nzbhydra.searching;
 
-import com.google.common.base.Strings;
 import com.google.common.collect.HashMultiset;
 import com.google.common.collect.Multiset;
 import com.google.common.collect.Multiset.Entry;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import org.nzbhydra.config.BaseConfig;
+import org.nzbhydra.config.ConfigChangedEvent;
 import org.nzbhydra.config.ConfigProvider;
 import org.nzbhydra.config.IndexerConfig;
 import org.nzbhydra.config.SearchSourceRestriction;
 import org.nzbhydra.logging.LoggingMarkers;
+import org.nzbhydra.searching.AcceptanceCheckStatistics.AcceptanceCheckStats;
+import org.nzbhydra.searching.AcceptanceCheckStatistics.Recorder;
+import org.nzbhydra.searching.ResultFilterProgram.RestrictionFilter;
+import org.nzbhydra.searching.ResultFilterProgram.WordList;
 import org.nzbhydra.searching.searchrequests.SearchRequest;
 import org.nzbhydra.searching.searchrequests.SearchRequest.SearchSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
-import java.util.regex.Matcher;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 @Component
 public class ResultAcceptor {
 
     private static final Logger logger = LoggerFactory.getLogger(ResultAcceptor.class);
 
-    private static final Pattern TITLE_PATTERN = Pattern.compile("(\\w[\\w']*\\w|\\w)");
-
-    private Map<String, List<String>> titleWordCache = new HashMap<>();
+    /**
+     * Indexers are searched in parallel, so every thread tokenizes with its own instance
+     */
+    private static final ThreadLocal<TitleTokenizer> TITLE_TOKENIZER = ThreadLocal.withInitial(TitleTokenizer::new);
+    /**
+     * Measuring the time of every check would cost more than some checks themselves
+     */
+    private static final int TIME_MEASUREMENT_INTERVAL = 8;
 
     @Autowired
     private ConfigProvider configProvider;
 
+    private volatile ResultFilterProgram filterProgram;
+    private final Map<String, AcceptanceCheckStatistics> checkStatistics = new ConcurrentHashMap<>();
+
+    @EventListener
+    public void handleNewConfig(ConfigChangedEvent configChangedEvent) {
+        filterProgram = new ResultFilterProgram(configChangedEvent.getNewConfig());
+        //Costs and rejection rates of the checks depend on the config
+        checkStatistics.clear();
+    }
+
+    protected ResultFilterProgram getFilterProgram() {
+        ResultFilterProgram program = filterProgram;
+        if (program == null) {
+            program = new ResultFilterProgram(configProvider.getBaseConfig());
+            filterProgram = program;
+        }
+        return program;
+    }
+
     public AcceptorResult acceptResults(List<SearchResultItem> items, SearchRequest searchRequest, IndexerConfig indexerConfig) {
         BaseConfig baseConfig = configProvider.getBaseConfig();
-        titleWordCache = new HashMap<>();
+        boolean applyGlobalRestrictions = baseConfig.getSearching().getApplyRestrictions() == SearchSourceRestriction.BOTH || Objects.equals(searchRequest.getSource().name(), baseConfig.getSearching().getApplyRestrictions().name());
+        CheckContext context = new CheckContext(searchRequest, indexerConfig, getFilterProgram(), applyGlobalRestrictions);
+        Map<String, Recorder> recordersByCategory = new HashMap<>();
         List<SearchResultItem> acceptedResults = new ArrayList<>();
         Multiset<String> reasonsForRejection = HashMultiset.create();
+        int itemIndex = 0;
         for (SearchResultItem item : items) {
-
+            //Other checks rely on the attributes being set so this check is always run first
             if (!checkForNeededAttributesSuccessfullyMapped(reasonsForRejection, item)) {
                 continue;
             }
-            if (!checkForPassword(reasonsForRejection, item)) {
-                continue;
-            }
-            if (!checkForForbiddenGroup(reasonsForRejection, item)) {
-                continue;
-            }
-            if (!checkForForbiddenPoster(reasonsForRejection, item)) {
-                continue;
-            }
-            if (!checkForSize(searchRequest, reasonsForRejection, item)) {
-                continue;
+            Recorder recorder = recordersByCategory.computeIfAbsent(item.getCategory().getName(), x -> new Recorder(getCheckStatistics(indexerConfig.getName(), x)));
+            boolean measureTime = itemIndex++ % TIME_MEASUREMENT_INTERVAL == 0;
+            if (runChecks(context, recorder, item, measureTime, reasonsForRejection)) {
+                acceptedResults.add(item);
             }
-            if (!checkForAge(searchRequest, reasonsForRejection, item)) {
-                continue;
-            }
-            if (!checkForCategory(searchRequest, reasonsForRejection, item)) {
-                continue;
-            }
-            if (!checkForCategoryDisabledForIndexer(searchRequest, reasonsForRejection, item)) {
-                continue;
+        }
+        for (Recorder recorder : recordersByCategory.values()) {
+            recorder.getStatistics().add(recorder);
+        }
+        if (acceptedResults.size() < items.size()) {
+            logger.debug("Rejected {} out of {} search results from indexer {}", items.size() - acceptedResults.size(), items.size(), indexerConfig.getName());
+            for (Entry<String> entry : reasonsForRejection.entrySet()) {
+                logger.info("Rejected {} search results from {} for the following reason: {}", entry.getCount(), indexerConfig.getName(), entry.getElement());
             }
+        }
 
-            //Forbidden words from query
-            if (!checkForForbiddenWords(indexerConfig, reasonsForRejection, searchRequest.getInternalData().getForbiddenWords(), item)) {
-                continue;
-            }
+        return new AcceptorResult(acceptedResults, reasonsForRejection);
+    }
 
-            if (!checkRequiredWords(reasonsForRejection, searchRequest.getInternalData().getRequiredWords(), item)) {
+    /**
+     * Runs the checks in the order determined by the statistics. If a result is rejected the reason is the same as if the checks had been
+     * run in their original order.
+     */
+    private boolean runChecks(CheckContext context, Recorder recorder, SearchResultItem item, boolean measureTime, Multiset<String> reasonsForRejection) {
+        AcceptanceCheck[] order = recorder.getOrder();
+        for (int i = 0; i < order.length; i++) {
+            AcceptanceCheck check = order[i];
+            long start = measureTime ? System.nanoTime() : 0;
+            context.checkReasons.clear();
+            boolean accepted = check.test(this, context, context.checkReasons, item);
+            recorder.record(check, accepted, measureTime ? System.nanoTime() - start : -1);
+            if (accepted) {
                 continue;
             }
-
-            //Globally configured
-            boolean applyWordAndRegexRestrictions = baseConfig.getSearching().getApplyRestrictions() == SearchSourceRestriction.BOTH || Objects.equals(searchRequest.getSource().name(), baseConfig.getSearching().getApplyRestrictions().name());
-            if (applyWordAndRegexRestrictions) {
-                if (!checkRegexes(item, reasonsForRejection, baseConfig.getSearching().getRequiredRegex().orElse(null), baseConfig.getSearching().getForbiddenRegex().orElse(null))) {
-                    continue;
-                }
-                if (!checkRequiredWords(reasonsForRejection, baseConfig.getSearching().getRequiredWords(), item)) {
-                    continue;
+            //Checks which come before this one in the original order and weren't run yet would have determined the reason
+            Multiset<String> reasons = context.checkReasons;
+            for (AcceptanceCheck earlierCheck : AcceptanceCheck.values()) {
+                if (earlierCheck == check) {
+                    break;
                 }
-                if (!checkForForbiddenWords(indexerConfig, reasonsForRejection, baseConfig.getSearching().getForbiddenWords(), item)) {
-                    continue;
+                context.earlierCheckReasons.clear();
+                if (recorder.getPosition(earlierCheck) > i && !earlierCheck.test(this, context, context.earlierCheckReasons, item)) {
+                    reasons = context.earlierCheckReasons;
+                    break;
                 }
             }
+            reasonsForRejection.addAll(reasons);
+            return false;
+        }
+        return true;
+    }
 
-            //Per category
-            applyWordAndRegexRestrictions = item.getCategory().getApplyRestrictionsType() == SearchSourceRestriction.BOTH || Objects.equals(searchRequest.getSource().name(), item.getCategory().getApplyRestrictionsType().name());
-            if (applyWordAndRegexRestrictions) {
-                if (!checkRegexes(item, reasonsForRejection, item.getCategory().getRequiredRegex().orElse(null), item.getCategory().getForbiddenRegex().orElse(null))) {
-                    continue;
-                }
-                if (!checkRequiredWords(reasonsForRejection, item.getCategory().getRequiredWords(), item)) {
-                    continue;
-                }
-                if (!checkForForbiddenWords(indexerConfig, reasonsForRejection, item.getCategory().getForbiddenWords(), item)) {
-                    continue;
-                }
-            }
+    private AcceptanceCheckStatistics getCheckStatistics(String indexerName, String categoryName) {
+        return checkStatistics.computeIfAbsent(indexerName + "/" + categoryName, x -> new AcceptanceCheckStatistics(indexerName, categoryName));
+    }
 
-            acceptedResults.add(item);
-        }
-        if (acceptedResults.size() < items.size()) {
-            logger.debug("Rejected {} out of {} search results from indexer {}", items.size() - acceptedResults.size(), items.size(), indexerConfig.getName());
-            for (Entry<String> entry : reasonsForRejection.entrySet()) {
-                logger.info("Rejected {} search results from {} for the following reason: {}", entry.getCount(), indexerConfig.getName(), entry.getElement());
-            }
-        }
+    public List<AcceptanceCheckStats> getCheckStatistics() {
+        return checkStatistics.values().stream().map(AcceptanceCheckStatistics::getStats).sorted(Comparator.comparing(AcceptanceCheckStats::getIndexer).thenComparing(AcceptanceCheckStats::getCategory)).collect(Collectors.toList());
+    }
 
-        return new AcceptorResult(acceptedResults, reasonsForRejection);
+    private boolean checkRestrictions(IndexerConfig indexerConfig, Multiset<String> reasonsForRejection, RestrictionFilter filter, SearchResultItem item) {
+        return checkRegexes(item, reasonsForRejection, filter.getRequiredRegex(), filter.getForbiddenRegex())
+                && checkRequiredWords(reasonsForRejection, filter.getRequiredWords(), item)
+                && checkForForbiddenWords(indexerConfig, reasonsForRejection, filter.getForbiddenWords(), item);
     }
 
     protected boolean checkForNeededAttributesSuccessfullyMapped(Multiset<String> reasonsForRejection, SearchResultItem item) {
@@ -205,9 +233,10 @@ public class ResultAcceptor {
         return true;
     }
 
-    protected boolean checkForForbiddenGroup(Multiset<String> reasonsForRejection, SearchResultItem item) {
-        if (item.getGroup().isPresent()) {
-            if (configProvider.getBaseConfig().getSearching().getForbiddenGroups().stream().anyMatch(x -> item.getGroup().isPresent() && item.getGroup().get().contains(x))) {
+    protected boolean checkForForbiddenGroup(Multiset<String> reasonsForRejection, SearchResultItem item, List<String> forbiddenGroups) {
+        if (item.getGroup().isPresent() && !forbiddenGroups.isEmpty()) {
+            String group = item.getGroup().get();
+            if (forbiddenGroups.stream().anyMatch(group::contains)) {
                 logger.debug(LoggingMarkers.RESULT_ACCEPTOR, "Found forbidden group {}", item.getGroup().get());
                 reasonsForRejection.add("In forbidden group");
                 return false;
@@ -216,9 +245,10 @@ public class ResultAcceptor {
         return true;
     }
 
-    protected boolean checkForForbiddenPoster(Multiset<String> reasonsForRejection, SearchResultItem item) {
-        if (item.getPoster().isPresent()) {
-            if (configProvider.getBaseConfig().getSearching().getForbiddenPosters().stream().anyMatch(x -> item.getPoster().isPresent() && item.getPoster().get().contains(x))) {
+    protected boolean checkForForbiddenPoster(Multiset<String> reasonsForRejection, SearchResultItem item, List<String> forbiddenPosters) {
+        if (item.getPoster().isPresent() && !forbiddenPosters.isEmpty()) {
+            String poster = item.getPoster().get();
+            if (forbiddenPosters.stream().anyMatch(poster::contains)) {
                 logger.debug(LoggingMarkers.RESULT_ACCEPTOR, "Found forbidden poster {}", item.getPoster().get());
                 reasonsForRejection.add("In forbidden poster");
                 return false;
@@ -227,13 +257,17 @@ public class ResultAcceptor {
         return true;
     }
 
-    protected boolean checkRegexes(SearchResultItem item, Multiset<String> reasonsForRejection, String requiredRegex, String forbiddenRegex) {
-        if (!Strings.isNullOrEmpty(requiredRegex) && !Pattern.compile(requiredRegex).matcher(item.getTitle().toLowerCase()).find()) {
+    protected boolean checkRegexes(SearchResultItem item, Multiset<String> reasonsForRejection, Pattern requiredRegex, Pattern forbiddenRegex) {
+        if (requiredRegex == null && forbiddenRegex == null) {
+            return true;
+        }
+        String lowerCaseTitle = getTitleWords(item).getLowerCaseTitle();
+        if (requiredRegex != null && !requiredRegex.matcher(lowerCaseTitle).find()) {
             logger.debug(LoggingMarkers.RESULT_ACCEPTOR, "Did not find required regex in {}", item.getTitle());
             reasonsForRejection.add("Required regex doesn't match");
             return false;
         }
-        if (!Strings.isNullOrEmpty(forbiddenRegex) && Pattern.compile(forbiddenRegex).matcher(item.getTitle().toLowerCase()).find()) {
+        if (forbiddenRegex != null && forbiddenRegex.matcher(lowerCaseTitle).find()) {
             logger.debug(LoggingMarkers.RESULT_ACCEPTOR, "Found forbidden regex in {}", item.getTitle());
             reasonsForRejection.add("Forbidden regex matches");
             return false;
@@ -242,58 +276,49 @@ public class ResultAcceptor {
         return true;
     }
 
-    protected boolean checkRequiredWords(Multiset<String> reasonsForRejection, List<String> requiredWords, SearchResultItem item) {
+    protected boolean checkRequiredWords(Multiset<String> reasonsForRejection, WordList requiredWords, SearchResultItem item) {
         if (!requiredWords.isEmpty()) {
-            List<String> titleWords = getTitleWords(item);
-            boolean allPresent = true;
-            for (String requiredWord : requiredWords) {
-                if (requiredWord.contains(".") || requiredWord.contains("-")) {
-                    if (!item.getTitle().toLowerCase().contains(requiredWord.toLowerCase())) {
-                        logger.debug(LoggingMarkers.RESULT_ACCEPTOR, "Did not found required word {} in the title {}", requiredWord, item.getTitle());
-                        allPresent = false;
-                        break;
-                    }
-                } else {
-                    if (!titleWords.contains(requiredWord.toLowerCase())) { //Words must match
-                        logger.debug(LoggingMarkers.RESULT_ACCEPTOR, "Did not found required word {} in the title {}", requiredWord, item.getTitle());
-                        allPresent = false;
-                        break;
-                    }
+            TitleTokenizer titleWords = getTitleWords(item);
+            for (String requiredWord : requiredWords.getContainedWords()) {
+                if (!titleWords.getLowerCaseTitle().contains(requiredWord)) {
+                    logger.debug(LoggingMarkers.RESULT_ACCEPTOR, "Did not found required word {} in the title {}", requiredWord, item.getTitle());
+                    reasonsForRejection.add("No required word found");
+                    return false;
                 }
             }
-            if (!allPresent) {
-                reasonsForRejection.add("No required word found");
-                return false;
+            for (String requiredWord : requiredWords.getWholeWords()) {
+                if (!titleWords.getWords().contains(requiredWord)) { //Words must match
+                    logger.debug(LoggingMarkers.RESULT_ACCEPTOR, "Did not found required word {} in the title {}", requiredWord, item.getTitle());
+                    reasonsForRejection.add("No required word found");
+                    return false;
+                }
             }
         }
         return true;
     }
 
-    private List<String> getTitleWords(SearchResultItem item) {
-        return titleWordCache.computeIfAbsent(item.getTitle(), s -> {
-            List<String> titleWords = new ArrayList<>();
-            Matcher matcher = TITLE_PATTERN.matcher(item.getTitle().toLowerCase());
-            while (matcher.find()) {
-                titleWords.add(matcher.group().toLowerCase());
-            }
-            return titleWords;
-        });
-
+    private TitleTokenizer getTitleWords(SearchResultItem item) {
+        return TITLE_TOKENIZER.get().tokenize(item.getTitle());
     }
 
-    protected boolean checkForForbiddenWords(IndexerConfig indexerConfig, Multiset<String> reasonsForRejection, List<String> forbiddenWords, SearchResultItem item) {
-        for (String forbiddenWord : forbiddenWords) {
-            if (forbiddenWord.contains("-") || forbiddenWord.contains(".") || indexerConfig.getHost().toLowerCase().contains("nzbgeek")) {
-                if (item.getTitle().toLowerCase().contains(forbiddenWord.toLowerCase())) {
-                    reasonsForRejection.add("Forbidden word");
-                    logger.debug(LoggingMarkers.RESULT_ACCEPTOR, "Found forbidden word {} in title {]", forbiddenWord, item.getTitle());
-                    return false;
-                }
-            } else {
-                List<String> titleWords = getTitleWords(item);
-                Optional<String> found = titleWords.stream().filter(x -> x.toLowerCase().equals(forbiddenWord.toLowerCase())).findFirst(); //Title word must match excluded word to reject result, not just be contained
-                if (found.isPresent()) {
-                    logger.debug(LoggingMarkers.RESULT_ACCEPTOR, "Found forbidden word in title word {}", found.get());
+    protected boolean checkForForbiddenWords(IndexerConfig indexerConfig, Multiset<String> reasonsForRejection, WordList forbiddenWords, SearchResultItem item) {
+        if (forbiddenWords.isEmpty()) {
+            return true;
+        }
+        TitleTokenizer titleWords = getTitleWords(item);
+        //Title words must match excluded words to reject result, not just be contained. NZBGeek doesn't return the words as they are, so they're only checked to be contained
+        boolean onlyCheckContained = indexerConfig.getHost().toLowerCase().contains("nzbgeek");
+        for (String forbiddenWord : onlyCheckContained ? forbiddenWords.getWords() : forbiddenWords.getContainedWords()) {
+            if (titleWords.getLowerCaseTitle().contains(forbiddenWord)) {
+                reasonsForRejection.add("Forbidden word");
+                logger.debug(LoggingMarkers.RESULT_ACCEPTOR, "Found forbidden word {} in title {}", forbiddenWord, item.getTitle());
+                return false;
+            }
+        }
+        if (!onlyCheckContained) {
+            for (String titleWord : titleWords.getWords()) {
+                if (forbiddenWords.getWholeWords().contains(titleWord)) {
+                    logger.debug(LoggingMarkers.RESULT_ACCEPTOR, "Found forbidden word in title word {}", titleWord);
                     reasonsForRejection.add("Forbidden word");
                     return false;
                 }
@@ -310,6 +335,65 @@ public class ResultAcceptor {
         return true;
     }
 
+    /**
+     * The checks run for every result after making sure its needed attributes are set, in their original order. The first one of them to
+     * reject a result determines the reason for the rejection.
+     */
+    enum AcceptanceCheck {
+        PASSWORD((acceptor, context, reasons, item) -> acceptor.checkForPassword(reasons, item)),
+        FORBIDDEN_GROUP((acceptor, context, reasons, item) -> acceptor.checkForForbiddenGroup(reasons, item, context.program.getForbiddenGroups())),
+        FORBIDDEN_POSTER((acceptor, context, reasons, item) -> acceptor.checkForForbiddenPoster(reasons, item, context.program.getForbiddenPosters())),
+        SIZE((acceptor, context, reasons, item) -> acceptor.checkForSize(context.searchRequest, reasons, item)),
+        AGE((acceptor, context, reasons, item) -> acceptor.checkForAge(context.searchRequest, reasons, item)),
+        CATEGORY((acceptor, context, reasons, item) -> acceptor.checkForCategory(context.searchRequest, reasons, item)),
+        CATEGORY_DISABLED_FOR_INDEXER((acceptor, context, reasons, item) -> acceptor.checkForCategoryDisabledForIndexer(context.searchRequest, reasons, item)),
+        QUERY_FORBIDDEN_WORDS((acceptor, context, reasons, item) -> acceptor.checkForForbiddenWords(context.indexerConfig, reasons, context.requestForbiddenWords, item)),
+        QUERY_REQUIRED_WORDS((acceptor, context, reasons, item) -> acceptor.checkRequiredWords(reasons, context.requestRequiredWords, item)),
+        GLOBAL_RESTRICTIONS((acceptor, context, reasons, item) -> !context.applyGlobalRestrictions || acceptor.checkRestrictions(context.indexerConfig, reasons, context.program.getGlobalFilter(), item)),
+        CATEGORY_RESTRICTIONS((acceptor, context, reasons, item) -> !context.appliesCategoryRestrictions(item) || acceptor.checkRestrictions(context.indexerConfig, reasons, context.program.getCategoryFilter(item.getCategory()), item));
+
+        private final Check check;
+
+        AcceptanceCheck(Check check) {
+            this.check = check;
+        }
+
+        boolean test(ResultAcceptor acceptor, CheckContext context, Multiset<String> reasonsForRejection, SearchResultItem item) {
+            return check.test(acceptor, context, reasonsForRejection, item);
+        }
+    }
+
+    private interface Check {
+        boolean test(ResultAcceptor acceptor, CheckContext context, Multiset<String> reasonsForRejection, SearchResultItem item);
+    }
+
+    /**
+     * Everything the checks need which is the same for all results of one call
+     */
+    private static class CheckContext {
+        private final SearchRequest searchRequest;
+        private final IndexerConfig indexerConfig;
+        private final ResultFilterProgram program;
+        private final WordList requestForbiddenWords;
+        private final WordList requestRequiredWords;
+        private final boolean applyGlobalRestrictions;
+        private final Multiset<String> checkReasons = HashMultiset.create();
+        private final Multiset<String> earlierCheckReasons = HashMultiset.create();
+
+        private CheckContext(SearchRequest searchRequest, IndexerConfig indexerConfig, ResultFilterProgram program, boolean applyGlobalRestrictions) {
+            this.searchRequest = searchRequest;
+            this.indexerConfig = indexerConfig;
+            this.program = program;
+            this.requestForbiddenWords = new WordList(searchRequest.getInternalData().getForbiddenWords());
+            this.requestRequiredWords = new WordList(searchRequest.getInternalData().getRequiredWords());
+            this.applyGlobalRestrictions = applyGlobalRestrictions;
+        }
+
+        private boolean appliesCategoryRestrictions(SearchResultItem item) {
+            return item.getCategory().getApplyRestrictionsType() == SearchSourceRestriction.BOTH || Objects.equals(searchRequest.getSource().name(), item.getCategory().getApplyRestrictionsType().name());
+        }
+    }
+
     @Data
     @AllArgsConstructor
     public static class AcceptorResult {
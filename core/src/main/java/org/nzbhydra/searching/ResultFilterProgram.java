@@ -0,0 +1,101 @@
+package org.nzbhydra.searching;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import lombok.Getter;
+import org.nzbhydra.config.BaseConfig;
+import org.nzbhydra.config.Category;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Contains the word, regex, group and poster restrictions of one config version in a form which can be applied to search results without
+ * compiling or lower casing anything per result. Must be rebuilt when the config changes.
+ */
+@Getter
+public class ResultFilterProgram {
+
+    private final List<String> forbiddenGroups;
+    private final List<String> forbiddenPosters;
+    private final RestrictionFilter globalFilter;
+    private final Map<String, RestrictionFilter> categoryFilters;
+
+    public ResultFilterProgram(BaseConfig baseConfig) {
+        forbiddenGroups = ImmutableList.copyOf(baseConfig.getSearching().getForbiddenGroups());
+        forbiddenPosters = ImmutableList.copyOf(baseConfig.getSearching().getForbiddenPosters());
+        globalFilter = new RestrictionFilter(baseConfig.getSearching().getRequiredRegex(), baseConfig.getSearching().getForbiddenRegex(), baseConfig.getSearching().getRequiredWords(), baseConfig.getSearching().getForbiddenWords());
+        Map<String, RestrictionFilter> filters = new HashMap<>();
+        for (Category category : baseConfig.getCategoriesConfig().getCategories()) {
+            filters.putIfAbsent(category.getName(), new RestrictionFilter(category));
+        }
+        categoryFilters = Collections.unmodifiableMap(filters);
+    }
+
+    public RestrictionFilter getCategoryFilter(Category category) {
+        RestrictionFilter filter = categoryFilters.get(category.getName());
+        //Categories which are not configured (e.g. "All") are compiled when needed
+        return filter != null ? filter : new RestrictionFilter(category);
+    }
+
+    /**
+     * The compiled regexes and words of either the global config or one category
+     */
+    @Getter
+    public static class RestrictionFilter {
+        private final Pattern requiredRegex;
+        private final Pattern forbiddenRegex;
+        private final WordList requiredWords;
+        private final WordList forbiddenWords;
+
+        public RestrictionFilter(Category category) {
+            this(category.getRequiredRegex(), category.getForbiddenRegex(), category.getRequiredWords(), category.getForbiddenWords());
+        }
+
+        public RestrictionFilter(Optional<String> requiredRegex, Optional<String> forbiddenRegex, List<String> requiredWords, List<String> forbiddenWords) {
+            this.requiredRegex = requiredRegex.map(Pattern::compile).orElse(null);
+            this.forbiddenRegex = forbiddenRegex.map(Pattern::compile).orElse(null);
+            this.requiredWords = new WordList(requiredWords);
+            this.forbiddenWords = new WordList(forbiddenWords);
+        }
+    }
+
+    /**
+     * A list of lower cased words, split into the ones which need to be contained in a title (because they contain a "." or a "-") and the ones
+     * which must match a whole title word.
+     */
+    @Getter
+    public static class WordList {
+        private final List<String> words;
+        private final List<String> containedWords;
+        private final Set<String> wholeWords;
+
+        public WordList(List<String> words) {
+            ImmutableList.Builder<String> allBuilder = ImmutableList.builder();
+            ImmutableList.Builder<String> containedBuilder = ImmutableList.builder();
+            ImmutableSet.Builder<String> wholeBuilder = ImmutableSet.builder();
+            for (String word : words) {
+                String lowerCaseWord = word.toLowerCase();
+                allBuilder.add(lowerCaseWord);
+                if (word.contains(".") || word.contains("-")) {
+                    containedBuilder.add(lowerCaseWord);
+                } else {
+                    wholeBuilder.add(lowerCaseWord);
+                }
+            }
+            this.words = allBuilder.build();
+            this.containedWords = containedBuilder.build();
+            this.wholeWords = wholeBuilder.build();
+        }
+
+        public boolean isEmpty() {
+            return words.isEmpty();
+        }
+    }
+
+}
@@ -0,0 +1,161 @@
+package org.nzbhydra.searching;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalCause;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.nzbhydra.config.ConfigChangedEvent;
+import org.nzbhydra.config.ConfigProvider;
+import org.nzbhydra.config.SearchingConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches search results so that paging through them doesn't require calling the indexers again. The cache is limited by the
+ * estimated memory used by its entries, not by their number, so that one search with thousands of results weighs as much as many small ones.
+ */
+@Component
+public class SearchCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(SearchCache.class);
+
+    //Rough estimates for a 64 bit JVM with compressed oops
+    private static final int OBJECT_OVERHEAD = 16;
+    private static final int REFERENCE_SIZE = 4;
+    private static final int STRING_OVERHEAD = 40;
+    private static final int MAP_ENTRY_OVERHEAD = 32;
+    private static final int SEARCH_RESULT_ITEM_BASE_SIZE = 200;
+    private static final int INDEXER_SEARCH_RESULT_BASE_SIZE = 150;
+    private static final int SEARCH_CACHE_ENTRY_BASE_SIZE = 1000;
+
+    @Autowired
+    protected ConfigProvider configProvider;
+
+    //Replaced when the config changes
+    private volatile Cache<Integer, SearchCacheEntry> cache;
+    private int maxSizeMb;
+    private int timeMinutes;
+
+    @PostConstruct
+    public void init() {
+        SearchingConfig searchingConfig = configProvider.getBaseConfig().getSearching();
+        cache = buildCache(searchingConfig.getSearchCacheMaxSizeMb(), searchingConfig.getSearchCacheTimeMinutes());
+    }
+
+    @EventListener
+    public void handleNewConfig(ConfigChangedEvent configChangedEvent) {
+        SearchingConfig searchingConfig = configChangedEvent.getNewConfig().getSearching();
+        if (searchingConfig.getSearchCacheMaxSizeMb() == maxSizeMb && searchingConfig.getSearchCacheTimeMinutes() == timeMinutes) {
+            return;
+        }
+        logger.info("Rebuilding search cache with a maximum size of {}MB and an expiry of {} minutes", searchingConfig.getSearchCacheMaxSizeMb(), searchingConfig.getSearchCacheTimeMinutes());
+        Cache<Integer, SearchCacheEntry> newCache = buildCache(searchingConfig.getSearchCacheMaxSizeMb(), searchingConfig.getSearchCacheTimeMinutes());
+        newCache.putAll(cache.asMap());
+        cache = newCache;
+    }
+
+    private Cache<Integer, SearchCacheEntry> buildCache(int maxSizeMb, int timeMinutes) {
+        this.maxSizeMb = maxSizeMb;
+        this.timeMinutes = timeMinutes;
+        return CacheBuilder.newBuilder()
+                //Guava splits the maximum weight between segments. With only one segment a single large search may use the whole cache
+                .concurrencyLevel(1)
+                .maximumWeight(maxSizeMb * 1024L * 1024L)
+                .weigher((Integer key, SearchCacheEntry value) -> (int) Math.min(Integer.MAX_VALUE, estimateSize(value)))
+                .expireAfterAccess(timeMinutes, TimeUnit.MINUTES)
+                .recordStats()
+                .removalListener(notification -> {
+                    if (notification.getCause() == RemovalCause.EXPIRED) {
+                        logger.debug("Removing expired search cache entry {}", notification.getValue().getSearchRequest());
+                    } else if (notification.getCause() == RemovalCause.SIZE) {
+                        logger.debug("Removing search cache entry {} to make room for newer entries", notification.getValue().getSearchRequest());
+                    }
+                })
+                .build();
+    }
+
+    public Optional<SearchCacheEntry> get(int searchRequestHash) {
+        return Optional.ofNullable(cache.getIfPresent(searchRequestHash));
+    }
+
+    /**
+     * Puts the entry into the cache. Must be called again whenever the entry was changed so that its size is estimated again.
+     */
+    public void put(int searchRequestHash, SearchCacheEntry searchCacheEntry) {
+        cache.put(searchRequestHash, searchCacheEntry);
+    }
+
+    public SearchCacheStats getStats() {
+        CacheStats stats = cache.stats();
+        Collection<SearchCacheEntry> entries = cache.asMap().values();
+        long estimatedBytes = entries.stream().mapToLong(SearchCache::estimateSize).sum();
+        return new SearchCacheStats(entries.size(), estimatedBytes / 1024, maxSizeMb * 1024L, stats.hitCount(), stats.missCount(), stats.evictionCount(), stats.hitRate());
+    }
+
+    protected static long estimateSize(SearchCacheEntry searchCacheEntry) {
+        long size = SEARCH_CACHE_ENTRY_BASE_SIZE;
+        for (List<IndexerSearchResult> indexerSearchResults : searchCacheEntry.getIndexerSearchResultsByIndexer().values()) {
+            for (IndexerSearchResult indexerSearchResult : indexerSearchResults) {
+                size += INDEXER_SEARCH_RESULT_BASE_SIZE + estimateSize(indexerSearchResult.getErrorMessage());
+                //The items are the actual payload. The entry's own list of items only references the same objects
+                for (SearchResultItem item : indexerSearchResult.getSearchResultItems()) {
+                    size += estimateSize(item);
+                }
+            }
+        }
+        size += (long) searchCacheEntry.getSearchResultItems().size() * REFERENCE_SIZE;
+        //The duplicate detection state references every item in a set, a list and a bucket
+        size += (long) searchCacheEntry.getDuplicateDetectionState().knownItems.size() * (2 * MAP_ENTRY_OVERHEAD + REFERENCE_SIZE);
+        return size;
+    }
+
+    private static long estimateSize(SearchResultItem item) {
+        long size = SEARCH_RESULT_ITEM_BASE_SIZE
+                + estimateSize(item.getTitle())
+                + estimateSize(item.getLink())
+                + estimateSize(item.getDetails())
+                + estimateSize(item.getDescription())
+                + estimateSize(item.getCommentsLink())
+                + estimateSize(item.getIndexerGuid())
+                + estimateSize(item.getOriginalCategory())
+                + estimateSize(item.getGroup().orElse(null))
+                + estimateSize(item.getPoster().orElse(null));
+        for (Map.Entry<String, String> attribute : item.getAttributes().entrySet()) {
+            size += MAP_ENTRY_OVERHEAD + estimateSize(attribute.getKey()) + estimateSize(attribute.getValue());
+        }
+        return size;
+    }
+
+    private static long estimateSize(String string) {
+        if (string == null) {
+            return 0;
+        }
+        //Java 8 stores strings as UTF-16
+        return STRING_OVERHEAD + OBJECT_OVERHEAD + 2L * string.length();
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class SearchCacheStats {
+        private int entries;
+        private long estimatedSizeKb;
+        private long maxSizeKb;
+        private long hitCount;
+        private long missCount;
+        private long evictionCount;
+        private double hitRate;
+    }
+
+}
@@ -29,6 +29,7 @@ public class SearchCacheEntry {
     private SearchEntity searchEntity;
     private Multiset<String> reasonsForRejection = HashMultiset.create();
     private Integer numberOfAvailableResults = null;
+    private DuplicateDetectionState duplicateDetectionState = new DuplicateDetectionState();
 
     public SearchCacheEntry(SearchRequest searchRequest, IndexerForSearchSelection pickingResult, SearchEntity searchEntity) {
         this.searchRequest = searchRequest;
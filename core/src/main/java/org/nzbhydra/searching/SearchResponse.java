@@ -20,6 +20,7 @@ public class SearchResponse {
     private int numberOfProcessedResults;
     private int offset;
     private int limit;
+    private boolean partial;
 
 
 }
@@ -24,7 +24,29 @@ public class SearchResult {
     private Multiset<Indexer> uniqueResultsPerIndexer;
     private int numberOfTotalAvailableResults;
     private int numberOfRemovedDuplicates;
-
+    /**
+     * True if not all indexers answered before the search deadline (or the search is still running)
+     */
+    private boolean partial;
+
+
+    /**
+     * @return A copy with its own lists and multisets. The search result items and indexer search results themselves are not copied
+     */
+    public SearchResult copy() {
+        SearchResult copy = new SearchResult();
+        copy.setSearchResultItems(new ArrayList<>(searchResultItems));
+        copy.setIndexerSearchResults(new ArrayList<>(indexerSearchResults));
+        copy.setOffset(offset);
+        copy.setLimit(limit);
+        copy.setReasonsForRejection(HashMultiset.create(reasonsForRejection));
+        copy.setPickingResult(pickingResult);
+        copy.setUniqueResultsPerIndexer(uniqueResultsPerIndexer == null ? null : HashMultiset.create(uniqueResultsPerIndexer));
+        copy.setNumberOfTotalAvailableResults(numberOfTotalAvailableResults);
+        copy.setNumberOfRemovedDuplicates(numberOfRemovedDuplicates);
+        copy.setPartial(partial);
+        return copy;
+    }
 
     public int getNumberOfProcessedResults() {
         return getNumberOfRejectedResults() + getNumberOfAcceptedResults();
@@ -1,17 +1,132 @@
 package org.nzbhydra.searching;
 
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 
 public class SearchResultIdCalculator {
 
+    private static final boolean DEFAULT_CHARSET_IS_UTF8 = Charset.defaultCharset().equals(StandardCharsets.UTF_8);
+
     public static long calculateSearchResultId(SearchResultEntity result) {
-        long hash = hash64((result.getIndexer().getName() + result.getIndexerGuid() + result.getTitle() + result.getLink()));
-        return hash;
+        return hash64(result.getIndexer().getName(), result.getIndexerGuid(), result.getTitle(), result.getLink());
     }
 
     public static long calculateSearchResultId(SearchResultItem result) {
-        long hash = hash64((result.getIndexer().getName() + result.getIndexerGuid()) + result.getTitle() + result.getLink());
-        return hash;
+        return hash64(result.getIndexer().getName(), result.getIndexerGuid(), result.getTitle(), result.getLink());
+    }
+
+    /**
+     * Returns the same as {@link #hash64(String)} for the concatenation of the given strings (where null becomes "null") but, as long as the default
+     * charset is UTF-8, without creating the concatenated string and its bytes.
+     */
+    static long hash64(String first, String second, String third, String fourth) {
+        if (!DEFAULT_CHARSET_IS_UTF8) {
+            return hash64(first + second + third + fourth);
+        }
+        //The length is part of the hash's initial value so the encoded strings need to be measured first
+        Utf8Murmur64 counter = new Utf8Murmur64(true, 0);
+        counter.encode(first, second, third, fourth);
+        Utf8Murmur64 hasher = new Utf8Murmur64(false, counter.length);
+        hasher.encode(first, second, third, fourth);
+        return hasher.finish();
+    }
+
+    /**
+     * Streaming version of {@link #hash64(byte[], int, int)} over the UTF-8 encoding of strings, encoding them like {@link String#getBytes(Charset)}
+     * (malformed surrogates become '?'). A counting instance only counts the bytes.
+     */
+    private static class Utf8Murmur64 {
+        private static final long M = 0xc6a4a7935bd1e995L;
+        private static final int R = 47;
+
+        private final boolean counting;
+        private int length;
+        private long h;
+        private long block;
+        private int blockBytes;
+        private char pendingHighSurrogate;
+
+        Utf8Murmur64(boolean counting, int length) {
+            this.counting = counting;
+            h = (0xe17a1465 & 0xffffffffL) ^ (length * M);
+        }
+
+        void encode(String first, String second, String third, String fourth) {
+            //Surrogate pairs may span two of the strings, just like in the concatenated string
+            encode(first);
+            encode(second);
+            encode(third);
+            encode(fourth);
+            if (pendingHighSurrogate != 0) {
+                add('?');
+                pendingHighSurrogate = 0;
+            }
+        }
+
+        private void encode(String string) {
+            if (string == null) {
+                string = "null";
+            }
+            for (int i = 0; i < string.length(); i++) {
+                char c = string.charAt(i);
+                if (pendingHighSurrogate != 0) {
+                    char high = pendingHighSurrogate;
+                    pendingHighSurrogate = 0;
+                    if (Character.isLowSurrogate(c)) {
+                        int codePoint = Character.toCodePoint(high, c);
+                        add(0xf0 | (codePoint >> 18));
+                        add(0x80 | ((codePoint >> 12) & 0x3f));
+                        add(0x80 | ((codePoint >> 6) & 0x3f));
+                        add(0x80 | (codePoint & 0x3f));
+                        continue;
+                    }
+                    add('?');
+                }
+                if (c < 0x80) {
+                    add(c);
+                } else if (c < 0x800) {
+                    add(0xc0 | (c >> 6));
+                    add(0x80 | (c & 0x3f));
+                } else if (Character.isHighSurrogate(c)) {
+                    pendingHighSurrogate = c;
+                } else if (Character.isLowSurrogate(c)) {
+                    add('?');
+                } else {
+                    add(0xe0 | (c >> 12));
+                    add(0x80 | ((c >> 6) & 0x3f));
+                    add(0x80 | (c & 0x3f));
+                }
+            }
+        }
+
+        private void add(int b) {
+            if (counting) {
+                length++;
+                return;
+            }
+            block |= ((long) b & 0xff) << (blockBytes * 8);
+            if (++blockBytes == 8) {
+                long k = block;
+                k *= M;
+                k ^= k >>> R;
+                k *= M;
+                h ^= k;
+                h *= M;
+                block = 0;
+                blockBytes = 0;
+            }
+        }
+
+        long finish() {
+            if (blockBytes > 0) {
+                h ^= block;
+                h *= M;
+            }
+            h ^= h >>> R;
+            h *= M;
+            h ^= h >>> R;
+            return h;
+        }
     }
 
 
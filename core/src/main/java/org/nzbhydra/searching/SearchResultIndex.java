@@ -0,0 +1,245 @@
+package org.nzbhydra.searching;
+
+import com.google.common.base.Stopwatch;
+import org.nzbhydra.config.ConfigChangedEvent;
+import org.nzbhydra.config.ConfigProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory inverted index over the titles of the results stored in the database. Allows finding recent results containing all words of a
+ * query without asking any indexer.
+ * <p>
+ * New results are added by {@link org.nzbhydra.indexers.Indexer#persistSearchResults(List)}, old ones are removed by {@link OldResultsCleanup}.
+ * When enabled the index is filled from the database once after startup.
+ */
+@Component
+public class SearchResultIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(SearchResultIndex.class);
+
+    static final int LOAD_PAGE_SIZE = 10_000;
+
+    @Autowired
+    private ConfigProvider configProvider;
+    @Autowired
+    private EntityManager entityManager;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Set<Long>> idsByWord = new HashMap<>();
+    private final Map<Long, IndexedResult> resultsById = new HashMap<>();
+    private volatile boolean loaded = false;
+
+    @Async
+    @EventListener
+    public void handleStartup(ApplicationReadyEvent event) {
+        if (isEnabled()) {
+            loadFromDatabase();
+        }
+    }
+
+    @Async
+    @EventListener
+    public void handleNewConfig(ConfigChangedEvent event) {
+        boolean wasEnabled = event.getOldConfig() != null && event.getOldConfig().getSearching().isIndexSearchResults();
+        boolean enabled = event.getNewConfig().getSearching().isIndexSearchResults();
+        if (enabled && !wasEnabled) {
+            loadFromDatabase();
+        } else if (!enabled && wasEnabled) {
+            logger.info("Indexing of search results disabled. Clearing index");
+            clear();
+        }
+    }
+
+    /**
+     * Adds the given persisted results to the index. Does nothing if indexing is disabled.
+     */
+    public void add(Collection<SearchResultEntity> searchResultEntities) {
+        if (!isEnabled() || searchResultEntities.isEmpty()) {
+            return;
+        }
+        TitleTokenizer tokenizer = new TitleTokenizer();
+        lock.writeLock().lock();
+        try {
+            for (SearchResultEntity entity : searchResultEntities) {
+                add(entity.getId(), entity.getTitle(), entity.getFirstFound(), tokenizer);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes all results that were first found before the given instant, i.e. those deleted from the database by the cleanup.
+     *
+     * @return The number of removed results
+     */
+    public int removeFoundBefore(Instant instant) {
+        long epochMilli = instant.toEpochMilli();
+        TitleTokenizer tokenizer = new TitleTokenizer();
+        int removed = 0;
+        lock.writeLock().lock();
+        try {
+            List<Long> idsToRemove = resultsById.entrySet().stream().filter(x -> x.getValue().firstFound < epochMilli).map(Map.Entry::getKey).collect(Collectors.toList());
+            for (Long id : idsToRemove) {
+                IndexedResult result = resultsById.remove(id);
+                for (String word : tokenizer.tokenize(result.title).getWords()) {
+                    Set<Long> ids = idsByWord.get(word);
+                    if (ids != null) {
+                        ids.remove(id);
+                        if (ids.isEmpty()) {
+                            idsByWord.remove(word);
+                        }
+                    }
+                }
+                removed++;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return removed;
+    }
+
+    /**
+     * Finds the IDs of the results whose titles contain all words of the query.
+     *
+     * @param query Words to look for. Case and punctuation are ignored
+     * @param limit Max number of IDs to return
+     * @return The IDs of the matching results, most recently found first
+     */
+    public List<Long> find(String query, int limit) {
+        if (query == null) {
+            return Collections.emptyList();
+        }
+        Set<String> words = new HashSet<>(new TitleTokenizer().tokenize(query).getWords());
+        if (words.isEmpty()) {
+            return Collections.emptyList();
+        }
+        lock.readLock().lock();
+        try {
+            List<Set<Long>> idSets = new ArrayList<>();
+            for (String word : words) {
+                Set<Long> ids = idsByWord.get(word);
+                if (ids == null) {
+                    return Collections.emptyList();
+                }
+                idSets.add(ids);
+            }
+            //Only check the IDs of the rarest word against the others
+            idSets.sort(Comparator.comparingInt(Set::size));
+            List<Set<Long>> otherIdSets = idSets.subList(1, idSets.size());
+            return idSets.get(0).stream()
+                    .filter(id -> otherIdSets.stream().allMatch(x -> x.contains(id)))
+                    .sorted(Comparator.comparingLong((Long id) -> resultsById.get(id).firstFound).reversed())
+                    .limit(limit)
+                    .collect(Collectors.toList());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return resultsById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    protected void loadFromDatabase() {
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        logger.info("Loading stored search results into index");
+        TitleTokenizer tokenizer = new TitleTokenizer();
+        long lastId = Long.MIN_VALUE;
+        int count = 0;
+        while (true) {
+            //Keyset pagination, using an offset would get slower with every page
+            @SuppressWarnings("unchecked")
+            List<Object[]> rows = entityManager.createQuery("select x.id, x.title, x.firstFound from SearchResultEntity x where x.id > :lastId order by x.id")
+                    .setParameter("lastId", lastId)
+                    .setMaxResults(LOAD_PAGE_SIZE)
+                    .getResultList();
+            if (rows.isEmpty()) {
+                break;
+            }
+            lock.writeLock().lock();
+            try {
+                for (Object[] row : rows) {
+                    add((Long) row[0], (String) row[1], (Instant) row[2], tokenizer);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            count += rows.size();
+            lastId = (Long) rows.get(rows.size() - 1)[0];
+            if (rows.size() < LOAD_PAGE_SIZE) {
+                break;
+            }
+        }
+        loaded = true;
+        logger.info("Indexed {} stored search results with {} distinct words in {}ms", count, idsByWord.size(), stopwatch.elapsed(TimeUnit.MILLISECONDS));
+    }
+
+    protected void clear() {
+        lock.writeLock().lock();
+        try {
+            idsByWord.clear();
+            resultsById.clear();
+            loaded = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    //Must be called with the write lock held
+    private void add(long id, String title, Instant firstFound, TitleTokenizer tokenizer) {
+        if (title == null || resultsById.containsKey(id)) {
+            return;
+        }
+        resultsById.put(id, new IndexedResult(title, firstFound == null ? 0 : firstFound.toEpochMilli()));
+        for (String word : tokenizer.tokenize(title).getWords()) {
+            idsByWord.computeIfAbsent(word, x -> new HashSet<>()).add(id);
+        }
+    }
+
+    private boolean isEnabled() {
+        return configProvider.getBaseConfig().getSearching().isIndexSearchResults();
+    }
+
+    private static class IndexedResult {
+        private final String title;
+        private final long firstFound;
+
+        IndexedResult(String title, long firstFound) {
+            this.title = title;
+            this.firstFound = firstFound;
+        }
+    }
+
+}
@@ -0,0 +1,98 @@
+package org.nzbhydra.searching;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stores search results in the database using JDBC batches. Results are identified by the ID calculated by {@link SearchResultIdCalculator}.
+ * Results that are already stored are left untouched so that they keep the time they were first found.
+ */
+@Component
+public class SearchResultWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(SearchResultWriter.class);
+
+    static final int BATCH_SIZE = 500;
+
+    //Inserts nothing if a result with the ID already exists, including one from earlier in the same batch
+    private static final String INSERT_IF_ABSENT = "insert into SEARCHRESULT (ID, DETAILS, DOWNLOAD_TYPE, FIRST_FOUND, INDEXERGUID, LINK, PUB_DATE, TITLE, INDEXER_ID) " +
+            "select ?, ?, ?, ?, ?, ?, ?, ?, ? from DUAL where not exists (select 1 from SEARCHRESULT where ID = ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Stores those of the given results that are not yet in the database. The IDs of the entities are set.
+     *
+     * @return The entities that were newly stored
+     */
+    public List<SearchResultEntity> writeNew(List<SearchResultEntity> searchResultEntities) {
+        if (searchResultEntities.isEmpty()) {
+            return searchResultEntities;
+        }
+        for (SearchResultEntity entity : searchResultEntities) {
+            entity.setId(SearchResultIdCalculator.calculateSearchResultId(entity));
+        }
+        try {
+            return insertIfAbsent(searchResultEntities);
+        } catch (DuplicateKeyException e) {
+            //Another search for the same indexer stored some of the results in the meantime. Those will be skipped now
+            logger.debug("Concurrent insert of search results detected. Trying again");
+            return insertIfAbsent(searchResultEntities);
+        }
+    }
+
+    private List<SearchResultEntity> insertIfAbsent(List<SearchResultEntity> searchResultEntities) {
+        return transactionTemplate.execute(status -> {
+            int[][] updateCounts = jdbcTemplate.batchUpdate(INSERT_IF_ABSENT, searchResultEntities, BATCH_SIZE, (statement, entity) -> {
+                statement.setLong(1, entity.getId());
+                statement.setString(2, entity.getDetails());
+                statement.setString(3, entity.getDownloadType() == null ? null : entity.getDownloadType().name());
+                statement.setTimestamp(4, toTimestamp(entity.getFirstFound()));
+                statement.setString(5, entity.getIndexerGuid());
+                statement.setString(6, entity.getLink());
+                statement.setTimestamp(7, toTimestamp(entity.getPubDate()));
+                statement.setString(8, entity.getTitle());
+                statement.setInt(9, entity.getIndexer().getId());
+                statement.setLong(10, entity.getId());
+            });
+            List<SearchResultEntity> inserted = new ArrayList<>();
+            int index = 0;
+            for (int[] batchCounts : updateCounts) {
+                for (int count : batchCounts) {
+                    if (count > 0) {
+                        inserted.add(searchResultEntities.get(index));
+                    }
+                    index++;
+                }
+            }
+            return inserted;
+        });
+    }
+
+    private static Timestamp toTimestamp(Instant instant) {
+        return instant == null ? null : Timestamp.from(instant);
+    }
+
+}
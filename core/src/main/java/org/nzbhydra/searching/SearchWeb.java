@@ -25,6 +25,7 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
@@ -44,6 +45,10 @@ public class SearchWeb {
     private SearchRequestFactory searchRequestFactory;
     @Autowired
     private InternalSearchResultProcessor searchResultProcessor;
+    @Autowired
+    private SearchResultIndex searchResultIndex;
+    @Autowired
+    private SearchResultRepository searchResultRepository;
 
     private Lock lock = new ReentrantLock();
 
@@ -53,6 +58,12 @@ public class SearchWeb {
             .expirationPolicy(ExpirationPolicy.ACCESSED)
             .build();
 
+    private Map<Long, SearchResponse> partialSearchResponses = ExpiringMap.builder()
+            .maxSize(10)
+            .expiration(5, TimeUnit.MINUTES)
+            .expirationPolicy(ExpirationPolicy.ACCESSED)
+            .build();
+
 
     @Secured({"ROLE_USER"})
     @RequestMapping(value = "/internalapi/search", method = RequestMethod.POST, produces = MediaType.APPLICATION_JSON_VALUE, consumes = MediaType.APPLICATION_JSON_VALUE)
@@ -67,6 +78,7 @@ public class SearchWeb {
         lock.lock();
         SearchState searchState = searchStates.get(searchRequest.getSearchRequestId());
         searchState.setSearchFinished(true);
+        partialSearchResponses.remove(searchRequest.getSearchRequestId());
         lock.unlock();
 
         logger.info("Search took {}ms", stopwatch.elapsed(TimeUnit.MILLISECONDS));
@@ -79,6 +91,26 @@ public class SearchWeb {
         return searchStates.getOrDefault(searchRequestId, new SearchState());
     }
 
+    @Secured({"ROLE_USER"})
+    @RequestMapping(value = "/internalapi/search/partial", produces = MediaType.APPLICATION_JSON_VALUE)
+    public SearchResponse getPartialSearchResponse(@RequestParam("searchrequestid") long searchRequestId) {
+        return partialSearchResponses.getOrDefault(searchRequestId, new SearchResponse());
+    }
+
+    /**
+     * Returns stored results from previous searches whose titles contain all words of the query. Doesn't call any indexer, so this may be used to
+     * show results while the actual search is running.
+     */
+    @Secured({"ROLE_USER"})
+    @RequestMapping(value = "/internalapi/search/indexed", produces = MediaType.APPLICATION_JSON_VALUE)
+    public List<SearchResultWebTO> getIndexedSearchResults(@RequestParam("query") String query, @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        List<Long> ids = searchResultIndex.find(query, limit);
+        List<SearchResultWebTO> searchResults = searchResultProcessor.transformIndexedResults(ids.isEmpty() ? Collections.emptyList() : searchResultRepository.findAll(ids));
+        logger.debug("Found {} indexed results for query \"{}\" in {}ms", searchResults.size(), query, stopwatch.elapsed(TimeUnit.MILLISECONDS));
+        return searchResults;
+    }
+
     private SearchRequest createSearchRequest(@RequestBody SearchRequestParameters parameters) {
         Category category = categoryProvider.getByInternalName(parameters.getCategory());
         SearchType searchType = category.getSearchType() == null ? SearchType.SEARCH : category.getSearchType();
@@ -90,6 +122,7 @@ public class SearchWeb {
         searchRequest.setMaxage(parameters.getMaxage());
         searchRequest.setMinsize(parameters.getMinsize());
         searchRequest.setMaxsize(parameters.getMaxsize());
+        searchRequest.getInternalData().setProgressive(true);
 
         if (!Strings.isNullOrEmpty(parameters.getTitle())) {
             searchRequest.setTitle(parameters.getTitle());
@@ -179,6 +212,20 @@ public class SearchWeb {
         }
     }
 
+    @EventListener
+    public void handlePartialSearchResultEvent(PartialSearchResultEvent event) {
+        if (searchStates.containsKey(event.getSearchRequest().getSearchRequestId())) {
+            SearchResponse partialSearchResponse = searchResultProcessor.createSearchResponse(event.getSearchResult());
+            lock.lock();
+            SearchState searchState = searchStates.get(event.getSearchRequest().getSearchRequestId());
+            if (!searchState.isSearchFinished()) {
+                partialSearchResponses.put(event.getSearchRequest().getSearchRequestId(), partialSearchResponse);
+                searchState.setPartialResultsAvailable(true);
+            }
+            lock.unlock();
+        }
+    }
+
     @Data
     @NoArgsConstructor
     private class SearchState {
@@ -187,6 +234,7 @@ public class SearchWeb {
         private boolean searchFinished = false;
         private int indexersSelected = 0;
         private int indexersFinished = 0;
+        private boolean partialResultsAvailable = false;
         private List<String> messages = new ArrayList<>();
 
     }
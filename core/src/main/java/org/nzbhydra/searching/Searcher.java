@@ -3,16 +3,21 @@ package org.nzbhydra.searching;
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Sets;
+import lombok.AllArgsConstructor;
+import lombok.Data;
 import lombok.Getter;
-import net.jodah.expiringmap.ExpirationPolicy;
-import net.jodah.expiringmap.ExpiringMap;
+import lombok.Setter;
+import lombok.Value;
 import org.nzbhydra.config.ConfigProvider;
+import org.nzbhydra.historystats.StatsRollups;
 import org.nzbhydra.indexers.Indexer;
+import org.nzbhydra.indexers.IndexerExecutor;
 import org.nzbhydra.indexers.IndexerSearchEntity;
 import org.nzbhydra.indexers.IndexerSearchRepository;
 import org.nzbhydra.logging.LoggingMarkers;
-import org.nzbhydra.logging.MdcThreadPoolExecutor;
+import org.nzbhydra.mediainfo.InfoProvider.IdType;
 import org.nzbhydra.searching.IndexerForSearchSelector.IndexerForSearchSelection;
+import org.nzbhydra.searching.searchrequests.InternalData;
 import org.nzbhydra.searching.searchrequests.SearchRequest;
 import org.nzbhydra.searching.searchrequests.SearchRequest.SearchSource;
 import org.slf4j.Logger;
@@ -27,15 +32,27 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Component
@@ -55,21 +72,98 @@ public class Searcher {
     private ApplicationEventPublisher eventPublisher;
     @Autowired
     private ConfigProvider configProvider;
+    @Autowired
+    private IndexerExecutor indexerExecutor;
+    @Autowired
+    protected SearchCache searchCache;
+    @Autowired
+    private StatsRollups statsRollups;
+
 
 
     /**
-     * Maps a search request's hash to its cache entry
+     * Maps the key of a search which is currently being executed to its execution. Identical searches arriving in the meantime wait for its result instead of calling the indexers themselves
      */
-    private final Map<Integer, SearchCacheEntry> searchRequestCache = ExpiringMap.builder()
-            .maxSize(20)
-            .expirationPolicy(ExpirationPolicy.ACCESSED)
-            .expiration(5, TimeUnit.MINUTES)
-            .expirationListener((k, v) -> logger.debug("Removing expired search cache entry {}", ((SearchCacheEntry) v).getSearchRequest()))
-            .build();
+    private final Map<InFlightKey, InFlightSearch> inFlightSearches = new ConcurrentHashMap<>();
+    private final AtomicLong coalescedSearches = new AtomicLong();
+    private final AtomicLong savedIndexerCalls = new AtomicLong();
 
     public SearchResult search(SearchRequest searchRequest) {
-        Stopwatch stopwatch = Stopwatch.createStarted();
         eventPublisher.publishEvent(new SearchEvent(searchRequest));
+
+        //Must be computed before the search request is changed by the search (e.g. when forbidden words are extracted)
+        InFlightKey inFlightKey = getInFlightKey(searchRequest);
+        InFlightSearch inFlightSearch = new InFlightSearch();
+        InFlightSearch runningSearch = inFlightSearches.putIfAbsent(inFlightKey, inFlightSearch);
+        if (runningSearch != null) {
+            return waitForRunningSearch(searchRequest, runningSearch);
+        }
+        try {
+            SearchResult searchResult = search(searchRequest, inFlightSearch);
+            //Searches waiting for this one get their own copies so that none of them sees changes made by another
+            inFlightSearch.getFuture().complete(searchResult.copy());
+            return searchResult;
+        } catch (RuntimeException e) {
+            inFlightSearch.getFuture().completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightSearches.remove(inFlightKey);
+        }
+    }
+
+    private SearchResult waitForRunningSearch(SearchRequest searchRequest, InFlightSearch runningSearch) {
+        logger.info("An identical search is already running. Will wait for its results instead of searching the indexers again");
+        //The search is shown in the history and counted in the stats like any other
+        SearchEntity searchEntity = createSearchEntity(searchRequest);
+        searchRepository.save(searchEntity);
+        statsRollups.recordSearch(searchEntity);
+        eventPublisher.publishEvent(new SearchMessageEvent(searchRequest, "Waiting for an identical search which is already running"));
+        if (searchRequest.getInternalData().isProgressive()) {
+            //Show the partial results of the running search, the ones already published and all following
+            synchronized (runningSearch) {
+                runningSearch.getWaitingSearchRequests().add(searchRequest);
+                if (runningSearch.getLatestPartialSearchResult() != null) {
+                    eventPublisher.publishEvent(new PartialSearchResultEvent(searchRequest, runningSearch.getLatestPartialSearchResult().copy()));
+                }
+            }
+        }
+        SearchResult searchResult;
+        try {
+            searchResult = runningSearch.getFuture().get().copy();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for identical search", e);
+        } catch (ExecutionException e) {
+            logger.warn("Identical search which was waited for failed. Will execute search", e);
+            return search(searchRequest, new InFlightSearch());
+        }
+        coalescedSearches.incrementAndGet();
+        savedIndexerCalls.addAndGet(runningSearch.getIndexerCalls().get());
+        //Update the search state of this search like the indexers would have done
+        eventPublisher.publishEvent(new IndexerSelectionEvent(searchRequest, searchResult.getIndexerSearchResults().size()));
+        searchResult.getIndexerSearchResults().forEach(x -> eventPublisher.publishEvent(new IndexerSearchFinishedEvent(searchRequest)));
+        return searchResult;
+    }
+
+    /**
+     * @return The number of searches which were not executed because an identical search was already running and how many indexer calls that saved
+     */
+    public SearchCoalescingStats getSearchCoalescingStats() {
+        return new SearchCoalescingStats(coalescedSearches.get(), savedIndexerCalls.get(), inFlightSearches.size());
+    }
+
+    private InFlightKey getInFlightKey(SearchRequest searchRequest) {
+        //The search request's equality doesn't include paging, the indexer selection or the words set by the user, so add those. All values are copied because the search request is changed by the search
+        InternalData internalData = searchRequest.getInternalData();
+        return new InFlightKey(searchRequest.getSource(), searchRequest.getSearchType(), searchRequest.getCategory().getName(), searchRequest.getMinsize().orElse(null), searchRequest.getMaxsize().orElse(null),
+                searchRequest.getMinage().orElse(null), searchRequest.getMaxage().orElse(null), searchRequest.getQuery().orElse(null), new HashMap<>(searchRequest.getIdentifiers()), searchRequest.getTitle().orElse(null),
+                searchRequest.getSeason().orElse(null), searchRequest.getEpisode().orElse(null), searchRequest.getAuthor().orElse(null), searchRequest.getOffset().orElse(0), searchRequest.getLimit().orElse(100),
+                searchRequest.isLoadAll(), searchRequest.getIndexers().map(HashSet::new).orElse(null), searchRequest.getDownloadType(), new ArrayList<>(internalData.getForbiddenWords()),
+                new ArrayList<>(internalData.getRequiredWords()), new ArrayList<>(internalData.getNewznabCategories()), internalData.isProgressive());
+    }
+
+    private SearchResult search(SearchRequest searchRequest, InFlightSearch inFlightSearch) {
+        Stopwatch stopwatch = Stopwatch.createStarted();
         SearchCacheEntry searchCacheEntry = getSearchCacheEntry(searchRequest);
 
         SearchResult searchResult = new SearchResult();
@@ -77,6 +171,7 @@ public class Searcher {
         searchResult.setPickingResult(searchCacheEntry.getPickingResult());
 
         Map<Indexer, List<IndexerSearchResult>> indexersToSearchAndTheirResults = getIndexerSearchResultsToSearch(searchCacheEntry.getIndexerSearchResultsByIndexer());
+        Map<Indexer, IndexerSearchResult> notAnsweredInTime = new HashMap<>();
         List<SearchResultItem> searchResultItems = searchCacheEntry.getSearchResultItems();
         while (indexersToSearchAndTheirResults.size() > 0 && (searchResultItems.size() < numberOfWantedResults || searchRequest.isLoadAll())) {
 
@@ -92,16 +187,27 @@ public class Searcher {
             }
 
             //Do the actual search
-            indexersToSearchAndTheirResults = callSearchModules(searchRequest, indexersToSearchAndTheirResults);
+            Consumer<IndexerSearchResult> arrivedResultConsumer = null;
+            if (searchRequest.getInternalData().isProgressive() && searchRequest.getSource() == SearchSource.INTERNAL) {
+                arrivedResultConsumer = x -> publishPartialSearchResult(searchRequest, inFlightSearch, searchCacheEntry, x);
+            }
+            inFlightSearch.getIndexerCalls().addAndGet(indexersToSearchAndTheirResults.size());
+            indexersToSearchAndTheirResults = callSearchModules(searchRequest, indexersToSearchAndTheirResults, arrivedResultConsumer);
+            //Indexers which didn't answer in time are reported but their results aren't cached so that they're searched again when more results are loaded
+            for (Entry<Indexer, List<IndexerSearchResult>> entry : indexersToSearchAndTheirResults.entrySet()) {
+                List<IndexerSearchResult> indexerSearchResults = entry.getValue();
+                if (!indexerSearchResults.isEmpty() && Iterables.getLast(indexerSearchResults).isDeadlineExceeded()) {
+                    notAnsweredInTime.put(entry.getKey(), indexerSearchResults.remove(indexerSearchResults.size() - 1));
+                    searchResult.setPartial(true);
+                }
+            }
 
-            //Update cache
             searchCacheEntry.getIndexerSearchResultsByIndexer().putAll(indexersToSearchAndTheirResults);
-            searchRequestCache.put(searchRequest.hashCode(), searchCacheEntry);
 
 
             //Use search result items from the cache which contains *all* search searchResults, not just the latest. That allows finding duplicates over multiple searches
-            searchResultItems = searchCacheEntry.getIndexerSearchResultsByIndexer().values().stream().flatMap(Collection::stream).filter(IndexerSearchResult::isWasSuccessful).flatMap(x -> x.getSearchResultItems().stream()).distinct().collect(Collectors.toList());
-            DuplicateDetectionResult duplicateDetectionResult = duplicateDetector.detectDuplicates(searchResultItems);
+            searchResultItems = getSuccessfulSearchResultItems(searchCacheEntry);
+            DuplicateDetectionResult duplicateDetectionResult = duplicateDetector.detectDuplicates(searchCacheEntry.getDuplicateDetectionState(), searchResultItems);
 
             //Save to database
             createOrUpdateIndexerSearchEntity(searchCacheEntry, indexersToSearchAndTheirResults, duplicateDetectionResult);
@@ -119,22 +225,78 @@ public class Searcher {
 
             //Update indexersToSearchAndTheirResults to remove indexers which threw an error or don't have any more results
             indexersToSearchAndTheirResults = getIndexerSearchResultsToSearch(indexersToSearchAndTheirResults);
+            indexersToSearchAndTheirResults.keySet().removeAll(notAnsweredInTime.keySet());
 
             searchCacheEntry.setSearchResultItems(searchResultItems);
+            //Update cache. Only put the entry when all changes are done, its size is estimated when it's put
+            searchCache.put(searchRequest.hashCode(), searchCacheEntry);
         }
         searchResult.setNumberOfTotalAvailableResults(searchCacheEntry.getNumberOfTotalAvailableResults());
-        searchResult.setIndexerSearchResults(searchCacheEntry.getIndexerSearchResultsByIndexer().entrySet().stream().map(x -> Iterables.getLast(x.getValue())).collect(Collectors.toList()));
+        List<IndexerSearchResult> latestIndexerSearchResults = new ArrayList<>();
+        for (Entry<Indexer, List<IndexerSearchResult>> entry : searchCacheEntry.getIndexerSearchResultsByIndexer().entrySet()) {
+            if (notAnsweredInTime.containsKey(entry.getKey())) {
+                latestIndexerSearchResults.add(notAnsweredInTime.get(entry.getKey()));
+            } else if (!entry.getValue().isEmpty()) {
+                latestIndexerSearchResults.add(Iterables.getLast(entry.getValue()));
+            }
+        }
+        searchResult.setIndexerSearchResults(latestIndexerSearchResults);
         searchResult.setReasonsForRejection(searchCacheEntry.getReasonsForRejection());
-        searchResultItems.sort(Comparator.comparingLong(x -> x.getBestDate().getEpochSecond()));
-        Collections.reverse(searchResultItems);
+        sortNewestFirst(searchResultItems);
 
-        spliceSearchResultItemsAccordingToOffsetAndLimit(searchRequest, searchResult, searchResultItems);
+        spliceSearchResultItemsAccordingToOffsetAndLimit(searchRequest, searchResult, searchResultItems, false);
+        if (searchResult.isPartial()) {
+            logger.info("Not all indexers answered within the search deadline of {} seconds. Returning partial results", configProvider.getBaseConfig().getSearching().getProgressiveSearchDeadline());
+        }
 
         logger.debug(LoggingMarkers.PERFORMANCE, "Internal search took {}ms", stopwatch.elapsed(TimeUnit.MILLISECONDS));
         return searchResult;
     }
 
-    private void spliceSearchResultItemsAccordingToOffsetAndLimit(SearchRequest searchRequest, SearchResult searchResult, List<SearchResultItem> searchResultItems) {
+    private List<SearchResultItem> getSuccessfulSearchResultItems(SearchCacheEntry searchCacheEntry) {
+        return searchCacheEntry.getIndexerSearchResultsByIndexer().values().stream().flatMap(Collection::stream).filter(IndexerSearchResult::isWasSuccessful).flatMap(x -> x.getSearchResultItems().stream()).distinct().collect(Collectors.toList());
+    }
+
+    private void sortNewestFirst(List<SearchResultItem> searchResultItems) {
+        searchResultItems.sort(Comparator.comparingLong(x -> x.getBestDate().getEpochSecond()));
+        Collections.reverse(searchResultItems);
+    }
+
+    /**
+     * Builds a search result from all indexer results which have arrived so far and publishes it so that it can be shown while the other indexers are still being searched.
+     * Only the results of the indexer which just answered are checked for duplicates, the groups of the others are kept in the duplicate detection state.
+     */
+    private void publishPartialSearchResult(SearchRequest searchRequest, InFlightSearch inFlightSearch, SearchCacheEntry searchCacheEntry, IndexerSearchResult arrivedIndexerSearchResult) {
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        List<IndexerSearchResult> arrivedIndexerSearchResults = searchCacheEntry.getIndexerSearchResultsByIndexer().values().stream().filter(x -> !x.isEmpty()).map(Iterables::getLast).collect(Collectors.toList());
+        List<SearchResultItem> newSearchResultItems = arrivedIndexerSearchResult.isWasSuccessful() ? arrivedIndexerSearchResult.getSearchResultItems() : Collections.emptyList();
+        DuplicateDetectionResult duplicateDetectionResult = duplicateDetector.detectDuplicates(searchCacheEntry.getDuplicateDetectionState(), newSearchResultItems);
+        List<SearchResultItem> searchResultItems = duplicateDetectionResult.getDuplicateGroups().stream().flatMap(Collection::stream).collect(Collectors.toList());
+
+        SearchResult partialSearchResult = new SearchResult();
+        partialSearchResult.setPartial(true);
+        partialSearchResult.setPickingResult(searchCacheEntry.getPickingResult());
+        partialSearchResult.setIndexerSearchResults(arrivedIndexerSearchResults);
+        partialSearchResult.setUniqueResultsPerIndexer(duplicateDetectionResult.getUniqueResultsPerIndexer());
+        partialSearchResult.setNumberOfTotalAvailableResults(arrivedIndexerSearchResults.stream().mapToInt(IndexerSearchResult::getTotalResults).sum());
+        arrivedIndexerSearchResults.forEach(x -> partialSearchResult.getReasonsForRejection().addAll(x.getReasonsForRejection()));
+        sortNewestFirst(searchResultItems);
+        spliceSearchResultItemsAccordingToOffsetAndLimit(searchRequest, partialSearchResult, searchResultItems, true);
+
+        eventPublisher.publishEvent(new PartialSearchResultEvent(searchRequest, partialSearchResult));
+        synchronized (inFlightSearch) {
+            inFlightSearch.setLatestPartialSearchResult(partialSearchResult);
+            for (SearchRequest waitingSearchRequest : inFlightSearch.getWaitingSearchRequests()) {
+                eventPublisher.publishEvent(new PartialSearchResultEvent(waitingSearchRequest, partialSearchResult.copy()));
+            }
+        }
+        logger.debug(LoggingMarkers.PERFORMANCE, "Building partial search result with {} results from {} indexers took {}ms", searchResultItems.size(), arrivedIndexerSearchResults.size(), stopwatch.elapsed(TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * @param partial If the results are published while the search is still running. Partial results are only logged at debug level because they're published for every indexer which answers
+     */
+    private void spliceSearchResultItemsAccordingToOffsetAndLimit(SearchRequest searchRequest, SearchResult searchResult, List<SearchResultItem> searchResultItems, boolean partial) {
         int offset = searchRequest.getOffset().orElse(0);
         int limit = searchRequest.getLimit().orElse(100); //LATER configurable
 
@@ -144,13 +306,13 @@ public class Searcher {
         }
 
         if (searchRequest.isLoadAll()) {
-            logger.info("Returning all available search results");
+            logReturnedResults(partial, "Returning all available search results");
             searchResult.setSearchResultItems(searchResultItems);
             return;
         }
 
         if (offset > 0 && offset >= searchResultItems.size()) {
-            logger.info("Offset {} exceeds the number of available results {}; returning empty search result", offset, searchResultItems.size());
+            logReturnedResults(partial, "Offset {} exceeds the number of available results {}; returning empty search result", offset, searchResultItems.size());
             searchResult.setSearchResultItems(Collections.emptyList());
             return;
         }
@@ -166,11 +328,19 @@ public class Searcher {
             if (searchRequest.getSource() == SearchSource.API) {
                 andRemoved = " and " + searchResult.getNumberOfRemovedDuplicates() + " were removed as duplicates";
             }
-            logger.info("Returning results {}-{} from {} results in cache. A total of {} results is available from indexers of which {} were already rejected" + andRemoved, offset + 1, offset + limit, searchResultItems.size(), searchResult.getNumberOfTotalAvailableResults(), searchResult.getNumberOfRejectedResults());
+            logReturnedResults(partial, "Returning results {}-{} from {} results in cache. A total of {} results is available from indexers of which {} were already rejected" + andRemoved, offset + 1, offset + limit, searchResultItems.size(), searchResult.getNumberOfTotalAvailableResults(), searchResult.getNumberOfRejectedResults());
             searchResult.setSearchResultItems(searchResultItems.subList(offset, offset + limit));
         }
     }
 
+    private void logReturnedResults(boolean partial, String format, Object... arguments) {
+        if (partial) {
+            logger.debug(format, arguments);
+        } else {
+            logger.info(format, arguments);
+        }
+    }
+
     protected List<SearchResultItem> getNewestSearchResultItemFromEachDuplicateGroup(List<LinkedHashSet<SearchResultItem>> duplicateGroups) {
         return duplicateGroups.stream().map(x -> {
             return x.stream().sorted(Comparator.comparingInt(SearchResultItem::getIndexerScore).reversed().thenComparing(Comparator.comparingLong((SearchResultItem y) -> y.getPubDate().getEpochSecond()).reversed())).iterator().next();
@@ -182,7 +352,9 @@ public class Searcher {
         int countEntities = 0;
         for (IndexerSearchResult indexerSearchResult : indexersToSearchAndTheirResults.values().stream().flatMap(List::stream).collect(Collectors.toList())) {
             IndexerSearchEntity entity = searchCacheEntry.getIndexerSearchEntitiesByIndexer().get(indexerSearchResult.getIndexer().getIndexerEntity());
-            if (entity == null) {
+            boolean created = entity == null;
+            int uniqueResultsBefore = created || entity.getUniqueResults() == null ? 0 : entity.getUniqueResults();
+            if (created) {
                 entity = new IndexerSearchEntity();
                 entity.setIndexerEntity(indexerSearchResult.getIndexer().getIndexerEntity());
                 entity.setSearchEntity(searchCacheEntry.getSearchEntity());
@@ -192,6 +364,7 @@ public class Searcher {
             entity.setProcessedResults(indexerSearchResult.getSearchResultItems().size());
             entity.setUniqueResults(duplicateDetectionResult.getUniqueResultsPerIndexer().count(indexerSearchResult.getIndexer()));
             entity = indexerSearchRepository.save(entity);
+            statsRollups.recordIndexerSearch(entity, created, uniqueResultsBefore);
             searchCacheEntry.getIndexerSearchEntitiesByIndexer().put(indexerSearchResult.getIndexer().getIndexerEntity(), entity);
             countEntities++;
         }
@@ -200,35 +373,41 @@ public class Searcher {
 
     protected SearchCacheEntry getSearchCacheEntry(SearchRequest searchRequest) {
         SearchCacheEntry searchCacheEntry;
+        Optional<SearchCacheEntry> cachedSearchCacheEntry = searchRequest.getOffset().orElse(0) == 0 ? Optional.empty() : searchCache.get(searchRequest.hashCode());
 
-        if (searchRequest.getOffset().orElse(0) == 0 || !searchRequestCache.containsKey(searchRequest.hashCode())) {
+        if (!cachedSearchCacheEntry.isPresent()) {
             //New search
-            SearchEntity searchEntity = new SearchEntity();
-            searchEntity.setSource(searchRequest.getSource());
-            searchEntity.setCategoryName(searchRequest.getCategory().getName());
-            searchEntity.setQuery(searchRequest.getQuery().orElse(null));
-            searchEntity.setIdentifiers(searchRequest.getIdentifiers().entrySet().stream().filter(x -> x.getValue() != null).map(x -> new IdentifierKeyValuePair(x.getKey().name(), x.getValue())).collect(Collectors.toSet()));
-            searchEntity.setSeason(searchRequest.getSeason().orElse(null));
-            searchEntity.setEpisode(searchRequest.getEpisode().orElse(null));
-            searchEntity.setSearchType(searchRequest.getSearchType());
-            searchEntity.setTitle(searchRequest.getTitle().orElse(null));
-            searchEntity.setAuthor(searchRequest.getAuthor().orElse(null));
+            SearchEntity searchEntity = createSearchEntity(searchRequest);
 
             //Extend search request
             searchRequest.extractForbiddenWords();
 
             searchRepository.save(searchEntity);
+            statsRollups.recordSearch(searchEntity);
 
             IndexerForSearchSelection pickingResult = indexerPicker.pickIndexers(searchRequest);
             searchCacheEntry = new SearchCacheEntry(searchRequest, pickingResult, searchEntity);
         } else {
-            searchCacheEntry = searchRequestCache.get(searchRequest.hashCode());
+            searchCacheEntry = cachedSearchCacheEntry.get();
             searchCacheEntry.setLastAccessed(Instant.now());
             searchCacheEntry.setSearchRequest(searchRequest); //Update to latest to keep offset and limit updated
         }
         return searchCacheEntry;
     }
 
+    private SearchEntity createSearchEntity(SearchRequest searchRequest) {
+        SearchEntity searchEntity = new SearchEntity();
+        searchEntity.setSource(searchRequest.getSource());
+        searchEntity.setCategoryName(searchRequest.getCategory().getName());
+        searchEntity.setQuery(searchRequest.getQuery().orElse(null));
+        searchEntity.setIdentifiers(searchRequest.getIdentifiers().entrySet().stream().filter(x -> x.getValue() != null).map(x -> new IdentifierKeyValuePair(x.getKey().name(), x.getValue())).collect(Collectors.toSet()));
+        searchEntity.setSeason(searchRequest.getSeason().orElse(null));
+        searchEntity.setEpisode(searchRequest.getEpisode().orElse(null));
+        searchEntity.setSearchType(searchRequest.getSearchType());
+        searchEntity.setTitle(searchRequest.getTitle().orElse(null));
+        searchEntity.setAuthor(searchRequest.getAuthor().orElse(null));
+        return searchEntity;
+    }
 
     protected Map<Indexer, List<IndexerSearchResult>> getIndexerSearchResultsToSearch(Map<Indexer, List<IndexerSearchResult>> map) {
         return map.entrySet().stream().filter(x -> {
@@ -241,28 +420,88 @@ public class Searcher {
     }
 
     protected Map<Indexer, List<IndexerSearchResult>> callSearchModules(SearchRequest searchRequest, Map<Indexer, List<IndexerSearchResult>> indexersToSearch) {
-        Map<Indexer, List<IndexerSearchResult>> indexerSearchResults = new HashMap<>(indexersToSearch);
+        return callSearchModules(searchRequest, indexersToSearch, null);
+    }
 
-        ExecutorService executor = MdcThreadPoolExecutor.newWithInheritedMdc(indexersToSearch.size());
+    /**
+     * Calls the given indexers and collects their results in the order they arrive.
+     *
+     * @param searchRequest         The search request
+     * @param indexersToSearch      Indexers to call and their previous results
+     * @param arrivedResultConsumer Optional, will be called with every indexer search result as soon as it arrives
+     * @return The indexers mapped to all their results, including the new ones
+     */
+    protected Map<Indexer, List<IndexerSearchResult>> callSearchModules(SearchRequest searchRequest, Map<Indexer, List<IndexerSearchResult>> indexersToSearch, Consumer<IndexerSearchResult> arrivedResultConsumer) {
+        Map<Indexer, List<IndexerSearchResult>> indexerSearchResults = new HashMap<>(indexersToSearch);
 
-        List<Callable<IndexerSearchResult>> callables = getCallables(searchRequest, indexersToSearch);
+        BlockingQueue<Future<IndexerSearchResult>> completedFutures = new LinkedBlockingQueue<>();
+        Map<Future<IndexerSearchResult>, Indexer> pendingFutures = new HashMap<>();
+        if (configProvider.getBaseConfig().getSearching().isAsyncIndexerSearches()) {
+            for (Entry<Indexer, List<IndexerSearchResult>> entry : indexersToSearch.entrySet()) {
+                CompletableFuture<IndexerSearchResult> future = getIndexerFuture(searchRequest, entry);
+                pendingFutures.put(future, entry.getKey());
+                future.whenComplete((result, throwable) -> completedFutures.add(future));
+            }
+        } else {
+            CompletionService<IndexerSearchResult> completionService = new ExecutorCompletionService<>(indexerExecutor.getSearchExecutor(), completedFutures);
+            for (Entry<Indexer, List<IndexerSearchResult>> entry : indexersToSearch.entrySet()) {
+                try {
+                    pendingFutures.put(completionService.submit(getIndexerCallable(searchRequest, entry)), entry.getKey());
+                } catch (RejectedExecutionException e) {
+                    indexerSearchResults.get(entry.getKey()).add(new IndexerSearchResult(entry.getKey(), "Indexer was not searched because too many searches are queued"));
+                }
+            }
+        }
 
+        boolean progressive = searchRequest.getInternalData().isProgressive();
+        int deadlineSeconds = progressive ? configProvider.getBaseConfig().getSearching().getProgressiveSearchDeadline() : 0;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(deadlineSeconds);
+        boolean interrupted = false;
         try {
-            List<Future<IndexerSearchResult>> futures = executor.invokeAll(callables);
-            for (Future<IndexerSearchResult> future : futures) {
+            while (!pendingFutures.isEmpty()) {
+                Future<IndexerSearchResult> future;
+                if (progressive) {
+                    future = completedFutures.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (future == null) {
+                        logger.warn("Search deadline of {} seconds exceeded while waiting for {} indexers", deadlineSeconds, pendingFutures.size());
+                        break;
+                    }
+                } else {
+                    future = completedFutures.take();
+                }
+                pendingFutures.remove(future);
                 try {
                     IndexerSearchResult indexerSearchResult = future.get();
                     List<IndexerSearchResult> previousIndexerSearchResults = indexerSearchResults.get(indexerSearchResult.getIndexer());
                     previousIndexerSearchResults.add(indexerSearchResult);
                     indexerSearchResults.put(indexerSearchResult.getIndexer(), previousIndexerSearchResults);
+                    if (arrivedResultConsumer != null) {
+                        arrivedResultConsumer.accept(indexerSearchResult);
+                    }
                 } catch (ExecutionException e) {
                     logger.error("Unexpected error while searching", e);
                 }
             }
         } catch (InterruptedException e) {
-            logger.error("Unexpected error while searching", e);
+            logger.warn("Interrupted while waiting for {} indexers", pendingFutures.size());
+            interrupted = true;
+        }
+        for (Entry<Future<IndexerSearchResult>, Indexer> entry : pendingFutures.entrySet()) {
+            //Not interrupted because an interrupt during file access closes the database. The indexer is left to finish in the background and its result is ignored
+            entry.getKey().cancel(false);
+            IndexerSearchResult notAnsweredResult;
+            if (interrupted) {
+                notAnsweredResult = new IndexerSearchResult(entry.getValue(), "Search was interrupted before the indexer answered");
+            } else {
+                notAnsweredResult = new IndexerSearchResult(entry.getValue(), "Indexer did not answer within the search deadline of " + deadlineSeconds + " seconds");
+                notAnsweredResult.setDeadlineExceeded(true);
+            }
+            notAnsweredResult.setHasMoreResults(false);
+            indexerSearchResults.get(entry.getValue()).add(notAnsweredResult);
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
         }
-        executor.shutdownNow(); //Need to explicitly shutdown executor for threads to be closed
         indexerSearchResults = handleIndexersWithFailedFutureExecutions(indexersToSearch, indexerSearchResults);
         return indexerSearchResults;
     }
@@ -283,28 +522,76 @@ public class Searcher {
         return indexerSearchResults;
     }
 
-    private List<Callable<IndexerSearchResult>> getCallables(SearchRequest searchRequest, Map<Indexer, List<IndexerSearchResult>> indexersToSearch) {
-        List<Callable<IndexerSearchResult>> callables = new ArrayList<>();
+    private Callable<IndexerSearchResult> getIndexerCallable(SearchRequest searchRequest, Entry<Indexer, List<IndexerSearchResult>> entry) {
+        int offset = getNextOffset(entry.getValue());
+        int limit = getNextLimit(entry.getValue());
+        return () -> entry.getKey().search(searchRequest, offset, limit);
+    }
 
-        for (Entry<Indexer, List<IndexerSearchResult>> entry : indexersToSearch.entrySet()) {
-            Callable<IndexerSearchResult> callable = getIndexerCallable(searchRequest, entry);
-            callables.add(callable);
+    @SuppressWarnings("unchecked")
+    private CompletableFuture<IndexerSearchResult> getIndexerFuture(SearchRequest searchRequest, Entry<Indexer, List<IndexerSearchResult>> entry) {
+        return entry.getKey().searchAsync(searchRequest, getNextOffset(entry.getValue()), getNextLimit(entry.getValue()));
+    }
+
+    private int getNextOffset(List<IndexerSearchResult> previousResults) {
+        if (previousResults.isEmpty()) {
+            return 0;
         }
-        return callables;
+        IndexerSearchResult indexerToSearch = Iterables.getLast(previousResults);
+        return indexerToSearch.getOffset() + indexerToSearch.getLimit();
     }
 
-    private Callable<IndexerSearchResult> getIndexerCallable(SearchRequest searchRequest, Entry<Indexer, List<IndexerSearchResult>> entry) {
-        int offset;
-        int limit;
-        if (entry.getValue().isEmpty()) {
-            offset = 0;
-            limit = 100; //LATER Set either global default or get from indexerName or implement possibility to keep this unset and let indexer implementation decide
-        } else {
-            IndexerSearchResult indexerToSearch = Iterables.getLast(entry.getValue());
-            offset = indexerToSearch.getOffset() + indexerToSearch.getLimit();
-            limit = indexerToSearch.getLimit();
+    private int getNextLimit(List<IndexerSearchResult> previousResults) {
+        if (previousResults.isEmpty()) {
+            return 100; //LATER Set either global default or get from indexerName or implement possibility to keep this unset and let indexer implementation decide
         }
-        return () -> entry.getKey().search(searchRequest, offset, limit);
+        return Iterables.getLast(previousResults).getLimit();
+    }
+
+    @Value
+    private static class InFlightKey {
+        private SearchSource source;
+        private SearchType searchType;
+        private String categoryName;
+        private Integer minsize;
+        private Integer maxsize;
+        private Integer minage;
+        private Integer maxage;
+        private String query;
+        private Map<IdType, String> identifiers;
+        private String title;
+        private Integer season;
+        private String episode;
+        private String author;
+        private int offset;
+        private int limit;
+        private boolean loadAll;
+        private Set<String> indexers;
+        private DownloadType downloadType;
+        private List<String> forbiddenWords;
+        private List<String> requiredWords;
+        private List<Integer> newznabCategories;
+        private boolean progressive;
+    }
+
+    @Getter
+    private static class InFlightSearch {
+        private final CompletableFuture<SearchResult> future = new CompletableFuture<>();
+        private final AtomicInteger indexerCalls = new AtomicInteger();
+        /**
+         * Progressive searches waiting for this one, they get the same partial results. Guarded by the in-flight search
+         */
+        private final List<SearchRequest> waitingSearchRequests = new ArrayList<>();
+        @Setter
+        private SearchResult latestPartialSearchResult;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class SearchCoalescingStats {
+        private long coalescedSearches;
+        private long savedIndexerCalls;
+        private int runningSearches;
     }
 
     @Getter
@@ -0,0 +1,74 @@
+package org.nzbhydra.searching;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Splits titles into lower cased words. A word is what the regex <tt>(\w[\w']*\w|\w)</tt> would find, i.e. a sequence of word characters and
+ * apostrophes which starts and ends with a word character.
+ * <p>
+ * Not thread safe. The words of the last title are kept and the set is reused for the next title, so each thread should use its own instance and
+ * must not keep the returned set after tokenizing another title.
+ */
+class TitleTokenizer {
+
+    private final Set<String> words = new HashSet<>();
+    private String title;
+    private String lowerCaseTitle;
+    private boolean wordsTokenized;
+
+    /**
+     * Sets the title to work on. Does nothing if it's the same as the last one.
+     */
+    TitleTokenizer tokenize(String title) {
+        if (!title.equals(this.title)) {
+            this.title = title;
+            lowerCaseTitle = title.toLowerCase();
+            wordsTokenized = false;
+        }
+        return this;
+    }
+
+    String getLowerCaseTitle() {
+        return lowerCaseTitle;
+    }
+
+    /**
+     * @return The words of the title. Only valid until the next title is tokenized
+     */
+    Set<String> getWords() {
+        if (!wordsTokenized) {
+            words.clear();
+            int length = lowerCaseTitle.length();
+            int i = 0;
+            while (i < length) {
+                if (!isWordCharacter(lowerCaseTitle.charAt(i))) {
+                    i++;
+                    continue;
+                }
+                int start = i;
+                int lastWordCharacter = i;
+                i++;
+                while (i < length) {
+                    char c = lowerCaseTitle.charAt(i);
+                    if (isWordCharacter(c)) {
+                        lastWordCharacter = i;
+                    } else if (c != '\'') {
+                        break;
+                    }
+                    i++;
+                }
+                //Trailing apostrophes are not part of the word
+                words.add(lowerCaseTitle.substring(start, lastWordCharacter + 1));
+            }
+            wordsTokenized = true;
+        }
+        return words;
+    }
+
+    private static boolean isWordCharacter(char c) {
+        //Same as \w without UNICODE_CHARACTER_CLASS
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+}
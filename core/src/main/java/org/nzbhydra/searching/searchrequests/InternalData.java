@@ -20,6 +20,10 @@ public class InternalData {
     private List<String> forbiddenWords = new ArrayList<>();
     private List<String> requiredWords = new ArrayList<>();
     private List<Integer> newznabCategories = new ArrayList<>();
+    /**
+     * If true indexer results are processed as they arrive and the search is closed at the configured deadline
+     */
+    private boolean progressive = false;
 
     public Optional<String> getTitle() {
         return Optional.ofNullable(title);
@@ -110,6 +110,12 @@ public class SearchRequest {
         return Optional.ofNullable(author);
     }
 
+    /**
+     * @return true if neither a query nor IDs nor any other search terms were provided, e.g. when a program polls the newest releases (RSS sync)
+     */
+    public boolean hasNoSearchTerms() {
+        return Strings.isNullOrEmpty(query) && identifiers.isEmpty() && Strings.isNullOrEmpty(title) && season == null && Strings.isNullOrEmpty(episode) && Strings.isNullOrEmpty(author);
+    }
 
     public SearchRequest extractForbiddenWords() {
         if (Strings.isNullOrEmpty(query)) {
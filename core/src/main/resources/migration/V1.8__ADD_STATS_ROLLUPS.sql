@@ -0,0 +1,78 @@
+CREATE TABLE STATS_SEARCHES
+(
+  HOUR_START TIMESTAMP    NOT NULL,
+  SOURCE     VARCHAR(255) NOT NULL,
+  USERNAME   VARCHAR(255) NOT NULL,
+  IP         VARCHAR(255) NOT NULL,
+  USER_AGENT VARCHAR(255) NOT NULL,
+  TOTAL      BIGINT       NOT NULL,
+  CONSTRAINT STATS_SEARCHES_PK PRIMARY KEY (HOUR_START, SOURCE, USERNAME, IP, USER_AGENT)
+);
+
+CREATE TABLE STATS_DOWNLOADS
+(
+  HOUR_START    TIMESTAMP    NOT NULL,
+  INDEXER_ID    INTEGER      NOT NULL,
+  ACCESS_SOURCE VARCHAR(255) NOT NULL,
+  USERNAME      VARCHAR(255) NOT NULL,
+  IP            VARCHAR(255) NOT NULL,
+  USER_AGENT    VARCHAR(255) NOT NULL,
+  TOTAL         BIGINT       NOT NULL,
+  CONSTRAINT STATS_DOWNLOADS_PK PRIMARY KEY (HOUR_START, INDEXER_ID, ACCESS_SOURCE, USERNAME, IP, USER_AGENT)
+);
+
+CREATE TABLE STATS_API_ACCESSES
+(
+  HOUR_START          TIMESTAMP    NOT NULL,
+  INDEXER_ID          INTEGER      NOT NULL,
+  RESULT              VARCHAR(255) NOT NULL,
+  TOTAL               BIGINT       NOT NULL,
+  RESPONSE_TIME_SUM   BIGINT       NOT NULL,
+  RESPONSE_TIME_COUNT BIGINT       NOT NULL,
+  CONSTRAINT STATS_API_ACCESSES_PK PRIMARY KEY (HOUR_START, INDEXER_ID, RESULT)
+);
+
+CREATE TABLE STATS_INDEXER_SEARCHES
+(
+  HOUR_START         TIMESTAMP NOT NULL,
+  INDEXER_ID         INTEGER   NOT NULL,
+  TOTAL              BIGINT    NOT NULL,
+  RESULTS_SUM        BIGINT    NOT NULL,
+  UNIQUE_RESULTS_SUM BIGINT    NOT NULL,
+  CONSTRAINT STATS_INDEXER_SEARCHES_PK PRIMARY KEY (HOUR_START, INDEXER_ID)
+);
+
+-- Fill the tables from the existing history. Hours are in local time like the times they're calculated from
+INSERT INTO STATS_SEARCHES (HOUR_START, SOURCE, USERNAME, IP, USER_AGENT, TOTAL)
+  SELECT HOUR_START, SOURCE, USERNAME, IP, USER_AGENT, count(*)
+  FROM (SELECT DATEADD('HOUR', HOUR(x.TIME), TRUNCATE(x.TIME)) AS HOUR_START, coalesce(x.SOURCE, '') AS SOURCE, coalesce(x.USERNAME, '') AS USERNAME,
+          coalesce(x.IP, '') AS IP, coalesce(x.USER_AGENT, '') AS USER_AGENT
+        FROM SEARCH x
+        WHERE x.TIME IS NOT NULL)
+  GROUP BY HOUR_START, SOURCE, USERNAME, IP, USER_AGENT;
+
+INSERT INTO STATS_DOWNLOADS (HOUR_START, INDEXER_ID, ACCESS_SOURCE, USERNAME, IP, USER_AGENT, TOTAL)
+  SELECT HOUR_START, INDEXER_ID, ACCESS_SOURCE, USERNAME, IP, USER_AGENT, count(*)
+  FROM (SELECT DATEADD('HOUR', HOUR(x.TIME), TRUNCATE(x.TIME)) AS HOUR_START, coalesce(r.INDEXER_ID, 0) AS INDEXER_ID, coalesce(x.ACCESS_SOURCE, '') AS ACCESS_SOURCE,
+          coalesce(x.USERNAME, '') AS USERNAME, coalesce(x.IP, '') AS IP, coalesce(x.USER_AGENT, '') AS USER_AGENT
+        FROM INDEXERNZBDOWNLOAD x
+          LEFT JOIN SEARCHRESULT r ON x.SEARCH_RESULT_ID = r.ID
+        WHERE x.TIME IS NOT NULL)
+  GROUP BY HOUR_START, INDEXER_ID, ACCESS_SOURCE, USERNAME, IP, USER_AGENT;
+
+INSERT INTO STATS_API_ACCESSES (HOUR_START, INDEXER_ID, RESULT, TOTAL, RESPONSE_TIME_SUM, RESPONSE_TIME_COUNT)
+  SELECT HOUR_START, INDEXER_ID, RESULT, count(*), coalesce(sum(RESPONSE_TIME), 0), count(RESPONSE_TIME)
+  FROM (SELECT DATEADD('HOUR', HOUR(x.TIME), TRUNCATE(x.TIME)) AS HOUR_START, coalesce(x.INDEXER_ID, 0) AS INDEXER_ID, coalesce(x.RESULT, '') AS RESULT, x.RESPONSE_TIME
+        FROM INDEXERAPIACCESS x
+        WHERE x.TIME IS NOT NULL)
+  GROUP BY HOUR_START, INDEXER_ID, RESULT;
+
+-- Only successful indexer searches for searches with a query or IDs are counted
+INSERT INTO STATS_INDEXER_SEARCHES (HOUR_START, INDEXER_ID, TOTAL, RESULTS_SUM, UNIQUE_RESULTS_SUM)
+  SELECT HOUR_START, INDEXER_ID, count(*), coalesce(sum(RESULTS_COUNT), 0), coalesce(sum(UNIQUE_RESULTS), 0)
+  FROM (SELECT DATEADD('HOUR', HOUR(x.TIME), TRUNCATE(x.TIME)) AS HOUR_START, coalesce(i.INDEXER_ENTITY_ID, 0) AS INDEXER_ID, i.RESULTS_COUNT, i.UNIQUE_RESULTS
+        FROM INDEXERSEARCH i
+          JOIN SEARCH x ON i.SEARCH_ENTITY_ID = x.ID
+        WHERE i.SUCCESSFUL AND x.TIME IS NOT NULL AND (x.EPISODE IS NOT NULL OR x.SEASON IS NOT NULL OR x.QUERY IS NOT NULL OR x.AUTHOR IS NOT NULL
+                                                       OR x.TITLE IS NOT NULL OR exists(SELECT 1 FROM SEARCH_IDENTIFIERS si WHERE si.SEARCH_ENTITY_ID = x.ID)))
+  GROUP BY HOUR_START, INDEXER_ID;
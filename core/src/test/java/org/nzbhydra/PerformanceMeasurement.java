@@ -0,0 +1,91 @@
+package org.nzbhydra;
+
+import com.google.common.base.Stopwatch;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the code measured by the performance comparisons (classes ending with "Performance" which are run from their main method). Every task is
+ * warmed up before it's measured. Besides the time the memory allocated by the current thread is measured, so tasks using other threads only
+ * report their time correctly.
+ */
+public class PerformanceMeasurement {
+
+    @FunctionalInterface
+    public interface Task {
+        void run() throws Exception;
+    }
+
+    /**
+     * Runs the task the given number of times to warm up and then as often again while measuring
+     */
+    public static Measurement measure(int repetitions, Task task) throws Exception {
+        for (int i = 0; i < repetitions; i++) {
+            task.run();
+        }
+        long allocatedBefore = allocatedBytes();
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        for (int i = 0; i < repetitions; i++) {
+            task.run();
+        }
+        return new Measurement(repetitions, stopwatch.elapsed(TimeUnit.NANOSECONDS), allocatedBytes() - allocatedBefore);
+    }
+
+    /**
+     * Runs the task repeatedly for the given number of seconds to warm up and then for the given number of seconds while measuring
+     */
+    public static Measurement measureForSeconds(int warmUpSeconds, int seconds, Task task) throws Exception {
+        runForSeconds(warmUpSeconds, task);
+        long allocatedBefore = allocatedBytes();
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        long runs = runForSeconds(seconds, task);
+        return new Measurement(runs, stopwatch.elapsed(TimeUnit.NANOSECONDS), allocatedBytes() - allocatedBefore);
+    }
+
+    private static long runForSeconds(int seconds, Task task) throws Exception {
+        long runs = 0;
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        while (stopwatch.elapsed(TimeUnit.SECONDS) < seconds) {
+            task.run();
+            runs++;
+        }
+        return runs;
+    }
+
+    /**
+     * @return The number of bytes allocated by the current thread so far
+     */
+    public static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    public static class Measurement {
+        private final long runs;
+        private final long nanos;
+        private final long allocatedBytes;
+
+        Measurement(long runs, long nanos, long allocatedBytes) {
+            this.runs = runs;
+            this.nanos = nanos;
+            this.allocatedBytes = allocatedBytes;
+        }
+
+        public long getRuns() {
+            return runs;
+        }
+
+        public long getMicrosPerRun() {
+            return TimeUnit.NANOSECONDS.toMicros(nanos) / runs;
+        }
+
+        public long getMillisPerRun() {
+            return TimeUnit.NANOSECONDS.toMillis(nanos) / runs;
+        }
+
+        public long getAllocatedBytesPerRun() {
+            return allocatedBytes / runs;
+        }
+    }
+
+}
@@ -13,6 +13,8 @@ import org.nzbhydra.mapping.newznab.ActionAttribute;
 import org.nzbhydra.mapping.newznab.NewznabParameters;
 import org.nzbhydra.misc.UserAgentMapper;
 import org.nzbhydra.searching.CategoryProvider;
+import org.nzbhydra.searching.LatestReleases;
+import org.nzbhydra.searching.LatestReleases.LatestReleasesResult;
 import org.nzbhydra.searching.SearchResult;
 import org.nzbhydra.searching.SearchType;
 import org.nzbhydra.searching.Searcher;
@@ -21,11 +23,16 @@ import org.nzbhydra.searching.searchrequests.SearchRequest.SearchSource;
 import org.nzbhydra.searching.searchrequests.SearchRequestFactory;
 
 import java.time.Clock;
+import java.time.Instant;
 import java.time.ZoneId;
 import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -52,6 +59,8 @@ public class ExternalApiTest {
     private SearchResult searchResult;
     @Mock
     private UserAgentMapper userAgentMapperMock;
+    @Mock
+    private LatestReleases latestReleasesMock;
 
 
     @Before
@@ -140,6 +149,35 @@ public class ExternalApiTest {
         verify(searcher, times(7)).search(any());
     }
 
+    @Test
+    public void shouldAnswerQuerylessSearchFromLatestReleases() throws Exception {
+        baseConfig.getSearching().setPrefetchLatestReleases(true);
+        when(latestReleasesMock.getReleases(any(), any(), anyInt(), anyInt())).thenReturn(Optional.of(new LatestReleasesResult(Collections.emptyList(), 0, Instant.now(), Instant.now())));
+        NewznabParameters parameters = new NewznabParameters();
+        parameters.setApikey("apikey");
+        parameters.setT(ActionAttribute.SEARCH);
+
+        testee.api(parameters);
+        verify(searcher, never()).search(any());
+
+        //Queries are always searched
+        parameters.setQ("q");
+        testee.api(parameters);
+        verify(searcher, times(1)).search(any());
+    }
+
+    @Test
+    public void shouldSearchWhenNoLatestReleasesAreAvailable() throws Exception {
+        baseConfig.getSearching().setPrefetchLatestReleases(true);
+        when(latestReleasesMock.getReleases(any(), any(), anyInt(), anyInt())).thenReturn(Optional.empty());
+        NewznabParameters parameters = new NewznabParameters();
+        parameters.setApikey("apikey");
+        parameters.setT(ActionAttribute.SEARCH);
+
+        testee.api(parameters);
+        verify(searcher, times(1)).search(any());
+    }
+
     protected NewznabParameters getNewznabParameters(String q1) {
         NewznabParameters parameters = new NewznabParameters();
         parameters.setQ(q1);
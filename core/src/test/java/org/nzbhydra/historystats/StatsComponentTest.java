@@ -9,6 +9,7 @@ import org.nzbhydra.config.IndexerConfig;
 import org.nzbhydra.config.SearchModuleType;
 import org.nzbhydra.downloading.NzbDownloadEntity;
 import org.nzbhydra.downloading.NzbDownloadRepository;
+import org.nzbhydra.downloading.NzbHandler.NzbDownloadEvent;
 import org.nzbhydra.historystats.stats.AverageResponseTime;
 import org.nzbhydra.historystats.stats.CountPerDayOfWeek;
 import org.nzbhydra.historystats.stats.CountPerHourOfDay;
@@ -77,6 +78,8 @@ public class StatsComponentTest {
 
     @Autowired
     private Stats stats;
+    @Autowired
+    private StatsRollups statsRollups;
 
     @Before
     public void setUp() {
@@ -116,6 +119,8 @@ public class StatsComponentTest {
         apiAccess3.setResponseTime(4000L);
         apiAccess3.setTime(Instant.now().minus(100, ChronoUnit.DAYS));
         apiAccessRepository.save(apiAccess3);
+        statsRollups.recordApiAccesses(Arrays.asList(apiAccess1, apiAccess2, apiAccess3));
+        statsRollups.flush();
 
         //Access #3 is not included
         List<AverageResponseTime> averageResponseTimes = stats.averageResponseTimes(new StatsRequest(Instant.now().minus(10, ChronoUnit.DAYS), Instant.now(), true));
@@ -139,10 +144,11 @@ public class StatsComponentTest {
         SearchEntity searchSunday = new SearchEntity();
         searchSunday.setTime(Instant.ofEpochSecond(1490513310L)); //Sunday
         searchRepository.save(Arrays.asList(searchFriday, searchThursday1, searchThursday2, searchSunday));
-
+        Arrays.asList(searchFriday, searchThursday1, searchThursday2, searchSunday).forEach(statsRollups::recordSearch);
+        statsRollups.flush();
 
         StatsRequest statsRequest = new StatsRequest(searchFriday.getTime().minus(10, ChronoUnit.DAYS), searchFriday.getTime().plus(10, ChronoUnit.DAYS), true);
-        List<CountPerDayOfWeek> result = stats.countPerDayOfWeek("SEARCH", statsRequest);
+        List<CountPerDayOfWeek> result = stats.countPerDayOfWeek("STATS_SEARCHES", statsRequest);
         assertEquals(7, result.size());
 
         assertEquals("Thu", result.get(3).getDay());
@@ -172,9 +178,10 @@ public class StatsComponentTest {
         downloadSunday.setTime(Instant.ofEpochSecond(1490513310L)); //Sunday
 
         downloadRepository.save(Arrays.asList(downloadFriday, downloadSunday, downloadThursday1, downloadThursday2));
+        Arrays.asList(downloadFriday, downloadSunday, downloadThursday1, downloadThursday2).forEach(x -> statsRollups.handleNzbDownload(new NzbDownloadEvent(x)));
+        statsRollups.flush();
 
-
-        List<CountPerDayOfWeek> result = stats.countPerDayOfWeek("INDEXERNZBDOWNLOAD", new StatsRequest(downloadFriday.getTime().minus(10, ChronoUnit.DAYS), downloadFriday.getTime().plus(10, ChronoUnit.DAYS), true));
+        List<CountPerDayOfWeek> result = stats.countPerDayOfWeek("STATS_DOWNLOADS", new StatsRequest(downloadFriday.getTime().minus(10, ChronoUnit.DAYS), downloadFriday.getTime().plus(10, ChronoUnit.DAYS), true));
         assertEquals(7, result.size());
 
         assertEquals("Thu", result.get(3).getDay());
@@ -244,6 +251,8 @@ public class StatsComponentTest {
 
         searchResultRepository.save(Arrays.asList(searchResultEntity1, searchResultEntity2, searchResultEntity3, searchResultEntity4, searchResultEntity5, searchResultEntity6));
         downloadRepository.save(Arrays.asList(download1, download2, download3, download4, download5, download6));
+        Arrays.asList(download1, download2, download3, download4, download5, download6).forEach(x -> statsRollups.handleNzbDownload(new NzbDownloadEvent(x)));
+        statsRollups.flush();
 
         List<IndexerDownloadShare> shares = stats.indexerDownloadShares(new StatsRequest(Instant.now().minus(100, ChronoUnit.DAYS), Instant.now().plus(1, ChronoUnit.DAYS), true));
         assertThat(shares.get(0).getIndexerName(), is("indexer1"));
@@ -271,8 +280,10 @@ public class StatsComponentTest {
         SearchEntity search23 = new SearchEntity();
         search23.setTime(Instant.ofEpochSecond(1490996779L));
         searchRepository.save(Arrays.asList(search12, search16a, search16b, search23));
+        Arrays.asList(search12, search16a, search16b, search23).forEach(statsRollups::recordSearch);
+        statsRollups.flush();
 
-        List<CountPerHourOfDay> result = stats.countPerHourOfDay("SEARCH", new StatsRequest(search12.getTime().minus(10, ChronoUnit.DAYS), search12.getTime().plus(10, ChronoUnit.DAYS), true));
+        List<CountPerHourOfDay> result = stats.countPerHourOfDay("STATS_SEARCHES", new StatsRequest(search12.getTime().minus(10, ChronoUnit.DAYS), search12.getTime().plus(10, ChronoUnit.DAYS), true));
         assertEquals(24, result.size());
         assertEquals(Integer.valueOf(1), result.get(12).getCount());
         assertEquals(Integer.valueOf(2), result.get(16).getCount());
@@ -299,6 +310,8 @@ public class StatsComponentTest {
         apiAccess4.setResult(IndexerAccessResult.SUCCESSFUL); //Counted as successful
         apiAccess4.setTime(Instant.now().minus(14, ChronoUnit.DAYS));
         apiAccessRepository.save(apiAccess4);
+        statsRollups.recordApiAccesses(Arrays.asList(apiAccess1, apiAccess2, apiAccess3, apiAccess4));
+        statsRollups.flush();
 
         List<IndexerApiAccessStatsEntry> result = stats.indexerApiAccesses(new StatsRequest(Instant.now().minus(10, ChronoUnit.DAYS), Instant.now().plus(10, ChronoUnit.DAYS), false));
         assertEquals(1, result.size());
@@ -346,6 +359,7 @@ public class StatsComponentTest {
 
             searchRepository.save(search1);
             indexerSearchRepository.save(Arrays.asList(indexer1Search1, indexer1Search2Unsuccessful, indexer2Search1));
+            Arrays.asList(indexer1Search1, indexer1Search2Unsuccessful, indexer2Search1).forEach(x -> statsRollups.recordIndexerSearch(x, true, 0));
         }
 
         {
@@ -365,7 +379,9 @@ public class StatsComponentTest {
 
             searchRepository.save(search2UpdateQuery);
             indexerSearchRepository.save(Arrays.asList(indexer1Search2, indexer1Search2));
+            Arrays.asList(indexer1Search2, indexer2Search2).forEach(x -> statsRollups.recordIndexerSearch(x, true, 0));
         }
+        statsRollups.flush();
 
 
         StatsRequest statsRequest = new StatsRequest(Instant.now().minus(10, ChronoUnit.DAYS), Instant.now().plus(10, ChronoUnit.DAYS), true);
@@ -0,0 +1,120 @@
+package org.nzbhydra.historystats;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.nzbhydra.searching.SearchEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class StatsRollupsTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplateMock;
+    @Mock
+    private PlatformTransactionManager transactionManagerMock;
+    private Instant hourStart = Instant.now().truncatedTo(ChronoUnit.HOURS);
+
+    @InjectMocks
+    private StatsRollups testee = new StatsRollups();
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        testee.init();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        testee.shutdown();
+    }
+
+    @Test
+    public void shouldAddUpEventsOfSameHourAndInsertMissingRows() throws Exception {
+        when(jdbcTemplateMock.batchUpdate(startsWith("update"), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class))).thenReturn(new int[][]{{1, 0}});
+        testee.recordSearch(createSearch(hourStart.plusSeconds(10), "user1"));
+        testee.recordSearch(createSearch(hourStart.plusSeconds(20), "user1"));
+        testee.recordSearch(createSearch(hourStart.plusSeconds(30), "user2"));
+
+        assertThat(testee.flush()).isEqualTo(2);
+
+        ArgumentCaptor<Collection> updateCaptor = ArgumentCaptor.forClass(Collection.class);
+        verify(jdbcTemplateMock).batchUpdate(startsWith("update STATS_SEARCHES"), updateCaptor.capture(), anyInt(), any(ParameterizedPreparedStatementSetter.class));
+        assertThat(updateCaptor.getValue()).hasSize(2);
+        ArgumentCaptor<Collection> insertCaptor = ArgumentCaptor.forClass(Collection.class);
+        verify(jdbcTemplateMock).batchUpdate(startsWith("insert into STATS_SEARCHES"), insertCaptor.capture(), anyInt(), any(ParameterizedPreparedStatementSetter.class));
+        assertThat(insertCaptor.getValue()).hasSize(1);
+    }
+
+    @Test
+    public void shouldWriteEventsOneByOneIfBatchFails() throws Exception {
+        when(jdbcTemplateMock.batchUpdate(startsWith("update"), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenThrow(new IllegalStateException("database error"))
+                .thenReturn(new int[][]{{1}});
+        testee.recordSearch(createSearch(hourStart, "user1"));
+
+        assertThat(testee.flush()).isEqualTo(1);
+        assertThat(testee.flush()).isEqualTo(0);
+
+        verify(jdbcTemplateMock, times(2)).batchUpdate(startsWith("update"), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class));
+        verify(jdbcTemplateMock, never()).batchUpdate(startsWith("insert"), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class));
+    }
+
+    @Test
+    public void shouldDropEventsWhichCantBeWritten() throws Exception {
+        when(jdbcTemplateMock.batchUpdate(startsWith("update"), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenThrow(new IllegalStateException("value too long"))
+                .thenThrow(new IllegalStateException("value too long"))
+                .thenReturn(new int[][]{{1}});
+        testee.recordSearch(createSearch(hourStart, "user1"));
+        testee.recordSearch(createSearch(hourStart, "user2"));
+
+        //The batch and one of the entries fail
+        assertThat(testee.flush()).isEqualTo(1);
+        //The failed entry isn't retried
+        assertThat(testee.flush()).isEqualTo(0);
+        verify(jdbcTemplateMock, times(3)).batchUpdate(startsWith("update"), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class));
+    }
+
+    @Test
+    public void shouldNotCountEventsAgainWhichWereIncludedInRebuild() throws Exception {
+        when(jdbcTemplateMock.batchUpdate(startsWith("update"), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class))).thenReturn(new int[][]{{1}});
+        Instant beforeRebuild = Instant.now().minusSeconds(1);
+        testee.recordSearch(createSearch(beforeRebuild, "user1"));
+
+        testee.rebuild();
+        //E.g. written to the history before the rebuild but counted afterwards
+        testee.recordSearch(createSearch(beforeRebuild, "user1"));
+        assertThat(testee.flush()).isEqualTo(0);
+
+        testee.recordSearch(createSearch(Instant.now().plusSeconds(1), "user1"));
+        assertThat(testee.flush()).isEqualTo(1);
+    }
+
+    private SearchEntity createSearch(Instant time, String username) {
+        SearchEntity search = new SearchEntity();
+        search.setTime(time);
+        search.setUsername(username);
+        return search;
+    }
+
+}
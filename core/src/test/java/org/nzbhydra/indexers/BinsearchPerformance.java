@@ -0,0 +1,63 @@
+package org.nzbhydra.indexers;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Resources;
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.nzbhydra.PerformanceMeasurement;
+import org.nzbhydra.PerformanceMeasurement.Measurement;
+import org.nzbhydra.config.BaseConfig;
+import org.nzbhydra.config.ConfigChangedEvent;
+import org.nzbhydra.config.ConfigProvider;
+import org.nzbhydra.config.IndexerConfig;
+import org.nzbhydra.searching.CategoryProvider;
+import org.nzbhydra.searching.IndexerSearchResult;
+import org.nzbhydra.searching.SearchType;
+import org.nzbhydra.searching.searchrequests.SearchRequest;
+import org.nzbhydra.searching.searchrequests.SearchRequest.SearchSource;
+
+/**
+ * Measures handling of saved binsearch pages: Reading the response into a string and building the DOM once per phase (like before) compared
+ * to building it once directly from the response bytes (like {@link IndexerWebAccess} does now). Both variants use the current row parsing.
+ */
+public class BinsearchPerformance {
+
+    private static final int REPETITIONS = 500;
+    private static final MediaType HTML = MediaType.parse("text/html; charset=utf-8");
+
+    public static void main(String[] args) throws Exception {
+        Binsearch binsearch = new Binsearch();
+        binsearch.config = new IndexerConfig();
+        binsearch.config.setName("binsearch");
+        binsearch.categoryProvider = new CategoryProvider();
+        binsearch.configProvider = new ConfigProvider();
+        binsearch.configProvider.handleNewConfig(new ConfigChangedEvent(binsearch, null, new BaseConfig()));
+        SearchRequest searchRequest = new SearchRequest(SearchSource.INTERNAL, SearchType.SEARCH, 0, 100);
+
+        for (String fileName : new String[]{"binsearch.html", "binsearch_randm.html", "binsearch_singlepage.html"}) {
+            byte[] bytes = Resources.toByteArray(Resources.getResource("org/nzbhydra/mapping/" + fileName));
+            Measurement twice = PerformanceMeasurement.measure(REPETITIONS, () -> parseTwice(binsearch, bytes, searchRequest));
+            Measurement once = PerformanceMeasurement.measure(REPETITIONS, () -> parseOnce(binsearch, bytes, searchRequest));
+
+            System.out.println(String.format("%s (%dKB): string + two parses %dµs, %dKB allocated. Bytes + one parse %dµs, %dKB allocated",
+                    fileName, bytes.length / 1024, twice.getMicrosPerRun(), twice.getAllocatedBytesPerRun() / 1024, once.getMicrosPerRun(), once.getAllocatedBytesPerRun() / 1024));
+        }
+    }
+
+    private static void parseTwice(Binsearch binsearch, byte[] bytes, SearchRequest searchRequest) throws Exception {
+        String response = ResponseBody.create(HTML, bytes).string();
+        IndexerSearchResult indexerSearchResult = new IndexerSearchResult(binsearch, true);
+        indexerSearchResult.setSearchResultItems(binsearch.getSearchResultItems(Jsoup.parse(response)));
+        binsearch.completeIndexerSearchResult(Jsoup.parse(response), indexerSearchResult, null, searchRequest);
+    }
+
+    private static void parseOnce(Binsearch binsearch, byte[] bytes, SearchRequest searchRequest) throws Exception {
+        Document document = Jsoup.parse(ResponseBody.create(HTML, bytes).source().inputStream(), "UTF-8", "");
+        IndexerSearchResult indexerSearchResult = new IndexerSearchResult(binsearch, true);
+        indexerSearchResult.setSearchResultItems(binsearch.getSearchResultItems(document));
+        binsearch.completeIndexerSearchResult(document, indexerSearchResult, null, searchRequest);
+    }
+
+}
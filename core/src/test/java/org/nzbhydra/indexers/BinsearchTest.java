@@ -2,6 +2,7 @@ package org.nzbhydra.indexers;
 
 import com.google.common.base.Charsets;
 import com.google.common.io.Resources;
+import org.jsoup.Jsoup;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
@@ -61,7 +62,7 @@ public class BinsearchTest {
     @Test
     public void shouldParseResultsCorrectly() throws Exception {
         String html = Resources.toString(Resources.getResource(BinsearchTest.class, "/org/nzbhydra/mapping/binsearch.html"), Charsets.UTF_8);
-        List<SearchResultItem> searchResultItems = testee.getSearchResultItems(html);
+        List<SearchResultItem> searchResultItems = testee.getSearchResultItems(Jsoup.parse(html));
         assertThat(searchResultItems.size(), is(1));
         SearchResultItem item = searchResultItems.get(0);
         assertThat(item.getTitle(), is("testtitle. 3D.TOPBOT.TrueFrench.1080p.X264.AC3.5.1-JKF.mkv"));
@@ -78,7 +79,7 @@ public class BinsearchTest {
     @Test
     public void shouldParseOtherResultsCorrectly() throws Exception {
         String html = Resources.toString(Resources.getResource(BinsearchTest.class, "/org/nzbhydra/mapping/binsearch_randm.html"), Charsets.UTF_8);
-        List<SearchResultItem> searchResultItems = testee.getSearchResultItems(html);
+        List<SearchResultItem> searchResultItems = testee.getSearchResultItems(Jsoup.parse(html));
         assertThat(searchResultItems.size(), is(41));
     }
 
@@ -92,7 +93,7 @@ public class BinsearchTest {
             items.add(new SearchResultItem());
         }
         indexerSearchResult.setSearchResultItems(items);
-        testee.completeIndexerSearchResult(html, indexerSearchResult, null, searchRequest);
+        testee.completeIndexerSearchResult(Jsoup.parse(html), indexerSearchResult, null, searchRequest);
         assertThat(indexerSearchResult.getOffset(), is(0));
         assertThat(indexerSearchResult.getLimit(), is(100));
         assertThat(indexerSearchResult.getTotalResults(), is(24));
@@ -106,7 +107,7 @@ public class BinsearchTest {
         SearchRequest searchRequest = new SearchRequest(SearchSource.INTERNAL, SearchType.SEARCH, 0, 100);
         String html = Resources.toString(Resources.getResource(BinsearchTest.class, "/org/nzbhydra/mapping/binsearch.html"), Charsets.UTF_8);
         IndexerSearchResult indexerSearchResult = new IndexerSearchResult(testee, "");
-        testee.completeIndexerSearchResult(html, indexerSearchResult, null, searchRequest);
+        testee.completeIndexerSearchResult(Jsoup.parse(html), indexerSearchResult, null, searchRequest);
         assertThat(indexerSearchResult.isTotalResultsKnown(), is(false));
         assertThat(indexerSearchResult.isHasMoreResults(), is(true));
     }
@@ -114,10 +115,30 @@ public class BinsearchTest {
     @Test
     public void shouldRecognizeWhenNoResultsFound() throws Exception {
         String html = Resources.toString(Resources.getResource(BinsearchTest.class, "/org/nzbhydra/mapping/binsearch_noresults.html"), Charsets.UTF_8);
-        List<SearchResultItem> searchResultItems = testee.getSearchResultItems(html);
+        List<SearchResultItem> searchResultItems = testee.getSearchResultItems(Jsoup.parse(html));
         assertThat(searchResultItems, is(empty()));
     }
 
+    @Test
+    public void shouldCompleteSearchResultWhenNoResultsFound() throws Exception {
+        SearchRequest searchRequest = new SearchRequest(SearchSource.INTERNAL, SearchType.SEARCH, 0, 100);
+        String html = Resources.toString(Resources.getResource(BinsearchTest.class, "/org/nzbhydra/mapping/binsearch_noresults.html"), Charsets.UTF_8);
+        IndexerSearchResult indexerSearchResult = new IndexerSearchResult(testee, "");
+        testee.completeIndexerSearchResult(Jsoup.parse(html), indexerSearchResult, null, searchRequest);
+        assertThat(indexerSearchResult.getTotalResults(), is(0));
+        assertThat(indexerSearchResult.isTotalResultsKnown(), is(true));
+        assertThat(indexerSearchResult.isHasMoreResults(), is(false));
+    }
+
+    @Test
+    public void shouldExtractFileNameFromSubject() throws Exception {
+        assertThat(Binsearch.extractFileName("[01/20] - \"Some.Title.720p.part01.rar\" yEnc (1/50)"), is("Some.Title.720p.part01"));
+        assertThat(Binsearch.extractFileName("\"Some.Title.R01\" yEnc"), is("Some.Title"));
+        assertThat(Binsearch.extractFileName("\"Some.Title.mkv\" and \"Some.Title.nfo\" yEnc"), is("Some.Title.mkv\" and \"Some.Title"));
+        assertThat(Binsearch.extractFileName("\"Some.Title.txt\" yEnc"), is("\"Some.Title.txt\" yEnc"));
+        assertThat(Binsearch.extractFileName("Some.Title.mkv yEnc"), is("Some.Title.mkv yEnc"));
+    }
+
     @Test
     public void shouldBuildSimpleQuery() throws IndexerSearchAbortedException {
         SearchRequest searchRequest = new SearchRequest(SearchSource.INTERNAL, SearchType.SEARCH, 0, 100);
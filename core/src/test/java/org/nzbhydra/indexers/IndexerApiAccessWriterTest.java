@@ -0,0 +1,112 @@
+package org.nzbhydra.indexers;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.nzbhydra.historystats.StatsRollups;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class IndexerApiAccessWriterTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplateMock;
+    @Mock
+    private PlatformTransactionManager transactionManagerMock;
+    @Mock
+    private StatsRollups statsRollupsMock;
+    private IndexerEntity indexerEntity = new IndexerEntity();
+
+    @InjectMocks
+    private IndexerApiAccessWriter testee = new IndexerApiAccessWriter();
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        indexerEntity.setId(1);
+        testee.init();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        testee.shutdown();
+    }
+
+    @Test
+    public void shouldWriteQueuedAccessesInBatches() throws Exception {
+        //A full batch is written in the background, the rest by the flush
+        for (int i = 0; i < IndexerApiAccessWriter.BATCH_SIZE + 1; i++) {
+            testee.write(createApiAccess());
+        }
+
+        testee.flush();
+        assertThat(testee.getQueueSize()).isEqualTo(0);
+        verify(jdbcTemplateMock, times(2)).batchUpdate(contains("INDEXERAPIACCESS (ID"), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class));
+        verify(jdbcTemplateMock, times(2)).batchUpdate(contains("INDEXERAPIACCESS_SHORT"), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class));
+        verify(jdbcTemplateMock).batchUpdate(contains("INDEXERAPIACCESS (ID"), anyCollection(), eq(IndexerApiAccessWriter.BATCH_SIZE), any(ParameterizedPreparedStatementSetter.class));
+        verify(jdbcTemplateMock).batchUpdate(contains("INDEXERAPIACCESS (ID"), anyCollection(), eq(1), any(ParameterizedPreparedStatementSetter.class));
+    }
+
+    @Test
+    public void shouldWriteQueuedAccessesOnShutdown() throws Exception {
+        testee.write(createApiAccess());
+
+        testee.shutdown();
+
+        assertThat(testee.getQueueSize()).isEqualTo(0);
+        verify(jdbcTemplateMock).batchUpdate(contains("INDEXERAPIACCESS (ID"), anyCollection(), eq(1), any(ParameterizedPreparedStatementSetter.class));
+    }
+
+    @Test
+    public void shouldNotRetryFailedBatches() throws Exception {
+        when(jdbcTemplateMock.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class))).thenThrow(new IllegalStateException("database error"));
+        testee.write(createApiAccess());
+
+        assertThat(testee.flush()).isEqualTo(0);
+        assertThat(testee.getQueueSize()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldAddQueuedAccessTimesToLoadedOnes() throws Exception {
+        Instant now = Instant.now();
+        IndexerApiAccessEntity queuedAccess = createApiAccess();
+        queuedAccess.setTime(now);
+        testee.write(queuedAccess);
+        IndexerEntity otherIndexer = new IndexerEntity();
+        otherIndexer.setId(2);
+        IndexerApiAccessEntity otherIndexerAccess = new IndexerApiAccessEntity(otherIndexer);
+        otherIndexerAccess.setTime(now.minusSeconds(5));
+        testee.write(otherIndexerAccess);
+
+        List<Instant> times = testee.getAccessTimesIncludingQueued(indexerEntity, () -> Collections.singletonList(now.minusSeconds(10)));
+
+        assertThat(times).containsExactly(now, now.minusSeconds(10));
+    }
+
+    private IndexerApiAccessEntity createApiAccess() {
+        IndexerApiAccessEntity apiAccess = new IndexerApiAccessEntity(indexerEntity);
+        apiAccess.setAccessType(IndexerApiAccessType.SEARCH);
+        apiAccess.setResult(IndexerAccessResult.SUCCESSFUL);
+        return apiAccess;
+    }
+
+}
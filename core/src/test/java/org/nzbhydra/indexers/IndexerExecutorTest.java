@@ -0,0 +1,96 @@
+package org.nzbhydra.indexers;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.nzbhydra.config.BaseConfig;
+import org.nzbhydra.config.ConfigProvider;
+import org.nzbhydra.indexers.exceptions.IndexerCallRejectedException;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.when;
+
+public class IndexerExecutorTest {
+
+    @Mock
+    private ConfigProvider configProviderMock;
+    private BaseConfig baseConfig = new BaseConfig();
+
+    @InjectMocks
+    private IndexerExecutor testee = new IndexerExecutor();
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        when(configProviderMock.getBaseConfig()).thenReturn(baseConfig);
+        baseConfig.getSearching().setIndexerThreads(2);
+        baseConfig.getSearching().setIndexerQueueSize(1);
+        baseConfig.getSearching().setMaxConcurrentCallsPerIndexer(1);
+        testee.init();
+    }
+
+    @After
+    public void tearDown() {
+        testee.shutdown();
+    }
+
+    @Test
+    public void shouldRejectCallsWhenIndexerLimitIsReached() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        Future<String> blockingCall = testee.submitWebCall("indexer1", 1, () -> {
+            latch.await();
+            return "first";
+        });
+        try {
+            testee.submitWebCall("indexer1", 0, () -> "second");
+            fail("Call should've been rejected");
+        } catch (IndexerCallRejectedException e) {
+            //Expected
+        }
+        //Other indexers are not affected
+        assertThat(testee.submitWebCall("indexer2", 0, () -> "other").get(1, TimeUnit.SECONDS)).isEqualTo("other");
+
+        latch.countDown();
+        assertThat(blockingCall.get(1, TimeUnit.SECONDS)).isEqualTo("first");
+        //Permit is released after the first call finished
+        assertThat(testee.submitWebCall("indexer1", 1, () -> "third").get(1, TimeUnit.SECONDS)).isEqualTo("third");
+
+        assertThat(testee.getMetrics().getRejectedTasks()).isEqualTo(1);
+        assertThat(testee.getMetrics().getStartedTasks()).isEqualTo(3);
+    }
+
+    @Test
+    public void shouldReleasePermitWhenQueuedCallIsCancelled() throws Exception {
+        testee.shutdown();
+        baseConfig.getSearching().setIndexerQueueSize(2);
+        testee.init();
+        CountDownLatch latch = new CountDownLatch(1);
+        //Keep both threads busy so that the next call is queued
+        Future<String> blockingCall1 = testee.submitWebCall("indexer2", 0, () -> {
+            latch.await();
+            return "first";
+        });
+        Future<String> blockingCall2 = testee.submitWebCall("indexer3", 0, () -> {
+            latch.await();
+            return "second";
+        });
+        Future<String> queuedCall = testee.submitWebCall("indexer1", 0, () -> "queued");
+        queuedCall.cancel(true);
+
+        //The cancelled call never ran but its permit must be free again
+        Future<String> nextCall = testee.submitWebCall("indexer1", 0, () -> "next");
+        latch.countDown();
+        assertThat(nextCall.get(1, TimeUnit.SECONDS)).isEqualTo("next");
+        assertThat(blockingCall1.get(1, TimeUnit.SECONDS)).isEqualTo("first");
+        assertThat(blockingCall2.get(1, TimeUnit.SECONDS)).isEqualTo("second");
+    }
+
+}
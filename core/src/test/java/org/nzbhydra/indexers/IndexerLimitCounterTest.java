@@ -0,0 +1,178 @@
+package org.nzbhydra.indexers;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.nzbhydra.config.IndexerConfig;
+import org.nzbhydra.downloading.NzbDownloadEntity;
+import org.nzbhydra.downloading.NzbDownloadRepository;
+import org.nzbhydra.downloading.NzbHandler.NzbDownloadEvent;
+import org.nzbhydra.indexers.IndexerLimitCounter.AccessTimes;
+import org.nzbhydra.indexers.IndexerLimitCounter.IndexerLimitState;
+import org.nzbhydra.searching.SearchModuleProvider;
+import org.nzbhydra.searching.SearchResultEntity;
+import org.springframework.data.domain.PageImpl;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class IndexerLimitCounterTest {
+
+    @Mock
+    private NzbDownloadRepository nzbDownloadRepositoryMock;
+    @Mock
+    private SearchModuleProvider searchModuleProviderMock;
+    @Mock
+    private EntityManager entityManagerMock;
+    @Mock
+    private Query queryMock;
+    @Mock
+    private Indexer indexerMock;
+    @Mock
+    private IndexerApiAccessWriter apiAccessWriterMock;
+    private IndexerEntity indexerEntity = new IndexerEntity();
+    private IndexerConfig indexerConfig = new IndexerConfig();
+    private Instant now = Instant.now();
+
+    @InjectMocks
+    private IndexerLimitCounter testee = new IndexerLimitCounter();
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        indexerEntity.setId(1);
+        indexerEntity.setName("indexer");
+        indexerConfig.setName("indexer");
+        when(indexerMock.getName()).thenReturn("indexer");
+        when(indexerMock.getConfig()).thenReturn(indexerConfig);
+        when(indexerMock.getIndexerEntity()).thenReturn(indexerEntity);
+        when(searchModuleProviderMock.getIndexers()).thenReturn(Collections.singletonList(indexerMock));
+        when(entityManagerMock.createNativeQuery(anyString())).thenReturn(queryMock);
+        when(queryMock.getResultList()).thenReturn(Collections.emptyList());
+        when(nzbDownloadRepositoryMock.findBySearchResultIndexerOrderByTimeDesc(any(), any())).thenReturn(new PageImpl<>(Collections.emptyList()));
+        when(apiAccessWriterMock.getAccessTimesIncludingQueued(any(), any())).thenAnswer(x -> x.<Supplier<List<Instant>>>getArgument(1).get());
+    }
+
+    @Test
+    public void shouldLoadApiHitsFromDatabaseOnceAndRecordNewOnes() throws Exception {
+        List<Timestamp> latestFirst = Arrays.asList(Timestamp.from(now.minusSeconds(10)), Timestamp.from(now.minusSeconds(20)));
+        when(queryMock.getResultList()).thenReturn(latestFirst);
+
+        assertThat(testee.getNthLatestApiHit(indexerEntity, 3)).isEmpty();
+        assertThat(testee.getNthLatestApiHit(indexerEntity, 2)).contains(now.minusSeconds(20).truncatedTo(ChronoUnit.MILLIS));
+
+        testee.recordApiHit(indexerEntity, now);
+        assertThat(testee.getNthLatestApiHit(indexerEntity, 1)).contains(now.truncatedTo(ChronoUnit.MILLIS));
+        assertThat(testee.getNthLatestApiHit(indexerEntity, 3)).contains(now.minusSeconds(20).truncatedTo(ChronoUnit.MILLIS));
+        verify(entityManagerMock, times(1)).createNativeQuery(anyString());
+
+        //Limit was raised, more hits than were kept are needed
+        testee.getNthLatestApiHit(indexerEntity, 5);
+        verify(entityManagerMock, times(2)).createNativeQuery(anyString());
+    }
+
+    @Test
+    public void shouldIncludeQueuedApiHits() throws Exception {
+        when(queryMock.getResultList()).thenReturn(Collections.singletonList(Timestamp.from(now.minusSeconds(20))));
+        when(apiAccessWriterMock.getAccessTimesIncludingQueued(any(), any())).thenAnswer(x -> {
+            List<Instant> times = new ArrayList<>(Collections.singletonList(now.minusSeconds(5)));
+            times.addAll(x.<Supplier<List<Instant>>>getArgument(1).get());
+            return times;
+        });
+
+        assertThat(testee.getNthLatestApiHit(indexerEntity, 2)).contains(now.minusSeconds(20).truncatedTo(ChronoUnit.MILLIS));
+    }
+
+    @Test
+    public void shouldRecordDownloads() throws Exception {
+        assertThat(testee.getNthLatestDownload(indexerEntity, 1)).isEmpty();
+
+        SearchResultEntity searchResult = new SearchResultEntity();
+        searchResult.setIndexer(indexerEntity);
+        NzbDownloadEntity download = new NzbDownloadEntity();
+        download.setSearchResult(searchResult);
+        download.setTime(now);
+        testee.handleNzbDownload(new NzbDownloadEvent(download));
+
+        assertThat(testee.getNthLatestDownload(indexerEntity, 1)).contains(now.truncatedTo(ChronoUnit.MILLIS));
+    }
+
+    @Test
+    public void shouldWriteAndRecordApiHits() throws Exception {
+        assertThat(testee.getNthLatestApiHit(indexerEntity, 1)).isEmpty();
+
+        IndexerApiAccessEntity apiAccess = new IndexerApiAccessEntity(indexerEntity);
+        apiAccess.setTime(now);
+        testee.writeApiHit(apiAccess);
+
+        verify(apiAccessWriterMock).write(apiAccess);
+        assertThat(testee.getNthLatestApiHit(indexerEntity, 1)).contains(now.truncatedTo(ChronoUnit.MILLIS));
+    }
+
+    @Test
+    public void shouldNotRecordLoadedDownloadsAgain() throws Exception {
+        SearchResultEntity searchResult = new SearchResultEntity();
+        searchResult.setIndexer(indexerEntity);
+        NzbDownloadEntity download = new NzbDownloadEntity();
+        download.setId(5);
+        download.setSearchResult(searchResult);
+        download.setTime(now);
+        when(nzbDownloadRepositoryMock.findBySearchResultIndexerOrderByTimeDesc(any(), any())).thenReturn(new PageImpl<>(Collections.singletonList(download)));
+
+        assertThat(testee.getNthLatestDownload(indexerEntity, 2)).isEmpty();
+        //Download was saved before loading but its event is published afterwards
+        testee.handleNzbDownload(new NzbDownloadEvent(download));
+
+        assertThat(testee.getNthLatestDownload(indexerEntity, 1)).contains(now.truncatedTo(ChronoUnit.MILLIS));
+        assertThat(testee.getNthLatestDownload(indexerEntity, 2)).isEmpty();
+    }
+
+    @Test
+    public void shouldCalculateRemainingHitsAndDownloads() throws Exception {
+        indexerConfig.setHitLimit(3);
+        indexerConfig.setDownloadLimit(2);
+        testee.handleStartup(null);
+        testee.recordApiHit(indexerEntity, now.minus(2, ChronoUnit.DAYS));
+        testee.recordApiHit(indexerEntity, now.minusSeconds(60));
+
+        List<IndexerLimitState> states = testee.getLimitStates();
+
+        assertThat(states).hasSize(1);
+        assertThat(states.get(0).getHits()).isEqualTo(1);
+        assertThat(states.get(0).getRemainingHits()).isEqualTo(2);
+        assertThat(states.get(0).getDownloads()).isEqualTo(0);
+        assertThat(states.get(0).getRemainingDownloads()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldOverwriteOldestTimes() throws Exception {
+        AccessTimes accessTimes = new AccessTimes(2);
+        accessTimes.add(now.minusSeconds(3));
+        accessTimes.add(now.minusSeconds(2));
+        accessTimes.add(now.minusSeconds(1));
+
+        assertThat(accessTimes.getNthLatest(1)).isEqualTo(Optional.of(now.minusSeconds(1).truncatedTo(ChronoUnit.MILLIS)));
+        assertThat(accessTimes.getNthLatest(2)).isEqualTo(Optional.of(now.minusSeconds(2).truncatedTo(ChronoUnit.MILLIS)));
+        assertThat(accessTimes.getNthLatest(3)).isEmpty();
+        assertThat(accessTimes.countAfter(now.minusMillis(1500))).isEqualTo(1);
+    }
+
+}
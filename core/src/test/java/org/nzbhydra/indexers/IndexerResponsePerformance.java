@@ -0,0 +1,55 @@
+package org.nzbhydra.indexers;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Resources;
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import org.nzbhydra.PerformanceMeasurement;
+import org.nzbhydra.PerformanceMeasurement.Measurement;
+import org.nzbhydra.mapping.newznab.RssStaxParser;
+import org.nzbhydra.web.WebConfiguration;
+import org.springframework.oxm.Unmarshaller;
+
+import javax.xml.transform.stream.StreamSource;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+
+/**
+ * Compares the memory allocated when reading an indexer response into a string and unmarshalling it with JAXB (like before) with reading the
+ * response body's bytes and parsing them with StAX (like {@link IndexerWebAccess} does now). Also prints how much memory the response itself
+ * occupies while it's parsed.
+ */
+public class IndexerResponsePerformance {
+
+    private static final int REPETITIONS = 200;
+    private static final MediaType XML = MediaType.parse("application/xml; charset=utf-8");
+
+    public static void main(String[] args) throws Exception {
+        Unmarshaller unmarshaller = new WebConfiguration().marshaller();
+        for (String fileName : new String[]{"nzbsOrgResponse.xml", "nzbSuResponse.xml", "drunkenSlugResponse.xml", "nzbFinderResponse.xml"}) {
+            byte[] bytes = Resources.toByteArray(Resources.getResource("org/nzbhydra/mapping/" + fileName));
+            Measurement asString = PerformanceMeasurement.measure(REPETITIONS, () -> readAsString(unmarshaller, bytes));
+            Measurement asBytes = PerformanceMeasurement.measure(REPETITIONS, () -> readAsBytes(bytes));
+
+            //A string uses two bytes per character
+            long stringSize = 2L * new String(bytes, Charsets.UTF_8).length();
+            System.out.println(String.format("%s: string + JAXB %dµs, %dKB allocated, body held as %dKB. Bytes + StAX %dµs, %dKB allocated, body held as %dKB",
+                    fileName, asString.getMicrosPerRun(), asString.getAllocatedBytesPerRun() / 1024, stringSize / 1024, asBytes.getMicrosPerRun(), asBytes.getAllocatedBytesPerRun() / 1024, bytes.length / 1024));
+        }
+    }
+
+    private static Object readAsString(Unmarshaller unmarshaller, byte[] bytes) throws Exception {
+        String response = ResponseBody.create(XML, bytes).string();
+        return unmarshaller.unmarshal(new StreamSource(new StringReader(response)));
+    }
+
+    private static Object readAsBytes(byte[] bytes) throws Exception {
+        BufferedSource source = ResponseBody.create(XML, bytes).source();
+        Buffer buffer = new Buffer();
+        source.readAll(buffer);
+        return RssStaxParser.parse(new InputStreamReader(buffer.clone().inputStream(), Charsets.UTF_8));
+    }
+
+}
@@ -1,7 +1,6 @@
 package org.nzbhydra.indexers;
 
 import com.google.common.collect.HashMultiset;
-import com.google.common.collect.Sets;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
@@ -18,6 +17,7 @@ import org.nzbhydra.config.SearchSourceRestriction;
 import org.nzbhydra.indexers.exceptions.IndexerAccessException;
 import org.nzbhydra.indexers.exceptions.IndexerAuthException;
 import org.nzbhydra.indexers.exceptions.IndexerErrorCodeException;
+import org.nzbhydra.indexers.exceptions.IndexerResponseTooLargeException;
 import org.nzbhydra.indexers.exceptions.IndexerSearchAbortedException;
 import org.nzbhydra.indexers.exceptions.IndexerUnreachableException;
 import org.nzbhydra.mapping.newznab.RssError;
@@ -26,12 +26,15 @@ import org.nzbhydra.mediainfo.InfoProvider.IdType;
 import org.nzbhydra.mediainfo.InfoProviderException;
 import org.nzbhydra.mediainfo.MediaInfo;
 import org.nzbhydra.mediainfo.TvInfo;
+import org.nzbhydra.searching.IndexerSearchFinishedEvent;
 import org.nzbhydra.searching.IndexerSearchResult;
 import org.nzbhydra.searching.ResultAcceptor;
 import org.nzbhydra.searching.ResultAcceptor.AcceptorResult;
 import org.nzbhydra.searching.SearchResultEntity;
+import org.nzbhydra.searching.SearchResultIdCalculator;
+import org.nzbhydra.searching.SearchResultIndex;
 import org.nzbhydra.searching.SearchResultItem;
-import org.nzbhydra.searching.SearchResultRepository;
+import org.nzbhydra.searching.SearchResultWriter;
 import org.nzbhydra.searching.SearchType;
 import org.nzbhydra.searching.searchrequests.SearchRequest;
 import org.nzbhydra.searching.searchrequests.SearchRequest.SearchSource;
@@ -47,6 +50,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
@@ -57,6 +61,8 @@ import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -78,11 +84,11 @@ public class IndexerTest {
     @Mock
     private IndexerWebAccess indexerWebAccessMock;
     @Mock
-    private IndexerApiAccessRepository indexerApiAccessRepositoryMock;
+    private IndexerLimitCounter indexerLimitCounterMock;
     @Mock
-    private IndexerApiAccessEntityShortRepository shortRepositoryMock;
+    private SearchResultWriter searchResultWriterMock;
     @Mock
-    private SearchResultRepository searchResultRepositoryMock;
+    private SearchResultIndex searchResultIndexMock;
     @Captor
     private ArgumentCaptor<List<SearchResultEntity>> searchResultEntitiesCaptor;
     @Captor
@@ -101,6 +107,8 @@ public class IndexerTest {
     private ApplicationEventPublisher eventPublisherMock;
     @Mock
     private InfoProvider infoProviderMock;
+    @Mock
+    private IndexerExecutor indexerExecutorMock;
 
     private List<SearchResultItem> searchResultItemsToReturn = Collections.emptyList();
 
@@ -164,6 +172,10 @@ public class IndexerTest {
 
         when(infoProviderMock.convert(anyString(), any())).thenReturn(new MediaInfo(new TvInfo("tvdbid", "tvrageid", "tvmazeid", "title", 2017, "")));
 
+        Executor directExecutor = Runnable::run;
+        when(indexerExecutorMock.getSearchExecutor()).thenReturn(directExecutor);
+        when(indexerExecutorMock.getProcessingExecutor()).thenReturn(directExecutor);
+
         testee = spy(testee);
     }
 
@@ -174,38 +186,41 @@ public class IndexerTest {
         item.setTitle("title");
         item.setDetails("details");
         item.setIndexerGuid("guid");
+        when(searchResultWriterMock.writeNew(anyList())).thenAnswer(x -> x.getArgument(0));
 
         testee.persistSearchResults(Collections.singletonList(item));
 
-        verify(searchResultRepositoryMock).save(searchResultEntitiesCaptor.capture());
+        verify(searchResultWriterMock).writeNew(searchResultEntitiesCaptor.capture());
 
         List<SearchResultEntity> persistedEntities = searchResultEntitiesCaptor.getValue();
         assertThat(persistedEntities.size(), is(1));
         assertThat(persistedEntities.get(0).getTitle(), is("title"));
         assertThat(persistedEntities.get(0).getDetails(), is("details"));
         assertThat(persistedEntities.get(0).getIndexerGuid(), is("guid"));
+        assertThat(item.getSearchResultId(), is(SearchResultIdCalculator.calculateSearchResultId(item)));
+        verify(searchResultIndexMock).add(persistedEntities);
     }
 
     @Test
-    public void shouldNotCreateNewSearchResultEntityWhenOneExists() throws Exception {
+    public void shouldNotIndexSearchResultEntityWhenOneExists() throws Exception {
         SearchResultItem item = new SearchResultItem();
         item.setIndexerGuid("guid");
         item.setIndexer(indexerMock);
-        when(searchResultEntityMock.getIndexerGuid()).thenReturn("guid");
-        when(searchResultRepositoryMock.findAllIdsByIdIn(anyList())).thenReturn(Sets.newHashSet(299225959498991027L));
+        when(searchResultWriterMock.writeNew(anyList())).thenReturn(Collections.emptyList());
 
         testee.persistSearchResults(Collections.singletonList(item));
 
-        verify(searchResultRepositoryMock).save(searchResultEntitiesCaptor.capture());
-
-        List<SearchResultEntity> persistedEntities = searchResultEntitiesCaptor.getValue();
-        assertThat(persistedEntities.size(), is(0));
+        verify(searchResultWriterMock).writeNew(searchResultEntitiesCaptor.capture());
+        assertThat(searchResultEntitiesCaptor.getValue().size(), is(1));
+        verify(searchResultIndexMock).add(Collections.emptyList());
+        assertThat(item.getSearchResultId(), is(SearchResultIdCalculator.calculateSearchResultId(item)));
     }
 
 
     @Test
     public void handleSuccess() throws Exception {
         when(indexerMock.getIndexerEntity().getStatus()).thenReturn(statusMock);
+        when(statusMock.getLevel()).thenReturn(1);
         testee.handleSuccess(IndexerApiAccessType.SEARCH, 0L);
 
         verify(statusMock).setDisabledPermanently(false);
@@ -213,6 +228,22 @@ public class IndexerTest {
         verify(statusMock).setDisabledUntil(null);
 
         verify(indexerRepositoryMock).save(indexerEntityMock);
+        ArgumentCaptor<IndexerApiAccessEntity> apiAccessCaptor = ArgumentCaptor.forClass(IndexerApiAccessEntity.class);
+        verify(indexerLimitCounterMock).writeApiHit(apiAccessCaptor.capture());
+        assertThat(apiAccessCaptor.getValue().getResult(), is(IndexerAccessResult.SUCCESSFUL));
+        assertThat(apiAccessCaptor.getValue().getAccessType(), is(IndexerApiAccessType.SEARCH));
+    }
+
+    @Test
+    public void shouldNotSaveStatusIfSuccessDoesntChangeIt() throws Exception {
+        when(indexerMock.getIndexerEntity().getStatus()).thenReturn(statusMock);
+        when(statusMock.getLevel()).thenReturn(0);
+        when(statusMock.getDisabledPermanently()).thenReturn(false);
+        when(statusMock.getDisabledUntil()).thenReturn(null);
+        testee.handleSuccess(IndexerApiAccessType.SEARCH, 0L);
+
+        verify(indexerRepositoryMock, never()).save(any(IndexerEntity.class));
+        verify(indexerLimitCounterMock).writeApiHit(any());
     }
 
     @Test
@@ -266,6 +297,17 @@ public class IndexerTest {
         verify(testee).handleFailure("Indexer returned with error code 101 and description errorMessage", false, IndexerApiAccessType.SEARCH, null, IndexerAccessResult.API_ERROR);
     }
 
+    @Test
+    public void shouldNotDisableIndexerIfResponseIsTooLarge() throws Exception {
+        testee.handleIndexerAccessException(new IndexerResponseTooLargeException("too large"), IndexerApiAccessType.SEARCH);
+
+        verify(testee, never()).handleFailure(any(), any(), any(), any(), any());
+        verify(indexerRepositoryMock, never()).save(any(IndexerEntity.class));
+        ArgumentCaptor<IndexerApiAccessEntity> apiAccessCaptor = ArgumentCaptor.forClass(IndexerApiAccessEntity.class);
+        verify(indexerLimitCounterMock).writeApiHit(apiAccessCaptor.capture());
+        assertThat(apiAccessCaptor.getValue().getResult(), is(IndexerAccessResult.HYDRA_ERROR));
+    }
+
     @Test
     public void shouldUseFallback() throws Exception {
 
@@ -282,6 +324,34 @@ public class IndexerTest {
         verify(testee, times(2)).searchInternal(searchRequestCaptor.capture(), anyInt(), anyInt());
     }
 
+    @Test
+    public void shouldUseFallbackWhenSearchingAsynchronously() throws Exception {
+        SearchRequest searchRequest = new SearchRequest(SearchSource.INTERNAL, SearchType.SEARCH, 0, 100);
+        Map<IdType, String> identifiers = new HashMap<>();
+        identifiers.put(IdType.IMDB, "123");
+        searchRequest.setIdentifiers(identifiers);
+
+        IndexerSearchResult indexerSearchResult = testee.searchAsync(searchRequest, 0, 100).get();
+
+        assertThat(indexerSearchResult.isWasSuccessful(), is(true));
+        verify(testee, times(2)).searchInternalAsync(any(), anyInt(), anyInt());
+        verify(testee, times(2)).handleSuccess(eq(IndexerApiAccessType.SEARCH), anyLong());
+        //One for the original search, one for the fallback
+        verify(eventPublisherMock, times(2)).publishEvent(any(IndexerSearchFinishedEvent.class));
+    }
+
+    @Test
+    public void shouldHandleErrorsWhenSearchingAsynchronously() throws Exception {
+        IndexerAccessException exception = new IndexerUnreachableException("error");
+        doThrow(exception).when(testee).getAndStoreResultToDatabase(any(), eq(IndexerApiAccessType.SEARCH));
+
+        IndexerSearchResult indexerSearchResult = testee.searchAsync(new SearchRequest(SearchSource.INTERNAL, SearchType.SEARCH, 0, 100), 0, 100).get();
+
+        assertThat(indexerSearchResult.isWasSuccessful(), is(false));
+        verify(testee).handleIndexerAccessException(exception, IndexerApiAccessType.SEARCH);
+        verify(eventPublisherMock).publishEvent(any(IndexerSearchFinishedEvent.class));
+    }
+
     @Test
     public void shouldGenerateQuery() throws IndexerSearchAbortedException {
         baseConfig.getSearching().setGenerateQueries(SearchSourceRestriction.BOTH);
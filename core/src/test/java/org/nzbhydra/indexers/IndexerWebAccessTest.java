@@ -1,5 +1,8 @@
 package org.nzbhydra.indexers;
 
+import com.google.common.base.Charsets;
+import com.google.common.io.Resources;
+import okio.Buffer;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
@@ -11,18 +14,32 @@ import org.nzbhydra.config.BaseConfig;
 import org.nzbhydra.config.ConfigProvider;
 import org.nzbhydra.config.IndexerConfig;
 import org.nzbhydra.config.SearchingConfig;
+import org.nzbhydra.mapping.RssMappingTest;
 import org.nzbhydra.mapping.newznab.RssRoot;
+import org.nzbhydra.mapping.newznab.Xml;
+import org.nzbhydra.indexers.exceptions.IndexerResponseTooLargeException;
+import org.nzbhydra.okhttp.ResponseTooLargeException;
 import org.nzbhydra.okhttp.WebAccess;
+import org.nzbhydra.okhttp.WebAccess.BodyConsumer;
 import org.springframework.oxm.Unmarshaller;
 
+import java.io.IOException;
 import java.net.URI;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.data.MapEntry.entry;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class IndexerWebAccessTest {
@@ -36,6 +53,8 @@ public class IndexerWebAccessTest {
     private IndexerConfig indexerConfig = new IndexerConfig();
     @Mock
     private Unmarshaller unmarshallerMock;
+    @Mock
+    private IndexerExecutor indexerExecutorMock;
     @Captor
     ArgumentCaptor<Map<String, String>> headersCaptor;
     @Captor
@@ -50,7 +69,7 @@ public class IndexerWebAccessTest {
         String xml = "<?xml version=\"1.0\" ?>\n" +
                 "<metadata>\n" +
                 "</metadata>";
-        when(webAccessMock.callUrl(anyString(), headersCaptor.capture(), timeoutCaptor.capture())).thenReturn(xml);
+        respondWith(xml);
         BaseConfig baseConfig = new BaseConfig();
         baseConfig.setSearching(searchingConfigMock);
         when(configProviderMock.getBaseConfig()).thenReturn(baseConfig);
@@ -59,6 +78,7 @@ public class IndexerWebAccessTest {
         indexerConfig.setTimeout(10);
         indexerConfig.setUserAgent("indexerUa");
         when(unmarshallerMock.unmarshal(any())).thenReturn(new RssRoot());
+        when(indexerExecutorMock.submitWebCall(any(), anyInt(), any())).thenAnswer(invocation -> CompletableFuture.completedFuture(((Callable) invocation.getArgument(2)).call()));
     }
 
     @Test
@@ -93,7 +113,43 @@ public class IndexerWebAccessTest {
         assertThat(timeoutCaptor.getValue()).isEqualTo(100);
     }
 
+    @Test
+    public void shouldParseRssResponsesWithoutJaxb() throws Exception {
+        respondWith(Resources.toString(Resources.getResource(RssMappingTest.class, "newznab_3results.xml"), Charsets.UTF_8));
 
+        Xml response = testee.get(new URI("http://127.0.0.1"), indexerConfig, Xml.class);
 
+        assertThat(((RssRoot) response).getRssChannel().getItems()).hasSize(3);
+        verify(unmarshallerMock, never()).unmarshal(any());
+    }
+
+    @Test
+    public void shouldFallBackToJaxbForUnknownResponses() throws Exception {
+        Xml response = testee.get(new URI("http://127.0.0.1"), indexerConfig, Xml.class);
+
+        assertThat(response).isInstanceOf(RssRoot.class);
+        verify(unmarshallerMock).unmarshal(any());
+    }
+
+    @Test
+    public void shouldReturnStringResponses() throws Exception {
+        respondWith("<html>some page</html>");
+
+        String response = testee.get(new URI("http://127.0.0.1"), indexerConfig, String.class);
+
+        assertThat(response).isEqualTo("<html>some page</html>");
+    }
+
+    @Test(expected = IndexerResponseTooLargeException.class)
+    public void shouldThrowAccessExceptionIfResponseIsTooLarge() throws Exception {
+        doThrow(new ResponseTooLargeException("http://127.0.0.1", 1024)).when(webAccessMock).callUrl(anyString(), any(), anyInt(), anyLong(), any());
+
+        testee.get(new URI("http://127.0.0.1"), indexerConfig, String.class);
+    }
+
+    private void respondWith(String body) throws IOException {
+        //doAnswer because the answer of an earlier stubbing would be called by when()
+        doAnswer(invocation -> ((BodyConsumer) invocation.getArgument(4)).consume(new Buffer().writeUtf8(body), Charsets.UTF_8)).when(webAccessMock).callUrl(anyString(), headersCaptor.capture(), timeoutCaptor.capture(), anyLong(), any());
+    }
 
-}
\ No newline at end of file
+}
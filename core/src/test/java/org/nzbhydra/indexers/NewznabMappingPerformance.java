@@ -0,0 +1,44 @@
+package org.nzbhydra.indexers;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Resources;
+import org.nzbhydra.PerformanceMeasurement;
+import org.nzbhydra.PerformanceMeasurement.Measurement;
+import org.nzbhydra.config.BaseConfig;
+import org.nzbhydra.config.ConfigChangedEvent;
+import org.nzbhydra.config.ConfigProvider;
+import org.nzbhydra.config.IndexerConfig;
+import org.nzbhydra.mapping.newznab.RssRoot;
+import org.nzbhydra.mapping.newznab.RssStaxParser;
+import org.nzbhydra.searching.CategoryProvider;
+
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+
+/**
+ * Measures how many items per second {@link Newznab#getSearchResultItems(org.nzbhydra.mapping.newznab.Xml)} maps from saved indexer responses
+ * (already parsed, so only the mapping is measured) and how much memory is allocated per item.
+ */
+public class NewznabMappingPerformance {
+
+    private static final int WARM_UP_SECONDS = 5;
+    private static final int MEASURE_SECONDS = 5;
+
+    public static void main(String[] args) throws Exception {
+        Newznab newznab = new Newznab();
+        newznab.config = new IndexerConfig();
+        newznab.config.setName("newznab");
+        newznab.configProvider = new ConfigProvider();
+        newznab.configProvider.handleNewConfig(new ConfigChangedEvent(newznab, null, new BaseConfig()));
+        newznab.categoryProvider = new CategoryProvider();
+        newznab.categoryProvider.setCategories(new ArrayList<>());
+
+        for (String fileName : new String[]{"nzbsOrgResponse.xml", "nzbSuResponse.xml", "drunkenSlugResponse.xml", "nzbFinderResponse.xml"}) {
+            RssRoot rssRoot = (RssRoot) RssStaxParser.parse(new InputStreamReader(Resources.getResource("org/nzbhydra/mapping/" + fileName).openStream(), Charsets.UTF_8));
+            int itemsPerCall = rssRoot.getRssChannel().getItems().size();
+            Measurement measurement = PerformanceMeasurement.measureForSeconds(WARM_UP_SECONDS, MEASURE_SECONDS, () -> newznab.getSearchResultItems(rssRoot));
+            System.out.println(String.format("%s: %d items/s, %d bytes allocated per item", fileName, measurement.getRuns() * itemsPerCall / MEASURE_SECONDS, measurement.getAllocatedBytesPerRun() / itemsPerCall));
+        }
+    }
+
+}
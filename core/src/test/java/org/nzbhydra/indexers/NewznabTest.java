@@ -41,14 +41,16 @@ import org.nzbhydra.mapping.newznab.builder.RssItemBuilder;
 import org.nzbhydra.mediainfo.InfoProvider;
 import org.nzbhydra.mediainfo.InfoProvider.IdType;
 import org.nzbhydra.mediainfo.MediaInfo;
+import org.nzbhydra.okhttp.ConditionalResponse;
 import org.nzbhydra.searching.CategoryProvider;
 import org.nzbhydra.searching.IndexerSearchResult;
 import org.nzbhydra.searching.ResultAcceptor;
 import org.nzbhydra.searching.ResultAcceptor.AcceptorResult;
+import org.nzbhydra.searching.SearchResultIndex;
 import org.nzbhydra.searching.SearchResultItem;
 import org.nzbhydra.searching.SearchResultItem.DownloadType;
 import org.nzbhydra.searching.SearchResultItem.HasNfo;
-import org.nzbhydra.searching.SearchResultRepository;
+import org.nzbhydra.searching.SearchResultWriter;
 import org.nzbhydra.searching.SearchType;
 import org.nzbhydra.searching.searchrequests.InternalData.FallbackState;
 import org.nzbhydra.searching.searchrequests.SearchRequest;
@@ -58,6 +60,7 @@ import org.springframework.util.MultiValueMap;
 import org.springframework.web.util.UriComponents;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import java.net.URI;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -74,6 +77,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.ArgumentMatchers.anySet;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
@@ -101,13 +105,13 @@ public class NewznabTest {
     @Mock
     private IndexerSearchRepository indexerSearchRepositoryMock;
     @Mock
-    private IndexerApiAccessEntityShortRepository shortRepositoryMock;
+    private SearchResultWriter searchResultWriterMock;
     @Mock
-    private SearchResultRepository searchResultRepositoryMock;
+    private SearchResultIndex searchResultIndexMock;
     @Mock
     private IndexerRepository indexerRepositoryMock;
     @Mock
-    private IndexerApiAccessRepository indexerApiAccessRepositoryMock;
+    private IndexerLimitCounter indexerLimitCounterMock;
     @Mock
     private UriComponentsBuilder uriComponentsBuilderMock;
     @Mock
@@ -536,6 +540,16 @@ public class NewznabTest {
         assertThat(item.getDetails(), is("detailsLink"));
     }
 
+    @Test
+    public void shouldExtractIndexerGuidFromPermalink() throws Exception {
+        assertThat(Newznab.extractGuidFromLink("https://indexer.com/details/abc123"), is("abc123"));
+        assertThat(Newznab.extractGuidFromLink("https://indexer.com/details/abc123#comments"), is("abc123"));
+        assertThat(Newznab.extractGuidFromLink("abc.123@indexer"), is("abc.123@indexer"));
+        assertThat(Newznab.extractGuidFromLink("https://indexer.com/details/"), is("https://indexer.com/details/"));
+        assertThat(Newznab.extractGuidFromLink("https://indexer.com/details?id=abc123"), is("https://indexer.com/details?id=abc123"));
+        assertThat(Newznab.extractGuidFromLink("https://indexer.com/details/abc123#"), is("https://indexer.com/details/abc123#"));
+    }
+
     @Test
     public void shouldGetDetailsLinkFromCommentsIfNotSetFromRssGuid() throws Exception {
         RssItem rssItem = buildBasicRssItem();
@@ -684,4 +698,64 @@ public class NewznabTest {
         assertThat(uri, containsString("imdbid=123"));
     }
 
+
+    @Test
+    public void shouldReuseResponseWhenRssFeedIsNotModified() throws Exception {
+        baseConfig.getSearching().setRssDeltaPolling(true);
+        RssRoot root = RssBuilder.builder().items(Arrays.asList(RssItemBuilder.builder("title1").build(), RssItemBuilder.builder("title2").build())).newznabResponse(0, 2).build();
+        doReturn(new ConditionalResponse<>(false, "etag", null, root)).when(indexerWebAccessMock).getConditionally(any(), eq(testee.config), any(), isNull(), isNull());
+        doReturn(new ConditionalResponse<>(true, "etag", null, null)).when(indexerWebAccessMock).getConditionally(any(), eq(testee.config), any(), eq("etag"), isNull());
+
+        testee.searchInternal(new SearchRequest(SearchSource.API, SearchType.SEARCH, 0, 100), 0, 100);
+        IndexerSearchResult indexerSearchResult = testee.searchInternal(new SearchRequest(SearchSource.API, SearchType.SEARCH, 0, 100), 0, 100);
+
+        assertThat(indexerSearchResult.getSearchResultItems().size(), is(2));
+        assertThat(indexerSearchResult.getTotalResults(), is(2));
+        verify(indexerWebAccessMock).getConditionally(any(), eq(testee.config), any(), eq("etag"), isNull());
+        verify(indexerWebAccessMock, never()).get(any(), any(), any());
+    }
+
+    @Test
+    public void shouldMergeNewestResultsWithPreviousRssPoll() throws Exception {
+        baseConfig.getSearching().setRssDeltaPolling(true);
+        List<RssItem> previousItems = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            previousItems.add(RssItemBuilder.builder("old" + i).build());
+        }
+        RssRoot previous = RssBuilder.builder().items(previousItems).newznabResponse(0, 500).build();
+        doReturn(new ConditionalResponse<>(false, null, null, previous)).when(indexerWebAccessMock).getConditionally(any(), eq(testee.config), any(), isNull(), isNull());
+        List<RssItem> newestItems = new ArrayList<>(Arrays.asList(RssItemBuilder.builder("new1").build(), RssItemBuilder.builder("new2").build()));
+        newestItems.addAll(previousItems.subList(0, Newznab.RSS_DELTA_PAGE_SIZE - 2));
+        RssRoot newestPage = RssBuilder.builder().items(newestItems).newznabResponse(0, 502).build();
+        when(indexerWebAccessMock.get(any(), eq(testee.config), any())).thenReturn(newestPage);
+
+        testee.searchInternal(new SearchRequest(SearchSource.API, SearchType.SEARCH, 0, 100), 0, 100);
+        IndexerSearchResult indexerSearchResult = testee.searchInternal(new SearchRequest(SearchSource.API, SearchType.SEARCH, 0, 100), 0, 100);
+
+        assertThat(indexerSearchResult.getSearchResultItems().size(), is(100));
+        assertThat(indexerSearchResult.getSearchResultItems().get(0).getTitle(), is("new1"));
+        assertThat(indexerSearchResult.getSearchResultItems().get(2).getTitle(), is("old0"));
+        assertThat(indexerSearchResult.getSearchResultItems().get(99).getTitle(), is("old97"));
+        assertThat(indexerSearchResult.getTotalResults(), is(502));
+        verify(indexerWebAccessMock, times(1)).getConditionally(any(), eq(testee.config), any(), isNull(), isNull());
+        ArgumentCaptor<URI> uriCaptor = ArgumentCaptor.forClass(URI.class);
+        verify(indexerWebAccessMock).get(uriCaptor.capture(), eq(testee.config), any());
+        assertThat(uriCaptor.getValue().toString(), containsString("limit=" + Newznab.RSS_DELTA_PAGE_SIZE));
+    }
+
+    @Test
+    public void shouldLoadAllResultsWhenNewestResultsDontOverlapWithPreviousRssPoll() throws Exception {
+        baseConfig.getSearching().setRssDeltaPolling(true);
+        RssRoot previous = RssBuilder.builder().items(Arrays.asList(RssItemBuilder.builder("old").build())).newznabResponse(0, 1).build();
+        doReturn(new ConditionalResponse<>(false, null, null, previous)).when(indexerWebAccessMock).getConditionally(any(), eq(testee.config), any(), isNull(), isNull());
+        RssRoot newestPage = RssBuilder.builder().items(Arrays.asList(RssItemBuilder.builder("new").build())).newznabResponse(0, 2).build();
+        when(indexerWebAccessMock.get(any(), eq(testee.config), any())).thenReturn(newestPage);
+
+        testee.searchInternal(new SearchRequest(SearchSource.API, SearchType.SEARCH, 0, 100), 0, 100);
+        testee.searchInternal(new SearchRequest(SearchSource.API, SearchType.SEARCH, 0, 100), 0, 100);
+
+        verify(indexerWebAccessMock, times(1)).get(any(), eq(testee.config), any());
+        verify(indexerWebAccessMock, times(2)).getConditionally(any(), eq(testee.config), any(), isNull(), isNull());
+    }
+
 }
\ No newline at end of file
@@ -59,7 +59,7 @@ public class TorznabTest {
     @Mock
     private IndexerRepository indexerRepositoryMock;
     @Mock
-    private IndexerApiAccessRepository indexerApiAccessRepositoryMock;
+    private IndexerLimitCounter indexerLimitCounterMock;
     @Mock
     private UriComponentsBuilder uriComponentsBuilderMock;
     @Captor
@@ -0,0 +1,67 @@
+package org.nzbhydra.mapping;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Resources;
+import org.nzbhydra.PerformanceMeasurement;
+import org.nzbhydra.PerformanceMeasurement.Measurement;
+import org.nzbhydra.mapping.newznab.RssItem;
+import org.nzbhydra.mapping.newznab.RssRoot;
+import org.nzbhydra.mapping.newznab.RssStaxParser;
+import org.nzbhydra.mapping.newznab.Xml;
+import org.nzbhydra.web.WebConfiguration;
+import org.springframework.oxm.Unmarshaller;
+
+import javax.xml.transform.stream.StreamSource;
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compares the time and memory needed to parse recorded indexer responses using JAXB (from the response string, like before) and using the
+ * {@link RssStaxParser} (from the response bytes). Also parses a page of 100 items with long descriptions built from the recorded items.
+ */
+public class RssParserPerformance {
+
+    private static final int REPETITIONS = 200;
+
+    public static void main(String[] args) throws Exception {
+        Unmarshaller unmarshaller = new WebConfiguration().marshaller();
+        List<String> fileNames = Arrays.asList("nzbsOrgResponse.xml", "nzbSuResponse.xml", "drunkenSlugResponse.xml", "nzbFinderResponse.xml", "btnJackettResponse.xml", "omgwtfResponse.xml");
+        List<String> responses = new ArrayList<>();
+        for (String fileName : fileNames) {
+            responses.add(Resources.toString(Resources.getResource(RssParserPerformance.class, fileName), Charsets.UTF_8));
+        }
+        responses.add(createLargePage(unmarshaller, responses.get(0)));
+        List<String> names = new ArrayList<>(fileNames);
+        names.add("100 items with long descriptions");
+
+        for (int i = 0; i < responses.size(); i++) {
+            String response = responses.get(i);
+            byte[] bytes = response.getBytes(Charsets.UTF_8);
+            //The response string was created from the bytes too
+            Measurement jaxb = PerformanceMeasurement.measure(REPETITIONS, () -> unmarshaller.unmarshal(new StreamSource(new StringReader(new String(bytes, Charsets.UTF_8)))));
+            Measurement stax = PerformanceMeasurement.measure(REPETITIONS, () -> RssStaxParser.parse(new ByteArrayInputStream(bytes)));
+
+            System.out.println(String.format("%s (%dKB): JAXB %dµs, %dKB allocated. StAX %dµs, %dKB allocated", names.get(i), bytes.length / 1024, jaxb.getMicrosPerRun(), jaxb.getAllocatedBytesPerRun() / 1024, stax.getMicrosPerRun(), stax.getAllocatedBytesPerRun() / 1024));
+        }
+    }
+
+    private static String createLargePage(Unmarshaller unmarshaller, String response) throws Exception {
+        RssRoot rssRoot = (RssRoot) unmarshaller.unmarshal(new StreamSource(new StringReader(response)));
+        List<RssItem> items = new ArrayList<>(rssRoot.getRssChannel().getItems());
+        rssRoot.getRssChannel().getItems().clear();
+        StringBuilder description = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            description.append("A long description with &lt;b&gt;markup&lt;/b&gt; like some indexers return. ");
+        }
+        for (int i = 0; i < 100; i++) {
+            RssItem item = items.get(i % items.size());
+            item.setDescription(description.toString());
+            rssRoot.getRssChannel().getItems().add(item);
+        }
+        return ((Xml) rssRoot).toXmlString();
+    }
+
+}
@@ -0,0 +1,53 @@
+package org.nzbhydra.mapping;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Resources;
+import org.junit.Test;
+import org.nzbhydra.mapping.newznab.RssError;
+import org.nzbhydra.mapping.newznab.RssStaxParser;
+import org.nzbhydra.mapping.newznab.Xml;
+import org.nzbhydra.web.WebConfiguration;
+import org.springframework.oxm.Unmarshaller;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.transform.stream.StreamSource;
+import java.io.StringReader;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RssStaxParserTest {
+
+    private Unmarshaller unmarshaller = new WebConfiguration().marshaller();
+
+    @Test
+    public void shouldCreateSameObjectsAsJaxb() throws Exception {
+        for (String fileName : Arrays.asList("newznab_3results.xml", "anizbResponse.xml", "btnJackettResponse.xml", "cardigann.xml", "drunkenSlugResponse.xml", "newztownResponse.xml", "nfo.xml",
+                "nzbAgResponse.xml", "nzbCatResponse.xml", "nzbFinderResponse.xml", "nzbIndexResponse.xml", "nzbSuResponse.xml", "nzbsOrgResponse.xml", "omgwtfResponse.xml", "tabulaRasaResponse.xml")) {
+            String xml = Resources.toString(Resources.getResource(RssStaxParserTest.class, fileName), Charsets.UTF_8);
+            Xml expected = (Xml) unmarshaller.unmarshal(new StreamSource(new StringReader(xml)));
+
+            assertThat(RssStaxParser.parse(new StringReader(xml))).as(fileName).isEqualTo(expected);
+            assertThat(RssStaxParser.parse(Resources.getResource(RssStaxParserTest.class, fileName).openStream())).as(fileName).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    public void shouldParseError() throws Exception {
+        Xml xml = RssStaxParser.parse(new StringReader("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<error code=\"100\" description=\"Incorrect user credentials\"/>"));
+
+        assertThat(xml).isEqualTo(new RssError("100", "Incorrect user credentials"));
+    }
+
+    @Test(expected = XMLStreamException.class)
+    public void shouldRejectCapsResponses() throws Exception {
+        RssStaxParser.parse(Resources.getResource(RssStaxParserTest.class, "nzbsOrgCapsResponse.xml").openStream());
+    }
+
+    @Test(expected = XMLStreamException.class)
+    public void shouldRejectUnparseableDates() throws Exception {
+        //JAXB ignores the date
+        RssStaxParser.parse(Resources.getResource(RssStaxParserTest.class, "invalidResponseWeirdDateFormat.xml").openStream());
+    }
+
+}
@@ -0,0 +1,58 @@
+package org.nzbhydra.okhttp;
+
+import okhttp3.CipherSuite;
+import okhttp3.Connection;
+import okhttp3.ConnectionPool;
+import okhttp3.Handshake;
+import okhttp3.TlsVersion;
+import org.junit.Test;
+import org.nzbhydra.okhttp.ConnectionStatistics.ConnectionStats;
+import org.nzbhydra.okhttp.ConnectionStatistics.HostConnectionStats;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ConnectionStatisticsTest {
+
+    private ConnectionStatistics testee = new ConnectionStatistics();
+
+    @Test
+    public void shouldCountNewAndReusedConnections() {
+        Connection plainConnection = mock(Connection.class);
+        Connection tlsConnection = mock(Connection.class);
+        when(tlsConnection.handshake()).thenReturn(Handshake.get(TlsVersion.TLS_1_2, CipherSuite.TLS_RSA_WITH_AES_128_CBC_SHA, Collections.emptyList(), Collections.emptyList()));
+
+        testee.record("localhost", plainConnection);
+        testee.record("localhost", plainConnection);
+        testee.record("indexer.com", tlsConnection);
+        testee.record("INDEXER.com", tlsConnection);
+        testee.record("indexer.com", tlsConnection);
+
+        ConnectionStats stats = testee.getStats(new ConnectionPool(), 2, Collections.singletonMap("indexer.com", Arrays.asList("indexer1", "indexer2")));
+        assertThat(stats.getClients()).isEqualTo(2);
+        assertThat(stats.getRequests()).isEqualTo(5);
+        assertThat(stats.getNewConnections()).isEqualTo(2);
+        assertThat(stats.getReusedConnections()).isEqualTo(3);
+        assertThat(stats.getTlsHandshakes()).isEqualTo(1);
+        assertThat(stats.getReuseRate()).isEqualTo(0.6);
+        assertThat(stats.getPooledConnections()).isEqualTo(0);
+
+        assertThat(stats.getHosts()).hasSize(2);
+        HostConnectionStats indexerStats = stats.getHosts().get(0);
+        assertThat(indexerStats.getHost()).isEqualTo("indexer.com");
+        assertThat(indexerStats.getIndexers()).containsExactly("indexer1", "indexer2");
+        assertThat(indexerStats.getRequests()).isEqualTo(3);
+        assertThat(indexerStats.getNewConnections()).isEqualTo(1);
+        assertThat(indexerStats.getReusedConnections()).isEqualTo(2);
+        assertThat(indexerStats.getTlsHandshakes()).isEqualTo(1);
+        HostConnectionStats localStats = stats.getHosts().get(1);
+        assertThat(localStats.getHost()).isEqualTo("localhost");
+        assertThat(localStats.getIndexers()).isEmpty();
+        assertThat(localStats.getReuseRate()).isEqualTo(0.5);
+    }
+
+}
@@ -7,6 +7,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.nzbhydra.config.BaseConfig;
+import org.nzbhydra.config.ConfigChangedEvent;
 import org.nzbhydra.config.ConfigProvider;
 import org.nzbhydra.config.ProxyType;
 import org.nzbhydra.okhttp.HydraOkHttp3ClientHttpRequestFactory.SockProxySocketFactory;
@@ -17,6 +18,8 @@ import java.net.URISyntaxException;
 import java.util.Arrays;
 
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.hamcrest.Matchers.nullValue;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
@@ -95,5 +98,67 @@ public class HydraOkHttp3ClientHttpRequestFactoryTest {
         assertThat(((SockProxySocketFactory) client.socketFactory()).password, is("pass"));
     }
 
+    @Test
+    public void shouldReuseClientsForSameProfile() throws URISyntaxException {
+        baseConfig.getMain().setProxyType(ProxyType.NONE);
+        OkHttpClient client = testee.getOkHttpClient(new URI("http://www.google.de"));
+        assertThat(testee.getOkHttpClient(new URI("https://www.somewhere.com/api")), is(sameInstance(client)));
+
+        OkHttpClient clientWithTimeout = testee.getOkHttpClient(new URI("http://www.google.de"), 30);
+        assertThat(clientWithTimeout, is(not(sameInstance(client))));
+        assertThat(clientWithTimeout.readTimeoutMillis(), is(30000));
+        assertThat(clientWithTimeout.connectTimeoutMillis(), is(30000));
+        assertThat(testee.getOkHttpClient(new URI("https://www.somewhere.com/api"), 30), is(sameInstance(clientWithTimeout)));
+        assertThat(clientWithTimeout.dispatcher(), is(sameInstance(client.dispatcher())));
+        assertThat(clientWithTimeout.connectionPool(), is(sameInstance(client.connectionPool())));
+        assertThat(clientWithTimeout.sslSocketFactory(), is(sameInstance(client.sslSocketFactory())));
+    }
+
+    @Test
+    public void shouldUseDifferentClientsForProxiedAndIgnoredHosts() throws URISyntaxException {
+        baseConfig.getMain().setProxyType(ProxyType.HTTP);
+        baseConfig.getMain().setProxyHost("proxyhost");
+        baseConfig.getMain().setProxyPort(1234);
+        OkHttpClient proxiedClient = testee.getOkHttpClient(new URI("http://www.google.de"));
+        OkHttpClient localClient = testee.getOkHttpClient(new URI("http://127.0.0.1:5075"));
+        assertThat(proxiedClient.proxy().address(), equalTo(new InetSocketAddress("proxyhost", 1234)));
+        assertThat(localClient.proxy(), is(nullValue()));
+        assertThat(localClient.connectionPool(), is(sameInstance(proxiedClient.connectionPool())));
+    }
+
+    @Test
+    public void shouldRebuildClientsWhenConfigChanges() throws URISyntaxException {
+        baseConfig.getMain().setProxyType(ProxyType.SOCKS);
+        baseConfig.getMain().setProxyHost("proxyhost");
+        OkHttpClient client = testee.getOkHttpClient(new URI("http://www.google.de"));
+        assertThat(((SockProxySocketFactory) client.socketFactory()).host, is("proxyhost"));
+
+        baseConfig.getMain().setProxyHost("otherhost");
+        assertThat(testee.getOkHttpClient(new URI("http://www.google.de")), is(sameInstance(client)));
+
+        testee.handleNewConfig(new ConfigChangedEvent(this, baseConfig, baseConfig));
+        client = testee.getOkHttpClient(new URI("http://www.google.de"));
+        assertThat(((SockProxySocketFactory) client.socketFactory()).host, is("otherhost"));
+    }
+
+    @Test
+    public void shouldRebuildConnectionPoolWhenConfigChanges() throws URISyntaxException {
+        OkHttpClient client = testee.getOkHttpClient(new URI("http://www.google.de"));
+        assertThat(testee.getOkHttpClient(new URI("http://www.google.de"), 30).connectionPool(), is(sameInstance(client.connectionPool())));
+
+        baseConfig.getMain().setIdleConnectionsPerHost(10);
+        testee.handleNewConfig(new ConfigChangedEvent(this, baseConfig, baseConfig));
+        assertThat(testee.getOkHttpClient(new URI("http://www.google.de")).connectionPool(), is(not(sameInstance(client.connectionPool()))));
+    }
+
+    @Test
+    public void shouldShutDownDispatchersOfDiscardedClients() throws URISyntaxException {
+        OkHttpClient client = testee.getOkHttpClient(new URI("http://www.google.de"), 30);
+
+        testee.handleNewConfig(new ConfigChangedEvent(this, baseConfig, baseConfig));
+
+        assertThat(client.dispatcher().executorService().isShutdown(), is(true));
+        assertThat(testee.getOkHttpClient(new URI("http://www.google.de"), 30).dispatcher().executorService().isShutdown(), is(false));
+    }
 
-}
\ No newline at end of file
+}
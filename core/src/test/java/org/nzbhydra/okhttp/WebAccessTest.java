@@ -0,0 +1,31 @@
+package org.nzbhydra.okhttp;
+
+import okio.Buffer;
+import okio.ByteString;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class WebAccessTest {
+
+    @Test
+    public void shouldDetectAndSkipByteOrderMark() throws Exception {
+        Buffer buffer = new Buffer().write(ByteString.decodeHex("efbbbf")).writeUtf8("<xml/>");
+        assertThat(WebAccess.getBomAwareCharset(buffer, StandardCharsets.ISO_8859_1)).isEqualTo(StandardCharsets.UTF_8);
+        assertThat(buffer.readUtf8()).isEqualTo("<xml/>");
+
+        buffer = new Buffer().write(ByteString.decodeHex("fffe")).writeString("<xml/>", StandardCharsets.UTF_16LE);
+        assertThat(WebAccess.getBomAwareCharset(buffer, StandardCharsets.UTF_8)).isEqualTo(StandardCharsets.UTF_16LE);
+        assertThat(buffer.readString(StandardCharsets.UTF_16LE)).isEqualTo("<xml/>");
+    }
+
+    @Test
+    public void shouldUseGivenCharsetWithoutByteOrderMark() throws Exception {
+        Buffer buffer = new Buffer().writeUtf8("<xml/>");
+        assertThat(WebAccess.getBomAwareCharset(buffer, StandardCharsets.ISO_8859_1)).isEqualTo(StandardCharsets.ISO_8859_1);
+        assertThat(buffer.readUtf8()).isEqualTo("<xml/>");
+    }
+
+}
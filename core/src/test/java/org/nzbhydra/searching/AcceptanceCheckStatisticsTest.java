@@ -0,0 +1,49 @@
+package org.nzbhydra.searching;
+
+import org.junit.Test;
+import org.nzbhydra.searching.AcceptanceCheckStatistics.AcceptanceCheckStats;
+import org.nzbhydra.searching.AcceptanceCheckStatistics.Recorder;
+import org.nzbhydra.searching.ResultAcceptor.AcceptanceCheck;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AcceptanceCheckStatisticsTest {
+
+    private AcceptanceCheckStatistics testee = new AcceptanceCheckStatistics("indexer", "category");
+
+    @Test
+    public void shouldKeepOriginalOrderWithoutData() throws Exception {
+        assertThat(testee.getOrder()).containsExactly(AcceptanceCheck.values());
+    }
+
+    @Test
+    public void shouldOrderByCostPerRejection() throws Exception {
+        Recorder recorder = new Recorder(testee);
+        for (AcceptanceCheck check : AcceptanceCheck.values()) {
+            for (int i = 0; i < AcceptanceCheckStatistics.MIN_INVOCATIONS; i++) {
+                //Size: 100ns per call and every second call rejects -> 200ns per rejection
+                //Age: 10ns per call and one of 100 calls rejects -> 1000ns per rejection
+                boolean accepted = !(check == AcceptanceCheck.SIZE && i % 2 == 0) && !(check == AcceptanceCheck.AGE && i == 0);
+                long nanos = check == AcceptanceCheck.SIZE ? 100 : 10;
+                if (check != AcceptanceCheck.CATEGORY || i == 0) {
+                    recorder.record(check, accepted, nanos);
+                }
+            }
+        }
+        testee.add(recorder);
+
+        //The category check was run too few times and is run first to collect data
+        assertThat(testee.getOrder()).startsWith(AcceptanceCheck.CATEGORY, AcceptanceCheck.SIZE, AcceptanceCheck.AGE, AcceptanceCheck.PASSWORD);
+        assertThat(new Recorder(testee).getPosition(AcceptanceCheck.SIZE)).isEqualTo(1);
+
+        AcceptanceCheckStats stats = testee.getStats();
+        assertThat(stats.getCheckOrder()).startsWith("CATEGORY", "SIZE", "AGE", "PASSWORD");
+        AcceptanceCheckStatistics.CheckStats sizeStats = stats.getChecks().get(AcceptanceCheck.SIZE.ordinal());
+        assertThat(sizeStats.getCheck()).isEqualTo("SIZE");
+        assertThat(sizeStats.getInvocations()).isEqualTo(AcceptanceCheckStatistics.MIN_INVOCATIONS);
+        assertThat(sizeStats.getRejections()).isEqualTo(AcceptanceCheckStatistics.MIN_INVOCATIONS / 2);
+        assertThat(sizeStats.getRejectionRate()).isEqualTo(0.5);
+        assertThat(sizeStats.getAverageNanos()).isEqualTo(100);
+    }
+
+}
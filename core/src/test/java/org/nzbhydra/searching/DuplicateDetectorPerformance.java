@@ -0,0 +1,170 @@
+package org.nzbhydra.searching;
+
+import ch.qos.logback.classic.Level;
+import com.google.common.base.Stopwatch;
+import org.nzbhydra.PerformanceMeasurement;
+import org.nzbhydra.config.BaseConfig;
+import org.nzbhydra.config.ConfigProvider;
+import org.nzbhydra.config.IndexerConfig;
+import org.nzbhydra.indexers.Indexer;
+import org.nzbhydra.indexers.IndexerEntity;
+import org.nzbhydra.indexers.Newznab;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Simulates a search which loads all results from several indexers in multiple rounds and prints the time the duplicate detection takes per round,
+ * once when detecting all duplicates from scratch and once when using the incremental state.
+ * <p>
+ * Then compares the duplicate detection with the pairwise comparison of {@link PairwiseDuplicateDetector} for large inputs with big title groups.
+ */
+public class DuplicateDetectorPerformance {
+
+    private static final int INDEXERS = 5;
+    private static final int ROUNDS = 20;
+    private static final int RESULTS_PER_ROUND_AND_INDEXER = 100;
+    private static final int REPETITIONS = 10;
+    private static final int[] LARGE_INPUT_SIZES = {10_000, 50_000, 100_000};
+    private static final int RESULTS_PER_TITLE = 500;
+
+    public static void main(String[] args) throws Exception {
+        //Debug logging of the comparisons would be measured otherwise
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.INFO);
+        BaseConfig baseConfig = new BaseConfig();
+        DuplicateDetector duplicateDetector = new DuplicateDetector();
+        duplicateDetector.configProvider = new ConfigProvider() {
+            @Override
+            public BaseConfig getBaseConfig() {
+                return baseConfig;
+            }
+        };
+        List<List<SearchResultItem>> rounds = createRounds();
+
+        //Warmup
+        for (int i = 0; i < REPETITIONS; i++) {
+            run(duplicateDetector, rounds, false, null);
+            run(duplicateDetector, rounds, true, null);
+        }
+
+        long[] fromScratchNanos = new long[ROUNDS];
+        long[] incrementalNanos = new long[ROUNDS];
+        for (int i = 0; i < REPETITIONS; i++) {
+            run(duplicateDetector, rounds, false, fromScratchNanos);
+            run(duplicateDetector, rounds, true, incrementalNanos);
+        }
+
+        System.out.println("Round\tResults\tFrom scratch (ms)\tIncremental (ms)");
+        for (int round = 0; round < ROUNDS; round++) {
+            System.out.println(String.format("%d\t%d\t%.2f\t%.2f", round + 1, (round + 1) * INDEXERS * RESULTS_PER_ROUND_AND_INDEXER,
+                    fromScratchNanos[round] / (double) REPETITIONS / 1_000_000, incrementalNanos[round] / (double) REPETITIONS / 1_000_000));
+        }
+
+        System.out.println();
+        System.out.println("Results\tPairwise (ms)\tDuplicate detector (ms)\tSame groups");
+        for (int inputSize : LARGE_INPUT_SIZES) {
+            List<SearchResultItem> items = createLargeInput(inputSize);
+            float duplicateAgeThreshold = baseConfig.getSearching().getDuplicateAgeThreshold();
+            float duplicateSizeThreshold = baseConfig.getSearching().getDuplicateSizeThresholdInPercent();
+            long pairwiseMillis = PerformanceMeasurement.measure(1, () -> PairwiseDuplicateDetector.detectDuplicates(items, duplicateAgeThreshold, duplicateSizeThreshold)).getMillisPerRun();
+            long detectorMillis = PerformanceMeasurement.measure(1, () -> duplicateDetector.detectDuplicates(items)).getMillisPerRun();
+            List<LinkedHashSet<SearchResultItem>> pairwiseGroups = PairwiseDuplicateDetector.detectDuplicates(items, duplicateAgeThreshold, duplicateSizeThreshold);
+            List<LinkedHashSet<SearchResultItem>> groups = duplicateDetector.detectDuplicates(items).getDuplicateGroups();
+            boolean sameGroups = toLists(pairwiseGroups).equals(toLists(groups));
+            System.out.println(String.format("%d\t%d\t%d\t%b", inputSize, pairwiseMillis, detectorMillis, sameGroups));
+        }
+    }
+
+    private static List<List<SearchResultItem>> toLists(List<LinkedHashSet<SearchResultItem>> groups) {
+        return groups.stream().map(ArrayList::new).collect(Collectors.toList());
+    }
+
+    /**
+     * Creates results for few titles which are found on many indexers, e.g. season packs, with several postings per title
+     */
+    private static List<SearchResultItem> createLargeInput(int size) {
+        Random random = new Random(1);
+        List<Indexer> indexers = createIndexers(20);
+        List<SearchResultItem> items = new ArrayList<>();
+        long pubDate = Instant.now().getEpochSecond();
+        for (int i = 0; i < size; i++) {
+            SearchResultItem item = new SearchResultItem();
+            item.setIndexer(indexers.get(random.nextInt(indexers.size())));
+            item.setTitle("Some.Show.S" + (i / RESULTS_PER_TITLE) + ".720p.WEB-DL-GROUP");
+            item.setIndexerGuid(String.valueOf(i));
+            //Each title was posted several times at different times and with different sizes
+            int posting = random.nextInt(RESULTS_PER_TITLE / 5);
+            item.setPubDate(Instant.ofEpochSecond(pubDate - posting * 24 * 3600 + random.nextInt(3600)));
+            item.setSize(1_000_000_000L + posting * 50_000_000L + random.nextInt(1_000_000));
+            item.setPoster("poster" + random.nextInt(3));
+            items.add(item);
+        }
+        return items;
+    }
+
+    private static void run(DuplicateDetector duplicateDetector, List<List<SearchResultItem>> rounds, boolean incremental, long[] nanosPerRound) {
+        DuplicateDetectionState state = new DuplicateDetectionState();
+        List<SearchResultItem> allItems = new ArrayList<>();
+        for (int round = 0; round < rounds.size(); round++) {
+            allItems.addAll(rounds.get(round));
+            Stopwatch stopwatch = Stopwatch.createStarted();
+            if (incremental) {
+                duplicateDetector.detectDuplicates(state, allItems);
+            } else {
+                duplicateDetector.detectDuplicates(allItems);
+            }
+            if (nanosPerRound != null) {
+                nanosPerRound[round] += stopwatch.elapsed(TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private static List<Indexer> createIndexers(int count) {
+        List<Indexer> indexers = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Newznab indexer = new Newznab();
+            IndexerConfig config = new IndexerConfig();
+            config.setName("indexer" + i);
+            IndexerEntity indexerEntity = new IndexerEntity();
+            indexerEntity.setName("indexer" + i);
+            indexer.initialize(config, indexerEntity);
+            indexers.add(indexer);
+        }
+        return indexers;
+    }
+
+    private static List<List<SearchResultItem>> createRounds() {
+        Random random = new Random(1);
+        List<Indexer> indexers = createIndexers(INDEXERS);
+
+        List<List<SearchResultItem>> rounds = new ArrayList<>();
+        long pubDate = Instant.now().getEpochSecond();
+        for (int round = 0; round < ROUNDS; round++) {
+            List<SearchResultItem> items = new ArrayList<>();
+            //Indexers return older results with every page, so most titles of a round are new
+            for (int i = 0; i < RESULTS_PER_ROUND_AND_INDEXER; i++) {
+                String title = "Some.Show.S01E" + (round * RESULTS_PER_ROUND_AND_INDEXER + i) + ".720p.WEB-DL-GROUP";
+                long itemPubDate = pubDate - (round * RESULTS_PER_ROUND_AND_INDEXER + i) * 3600;
+                for (Indexer indexer : indexers) {
+                    SearchResultItem item = new SearchResultItem();
+                    item.setIndexer(indexer);
+                    item.setTitle(title);
+                    item.setIndexerGuid(indexer.getName() + title);
+                    item.setPubDate(Instant.ofEpochSecond(itemPubDate + random.nextInt(3600)));
+                    item.setSize(1_000_000_000L + random.nextInt(10_000_000));
+                    item.setPoster("poster" + random.nextInt(2));
+                    items.add(item);
+                }
+            }
+            rounds.add(items);
+        }
+        return rounds;
+    }
+
+}
@@ -16,7 +16,10 @@ import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.when;
@@ -136,6 +139,100 @@ public class DuplicateDetectorTest {
     }
 
 
+    @Test
+    public void shouldDetectSameDuplicatesIncrementallyAsFromScratch() throws Exception {
+        Random random = new Random(1);
+        List<SearchResultItem> allItems = new ArrayList<>();
+        DuplicateDetectionState state = new DuplicateDetectionState();
+        for (int round = 0; round < 5; round++) {
+            List<SearchResultItem> newItems = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                SearchResultItem item = new SearchResultItem();
+                setValues(item, "indexer" + random.nextInt(4), "poster" + random.nextInt(2), "group", Instant.ofEpochSecond(1447928064 + random.nextInt(3) * 3600));
+                item.setTitle("title" + random.nextInt(30));
+                item.setIndexerGuid(String.valueOf(round * 1000 + i));
+                item.setSize(10000L + random.nextInt(3) * 50);
+                newItems.add(item);
+            }
+            allItems.addAll(newItems);
+            //Either all results or only the new ones may be passed
+            List<List<SearchResultItem>> incrementalGroups = toLists(testee.detectDuplicates(state, round % 2 == 0 ? allItems : newItems));
+            List<Integer> incrementalIdentifiers = allItems.stream().map(SearchResultItem::getDuplicateIdentifier).collect(Collectors.toList());
+
+            List<SearchResultItem> shuffledItems = new ArrayList<>(allItems);
+            Collections.shuffle(shuffledItems, random);
+            List<List<SearchResultItem>> fromScratchGroups = toLists(testee.detectDuplicates(shuffledItems));
+            List<Integer> fromScratchIdentifiers = allItems.stream().map(SearchResultItem::getDuplicateIdentifier).collect(Collectors.toList());
+
+            assertThat(incrementalGroups).isEqualTo(fromScratchGroups);
+            assertThat(incrementalIdentifiers).isEqualTo(fromScratchIdentifiers);
+        }
+    }
+
+    @Test
+    public void shouldRecomputeWhenThresholdsChange() throws Exception {
+        SearchResultItem item1 = new SearchResultItem();
+        setValues(item1, "1", "poster", "group", Instant.ofEpochSecond(1447928064));
+        SearchResultItem item2 = new SearchResultItem();
+        setValues(item2, "2", "poster", "group", Instant.ofEpochSecond(1447928064 + 3 * 3600));
+        DuplicateDetectionState state = new DuplicateDetectionState();
+
+        assertThat(testee.detectDuplicates(state, Arrays.asList(item1, item2)).getDuplicateGroups().size()).isEqualTo(2);
+
+        configProviderMock.getBaseConfig().getSearching().setDuplicateAgeThreshold(4F);
+        assertThat(testee.detectDuplicates(state, Arrays.asList(item1, item2)).getDuplicateGroups().size()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldFindSameDuplicatesAsPairwiseComparison() throws Exception {
+        Random random = new Random(2);
+        List<SearchResultItem> items = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            SearchResultItem item = new SearchResultItem();
+            setValues(item, "indexer" + random.nextInt(8), random.nextInt(5) == 0 ? null : "poster" + random.nextInt(2), random.nextInt(5) == 0 ? null : "group", Instant.ofEpochSecond(1447928064 + random.nextInt(20) * 1800));
+            item.setTitle("title" + random.nextInt(10));
+            item.setIndexerGuid(String.valueOf(i));
+            item.setSize(random.nextInt(50) == 0 ? null : 10000L + random.nextInt(10) * 40);
+            if (random.nextBoolean()) {
+                item.setUsenetDate(item.getPubDate().plusSeconds(random.nextInt(7200)));
+            }
+            items.add(item);
+        }
+
+        List<List<SearchResultItem>> expected = PairwiseDuplicateDetector.detectDuplicates(items, 2F, 1F).stream().map(ArrayList::new).collect(Collectors.toList());
+        assertThat(toLists(testee.detectDuplicates(items))).isEqualTo(expected);
+    }
+
+    @Test
+    public void shouldDetectSameDuplicatesInParallel() throws Exception {
+        Random random = new Random(3);
+        List<SearchResultItem> items = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            SearchResultItem item = new SearchResultItem();
+            setValues(item, "indexer" + random.nextInt(8), "poster" + random.nextInt(2), "group", Instant.ofEpochSecond(1447928064 + random.nextInt(20) * 1800));
+            item.setTitle("title" + random.nextInt(100));
+            item.setIndexerGuid(String.valueOf(i));
+            item.setSize(10000L + random.nextInt(10) * 40);
+            items.add(item);
+        }
+
+        configProviderMock.getBaseConfig().getSearching().setDuplicateDetectionParallelThreshold(0);
+        DuplicateDetectionResult sequentialResult = testee.detectDuplicates(items);
+        List<List<SearchResultItem>> sequentialGroups = toLists(sequentialResult);
+        List<Integer> sequentialIdentifiers = items.stream().map(SearchResultItem::getDuplicateIdentifier).collect(Collectors.toList());
+
+        configProviderMock.getBaseConfig().getSearching().setDuplicateDetectionParallelThreshold(1);
+        DuplicateDetectionResult parallelResult = testee.detectDuplicates(items);
+
+        assertThat(toLists(parallelResult)).isEqualTo(sequentialGroups);
+        assertThat(items.stream().map(SearchResultItem::getDuplicateIdentifier).collect(Collectors.toList())).isEqualTo(sequentialIdentifiers);
+        assertThat(parallelResult.getUniqueResultsPerIndexer()).isEqualTo(sequentialResult.getUniqueResultsPerIndexer());
+    }
+
+    private List<List<SearchResultItem>> toLists(DuplicateDetectionResult result) {
+        return result.getDuplicateGroups().stream().map(ArrayList::new).collect(Collectors.toList());
+    }
+
     protected void setValues(SearchResultItem item, String indexerName, String poster, String group, Instant pubDate) {
         item.setAgePrecise(true);
         item.setTitle("title");
@@ -14,10 +14,10 @@ import org.nzbhydra.config.IndexerConfig;
 import org.nzbhydra.config.SearchModuleType;
 import org.nzbhydra.config.SearchSourceRestriction;
 import org.nzbhydra.config.SearchingConfig;
-import org.nzbhydra.downloading.NzbDownloadRepository;
 import org.nzbhydra.indexers.Indexer;
 import org.nzbhydra.indexers.IndexerApiAccessRepository;
 import org.nzbhydra.indexers.IndexerEntity;
+import org.nzbhydra.indexers.IndexerLimitCounter;
 import org.nzbhydra.indexers.IndexerStatusEntity;
 import org.nzbhydra.mediainfo.InfoProvider;
 import org.nzbhydra.mediainfo.InfoProvider.IdType;
@@ -25,11 +25,7 @@ import org.nzbhydra.searching.IndexerForSearchSelector.InnerInstance;
 import org.nzbhydra.searching.searchrequests.SearchRequest;
 import org.nzbhydra.searching.searchrequests.SearchRequest.SearchSource;
 import org.springframework.context.ApplicationEventPublisher;
-import org.springframework.data.domain.PageImpl;
 
-import javax.persistence.EntityManager;
-import javax.persistence.Query;
-import java.sql.Timestamp;
 import java.time.Clock;
 import java.time.Instant;
 import java.time.LocalDateTime;
@@ -51,7 +47,7 @@ import static junit.framework.TestCase.assertTrue;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -61,7 +57,7 @@ public class IndexerForSearchSelectorTest {
     @Mock
     private IndexerApiAccessRepository indexerApiAccessRepository;
     @Mock
-    private NzbDownloadRepository nzbDownloadRepository;
+    private IndexerLimitCounter indexerLimitCounterMock;
     @Mock
     private SearchModuleProvider searchModuleProviderMock;
     @Mock
@@ -86,10 +82,6 @@ public class IndexerForSearchSelectorTest {
     private ApplicationEventPublisher eventPublisher;
     @Mock
     private Category category;
-    @Mock
-    private EntityManager entityManagerMock;
-    @Mock
-    private Query queryMock;
 
     private Map<Indexer, String> count;
 
@@ -111,7 +103,9 @@ public class IndexerForSearchSelectorTest {
         when(category.getName()).thenReturn("category");
         when(category.getSubtype()).thenReturn(Subtype.NONE);
         testee = outerClass.getInnerInstanceInstance(searchRequest);
-        when(entityManagerMock.createNativeQuery(anyString())).thenReturn(queryMock);
+        when(indexerLimitCounterMock.getLimitWindowStart(any())).thenReturn(Instant.now().minus(1, ChronoUnit.DAYS));
+        when(indexerLimitCounterMock.getNthLatestApiHit(any(), anyInt())).thenReturn(Optional.empty());
+        when(indexerLimitCounterMock.getNthLatestDownload(any(), anyInt())).thenReturn(Optional.empty());
     }
 
     @Test
@@ -248,35 +242,49 @@ public class IndexerForSearchSelectorTest {
         when(indexerConfigMock.getHitLimit()).thenReturn(Optional.empty());
         when(indexerConfigMock.getDownloadLimit()).thenReturn(Optional.empty());
         testee.checkIndexerHitLimit(indexer);
-        verify(nzbDownloadRepository, never()).findBySearchResultIndexerOrderByTimeDesc(any(), any());
+        verify(indexerLimitCounterMock, never()).getNthLatestApiHit(any(), anyInt());
+        verify(indexerLimitCounterMock, never()).getNthLatestDownload(any(), anyInt());
         verify(indexerApiAccessRepository, never()).findByIndexerOrderByTimeDesc(any(), any());
     }
 
     @Test
     public void shouldIgnoreHitLimitIfNotYetReached() {
         when(indexerConfigMock.getHitLimit()).thenReturn(Optional.of(10));
-        when(queryMock.getResultList()).thenReturn(Collections.emptyList());
         boolean result = testee.checkIndexerHitLimit(indexer);
         assertTrue(result);
-        verify(entityManagerMock).createNativeQuery(anyString());
+        verify(indexerLimitCounterMock).getNthLatestApiHit(indexerEntity, 10);
     }
 
     @Test
     public void shouldFollowApiHitLimit() {
         when(indexerConfigMock.getHitLimit()).thenReturn(Optional.of(1));
-        when(queryMock.getResultList()).thenReturn(Arrays.asList(Timestamp.from(Instant.now().minus(10, ChronoUnit.MILLIS))));
+        when(indexerLimitCounterMock.getNthLatestApiHit(indexerEntity, 1)).thenReturn(Optional.of(Instant.now().minus(10, ChronoUnit.MILLIS)));
         boolean result = testee.checkIndexerHitLimit(indexer);
         assertFalse(result);
-        verify(entityManagerMock).createNativeQuery(anyString());
+    }
+
+    @Test
+    public void shouldIgnoreApiHitsBeforeTimeWindow() {
+        when(indexerConfigMock.getHitLimit()).thenReturn(Optional.of(1));
+        when(indexerLimitCounterMock.getNthLatestApiHit(indexerEntity, 1)).thenReturn(Optional.of(Instant.now().minus(2, ChronoUnit.DAYS)));
+        boolean result = testee.checkIndexerHitLimit(indexer);
+        assertTrue(result);
     }
 
     @Test
     public void shouldIgnoreDownloadLimitIfNotYetReached() {
         when(indexerConfigMock.getDownloadLimit()).thenReturn(Optional.of(10));
-        when(nzbDownloadRepository.findBySearchResultIndexerOrderByTimeDesc(any(), any())).thenReturn(new PageImpl<>(Collections.emptyList()));
         boolean result = testee.checkIndexerHitLimit(indexer);
         assertTrue(result);
-        verify(nzbDownloadRepository).findBySearchResultIndexerOrderByTimeDesc(any(), any());
+        verify(indexerLimitCounterMock).getNthLatestDownload(indexerEntity, 10);
+    }
+
+    @Test
+    public void shouldFollowDownloadLimit() {
+        when(indexerConfigMock.getDownloadLimit()).thenReturn(Optional.of(2));
+        when(indexerLimitCounterMock.getNthLatestDownload(indexerEntity, 2)).thenReturn(Optional.of(Instant.now().minus(1, ChronoUnit.HOURS)));
+        boolean result = testee.checkIndexerHitLimit(indexer);
+        assertFalse(result);
     }
 
     @Test
@@ -0,0 +1,220 @@
+package org.nzbhydra.searching;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.nzbhydra.config.BaseConfig;
+import org.nzbhydra.config.Category;
+import org.nzbhydra.config.ConfigProvider;
+import org.nzbhydra.config.IndexerConfig;
+import org.nzbhydra.indexers.Indexer;
+import org.nzbhydra.indexers.IndexerEntity;
+import org.nzbhydra.indexers.IndexerExecutor;
+import org.nzbhydra.indexers.IndexerStatusEntity;
+import org.nzbhydra.searching.LatestReleases.LatestReleasesResult;
+import org.nzbhydra.searching.SearchResultItem.DownloadType;
+import org.nzbhydra.searching.searchrequests.SearchRequest;
+import org.nzbhydra.searching.searchrequests.SearchRequest.SearchSource;
+import org.nzbhydra.searching.searchrequests.SearchRequestFactory;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class LatestReleasesTest {
+
+    @Mock
+    private ConfigProvider configProviderMock;
+    @Mock
+    private SearchModuleProvider searchModuleProviderMock;
+    @Mock
+    private SearchRequestFactory searchRequestFactoryMock;
+    @Mock
+    private CategoryProvider categoryProviderMock;
+    @Mock
+    private DuplicateDetector duplicateDetectorMock;
+    @Mock
+    private IndexerExecutor indexerExecutorMock;
+    @Mock
+    private Indexer indexerMock;
+    @Mock
+    private IndexerEntity indexerEntityMock;
+    private IndexerStatusEntity indexerStatusEntity = new IndexerStatusEntity();
+    private IndexerConfig indexerConfig = new IndexerConfig();
+    private BaseConfig baseConfig = new BaseConfig();
+    private Category tvHdCategory = new Category("TV HD");
+    private Category moviesCategory = new Category("Movies");
+    private Instant now = Instant.now();
+
+    @InjectMocks
+    private LatestReleases testee = new LatestReleases();
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        when(configProviderMock.getBaseConfig()).thenReturn(baseConfig);
+        baseConfig.getSearching().setPrefetchLatestReleases(true);
+        baseConfig.getSearching().setLatestReleasesPollMinutes(15);
+        testee.clock = Clock.fixed(now, ZoneId.of("UTC"));
+
+        indexerConfig.setName("indexer");
+        when(indexerMock.getName()).thenReturn("indexer");
+        when(indexerMock.getConfig()).thenReturn(indexerConfig);
+        when(indexerMock.getIndexerEntity()).thenReturn(indexerEntityMock);
+        when(indexerEntityMock.getStatus()).thenReturn(indexerStatusEntity);
+        when(searchModuleProviderMock.getEnabledIndexers()).thenReturn(Collections.singletonList(indexerMock));
+        when(searchModuleProviderMock.getIndexers()).thenReturn(Collections.singletonList(indexerMock));
+        when(indexerExecutorMock.getSearchExecutor()).thenReturn((Executor) Runnable::run);
+        when(searchRequestFactoryMock.getSearchRequest(any(), any(), any(), anyLong(), anyInt(), anyInt())).thenReturn(new SearchRequest(SearchSource.API, SearchType.SEARCH, 0, 100));
+
+        tvHdCategory.setNewznabCategories(Collections.singletonList(5040));
+        moviesCategory.setNewznabCategories(Collections.singletonList(2000));
+        when(categoryProviderMock.getByInternalName("TV HD")).thenReturn(tvHdCategory);
+        when(categoryProviderMock.getByInternalName("Movies")).thenReturn(moviesCategory);
+        //Every result is unique
+        when(duplicateDetectorMock.detectDuplicates(any())).thenAnswer(x -> {
+            List<SearchResultItem> items = x.getArgument(0);
+            return new DuplicateDetectionResult(items.stream().map(item -> new LinkedHashSet<>(Collections.singletonList(item))).collect(Collectors.toList()), null);
+        });
+    }
+
+    @Test
+    public void shouldAnswerFromPolledReleases() throws Exception {
+        IndexerSearchResult indexerSearchResult = new IndexerSearchResult(indexerMock, true);
+        indexerSearchResult.setSearchResultItems(Arrays.asList(
+                createItem(1, "tv", tvHdCategory, now.minusSeconds(100)),
+                createItem(2, "movie", moviesCategory, now.minusSeconds(50))
+        ));
+        when(indexerMock.search(any(), anyInt(), any())).thenReturn(indexerSearchResult);
+
+        testee.pollIndexers();
+
+        LatestReleasesResult result = testee.getReleases(null, org.nzbhydra.searching.DownloadType.NZB, 0, 100).get();
+        assertThat(result.getSearchResultItems()).extracting(SearchResultItem::getTitle).containsExactly("movie", "tv");
+        assertThat(result.getTotal()).isEqualTo(2);
+        assertThat(result.getLastPoll()).isEqualTo(now);
+
+        result = testee.getReleases(Collections.singletonList(5000), org.nzbhydra.searching.DownloadType.NZB, 0, 100).get();
+        assertThat(result.getSearchResultItems()).extracting(SearchResultItem::getTitle).containsExactly("tv");
+
+        result = testee.getReleases(null, org.nzbhydra.searching.DownloadType.NZB, 1, 100).get();
+        assertThat(result.getSearchResultItems()).extracting(SearchResultItem::getTitle).containsExactly("tv");
+        assertThat(result.getTotal()).isEqualTo(2);
+
+        result = testee.getReleases(null, org.nzbhydra.searching.DownloadType.TORRENT, 0, 100).get();
+        assertThat(result.getSearchResultItems()).isEmpty();
+    }
+
+    @Test
+    public void shouldNotAnswerWhenPollsAreOutdatedOrDisabled() throws Exception {
+        assertThat(testee.getReleases(null, org.nzbhydra.searching.DownloadType.NZB, 0, 100).isPresent()).isFalse();
+
+        when(indexerMock.search(any(), anyInt(), any())).thenReturn(new IndexerSearchResult(indexerMock, true));
+        testee.pollIndexers();
+        assertThat(testee.getReleases(null, org.nzbhydra.searching.DownloadType.NZB, 0, 100).isPresent()).isTrue();
+
+        baseConfig.getSearching().setPrefetchLatestReleases(false);
+        assertThat(testee.getReleases(null, org.nzbhydra.searching.DownloadType.NZB, 0, 100).isPresent()).isFalse();
+
+        baseConfig.getSearching().setPrefetchLatestReleases(true);
+        testee.clock = Clock.fixed(now.plus(Duration.ofMinutes(46)), ZoneId.of("UTC"));
+        assertThat(testee.getReleases(null, org.nzbhydra.searching.DownloadType.NZB, 0, 100).isPresent()).isFalse();
+    }
+
+    @Test
+    public void shouldPollAgainWhenIntervalHasPassed() throws Exception {
+        when(indexerMock.search(any(), anyInt(), any())).thenReturn(new IndexerSearchResult(indexerMock, true));
+
+        testee.pollIndexers();
+        testee.pollIndexers();
+        verify(indexerMock, times(1)).search(any(), anyInt(), any());
+
+        testee.clock = Clock.fixed(now.plus(Duration.ofMinutes(15)), ZoneId.of("UTC"));
+        testee.pollIndexers();
+        verify(indexerMock, times(2)).search(any(), anyInt(), any());
+    }
+
+    @Test
+    public void shouldNotPollDisabledIndexers() throws Exception {
+        indexerStatusEntity.setDisabledUntil(now.plusSeconds(60));
+
+        testee.pollIndexers();
+
+        verify(indexerMock, times(0)).search(any(), anyInt(), any());
+    }
+
+    @Test
+    public void shouldStayWithinHitLimit() throws Exception {
+        assertThat(testee.getPollInterval(indexerConfig)).isEqualTo(Duration.ofMinutes(15));
+
+        indexerConfig.setHitLimit(100);
+        //At most 50 polls per day
+        assertThat(testee.getPollInterval(indexerConfig)).isEqualTo(Duration.ofMinutes(29));
+
+        indexerConfig.setHitLimit(1000);
+        assertThat(testee.getPollInterval(indexerConfig)).isEqualTo(Duration.ofMinutes(15));
+    }
+
+    @Test
+    public void shouldPollEnabledCategoriesOnly() throws Exception {
+        when(indexerMock.search(any(), anyInt(), any())).thenReturn(new IndexerSearchResult(indexerMock, true));
+        indexerConfig.setEnabledCategories(Arrays.asList("TV HD", "Movies"));
+
+        testee.pollIndexers();
+
+        ArgumentCaptor<SearchRequest> searchRequestCaptor = ArgumentCaptor.forClass(SearchRequest.class);
+        verify(indexerMock).search(searchRequestCaptor.capture(), anyInt(), any());
+        assertThat(searchRequestCaptor.getValue().getInternalData().getNewznabCategories()).containsExactly(5040, 2000);
+    }
+
+    @Test
+    public void shouldKeepNewestReleasesPerCategory() throws Exception {
+        List<SearchResultItem> items = new ArrayList<>();
+        for (int i = 0; i < LatestReleases.MAX_RELEASES_PER_CATEGORY + 10; i++) {
+            items.add(createItem(i, "tv" + i, tvHdCategory, now.minusSeconds(i)));
+        }
+        testee.addReleases(items);
+        //Same results again shouldn't be added twice
+        testee.addReleases(items.subList(0, 10));
+
+        assertThat(testee.getStats().getReleasesPerCategory().get("TV HD")).isEqualTo(LatestReleases.MAX_RELEASES_PER_CATEGORY);
+        when(indexerMock.search(any(), anyInt(), any())).thenReturn(new IndexerSearchResult(indexerMock, true));
+        testee.pollIndexers();
+        Optional<LatestReleasesResult> result = testee.getReleases(null, org.nzbhydra.searching.DownloadType.NZB, 0, 1000);
+        assertThat(result.get().getSearchResultItems().get(0).getTitle()).isEqualTo("tv0");
+        assertThat(result.get().getSearchResultItems().get(LatestReleases.MAX_RELEASES_PER_CATEGORY - 1).getTitle()).isEqualTo("tv" + (LatestReleases.MAX_RELEASES_PER_CATEGORY - 1));
+    }
+
+    private SearchResultItem createItem(long id, String title, Category category, Instant pubDate) {
+        SearchResultItem item = new SearchResultItem();
+        item.setSearchResultId(id);
+        item.setIndexer(indexerMock);
+        item.setTitle(title);
+        item.setCategory(category);
+        item.setDownloadType(DownloadType.NZB);
+        item.setPubDate(pubDate);
+        item.setSize(1000L);
+        return item;
+    }
+
+}
@@ -0,0 +1,107 @@
+package org.nzbhydra.searching;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.nzbhydra.config.BaseConfig;
+import org.nzbhydra.config.ConfigProvider;
+import org.nzbhydra.config.SearchingConfig;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class OldResultsCleanupTest {
+
+    @Mock
+    private ConfigProvider configProviderMock;
+    @Mock
+    private JdbcTemplate jdbcTemplateMock;
+    @Mock
+    private PlatformTransactionManager transactionManagerMock;
+    @Mock
+    private SearchResultIndex searchResultIndexMock;
+    private BaseConfig baseConfig = new BaseConfig();
+    private SearchingConfig searchingConfig = new SearchingConfig();
+
+    @InjectMocks
+    private OldResultsCleanup testee = new OldResultsCleanup();
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        baseConfig.setSearching(searchingConfig);
+        when(configProviderMock.getBaseConfig()).thenReturn(baseConfig);
+        when(jdbcTemplateMock.queryForList(contains("from SEARCHRESULT"), eq(Long.class), any(), any())).thenReturn(Collections.emptyList());
+        testee.init();
+        testee.pauseBetweenChunksMillis = 0;
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        testee.shutdown();
+    }
+
+    @Test
+    public void shouldDeleteSearchResultsInChunks() throws Exception {
+        List<Long> fullChunk = new ArrayList<>();
+        for (long i = 0; i < OldResultsCleanup.CHUNK_SIZE; i++) {
+            fullChunk.add(i * 10);
+        }
+        when(jdbcTemplateMock.queryForList(contains("from SEARCHRESULT"), eq(Long.class), any(), any())).thenReturn(fullChunk, Collections.singletonList(100000L));
+        when(jdbcTemplateMock.update(contains("delete from SEARCHRESULT"), anyLong(), anyLong(), any())).thenReturn(OldResultsCleanup.CHUNK_SIZE, 1);
+
+        Map<String, Integer> deletedRows = testee.deleteOldResults();
+
+        assertThat(deletedRows).containsEntry("SEARCHRESULT", OldResultsCleanup.CHUNK_SIZE + 1);
+        verify(jdbcTemplateMock).update(contains("delete from SEARCHRESULT"), eq(Long.MIN_VALUE), eq(fullChunk.get(fullChunk.size() - 1)), any());
+        verify(jdbcTemplateMock).update(contains("delete from SEARCHRESULT"), eq(fullChunk.get(fullChunk.size() - 1)), eq(100000L), any());
+        verify(searchResultIndexMock).removeFoundBefore(any());
+    }
+
+    @Test
+    public void shouldOnlyDeleteHistoryAndApiAccessesIfEnabled() throws Exception {
+        Map<String, Integer> deletedRows = testee.deleteOldResults();
+        assertThat(deletedRows).containsOnlyKeys("SEARCHRESULT");
+        verify(jdbcTemplateMock, never()).queryForList(contains("from SEARCH x"), eq(Long.class), any(), any());
+
+        searchingConfig.setKeepSearchHistoryForDays(30);
+        searchingConfig.setKeepApiAccessesForDays(30);
+        when(jdbcTemplateMock.queryForList(contains("from SEARCH x"), eq(Long.class), any(), any())).thenReturn(Collections.singletonList(1L));
+        when(jdbcTemplateMock.queryForList(contains("from INDEXERAPIACCESS x"), eq(Long.class), any(), any())).thenReturn(Collections.emptyList());
+        when(jdbcTemplateMock.update(contains("delete from SEARCH x"), anyLong(), anyLong(), any())).thenReturn(1);
+
+        deletedRows = testee.deleteOldResults();
+
+        assertThat(deletedRows).containsEntry("SEARCH", 1).containsEntry("INDEXERAPIACCESS", 0);
+        //Rows referencing the search are deleted first
+        verify(jdbcTemplateMock).update(contains("delete from SEARCH_IDENTIFIERS"), eq(Long.MIN_VALUE), eq(1L), any());
+        verify(jdbcTemplateMock).update(contains("delete from INDEXERSEARCH"), eq(Long.MIN_VALUE), eq(1L), any());
+    }
+
+    @Test
+    public void shouldStopOnShutdown() throws Exception {
+        testee.shutdown();
+
+        testee.deleteOldResults();
+
+        verify(jdbcTemplateMock, times(0)).queryForList(contains("from SEARCHRESULT"), eq(Long.class), any(), any());
+    }
+
+}
@@ -0,0 +1,86 @@
+package org.nzbhydra.searching;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import static com.google.common.collect.Lists.newArrayList;
+
+/**
+ * The straightforward duplicate detection which compares every result with all results in every bucket. Used as a reference for {@link DuplicateDetector}.
+ */
+public class PairwiseDuplicateDetector {
+
+    public static List<LinkedHashSet<SearchResultItem>> detectDuplicates(List<SearchResultItem> results, float duplicateAgeThreshold, float duplicateSizeThreshold) {
+        Map<String, List<SearchResultItem>> groupedByTitle = results.stream().collect(Collectors.groupingBy(x -> x.getTitle().replaceFirst("[ .\\-_]", ""), TreeMap::new, Collectors.toList()));
+        List<LinkedHashSet<SearchResultItem>> duplicateGroups = new ArrayList<>();
+        for (List<SearchResultItem> titleGroup : groupedByTitle.values()) {
+            titleGroup = titleGroup.stream().sorted(Comparator.comparing(SearchResultItem::getPubDate).reversed()
+                    .thenComparing(x -> x.getIndexer().getName(), Comparator.nullsFirst(Comparator.naturalOrder()))
+                    .thenComparing(SearchResultItem::getIndexerGuid, Comparator.nullsFirst(Comparator.naturalOrder())))
+                    .collect(Collectors.toList());
+            List<LinkedHashSet<SearchResultItem>> listOfBuckets = new ArrayList<>();
+            listOfBuckets.add(new LinkedHashSet<>(newArrayList(titleGroup.get(0))));
+            for (int i = 1; i < titleGroup.size(); i++) {
+                SearchResultItem searchResultItem = titleGroup.get(i);
+                boolean foundBucket = false;
+                for (LinkedHashSet<SearchResultItem> bucket : listOfBuckets) {
+                    if (bucket.stream().map(SearchResultItem::getIndexer).collect(Collectors.toList()).contains(searchResultItem.getIndexer())) {
+                        continue;
+                    }
+                    for (SearchResultItem other : bucket) {
+                        if (testForSameness(searchResultItem, other, duplicateAgeThreshold, duplicateSizeThreshold)) {
+                            foundBucket = true;
+                            bucket.add(searchResultItem);
+                            break;
+                        }
+                    }
+                    if (foundBucket) {
+                        break;
+                    }
+                }
+                if (!foundBucket) {
+                    listOfBuckets.add(new LinkedHashSet<>(newArrayList(searchResultItem)));
+                }
+            }
+            duplicateGroups.addAll(listOfBuckets);
+        }
+        return duplicateGroups;
+    }
+
+    private static boolean testForSameness(SearchResultItem result1, SearchResultItem result2, float duplicateAgeThreshold, float duplicateSizeThreshold) {
+        if (result1.getIndexer().equals(result2.getIndexer())) {
+            return false;
+        }
+        boolean groupKnown = result1.getGroup().isPresent() && result2.getGroup().isPresent();
+        boolean sameGroup = groupKnown && Objects.equals(result1.getGroup().get(), result2.getGroup().get());
+        boolean posterKnown = result1.getPoster().isPresent() && result2.getPoster().isPresent();
+        boolean samePoster = posterKnown && Objects.equals(result1.getPoster().get(), result2.getPoster().get());
+        if ((groupKnown && !sameGroup) || (posterKnown && !samePoster)) {
+            return false;
+        }
+        if ((sameGroup && !posterKnown) || (samePoster && !groupKnown)) {
+            duplicateAgeThreshold *= 2;
+            duplicateSizeThreshold *= 2;
+        }
+
+        Instant date1 = result1.getUsenetDate().orElse(result1.getPubDate());
+        Instant date2 = result2.getUsenetDate().orElse(result2.getPubDate());
+        if (date1 == null || date2 == null || Math.abs(date1.getEpochSecond() - date2.getEpochSecond()) / (60 * 60) > duplicateAgeThreshold) {
+            return false;
+        }
+        if (result1.getSize() == null || result2.getSize() == null) {
+            return false;
+        }
+        long sizeDifference = Math.abs(result1.getSize() - result2.getSize());
+        float sizeAverage = (result1.getSize() + result2.getSize()) / 2;
+        return Math.abs(sizeDifference / sizeAverage) * 100 < duplicateSizeThreshold;
+    }
+
+}
@@ -8,6 +8,7 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.nzbhydra.config.BaseConfig;
 import org.nzbhydra.config.Category;
+import org.nzbhydra.config.ConfigChangedEvent;
 import org.nzbhydra.config.ConfigProvider;
 import org.nzbhydra.config.IndexerConfig;
 import org.nzbhydra.config.SearchSourceRestriction;
@@ -15,16 +16,24 @@ import org.nzbhydra.config.SearchingConfig;
 import org.nzbhydra.indexers.Indexer;
 import org.nzbhydra.indexers.IndexerEntity;
 import org.nzbhydra.indexers.Newznab;
+import org.nzbhydra.searching.ResultFilterProgram.WordList;
 import org.nzbhydra.searching.searchrequests.InternalData;
 import org.nzbhydra.searching.searchrequests.SearchRequest;
 import org.nzbhydra.searching.searchrequests.SearchRequest.SearchSource;
 
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
 
+import static junit.framework.TestCase.assertEquals;
 import static junit.framework.TestCase.assertFalse;
 import static junit.framework.TestCase.assertTrue;
 import static org.mockito.Mockito.when;
@@ -66,40 +75,40 @@ public class ResultAcceptorTest {
         internalData.getRequiredWords().clear();
         internalData.getRequiredWords().add("abc.def");
         item.setTitle("abc.def ghi");
-        assertTrue(testee.checkRequiredWords(HashMultiset.create(), internalData.getRequiredWords(), item));
+        assertTrue(testee.checkRequiredWords(HashMultiset.create(), new WordList(internalData.getRequiredWords()), item));
         item.setTitle("abc.DEF ghi");
-        assertTrue(testee.checkRequiredWords(HashMultiset.create(), internalData.getRequiredWords(), item));
+        assertTrue(testee.checkRequiredWords(HashMultiset.create(), new WordList(internalData.getRequiredWords()), item));
         item.setTitle("abc.dEF ghi");
-        assertTrue(testee.checkRequiredWords(HashMultiset.create(), internalData.getRequiredWords(), item));
+        assertTrue(testee.checkRequiredWords(HashMultiset.create(), new WordList(internalData.getRequiredWords()), item));
         item.setTitle("abcdef ghi");
-        assertFalse(testee.checkRequiredWords(HashMultiset.create(), internalData.getRequiredWords(), item));
+        assertFalse(testee.checkRequiredWords(HashMultiset.create(), new WordList(internalData.getRequiredWords()), item));
         item.setTitle("abc def ghi");
-        assertFalse(testee.checkRequiredWords(HashMultiset.create(), internalData.getRequiredWords(), item));
+        assertFalse(testee.checkRequiredWords(HashMultiset.create(), new WordList(internalData.getRequiredWords()), item));
 
         internalData.getRequiredWords().clear();
         internalData.getRequiredWords().add("abc");
         item.setTitle("abc def ghi");
-        assertTrue(testee.checkRequiredWords(HashMultiset.create(), internalData.getRequiredWords(), item));
+        assertTrue(testee.checkRequiredWords(HashMultiset.create(), new WordList(internalData.getRequiredWords()), item));
         item.setTitle("abc.def ghi");
-        assertTrue(testee.checkRequiredWords(HashMultiset.create(), internalData.getRequiredWords(), item));
+        assertTrue(testee.checkRequiredWords(HashMultiset.create(), new WordList(internalData.getRequiredWords()), item));
         item.setTitle("abcdef ghi");
-        assertFalse(testee.checkRequiredWords(HashMultiset.create(), internalData.getRequiredWords(), item));
+        assertFalse(testee.checkRequiredWords(HashMultiset.create(), new WordList(internalData.getRequiredWords()), item));
         item.setTitle("def ghi");
-        assertFalse(testee.checkRequiredWords(HashMultiset.create(), internalData.getRequiredWords(), item));
+        assertFalse(testee.checkRequiredWords(HashMultiset.create(), new WordList(internalData.getRequiredWords()), item));
 
         internalData.getRequiredWords().add("def");
         item.setTitle("abc def ghi");
-        assertTrue(testee.checkRequiredWords(HashMultiset.create(), internalData.getRequiredWords(), item));
+        assertTrue(testee.checkRequiredWords(HashMultiset.create(), new WordList(internalData.getRequiredWords()), item));
         item.setTitle("abc de");
-        assertFalse(testee.checkRequiredWords(HashMultiset.create(), internalData.getRequiredWords(), item));
+        assertFalse(testee.checkRequiredWords(HashMultiset.create(), new WordList(internalData.getRequiredWords()), item));
 
         internalData.getRequiredWords().add("def");
         item.setTitle("abc def ghi");
-        assertTrue(testee.checkRequiredWords(HashMultiset.create(), internalData.getRequiredWords(), item));
+        assertTrue(testee.checkRequiredWords(HashMultiset.create(), new WordList(internalData.getRequiredWords()), item));
         item.setTitle("abc DEF ghi");
-        assertTrue(testee.checkRequiredWords(HashMultiset.create(), internalData.getRequiredWords(), item));
+        assertTrue(testee.checkRequiredWords(HashMultiset.create(), new WordList(internalData.getRequiredWords()), item));
         item.setTitle("abc dEF ghi");
-        assertTrue(testee.checkRequiredWords(HashMultiset.create(), internalData.getRequiredWords(), item));
+        assertTrue(testee.checkRequiredWords(HashMultiset.create(), new WordList(internalData.getRequiredWords()), item));
     }
 
 
@@ -108,30 +117,30 @@ public class ResultAcceptorTest {
         internalData.getForbiddenWords().clear();
         internalData.getForbiddenWords().add("abc.def");
         item.setTitle("abc.def ghi");
-        assertFalse(testee.checkForForbiddenWords(indexerConfig, HashMultiset.create(), internalData.getForbiddenWords(), item));
+        assertFalse(testee.checkForForbiddenWords(indexerConfig, HashMultiset.create(), new WordList(internalData.getForbiddenWords()), item));
         item.setTitle("abc.DEF ghi");
-        assertFalse(testee.checkForForbiddenWords(indexerConfig, HashMultiset.create(), internalData.getForbiddenWords(), item));
+        assertFalse(testee.checkForForbiddenWords(indexerConfig, HashMultiset.create(), new WordList(internalData.getForbiddenWords()), item));
         item.setTitle("abc.dEF ghi");
-        assertFalse(testee.checkForForbiddenWords(indexerConfig, HashMultiset.create(), internalData.getForbiddenWords(), item));
+        assertFalse(testee.checkForForbiddenWords(indexerConfig, HashMultiset.create(), new WordList(internalData.getForbiddenWords()), item));
 
         item.setTitle("abcdef ghi");
-        assertTrue(testee.checkForForbiddenWords(indexerConfig, HashMultiset.create(), internalData.getForbiddenWords(), item));
+        assertTrue(testee.checkForForbiddenWords(indexerConfig, HashMultiset.create(), new WordList(internalData.getForbiddenWords()), item));
         item.setTitle("abc def ghi");
-        assertTrue(testee.checkForForbiddenWords(indexerConfig, HashMultiset.create(), internalData.getForbiddenWords(), item));
+        assertTrue(testee.checkForForbiddenWords(indexerConfig, HashMultiset.create(), new WordList(internalData.getForbiddenWords()), item));
 
 
         internalData.getForbiddenWords().clear();
         internalData.getForbiddenWords().add("abc");
         item.setTitle("abc def ghi");
-        assertFalse(testee.checkForForbiddenWords(indexerConfig, HashMultiset.create(), internalData.getForbiddenWords(), item));
+        assertFalse(testee.checkForForbiddenWords(indexerConfig, HashMultiset.create(), new WordList(internalData.getForbiddenWords()), item));
         item.setTitle("ABC def ghi");
-        assertFalse(testee.checkForForbiddenWords(indexerConfig, HashMultiset.create(), internalData.getForbiddenWords(), item));
+        assertFalse(testee.checkForForbiddenWords(indexerConfig, HashMultiset.create(), new WordList(internalData.getForbiddenWords()), item));
         item.setTitle("aBC def ghi");
-        assertFalse(testee.checkForForbiddenWords(indexerConfig, HashMultiset.create(), internalData.getForbiddenWords(), item));
+        assertFalse(testee.checkForForbiddenWords(indexerConfig, HashMultiset.create(), new WordList(internalData.getForbiddenWords()), item));
         item.setTitle("abcdef ghi");
-        assertTrue(testee.checkForForbiddenWords(indexerConfig, HashMultiset.create(), internalData.getForbiddenWords(), item));
+        assertTrue(testee.checkForForbiddenWords(indexerConfig, HashMultiset.create(), new WordList(internalData.getForbiddenWords()), item));
         item.setTitle("def ghi");
-        assertTrue(testee.checkForForbiddenWords(indexerConfig, HashMultiset.create(), internalData.getForbiddenWords(), item));
+        assertTrue(testee.checkForForbiddenWords(indexerConfig, HashMultiset.create(), new WordList(internalData.getForbiddenWords()), item));
     }
 
     @Test
@@ -207,36 +216,34 @@ public class ResultAcceptorTest {
 
     @Test
     public void shouldCheckForForbiddenPoster() {
-        when(searchingConfig.getForbiddenPosters()).thenReturn(Arrays.asList("spammer"));
+        List<String> forbiddenPosters = Arrays.asList("spammer");
 
         item.setPoster("niceGuy");
-        assertTrue(testee.checkForForbiddenPoster(HashMultiset.create(), item));
+        assertTrue(testee.checkForForbiddenPoster(HashMultiset.create(), item, forbiddenPosters));
 
         item.setPoster(null);
-        assertTrue(testee.checkForForbiddenPoster(HashMultiset.create(), item));
+        assertTrue(testee.checkForForbiddenPoster(HashMultiset.create(), item, forbiddenPosters));
 
         item.setPoster("spammer");
-        assertFalse(testee.checkForForbiddenPoster(HashMultiset.create(), item));
+        assertFalse(testee.checkForForbiddenPoster(HashMultiset.create(), item, forbiddenPosters));
 
-        when(searchingConfig.getForbiddenPosters()).thenReturn(Arrays.asList());
-        assertTrue(testee.checkForForbiddenPoster(HashMultiset.create(), item));
+        assertTrue(testee.checkForForbiddenPoster(HashMultiset.create(), item, Collections.emptyList()));
     }
 
     @Test
     public void shouldCheckForForbiddenGroup() {
-        when(searchingConfig.getForbiddenGroups()).thenReturn(Arrays.asList("spammergroup"));
+        List<String> forbiddenGroups = Arrays.asList("spammergroup");
 
         item.setGroup("niceGroup");
-        assertTrue(testee.checkForForbiddenGroup(HashMultiset.create(), item));
+        assertTrue(testee.checkForForbiddenGroup(HashMultiset.create(), item, forbiddenGroups));
 
         item.setGroup(null);
-        assertTrue(testee.checkForForbiddenGroup(HashMultiset.create(), item));
+        assertTrue(testee.checkForForbiddenGroup(HashMultiset.create(), item, forbiddenGroups));
 
         item.setGroup("spammergroup");
-        assertFalse(testee.checkForForbiddenGroup(HashMultiset.create(), item));
+        assertFalse(testee.checkForForbiddenGroup(HashMultiset.create(), item, forbiddenGroups));
 
-        when(searchingConfig.getForbiddenGroups()).thenReturn(Collections.emptyList());
-        assertTrue(testee.checkForForbiddenGroup(HashMultiset.create(), item));
+        assertTrue(testee.checkForForbiddenGroup(HashMultiset.create(), item, Collections.emptyList()));
     }
 
     @Test
@@ -285,12 +292,135 @@ public class ResultAcceptorTest {
     @Test
     public void shouldCheckRegexes() {
         item.setTitle("aabccd");
-        assertTrue(testee.checkRegexes(item, HashMultiset.create(), "", ""));
-        assertTrue(testee.checkRegexes(item, HashMultiset.create(), "a+b", ""));
-        assertTrue(testee.checkRegexes(item, HashMultiset.create(), "", ""));
-        assertFalse(testee.checkRegexes(item, HashMultiset.create(), "a+b", "c+d"));
-        assertFalse(testee.checkRegexes(item, HashMultiset.create(), "", "c+d"));
+        assertTrue(testee.checkRegexes(item, HashMultiset.create(), null, null));
+        assertTrue(testee.checkRegexes(item, HashMultiset.create(), Pattern.compile("a+b"), null));
+        assertTrue(testee.checkRegexes(item, HashMultiset.create(), null, null));
+        assertFalse(testee.checkRegexes(item, HashMultiset.create(), Pattern.compile("a+b"), Pattern.compile("c+d")));
+        assertFalse(testee.checkRegexes(item, HashMultiset.create(), null, Pattern.compile("c+d")));
     }
 
+    @Test
+    public void shouldRebuildFilterProgramWhenConfigChanges() {
+        BaseConfig newConfig = new BaseConfig();
+        newConfig.getSearching().setForbiddenRegex("c+d");
+        newConfig.getSearching().setRequiredWords(Arrays.asList("ABC", "x.y"));
+        Category newCategory = new Category("newCategory");
+        newCategory.setRequiredRegex("a+b");
+        newConfig.getCategoriesConfig().getCategories().add(newCategory);
+
+        testee.handleNewConfig(new ConfigChangedEvent(this, baseConfig, newConfig));
+
+        ResultFilterProgram program = testee.getFilterProgram();
+        assertEquals("c+d", program.getGlobalFilter().getForbiddenRegex().pattern());
+        assertEquals(Collections.singleton("abc"), program.getGlobalFilter().getRequiredWords().getWholeWords());
+        assertEquals(Collections.singletonList("x.y"), program.getGlobalFilter().getRequiredWords().getContainedWords());
+        assertEquals("a+b", program.getCategoryFilter(newCategory).getRequiredRegex().pattern());
+    }
+
+    @Test
+    public void shouldAcceptResultsCorrectlyWhenCalledConcurrently() throws Exception {
+        BaseConfig realBaseConfig = new BaseConfig();
+        realBaseConfig.getSearching().setApplyRestrictions(SearchSourceRestriction.BOTH);
+        realBaseConfig.getSearching().setForbiddenWords(Arrays.asList("forbidden"));
+        when(configProvider.getBaseConfig()).thenReturn(realBaseConfig);
+        Category realCategory = new Category("cat");
+        realCategory.setIgnoreResultsFrom(SearchSourceRestriction.NONE);
+        realCategory.setApplyRestrictionsType(SearchSourceRestriction.NONE);
+        IndexerConfig realIndexerConfig = new IndexerConfig();
+        realIndexerConfig.setName("indexer");
+        realIndexerConfig.setHost("http://127.0.0.1");
+        Indexer indexer = new Newznab();
+        indexer.initialize(realIndexerConfig, new IndexerEntity());
+
+        int numberOfThreads = 8;
+        ExecutorService executorService = Executors.newFixedThreadPool(numberOfThreads);
+        List<Future<Boolean>> futures = new ArrayList<>();
+        for (int thread = 0; thread < numberOfThreads; thread++) {
+            String requiredWord = "required" + thread;
+            futures.add(executorService.submit(() -> {
+                for (int iteration = 0; iteration < 200; iteration++) {
+                    //Every third result contains the required word of this thread, every fifth contains the forbidden word
+                    List<SearchResultItem> items = new ArrayList<>();
+                    int expected = 0;
+                    for (int i = 0; i < 50; i++) {
+                        SearchResultItem item = new SearchResultItem();
+                        boolean hasRequiredWord = i % 3 == 0;
+                        boolean hasForbiddenWord = i % 5 == 0;
+                        item.setTitle("Show.Name.S01E" + i + ".720p" + (hasRequiredWord ? "." + requiredWord : ".required99") + (hasForbiddenWord ? ".forbidden" : "") + "-GROUP");
+                        item.setIndexerGuid(String.valueOf(i));
+                        item.setLink("http://127.0.0.1/" + i);
+                        item.setPubDate(Instant.now());
+                        item.setCategory(realCategory);
+                        item.setIndexer(indexer);
+                        items.add(item);
+                        if (hasRequiredWord && !hasForbiddenWord) {
+                            expected++;
+                        }
+                    }
+                    SearchRequest request = new SearchRequest(SearchSource.API, SearchType.SEARCH, 0, 100);
+                    request.getInternalData().getRequiredWords().add(requiredWord);
+                    if (testee.acceptResults(items, request, realIndexerConfig).getAcceptedResults().size() != expected) {
+                        return false;
+                    }
+                }
+                return true;
+            }));
+        }
+        for (Future<Boolean> future : futures) {
+            assertTrue(future.get());
+        }
+        executorService.shutdown();
+    }
+
+    @Test
+    public void shouldKeepReasonsForRejectionWhenChecksAreReordered() throws Exception {
+        BaseConfig realBaseConfig = new BaseConfig();
+        realBaseConfig.getSearching().setIgnorePassworded(true);
+        when(configProvider.getBaseConfig()).thenReturn(realBaseConfig);
+        Category realCategory = new Category("cat");
+        realCategory.setIgnoreResultsFrom(SearchSourceRestriction.NONE);
+        realCategory.setApplyRestrictionsType(SearchSourceRestriction.NONE);
+        IndexerConfig realIndexerConfig = new IndexerConfig();
+        realIndexerConfig.setName("indexer");
+        realIndexerConfig.setHost("http://127.0.0.1");
+        Indexer indexer = new Newznab();
+        indexer.initialize(realIndexerConfig, new IndexerEntity());
+        SearchRequest request = new SearchRequest(SearchSource.INTERNAL, SearchType.SEARCH, 0, 100);
+        request.setMinsize(10);
+
+        //Only the size check rejects results so it should be run first
+        List<SearchResultItem> items = new ArrayList<>();
+        for (int i = 0; i < 2 * AcceptanceCheckStatistics.MIN_INVOCATIONS; i++) {
+            items.add(createItem(realCategory, indexer, i, i < AcceptanceCheckStatistics.MIN_INVOCATIONS ? 100 : 1, false));
+        }
+        ResultAcceptor.AcceptorResult result = testee.acceptResults(items, request, realIndexerConfig);
+        assertEquals(AcceptanceCheckStatistics.MIN_INVOCATIONS, result.getAcceptedResults().size());
+        assertEquals(AcceptanceCheckStatistics.MIN_INVOCATIONS, result.getReasonsForRejection().count("Wrong size"));
+
+        List<AcceptanceCheckStatistics.AcceptanceCheckStats> statistics = testee.getCheckStatistics();
+        assertEquals(1, statistics.size());
+        assertEquals("indexer", statistics.get(0).getIndexer());
+        assertEquals("cat", statistics.get(0).getCategory());
+        assertEquals("SIZE", statistics.get(0).getCheckOrder().get(0));
+
+        //The password check comes first in the original order so it determines the reason
+        result = testee.acceptResults(Arrays.asList(createItem(realCategory, indexer, 0, 1, true), createItem(realCategory, indexer, 1, 1, false), createItem(realCategory, indexer, 2, 100, true)), request, realIndexerConfig);
+        assertEquals(0, result.getAcceptedResults().size());
+        assertEquals(2, result.getReasonsForRejection().count("Ignore passworded"));
+        assertEquals(1, result.getReasonsForRejection().count("Wrong size"));
+    }
+
+    private SearchResultItem createItem(Category category, Indexer indexer, int number, long sizeInMb, boolean passworded) {
+        SearchResultItem item = new SearchResultItem();
+        item.setTitle("title" + number);
+        item.setIndexerGuid(String.valueOf(number));
+        item.setLink("http://127.0.0.1/" + number);
+        item.setPubDate(Instant.now());
+        item.setSize(sizeInMb * 1024 * 1024);
+        item.setPassworded(passworded);
+        item.setCategory(category);
+        item.setIndexer(indexer);
+        return item;
+    }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,107 @@
+package org.nzbhydra.searching;
+
+import com.google.common.base.Strings;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.nzbhydra.config.BaseConfig;
+import org.nzbhydra.config.ConfigChangedEvent;
+import org.nzbhydra.config.ConfigProvider;
+import org.nzbhydra.indexers.Indexer;
+import org.nzbhydra.searching.IndexerForSearchSelector.IndexerForSearchSelection;
+import org.nzbhydra.searching.searchrequests.SearchRequest;
+import org.nzbhydra.searching.searchrequests.SearchRequest.SearchSource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+public class SearchCacheTest {
+
+    @Mock
+    private ConfigProvider configProviderMock;
+    @Mock
+    private Indexer indexerMock;
+    private BaseConfig baseConfig = new BaseConfig();
+
+    private SearchCache testee = new SearchCache();
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        when(configProviderMock.getBaseConfig()).thenReturn(baseConfig);
+        baseConfig.getSearching().setSearchCacheMaxSizeMb(1);
+        testee.configProvider = configProviderMock;
+        testee.init();
+    }
+
+    @Test
+    public void shouldEstimateSizeByNumberOfResults() throws Exception {
+        assertThat(SearchCache.estimateSize(createEntry(1000))).isGreaterThan(100 * SearchCache.estimateSize(createEntry(1)));
+    }
+
+    @Test
+    public void shouldEvictByWeight() throws Exception {
+        //Each entry uses several hundred KB so not all of them fit into 1MB
+        for (int i = 0; i < 10; i++) {
+            testee.put(i, createEntry(1000));
+        }
+        assertThat(testee.getStats().getEvictionCount()).isGreaterThan(0);
+        assertThat(testee.getStats().getEstimatedSizeKb()).isLessThanOrEqualTo(1024);
+        assertThat(testee.get(9)).isPresent();
+
+        //Small entries are not affected by the count of entries
+        for (int i = 100; i < 150; i++) {
+            testee.put(i, createEntry(1));
+        }
+        assertThat(testee.get(100)).isPresent();
+        assertThat(testee.get(149)).isPresent();
+    }
+
+    @Test
+    public void shouldRecordStats() throws Exception {
+        testee.put(1, createEntry(1));
+        testee.get(1);
+        testee.get(2);
+
+        SearchCache.SearchCacheStats stats = testee.getStats();
+        assertThat(stats.getEntries()).isEqualTo(1);
+        assertThat(stats.getHitCount()).isEqualTo(1);
+        assertThat(stats.getMissCount()).isEqualTo(1);
+        assertThat(stats.getMaxSizeKb()).isEqualTo(1024);
+    }
+
+    @Test
+    public void shouldKeepEntriesWhenConfigChanges() throws Exception {
+        testee.put(1, createEntry(1));
+        BaseConfig newConfig = new BaseConfig();
+        newConfig.getSearching().setSearchCacheMaxSizeMb(2);
+        testee.handleNewConfig(new ConfigChangedEvent(this, baseConfig, newConfig));
+
+        assertThat(testee.get(1)).isPresent();
+        assertThat(testee.getStats().getMaxSizeKb()).isEqualTo(2048);
+    }
+
+    private SearchCacheEntry createEntry(int numberOfItems) {
+        IndexerForSearchSelection pickingResult = new IndexerForSearchSelection();
+        pickingResult.getSelectedIndexers().add(indexerMock);
+        SearchCacheEntry entry = new SearchCacheEntry(new SearchRequest(SearchSource.INTERNAL, SearchType.SEARCH, 0, 100), pickingResult, new SearchEntity());
+        List<SearchResultItem> items = new ArrayList<>();
+        for (int i = 0; i < numberOfItems; i++) {
+            SearchResultItem item = new SearchResultItem();
+            item.setTitle("Some.Title.With.A.Realistic.Length.720p.WEB-DL-GROUP" + i);
+            item.setLink("http://127.0.0.1/getnzb/api/" + i + "?apikey=" + Strings.repeat("a", 32));
+            item.setDetails("http://127.0.0.1/details/" + i);
+            items.add(item);
+        }
+        IndexerSearchResult indexerSearchResult = new IndexerSearchResult(indexerMock, true);
+        indexerSearchResult.setSearchResultItems(items);
+        entry.getIndexerSearchResultsByIndexer().get(indexerMock).add(indexerSearchResult);
+        entry.setSearchResultItems(items);
+        return entry;
+    }
+
+}
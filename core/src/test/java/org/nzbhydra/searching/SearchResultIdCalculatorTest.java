@@ -0,0 +1,25 @@
+package org.nzbhydra.searching;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SearchResultIdCalculatorTest {
+
+    @Test
+    public void shouldHashPartsLikeConcatenatedString() throws Exception {
+        String[][] parts = {
+                {"indexer", "abc123", "Some.Show.S01E01.720p.HDTV-GROUP", "http://indexer.com/getnzb/abc123.nzb&i=1&r=apikey"},
+                {"", "", "", ""},
+                {"indexer", null, "title", null},
+                {"indexer", "guid", "Sönderzeichen äöü ß 日本語 😀", "link"},
+                //Surrogate pair split between two parts and lone surrogates
+                {"indexer\uD83D", "\uDE00guid", "title\uD83D", "\uDC00link\uDC00"},
+                {"1234567", "12345678", "123456789", "a"}
+        };
+        for (String[] x : parts) {
+            assertThat(SearchResultIdCalculator.hash64(x[0], x[1], x[2], x[3])).isEqualTo(SearchResultIdCalculator.hash64(x[0] + x[1] + x[2] + x[3]));
+        }
+    }
+
+}
@@ -0,0 +1,77 @@
+package org.nzbhydra.searching;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.nzbhydra.config.BaseConfig;
+import org.nzbhydra.config.ConfigProvider;
+import org.nzbhydra.indexers.IndexerEntity;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+public class SearchResultIndexTest {
+
+    @Mock
+    private ConfigProvider configProviderMock;
+    private BaseConfig baseConfig = new BaseConfig();
+    private Instant now = Instant.now();
+
+    @InjectMocks
+    private SearchResultIndex testee = new SearchResultIndex();
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        when(configProviderMock.getBaseConfig()).thenReturn(baseConfig);
+        baseConfig.getSearching().setIndexSearchResults(true);
+
+        testee.add(Arrays.asList(
+                createEntity(1, "Some.Show.S01E01.720p.HDTV-GROUP", now.minus(3, ChronoUnit.DAYS)),
+                createEntity(2, "Some.Show.S01E02.720p.HDTV-GROUP", now.minus(1, ChronoUnit.DAYS)),
+                createEntity(3, "Another.Show.S01E01.1080p.WEB-DL", now.minus(2, ChronoUnit.DAYS))
+        ));
+    }
+
+    @Test
+    public void shouldFindResultsContainingAllWords() throws Exception {
+        assertThat(testee.find("some show", 100)).containsExactly(2L, 1L);
+        assertThat(testee.find("SHOW s01e01", 100)).containsExactly(3L, 1L);
+        assertThat(testee.find("show.s01e01 720p", 100)).containsExactly(1L);
+        assertThat(testee.find("show", 2)).containsExactly(2L, 3L);
+        assertThat(testee.find("some unknown", 100)).isEmpty();
+        assertThat(testee.find("", 100)).isEmpty();
+    }
+
+    @Test
+    public void shouldRemoveOldResults() throws Exception {
+        assertThat(testee.removeFoundBefore(now.minus(2, ChronoUnit.DAYS).plusSeconds(1))).isEqualTo(2);
+
+        assertThat(testee.size()).isEqualTo(1);
+        assertThat(testee.find("show", 100)).containsExactly(2L);
+        assertThat(testee.find("another", 100)).isEmpty();
+    }
+
+    @Test
+    public void shouldNotIndexWhenDisabled() throws Exception {
+        baseConfig.getSearching().setIndexSearchResults(false);
+
+        testee.add(Collections.singletonList(createEntity(4, "Something.Else", now)));
+
+        assertThat(testee.find("something", 100)).isEmpty();
+    }
+
+    private SearchResultEntity createEntity(long id, String title, Instant firstFound) {
+        SearchResultEntity entity = new SearchResultEntity(new IndexerEntity(), firstFound, title, "guid" + id, "link", "details", SearchResultItem.DownloadType.NZB, firstFound);
+        entity.setId(id);
+        return entity;
+    }
+
+}
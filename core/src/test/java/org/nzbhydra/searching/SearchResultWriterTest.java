@@ -0,0 +1,78 @@
+package org.nzbhydra.searching;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.nzbhydra.indexers.IndexerEntity;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SearchResultWriterTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplateMock;
+    @Mock
+    private PlatformTransactionManager transactionManagerMock;
+    private IndexerEntity indexerEntity = new IndexerEntity();
+    private SearchResultEntity entity1;
+    private SearchResultEntity entity2;
+    private SearchResultEntity entity3;
+
+    @InjectMocks
+    private SearchResultWriter testee = new SearchResultWriter();
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        testee.init();
+        indexerEntity.setName("indexer");
+        entity1 = createEntity("guid1");
+        entity2 = createEntity("guid2");
+        entity3 = createEntity("guid3");
+    }
+
+    @Test
+    public void shouldReturnOnlyNewlyStoredResults() throws Exception {
+        when(jdbcTemplateMock.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class))).thenReturn(new int[][]{{1, 0, 1}});
+
+        List<SearchResultEntity> stored = testee.writeNew(Arrays.asList(entity1, entity2, entity3));
+
+        assertThat(stored).containsExactly(entity1, entity3);
+        assertThat(entity1.getId()).isEqualTo(SearchResultIdCalculator.calculateSearchResultId(entity1));
+        assertThat(entity2.getId()).isEqualTo(SearchResultIdCalculator.calculateSearchResultId(entity2));
+    }
+
+    @Test
+    public void shouldTryAgainAfterConcurrentInsert() throws Exception {
+        when(jdbcTemplateMock.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenThrow(new DuplicateKeyException("duplicate"))
+                .thenReturn(new int[][]{{0, 1}});
+
+        List<SearchResultEntity> stored = testee.writeNew(Arrays.asList(entity1, entity2));
+
+        assertThat(stored).containsExactly(entity2);
+        verify(jdbcTemplateMock, times(2)).batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class));
+    }
+
+    private SearchResultEntity createEntity(String guid) {
+        return new SearchResultEntity(indexerEntity, Instant.now(), "title", guid, "link", "details", SearchResultItem.DownloadType.NZB, null);
+    }
+
+}
@@ -12,10 +12,14 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
+import org.nzbhydra.config.BaseConfig;
 import org.nzbhydra.config.Category;
+import org.nzbhydra.config.ConfigProvider;
 import org.nzbhydra.config.IndexerConfig;
+import org.nzbhydra.historystats.StatsRollups;
 import org.nzbhydra.indexers.Indexer;
 import org.nzbhydra.indexers.IndexerEntity;
+import org.nzbhydra.indexers.IndexerExecutor;
 import org.nzbhydra.indexers.IndexerSearchEntity;
 import org.nzbhydra.indexers.IndexerSearchRepository;
 import org.nzbhydra.mediainfo.InfoProvider;
@@ -32,6 +36,10 @@ import java.util.Arrays;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 import static org.hamcrest.CoreMatchers.is;
@@ -39,6 +47,8 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -86,6 +96,13 @@ public class SearcherUnitTest {
     private IndexerSearchEntity indexerSearchEntityMock;
     @Mock
     private ApplicationEventPublisher applicationEventPublisherMock;
+    @Mock
+    private ConfigProvider configProviderMock;
+    @Mock
+    private IndexerExecutor indexerExecutorMock;
+    @Mock
+    private StatsRollups statsRollupsMock;
+    private BaseConfig baseConfig = new BaseConfig();
     private Random random = new Random();
 
 
@@ -94,6 +111,12 @@ public class SearcherUnitTest {
         MockitoAnnotations.initMocks(this);
         when(searchResultEntityMock.getIndexer()).thenReturn(indexerEntity);
         searcher.duplicateDetector = duplicateDetector;
+        when(configProviderMock.getBaseConfig()).thenReturn(baseConfig);
+        when(indexerExecutorMock.getSearchExecutor()).thenReturn(Executors.newCachedThreadPool());
+        SearchCache searchCache = new SearchCache();
+        searchCache.configProvider = configProviderMock;
+        searchCache.init();
+        searcher.searchCache = searchCache;
 
         when(indexer1.getName()).thenReturn("indexer1");
         when(indexer2.getName()).thenReturn("indexer2");
@@ -108,10 +131,10 @@ public class SearcherUnitTest {
         when(indexerSearchRepository.findByIndexerEntityAndSearchEntity(any(), any())).thenReturn(indexerSearchEntityMock);
 
         when(pickingResultMock.getSelectedIndexers()).thenReturn(Arrays.asList(indexer1));
-        when(duplicateDetector.detectDuplicates(any())).thenAnswer(new Answer<DuplicateDetectionResult>() {
+        when(duplicateDetector.detectDuplicates(any(), any())).thenAnswer(new Answer<DuplicateDetectionResult>() {
             @Override
             public DuplicateDetectionResult answer(InvocationOnMock invocation) throws Throwable {
-                List<SearchResultItem> items = invocation.getArgument(0);
+                List<SearchResultItem> items = invocation.getArgument(1);
                 List<LinkedHashSet<SearchResultItem>> sets = items.stream().map(x -> {
                     return Sets.newLinkedHashSet(Arrays.asList(x));
                 }).collect(Collectors.toList());
@@ -192,6 +215,126 @@ public class SearcherUnitTest {
         verify(indexer1, times(2)).search(any(), anyInt(), any());
     }
 
+    @Test
+    public void shouldReturnPartialResultsWhenDeadlineIsExceeded() throws Exception {
+        baseConfig.getSearching().setProgressiveSearchDeadline(1);
+        when(pickingResultMock.getSelectedIndexers()).thenReturn(Arrays.asList(indexer1, indexer2));
+        when(indexer1.search(any(), anyInt(), anyInt())).thenReturn(mockIndexerSearchResult(0, 10, false, 10, indexer1));
+        CountDownLatch releaseIndexer2 = new CountDownLatch(1);
+        when(indexer2.search(any(), anyInt(), anyInt())).thenAnswer(invocation -> {
+            releaseIndexer2.await();
+            return mockIndexerSearchResult(0, 10, false, 10, indexer2);
+        });
+
+        SearchRequest searchRequest = new SearchRequest(SearchSource.INTERNAL, SearchType.SEARCH, 0, 100);
+        searchRequest.setTitle("some title so it will be found in the search request cache");
+        searchRequest.getInternalData().setProgressive(true);
+        SearchResult result = searcher.search(searchRequest);
+        releaseIndexer2.countDown();
+
+        assertThat(result.isPartial(), is(true));
+        assertThat(result.getSearchResultItems().size(), is(10));
+        assertThat(result.getSearchResultItems().get(0).getIndexer(), is(indexer1));
+        verify(applicationEventPublisherMock, atLeastOnce()).publishEvent(any(PartialSearchResultEvent.class));
+        assertThat(result.getIndexerSearchResults().stream().anyMatch(x -> x.getIndexer() == indexer2 && x.isDeadlineExceeded()), is(true));
+        //Indexer 2 is searched again when more results are loaded
+        assertThat(searcher.searchCache.get(searchRequest.hashCode()).get().getIndexerSearchResultsByIndexer().get(indexer2).isEmpty(), is(true));
+    }
+
+    @Test
+    public void shouldCoalesceIdenticalConcurrentSearches() throws Exception {
+        CountDownLatch searchStarted = new CountDownLatch(1);
+        CountDownLatch secondSearchWaiting = new CountDownLatch(1);
+        when(indexer1.search(any(), anyInt(), anyInt())).thenAnswer(invocation -> {
+            searchStarted.countDown();
+            secondSearchWaiting.await();
+            return mockIndexerSearchResult(0, 10, false, 10, indexer1);
+        });
+        SearchRequest secondSearchRequest = getCoalescingSearchRequest("some query");
+        doAnswer(invocation -> {
+            secondSearchWaiting.countDown();
+            return null;
+        }).when(applicationEventPublisherMock).publishEvent(any(SearchMessageEvent.class));
+
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        Future<SearchResult> firstSearch = executorService.submit(() -> searcher.search(getCoalescingSearchRequest("some query")));
+        searchStarted.await();
+        Future<SearchResult> secondSearch = executorService.submit(() -> searcher.search(secondSearchRequest));
+
+        assertThat(firstSearch.get().getSearchResultItems().size(), is(10));
+        assertThat(secondSearch.get().getSearchResultItems().size(), is(10));
+        assertThat(secondSearch.get() != firstSearch.get(), is(true));
+        assertThat(secondSearch.get().getSearchResultItems() != firstSearch.get().getSearchResultItems(), is(true));
+        verify(indexer1, times(1)).search(any(), anyInt(), anyInt());
+        //Both searches are in the history
+        verify(searchRepositoryMock, times(2)).save(any(SearchEntity.class));
+        verify(applicationEventPublisherMock).publishEvent(new IndexerSelectionEvent(secondSearchRequest, 1));
+        assertThat(searcher.getSearchCoalescingStats().getCoalescedSearches(), is(1L));
+        assertThat(searcher.getSearchCoalescingStats().getSavedIndexerCalls(), is(1L));
+        assertThat(searcher.getSearchCoalescingStats().getRunningSearches(), is(0));
+    }
+
+    @Test
+    public void shouldForwardPartialResultsToWaitingProgressiveSearches() throws Exception {
+        when(pickingResultMock.getSelectedIndexers()).thenReturn(Arrays.asList(indexer1, indexer2));
+        when(indexer1.search(any(), anyInt(), anyInt())).thenReturn(mockIndexerSearchResult(0, 10, false, 10, indexer1));
+        CountDownLatch firstPartialResultPublished = new CountDownLatch(1);
+        CountDownLatch secondSearchWaiting = new CountDownLatch(1);
+        when(indexer2.search(any(), anyInt(), anyInt())).thenAnswer(invocation -> {
+            secondSearchWaiting.await();
+            return mockIndexerSearchResult(0, 10, false, 10, indexer2);
+        });
+        doAnswer(invocation -> {
+            firstPartialResultPublished.countDown();
+            return null;
+        }).when(applicationEventPublisherMock).publishEvent(any(PartialSearchResultEvent.class));
+        doAnswer(invocation -> {
+            secondSearchWaiting.countDown();
+            return null;
+        }).when(applicationEventPublisherMock).publishEvent(any(SearchMessageEvent.class));
+        SearchRequest secondSearchRequest = getProgressiveSearchRequest();
+
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        Future<SearchResult> firstSearch = executorService.submit(() -> searcher.search(getProgressiveSearchRequest()));
+        firstPartialResultPublished.await();
+        Future<SearchResult> secondSearch = executorService.submit(() -> searcher.search(secondSearchRequest));
+        firstSearch.get();
+        secondSearch.get();
+
+        ArgumentCaptor<Object> eventCaptor = ArgumentCaptor.forClass(Object.class);
+        verify(applicationEventPublisherMock, atLeastOnce()).publishEvent(eventCaptor.capture());
+        List<PartialSearchResultEvent> forwardedEvents = eventCaptor.getAllValues().stream().filter(x -> x instanceof PartialSearchResultEvent && ((PartialSearchResultEvent) x).getSearchRequest() == secondSearchRequest)
+                .map(x -> (PartialSearchResultEvent) x).collect(Collectors.toList());
+        assertThat(forwardedEvents.isEmpty(), is(false));
+        //The latest partial result contains the results of both indexers, no matter if it was published before or after the second search started waiting
+        assertThat(forwardedEvents.get(forwardedEvents.size() - 1).getSearchResult().getSearchResultItems().size(), is(20));
+        verify(indexer2, times(1)).search(any(), anyInt(), anyInt());
+    }
+
+    @Test
+    public void shouldNotCoalesceDifferentSearches() throws Exception {
+        when(indexer1.search(any(), anyInt(), anyInt())).thenReturn(mockIndexerSearchResult(0, 10, false, 10, indexer1));
+
+        searcher.search(getCoalescingSearchRequest("some query"));
+        searcher.search(getCoalescingSearchRequest("another query"));
+
+        verify(indexer1, times(2)).search(any(), anyInt(), anyInt());
+        assertThat(searcher.getSearchCoalescingStats().getCoalescedSearches(), is(0L));
+    }
+
+    private SearchRequest getCoalescingSearchRequest(String query) {
+        SearchRequest searchRequest = new SearchRequest(SearchSource.API, SearchType.SEARCH, 0, 100);
+        searchRequest.setQuery(query);
+        return searchRequest;
+    }
+
+    private SearchRequest getProgressiveSearchRequest() {
+        SearchRequest searchRequest = new SearchRequest(SearchSource.INTERNAL, SearchType.SEARCH, 0, 100);
+        searchRequest.setQuery("some query");
+        searchRequest.getInternalData().setProgressive(true);
+        return searchRequest;
+    }
+
     private IndexerSearchResult mockIndexerSearchResult(int offset, int limit, boolean hasMoreResults, int totalAvailableResults, Indexer indexer) {
 
         List<SearchResultItem> items = new ArrayList<>();
@@ -0,0 +1,85 @@
+package org.nzbhydra.searching;
+
+import org.nzbhydra.PerformanceMeasurement;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares splitting newznab like titles into words using the regex and a new set per title (like the result acceptor did before) with the
+ * {@link TitleTokenizer}, once in one thread and once in several threads at the same time.
+ */
+public class TitleTokenizerPerformance {
+
+    private static final Pattern TITLE_PATTERN = Pattern.compile("(\\w[\\w']*\\w|\\w)");
+    private static final int TITLES = 100_000;
+    private static final int REPETITIONS = 10;
+    private static final int THREADS = 8;
+
+    public static void main(String[] args) throws Exception {
+        List<String> titles = createTitles();
+
+        long regexTime = PerformanceMeasurement.measure(REPETITIONS, () -> runRegex(titles)).getMillisPerRun();
+        long tokenizerTime = PerformanceMeasurement.measure(REPETITIONS, () -> runTokenizer(titles)).getMillisPerRun();
+        System.out.println(String.format("One thread, %d titles: regex %dms, tokenizer %dms", TITLES, regexTime, tokenizerTime));
+
+        ExecutorService executorService = Executors.newFixedThreadPool(THREADS);
+        regexTime = PerformanceMeasurement.measure(REPETITIONS, () -> runInThreads(executorService, () -> runRegex(titles))).getMillisPerRun();
+        tokenizerTime = PerformanceMeasurement.measure(REPETITIONS, () -> runInThreads(executorService, () -> runTokenizer(titles))).getMillisPerRun();
+        System.out.println(String.format("%d threads, %d titles each: regex %dms, tokenizer %dms", THREADS, TITLES, regexTime, tokenizerTime));
+        executorService.shutdown();
+    }
+
+    private static void runInThreads(ExecutorService executorService, Runnable runnable) throws Exception {
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(executorService.submit(runnable));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+    }
+
+    private static int runRegex(List<String> titles) {
+        int count = 0;
+        for (String title : titles) {
+            Set<String> words = new HashSet<>();
+            Matcher matcher = TITLE_PATTERN.matcher(title.toLowerCase());
+            while (matcher.find()) {
+                words.add(matcher.group().toLowerCase());
+            }
+            count += words.size();
+        }
+        return count;
+    }
+
+    private static int runTokenizer(List<String> titles) {
+        TitleTokenizer tokenizer = new TitleTokenizer();
+        int count = 0;
+        for (String title : titles) {
+            count += tokenizer.tokenize(title).getWords().size();
+        }
+        return count;
+    }
+
+    private static List<String> createTitles() {
+        Random random = new Random(1);
+        String[] shows = {"Show.Name", "The.Walking.Dead", "Marvels.Agents.of.S.H.I.E.L.D", "Grey's.Anatomy", "Law.and.Order.SVU", "Doctor.Who.2005"};
+        String[] qualities = {"720p.HDTV.x264", "1080p.WEB-DL.DD5.1.H.264", "HDTV.XviD", "2160p.AMZN.WEB-DL.DDP5.1.HEVC"};
+        String[] groups = {"GROUP", "LOL", "DIMENSION", "NTb", "KILLERS"};
+        List<String> titles = new ArrayList<>();
+        for (int i = 0; i < TITLES; i++) {
+            titles.add(String.format("%s.S%02dE%02d.%s-%s", shows[random.nextInt(shows.length)], random.nextInt(20) + 1, random.nextInt(24) + 1, qualities[random.nextInt(qualities.length)], groups[random.nextInt(groups.length)]));
+        }
+        return titles;
+    }
+
+}
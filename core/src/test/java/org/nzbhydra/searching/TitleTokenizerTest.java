@@ -0,0 +1,59 @@
+package org.nzbhydra.searching;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TitleTokenizerTest {
+
+    private static final Pattern TITLE_PATTERN = Pattern.compile("(\\w[\\w']*\\w|\\w)");
+
+    private TitleTokenizer testee = new TitleTokenizer();
+
+    @Test
+    public void shouldSplitIntoLowerCaseWords() throws Exception {
+        assertThat(testee.tokenize("Show.Name.S01E02.720p.HDTV.x264-GROUP").getWords()).containsOnly("show", "name", "s01e02", "720p", "hdtv", "x264", "group");
+        assertThat(testee.tokenize("Marvel's Agents of S.H.I.E.L.D. [2013]").getWords()).containsOnly("marvel's", "agents", "of", "s", "h", "i", "e", "l", "d", "2013");
+        assertThat(testee.getLowerCaseTitle()).isEqualTo("marvel's agents of s.h.i.e.l.d. [2013]");
+    }
+
+    @Test
+    public void shouldFindSameWordsAsRegex() throws Exception {
+        for (String title : Arrays.asList("", "a", "'a'", "a''b'", "rock'n'roll", "__init__", "x' 'y", "ÄÖÜ abc", "ab'", "'''", "A.B-C_D")) {
+            assertThat(testee.tokenize(title).getWords()).as(title).isEqualTo(tokenizeWithRegex(title));
+        }
+        Random random = new Random(1);
+        String characters = "aB1_' .-äß";
+        for (int i = 0; i < 10000; i++) {
+            StringBuilder title = new StringBuilder();
+            for (int j = 0; j < random.nextInt(30); j++) {
+                title.append(characters.charAt(random.nextInt(characters.length())));
+            }
+            assertThat(testee.tokenize(title.toString()).getWords()).as(title.toString()).isEqualTo(tokenizeWithRegex(title.toString()));
+        }
+    }
+
+    @Test
+    public void shouldReuseWordsOfLastTitle() throws Exception {
+        Set<String> words = testee.tokenize("some title").getWords();
+        assertThat(testee.tokenize("some title").getWords()).isSameAs(words).containsOnly("some", "title");
+        assertThat(testee.tokenize("other").getWords()).containsOnly("other");
+    }
+
+    private Set<String> tokenizeWithRegex(String title) {
+        Set<String> words = new HashSet<>();
+        Matcher matcher = TITLE_PATTERN.matcher(title.toLowerCase());
+        while (matcher.find()) {
+            words.add(matcher.group().toLowerCase());
+        }
+        return words;
+    }
+
+}
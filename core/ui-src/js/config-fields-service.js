@@ -212,6 +212,48 @@ function ConfigFields($injector) {
                                     }
                                 }
                             ]
+                        },
+
+                        {
+                            wrapper: 'fieldset',
+                            templateOptions: {
+                                label: 'Connections'
+                            }
+                            ,
+                            fieldGroup: [
+                                {
+                                    key: 'idleConnectionsPerHost',
+                                    type: 'horizontalInput',
+                                    templateOptions: {
+                                        type: 'number',
+                                        label: 'Idle connections per host',
+                                        min: 1,
+                                        help: 'Number of open connections kept for every indexer so that following searches don\'t need to connect again.'
+                                    }
+                                },
+                                {
+                                    key: 'idleConnectionKeepAliveMinutes',
+                                    type: 'horizontalInput',
+                                    templateOptions: {
+                                        type: 'number',
+                                        label: 'Keep idle connections',
+                                        min: 1,
+                                        addonRight: {
+                                            text: 'minutes'
+                                        },
+                                        help: 'Time after which unused connections are closed.'
+                                    }
+                                },
+                                {
+                                    key: 'warmUpIndexerConnections',
+                                    type: 'horizontalSwitch',
+                                    templateOptions: {
+                                        type: 'switch',
+                                        label: 'Warm up connections',
+                                        help: 'Connect to all enabled indexers on startup and when the config is saved so that the first search doesn\'t have to wait for the connection.'
+                                    }
+                                }
+                            ]
                         }
                     ]
                 },
@@ -440,6 +482,107 @@ function ConfigFields($injector) {
                                 }
                             }
                         },
+                        {
+                            key: 'asyncIndexerSearches',
+                            type: 'horizontalSwitch',
+                            templateOptions: {
+                                type: 'switch',
+                                label: 'Asynchronous indexer calls',
+                                help: 'Don\'t block a thread while waiting for indexers. Allows many concurrent searches with few threads. Indexer threads then limits the number of running web calls.'
+                            }
+                        },
+                        {
+                            key: 'indexerThreads',
+                            type: 'horizontalInput',
+                            templateOptions: {
+                                type: 'number',
+                                label: 'Indexer threads',
+                                help: 'Maximum number of indexer searches and indexer web calls executed at the same time'
+                            }
+                        },
+                        {
+                            key: 'indexerQueueSize',
+                            type: 'horizontalInput',
+                            templateOptions: {
+                                type: 'number',
+                                label: 'Indexer queue size',
+                                help: 'Maximum number of indexer searches and web calls waiting for a free thread. Any further calls are rejected. Requires restart.'
+                            }
+                        },
+                        {
+                            key: 'maxConcurrentCallsPerIndexer',
+                            type: 'horizontalInput',
+                            templateOptions: {
+                                type: 'number',
+                                label: 'Max calls per indexer',
+                                help: 'Maximum number of concurrent web calls to a single indexer. Further calls wait for a free slot until the timeout is reached.'
+                            }
+                        },
+                        {
+                            key: 'maxIndexerResponseSizeMb',
+                            type: 'horizontalInput',
+                            templateOptions: {
+                                type: 'number',
+                                label: 'Max indexer response size',
+                                help: 'Indexer responses larger than this are aborted and treated as an error.',
+                                addonRight: {
+                                    text: 'MB'
+                                }
+                            }
+                        },
+                        {
+                            key: 'progressiveSearchDeadline',
+                            type: 'horizontalInput',
+                            templateOptions: {
+                                type: 'number',
+                                label: 'Search deadline',
+                                help: 'Progressive searches are closed after this time. Indexers which have not answered until then are ignored and the results are marked as partial.',
+                                addonRight: {
+                                    text: 'seconds'
+                                }
+                            }
+                        },
+                        {
+                            key: 'progressiveApiSearch',
+                            type: 'horizontalSwitch',
+                            templateOptions: {
+                                type: 'switch',
+                                label: 'Progressive API searches',
+                                help: 'Apply the search deadline to API searches as well. Slow indexers will not delay the response but their results will be missing.'
+                            }
+                        },
+                        {
+                            key: 'rssDeltaPolling',
+                            type: 'horizontalSwitch',
+                            templateOptions: {
+                                type: 'switch',
+                                label: 'RSS delta polling',
+                                help: 'For API searches without any query or IDs (RSS sync) only ask newznab indexers for changes since the last poll. Uses conditional requests where supported, otherwise loads only the newest results and reuses the rest.'
+                            }
+                        },
+                        {
+                            key: 'prefetchLatestReleases',
+                            type: 'horizontalSwitch',
+                            templateOptions: {
+                                type: 'switch',
+                                label: 'Prefetch latest releases',
+                                help: 'Poll the newest releases of newznab and torznab indexers in the background and answer API searches without any query or IDs (RSS sync) from them. When disabled these searches are sent to all indexers.'
+                            }
+                        },
+                        {
+                            key: 'latestReleasesPollMinutes',
+                            type: 'horizontalInput',
+                            hideExpression: '!model.prefetchLatestReleases',
+                            templateOptions: {
+                                type: 'number',
+                                label: 'Latest releases poll interval',
+                                min: 5,
+                                help: 'Indexers with an API hit limit are polled less often so that polling uses at most half of their hits.',
+                                addonRight: {
+                                    text: 'minutes'
+                                }
+                            }
+                        },
                         {
                             key: 'ignoreTemporarilyDisabled',
                             type: 'horizontalSwitch',
@@ -758,6 +901,18 @@ function ConfigFields($injector) {
                                 }
                             }
                         },
+                        {
+                            key: 'duplicateDetectionParallelThreshold',
+                            type: 'horizontalInput',
+                            templateOptions: {
+                                type: 'number',
+                                label: 'Parallel duplicate detection',
+                                help: 'Detect duplicates using multiple threads when this many results need to be checked. Set to 0 to disable.',
+                                addonRight: {
+                                    text: 'results'
+                                }
+                            }
+                        },
                         {
                             key: 'removeTrailing',
                             type: 'horizontalChips',
@@ -789,6 +944,18 @@ function ConfigFields($injector) {
                                 help: "How access to NZBs is provided when NZBs are downloaded (by the user or external tools). Redirecting is recommended."
                             }
                         },
+                        {
+                            key: 'maxNzbSizeMb',
+                            type: 'horizontalInput',
+                            templateOptions: {
+                                type: 'number',
+                                label: 'Max NZB size',
+                                help: 'Proxied NZB downloads larger than this are aborted.',
+                                addonRight: {
+                                    text: 'MB'
+                                }
+                            }
+                        },
                         {
                             key: 'loadAllCachedOnInternal',
                             type: 'horizontalSwitch',
@@ -798,6 +965,30 @@ function ConfigFields($injector) {
                                 help: 'Show all cached results when searching internally. Might make sorting / filtering slower'
                             }
                         },
+                        {
+                            key: 'searchCacheMaxSizeMb',
+                            type: 'horizontalInput',
+                            templateOptions: {
+                                type: 'number',
+                                label: 'Search cache size',
+                                help: 'Estimated memory used for caching search results. When it is exceeded the least recently used results are removed.',
+                                addonRight: {
+                                    text: 'MB'
+                                }
+                            }
+                        },
+                        {
+                            key: 'searchCacheTimeMinutes',
+                            type: 'horizontalInput',
+                            templateOptions: {
+                                type: 'number',
+                                label: 'Search cache time',
+                                help: 'Cached search results are removed when they have not been accessed for this time.',
+                                addonRight: {
+                                    text: 'minutes'
+                                }
+                            }
+                        },
                         {
                             wrapper: 'fieldset',
                             templateOptions: {
@@ -817,6 +1008,54 @@ function ConfigFields($injector) {
                                         help: 'Meta data from searches is stored in the database. When they\'re deleted existing links to Hydra become invalid.'
                                     }
                                 },
+                                {
+                                    key: 'keepSearchHistoryForDays',
+                                    type: 'horizontalInput',
+                                    templateOptions: {
+                                        type: 'number',
+                                        label: 'Store search history for ...',
+                                        addonRight: {
+                                            text: 'days'
+                                        },
+                                        required: true,
+                                        help: 'Searches older than this are deleted from the history and the stats. Set to 0 to keep them forever.'
+                                    }
+                                },
+                                {
+                                    key: 'keepIndexerSearchesForDays',
+                                    type: 'horizontalInput',
+                                    templateOptions: {
+                                        type: 'number',
+                                        label: 'Store indexer searches for ...',
+                                        addonRight: {
+                                            text: 'days'
+                                        },
+                                        required: true,
+                                        help: 'The indexer searches of a search are used for the stats. They are deleted with their search or earlier if set lower. Set to 0 to keep them as long as their search.'
+                                    }
+                                },
+                                {
+                                    key: 'keepApiAccessesForDays',
+                                    type: 'horizontalInput',
+                                    templateOptions: {
+                                        type: 'number',
+                                        label: 'Store API accesses for ...',
+                                        addonRight: {
+                                            text: 'days'
+                                        },
+                                        required: true,
+                                        help: 'Indexer API accesses older than this are deleted. They are used for the stats. Set to 0 to keep them forever.'
+                                    }
+                                },
+                                {
+                                    key: 'indexSearchResults',
+                                    type: 'horizontalSwitch',
+                                    templateOptions: {
+                                        type: 'switch',
+                                        label: 'Index stored results',
+                                        help: 'Keep an index of the titles of all stored results in memory so that they can be searched instantly. Needs some memory when many results are stored.'
+                                    }
+                                },
                                 {
                                     key: 'showQuickFilterButtons',
                                     type: 'horizontalSwitch',
@@ -172,29 +172,51 @@ function SearchController($scope, $http, $stateParams, $state, $uibModal, $timeo
         // console.time("searchall");
         isSearchCancelled = false;
         searchRequestId = Math.round(Math.random() * 999999);
-        var modalInstance = $scope.openModal(searchRequestId);
+        var searchFinished = false;
+        var showingPartialResults = false;
+
+        function goToResults() {
+            $state.go("root.search.results", {
+                minsize: $scope.minsize,
+                maxsize: $scope.maxsize,
+                minage: $scope.minage,
+                maxage: $scope.maxage
+            }, {
+                inherit: true,
+                //The partial results are already shown, so the results state must be reloaded to show the final ones
+                reload: showingPartialResults ? "root.search.results" : false
+            });
+        }
+
+        //Called by the search state modal when the user wants to see the results of the indexers which have answered so far
+        function showPartialResults() {
+            SearchService.getPartialResults(searchRequestId).then(function () {
+                if (!isSearchCancelled && !searchFinished) {
+                    SearchService.setModalInstance(modalInstance);
+                    goToResults();
+                    showingPartialResults = true;
+                }
+            });
+        }
+
+        var modalInstance = $scope.openModal(searchRequestId, showPartialResults);
 
         var indexers = angular.isUndefined($scope.indexers) ? undefined : $scope.indexers.join(",");
         SearchService.search(searchRequestId, $scope.category.name, $scope.query, $scope.selectedItem, $scope.season, $scope.episode, $scope.minsize, $scope.maxsize, $scope.minage, $scope.maxage, indexers, $scope.mode).then(function () {
                 //modalInstance.close();
+                searchFinished = true;
                 SearchService.setModalInstance(modalInstance);
                 if (!isSearchCancelled) {
-                    $state.go("root.search.results", {
-                        minsize: $scope.minsize,
-                        maxsize: $scope.maxsize,
-                        minage: $scope.minage,
-                        maxage: $scope.maxage
-                    }, {
-                        inherit: true
-                    });
+                    goToResults();
                 }
             },
             function () {
+                searchFinished = true;
                 modalInstance.close();
             });
     };
 
-    $scope.openModal = function openModal(searchRequestId) {
+    $scope.openModal = function openModal(searchRequestId, onShowPartialResults) {
         return $uibModal.open({
             templateUrl: 'static/html/search-state.html',
             controller: SearchUpdateModalInstanceCtrl,
@@ -211,6 +233,9 @@ function SearchController($scope, $http, $stateParams, $state, $uibModal, $timeo
                     }
 
                     return cancel;
+                },
+                onShowPartialResults: function () {
+                    return onShowPartialResults;
                 }
             }
         });
@@ -354,7 +379,7 @@ angular
     .module('nzbhydraApp')
     .controller('SearchUpdateModalInstanceCtrl', SearchUpdateModalInstanceCtrl);
 
-function SearchUpdateModalInstanceCtrl($scope, $interval, SearchService, $uibModalInstance, searchRequestId, onCancel) {
+function SearchUpdateModalInstanceCtrl($scope, $interval, SearchService, $uibModalInstance, searchRequestId, onCancel, onShowPartialResults) {
 
     var updateSearchMessagesInterval = undefined;
     var loggedSearchFinished = false;
@@ -362,6 +387,7 @@ function SearchUpdateModalInstanceCtrl($scope, $interval, SearchService, $uibMod
     $scope.indexerSelectionFinished = false;
     $scope.indexersSelected = 0;
     $scope.indexersFinished = 0;
+    $scope.partialResultsAvailable = false;
 
     updateSearchMessagesInterval = $interval(function () {
         SearchService.getSearchState(searchRequestId).then(function (data) {
@@ -369,6 +395,7 @@ function SearchUpdateModalInstanceCtrl($scope, $interval, SearchService, $uibMod
                 $scope.searchFinished = data.data.searchFinished;
                 $scope.indexersSelected = data.data.indexersSelected;
                 $scope.indexersFinished = data.data.indexersFinished;
+                $scope.partialResultsAvailable = data.data.partialResultsAvailable && !data.data.searchFinished;
                 $scope.progressMax = data.data.indexersSelected;
                 if ($scope.progressMax > data.data.indexersSelected) {
                     $scope.progressMax = ">=" + data.data.indexersSelected;
@@ -387,6 +414,14 @@ function SearchUpdateModalInstanceCtrl($scope, $interval, SearchService, $uibMod
         );
     }, 100);
 
+    $scope.showPartialResults = function () {
+        if (angular.isDefined(updateSearchMessagesInterval)) {
+            $interval.cancel(updateSearchMessagesInterval);
+        }
+        $scope.messages.push("Loading results found so far...");
+        onShowPartialResults();
+    };
+
     $scope.cancelSearch = function () {
         if (angular.isDefined(updateSearchMessagesInterval)) {
             $interval.cancel(updateSearchMessagesInterval);
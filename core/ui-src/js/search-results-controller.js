@@ -159,6 +159,9 @@ function SearchResultsController($stateParams, $scope, $q, $timeout, $document,
 
     setDataFromSearchResult(SearchService.getLastResults(), []);
     $scope.$emit("searchResultsShown");
+    if (SearchService.getLastResults().searchStillRunning) {
+        growl.info("Showing the results of the indexers which have answered so far. They will be replaced when all indexers have answered.");
+    }
     if (!SearchService.getLastResults().searchResults || SearchService.getLastResults().searchResults.length === 0) {
         //Close modal instance because no search results will be rendered that could trigger the closing
         SearchService.getModalInstance().close();
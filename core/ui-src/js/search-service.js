@@ -16,6 +16,7 @@ function SearchService($http) {
         getLastResults: getLastResults,
         loadMore: loadMore,
         getSearchState: getSearchState,
+        getPartialResults: getPartialResults,
         getModalInstance: getModalInstance,
         setModalInstance: setModalInstance,
     };
@@ -74,6 +75,14 @@ function SearchService($http) {
         return $http.get("internalapi/search/state", {params: {searchrequestid: searchRequestId}});
     }
 
+    function getPartialResults(searchRequestId) {
+        return $http.get("internalapi/search/partial", {params: {searchrequestid: searchRequestId}}).then(function (response) {
+            var results = processData(response);
+            results.searchStillRunning = true;
+            return results;
+        });
+    }
+
     function processData(response) {
         var searchResults = response.data.searchResults;
         var indexerSearchMetaDatas = response.data.indexerSearchMetaDatas;
@@ -83,6 +92,7 @@ function SearchService($http) {
         var numberOfProcessedResults = response.data.numberOfProcessedResults;
         var rejectedReasonsMap = response.data.rejectedReasonsMap;
         var notPickedIndexersWithReason = response.data.notPickedIndexersWithReason;
+        var partial = response.data.partial;
 
         lastResults = {
             "searchResults": searchResults,
@@ -92,8 +102,8 @@ function SearchService($http) {
             "numberOfRejectedResults": numberOfRejectedResults,
             "numberOfProcessedResults": numberOfProcessedResults,
             "rejectedReasonsMap": rejectedReasonsMap,
-            "notPickedIndexersWithReason": notPickedIndexersWithReason
-
+            "notPickedIndexersWithReason": notPickedIndexersWithReason,
+            "partial": partial
         };
         // console.timeEnd("searchonly");
         return lastResults;
@@ -0,0 +1,201 @@
+package org.nzbhydra.mapping.newznab;
+
+import com.google.common.base.Strings;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.io.Reader;
+
+/**
+ * Reads newznab and torznab responses using a StAX pull parser. Creates the same {@link RssRoot} or {@link RssError} as JAXB would but doesn't
+ * need a complete DOM or reflection and skips everything not mapped by the model classes.
+ * <p>
+ * Throws an {@link XMLStreamException} for anything it doesn't understand (e.g. caps responses), callers should fall back to JAXB in that case.
+ */
+public class RssStaxParser {
+
+    private static final String NEWZNAB_NAMESPACE = "http://www.newznab.com/DTD/2010/feeds/attributes/";
+    private static final String TORZNAB_NAMESPACE = "http://torznab.com/schemas/2015/feed";
+    private static final XMLInputFactory XML_INPUT_FACTORY = createXmlInputFactory();
+    private static final JaxbPubdateAdapter PUBDATE_ADAPTER = new JaxbPubdateAdapter();
+
+    private static XMLInputFactory createXmlInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+
+    public static Xml parse(InputStream inputStream) throws XMLStreamException {
+        return parse(XML_INPUT_FACTORY.createXMLStreamReader(inputStream));
+    }
+
+    public static Xml parse(Reader reader) throws XMLStreamException {
+        return parse(XML_INPUT_FACTORY.createXMLStreamReader(reader));
+    }
+
+    private static Xml parse(XMLStreamReader reader) throws XMLStreamException {
+        try {
+            reader.nextTag();
+            if (isElement(reader, "", "rss")) {
+                return parseRssRoot(reader);
+            }
+            if (isElement(reader, "", "error")) {
+                return parseError(reader);
+            }
+            throw new XMLStreamException("Unknown root element " + reader.getName());
+        } catch (RuntimeException e) {
+            //E.g. a pubdate or number which can't be parsed
+            throw new XMLStreamException("Unable to parse response: " + e.getMessage(), e);
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static RssRoot parseRssRoot(XMLStreamReader reader) throws XMLStreamException {
+        RssRoot rssRoot = new RssRoot();
+        String version = reader.getAttributeValue(null, "version");
+        if (version != null) {
+            rssRoot.setVersion(version);
+        }
+        while (nextChildElement(reader)) {
+            if (isElement(reader, "", "channel")) {
+                rssRoot.setRssChannel(parseChannel(reader));
+            } else if (isElement(reader, "", "error")) {
+                rssRoot.setError(parseError(reader));
+            } else {
+                skipElement(reader);
+            }
+        }
+        return rssRoot;
+    }
+
+    private static RssError parseError(XMLStreamReader reader) throws XMLStreamException {
+        RssError error = new RssError(reader.getAttributeValue(null, "code"), reader.getAttributeValue(null, "description"));
+        skipElement(reader);
+        return error;
+    }
+
+    private static RssChannel parseChannel(XMLStreamReader reader) throws XMLStreamException {
+        RssChannel channel = new RssChannel();
+        while (nextChildElement(reader)) {
+            if (isElement(reader, "", "item")) {
+                channel.getItems().add(parseItem(reader));
+            } else if (isElement(reader, NEWZNAB_NAMESPACE, "response")) {
+                channel.setNewznabResponse(new NewznabResponse(parseInteger(reader.getAttributeValue(null, "offset")), parseInteger(reader.getAttributeValue(null, "total"))));
+                skipElement(reader);
+            } else if (isElement(reader, "", "title")) {
+                channel.setTitle(reader.getElementText());
+            } else if (isElement(reader, "", "description")) {
+                channel.setDescription(reader.getElementText());
+            } else if (isElement(reader, "", "link")) {
+                channel.setLink(reader.getElementText());
+            } else if (isElement(reader, "", "language")) {
+                channel.setLanguage(reader.getElementText());
+            } else if (isElement(reader, "", "webMaster")) {
+                channel.setWebMaster(reader.getElementText());
+            } else if (isElement(reader, "", "generator")) {
+                channel.setGenerator(reader.getElementText());
+            } else {
+                skipElement(reader);
+            }
+        }
+        return channel;
+    }
+
+    private static RssItem parseItem(XMLStreamReader reader) throws XMLStreamException {
+        RssItem item = new RssItem();
+        while (nextChildElement(reader)) {
+            if (isElement(reader, NEWZNAB_NAMESPACE, "attr")) {
+                item.getNewznabAttributes().add(parseAttribute(reader));
+            } else if (isElement(reader, TORZNAB_NAMESPACE, "attr")) {
+                item.getTorznabAttributes().add(parseAttribute(reader));
+            } else if (isElement(reader, "", "title")) {
+                item.setTitle(reader.getElementText());
+            } else if (isElement(reader, "", "link")) {
+                item.setLink(reader.getElementText());
+            } else if (isElement(reader, "", "pubDate")) {
+                item.setPubDate(PUBDATE_ADAPTER.unmarshal(reader.getElementText()));
+            } else if (isElement(reader, "", "guid")) {
+                RssGuid rssGuid = new RssGuid();
+                rssGuid.setPermaLink(parseBoolean(reader.getAttributeValue(null, "isPermaLink")));
+                rssGuid.setGuid(reader.getElementText());
+                item.setRssGuid(rssGuid);
+            } else if (isElement(reader, "", "description")) {
+                item.setDescription(reader.getElementText());
+            } else if (isElement(reader, "", "comments")) {
+                item.setComments(reader.getElementText());
+            } else if (isElement(reader, "", "category")) {
+                item.setCategory(reader.getElementText());
+            } else if (isElement(reader, "", "grabs")) {
+                item.setGrabs(parseInteger(reader.getElementText()));
+            } else if (isElement(reader, "", "enclosure")) {
+                Enclosure enclosure = new Enclosure();
+                enclosure.setUrl(reader.getAttributeValue(null, "url"));
+                String length = reader.getAttributeValue(null, "length");
+                enclosure.setLength(length == null ? null : Long.valueOf(length.trim()));
+                enclosure.setType(reader.getAttributeValue(null, "type"));
+                item.setEnclosure(enclosure);
+                skipElement(reader);
+            } else {
+                skipElement(reader);
+            }
+        }
+        return item;
+    }
+
+    private static NewznabAttribute parseAttribute(XMLStreamReader reader) throws XMLStreamException {
+        NewznabAttribute attribute = new NewznabAttribute(reader.getAttributeValue(null, "name"), reader.getAttributeValue(null, "value"));
+        skipElement(reader);
+        return attribute;
+    }
+
+    /**
+     * Moves to the next child element of the current element.
+     *
+     * @return false if the end of the current element was reached instead
+     */
+    private static boolean nextChildElement(XMLStreamReader reader) throws XMLStreamException {
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                return true;
+            }
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    private static boolean isElement(XMLStreamReader reader, String namespace, String localName) {
+        return localName.equals(reader.getLocalName()) && namespace.equals(Strings.nullToEmpty(reader.getNamespaceURI()));
+    }
+
+    private static Integer parseInteger(String value) {
+        return value == null ? null : Integer.valueOf(value.trim());
+    }
+
+    private static boolean parseBoolean(String value) {
+        //Same as JAXB
+        return value != null && (value.trim().equals("true") || value.trim().equals("1"));
+    }
+
+}